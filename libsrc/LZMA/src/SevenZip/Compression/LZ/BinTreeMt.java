@@ -0,0 +1,442 @@
+// LZ.BinTreeMt
+
+package SevenZip.Compression.LZ;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Binary tree match finder which runs in one task of the executor, pipelined
+ * with the encoder. The finder task reads the input stream and computes the
+ * matches of the positions ahead of the encoder, the encoder only reads the
+ * results. The matches are still found by one thread, only the match finding
+ * and the encoding overlap, so the encoding is at most about two times
+ * faster. The output is the same as the output of BinTree.
+ *
+ * The bytes read by the finder task are passed to the window of the
+ * encoder, so both windows have the size of the BinTree window and the input
+ * is not limited by the memory.
+ *
+ * When the executor does not start the finder task in time, e.g. because all
+ * its threads are busy, the encoder finds the matches itself like BinTree.
+ */
+public class BinTreeMt extends BinTree
+{
+	static final int kBlockPositions = 1 << 16;
+	static final int kNumBlocks = 4;
+	static final long kStartTimeoutMillis = 100;
+
+	static class Block
+	{
+		int[] data;
+		int size;
+		int numPositions;
+		boolean end;
+
+		Block(int capacity)
+		{
+			data = new int[capacity];
+		}
+	}
+
+	static final byte[] kEndChunk = new byte[0];
+
+	int _numHashBytes = 4;
+	int _historySize;
+	int _keepAddBufferBefore;
+	int _keepAddBufferAfter;
+
+	final Executor _executor;
+	Finder _finder;
+	boolean _inline;
+	volatile Throwable _finderError;
+	BlockingQueue<Block> _fullBlocks;
+	BlockingQueue<Block> _freeBlocks;
+	BlockingQueue<byte[]> _chunks;
+	Block _block;
+	int _blockPos;
+	int _blockPositionsLeft;
+
+	public BinTreeMt(Executor executor)
+	{
+		_executor = executor;
+	}
+
+	public void SetType(int numHashBytes)
+	{
+		super.SetType(numHashBytes);
+		_numHashBytes = numHashBytes;
+	}
+
+	public boolean Create(int historySize, int keepAddBufferBefore,
+			int matchMaxLen, int keepAddBufferAfter)
+	{
+		if (historySize > kMaxValForNormalize - 256)
+			return false;
+		_historySize = historySize;
+		_keepAddBufferBefore = keepAddBufferBefore;
+		_matchMaxLen = matchMaxLen;
+		_keepAddBufferAfter = keepAddBufferAfter;
+
+		// the window of the encoder, the trees are in the finder thread
+		int windowReservSize = (historySize + keepAddBufferBefore +
+				matchMaxLen + keepAddBufferAfter) / 2 + 256;
+		Create(historySize + keepAddBufferBefore, matchMaxLen + keepAddBufferAfter, windowReservSize);
+		return true;
+	}
+
+	public void Init() throws IOException
+	{
+		StopFinder();
+
+		// not bounded, so the finder can always add the end or error block
+		_fullBlocks = new LinkedBlockingQueue<Block>();
+		_freeBlocks = new ArrayBlockingQueue<Block>(kNumBlocks);
+		for (int i = 0; i < kNumBlocks; i++)
+			_freeBlocks.add(new Block(kBlockPositions * 4));
+		_chunks = new LinkedBlockingQueue<byte[]>();
+		_block = null;
+		_blockPositionsLeft = 0;
+		_finderError = null;
+		_inline = false;
+
+		Finder finder = new Finder(_stream);
+		_finder = finder;
+		_executor.execute(finder);
+		boolean started;
+		try
+		{
+			started = finder._started.await(kStartTimeoutMillis, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		if (!started && finder._claimed.compareAndSet(false, true))
+		{
+			// the executor is busy, do not wait for it
+			_finder = null;
+			_inline = true;
+			super.Create(_historySize, _keepAddBufferBefore, _matchMaxLen, _keepAddBufferAfter);
+			super.Init();
+			return;
+		}
+
+		// same as BinTree.Init, the bytes come from the finder task
+		_stream = new ChunkInputStream();
+		_bufferOffset = 0;
+		_pos = 0;
+		_streamPos = 0;
+		_streamEndWasReached = false;
+		ReadBlock();
+		ReduceOffsets(-1);
+	}
+
+	/**
+	 * Task which finds the matches ahead of the encoder
+	 */
+	class Finder implements Runnable
+	{
+		final InputStream _in;
+		final AtomicBoolean _claimed = new AtomicBoolean();
+		final CountDownLatch _started = new CountDownLatch(1);
+		final CountDownLatch _done = new CountDownLatch(1);
+		volatile boolean _stop;
+
+		Finder(InputStream in)
+		{
+			_in = in;
+		}
+
+		public void run()
+		{
+			if (!_claimed.compareAndSet(false, true))
+				return;
+			_started.countDown();
+			try
+			{
+				BinTree finder = new BinTree();
+				finder.SetType(_numHashBytes);
+				finder.Create(_historySize, _keepAddBufferBefore, _matchMaxLen, _keepAddBufferAfter);
+				finder.SetStream(new TeeInputStream(_in));
+				finder.Init();
+				FindMatches(finder, this);
+			}
+			catch (Throwable t)
+			{
+				if (!_stop)
+				{
+					_finderError = t;
+					Block errorBlock = new Block(0);
+					errorBlock.end = true;
+					_fullBlocks.offer(errorBlock);
+					_chunks.offer(kEndChunk);
+				}
+			}
+			finally
+			{
+				_done.countDown();
+			}
+		}
+
+		/**
+		 * Stops the task and waits for it, the task does not start when it
+		 * has not started yet
+		 */
+		void Stop()
+		{
+			if (_claimed.compareAndSet(false, true))
+				return;
+			_stop = true;
+			// wakes the finder waiting for a free block
+			_freeBlocks.offer(new Block(0));
+			try
+			{
+				_done.await();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Stream read by the finder, it passes the read bytes to the encoder
+	 */
+	class TeeInputStream extends InputStream
+	{
+		final InputStream _in;
+
+		TeeInputStream(InputStream in)
+		{
+			_in = in;
+		}
+
+		public int read() throws IOException
+		{
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			int numReadBytes = _in.read(b, off, len);
+			if (numReadBytes == -1)
+				_chunks.offer(kEndChunk);
+			else if (numReadBytes > 0)
+				_chunks.offer(Arrays.copyOfRange(b, off, off + numReadBytes));
+			return numReadBytes;
+		}
+	}
+
+	/**
+	 * Stream read by the window of the encoder
+	 */
+	class ChunkInputStream extends InputStream
+	{
+		byte[] _chunk = null;
+		int _chunkPos;
+
+		public int read() throws IOException
+		{
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			if (len == 0)
+				return 0;
+			if (_chunk == null || (_chunkPos == _chunk.length && _chunk != kEndChunk))
+			{
+				try
+				{
+					_chunk = _chunks.take();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				}
+				_chunkPos = 0;
+			}
+			if (_chunk == kEndChunk)
+			{
+				CheckFinderError();
+				return -1;
+			}
+			int numBytes = Math.min(len, _chunk.length - _chunkPos);
+			System.arraycopy(_chunk, _chunkPos, b, off, numBytes);
+			_chunkPos += numBytes;
+			return numBytes;
+		}
+	}
+
+	void FindMatches(BinTree finder, Finder task) throws IOException, InterruptedException
+	{
+		int[] distances = new int[(_matchMaxLen + 2) * 2];
+		while (finder.GetNumAvailableBytes() > 0)
+		{
+			Block block = _freeBlocks.take();
+			if (task._stop)
+				return;
+			int size = 0;
+			int numPositions = 0;
+			int[] data = block.data;
+			while (numPositions < kBlockPositions && finder.GetNumAvailableBytes() > 0)
+			{
+				if (task._stop)
+					return;
+				int count = finder.GetMatches(distances);
+				if (size + count + 1 > data.length)
+				{
+					int[] newData = new int[Math.max(data.length * 2, size + count + 1)];
+					System.arraycopy(data, 0, newData, 0, size);
+					block.data = data = newData;
+				}
+				data[size++] = count;
+				System.arraycopy(distances, 0, data, size, count);
+				size += count;
+				numPositions++;
+			}
+			block.size = size;
+			block.numPositions = numPositions;
+			block.end = false;
+			_fullBlocks.put(block);
+		}
+		Block endBlock = new Block(0);
+		endBlock.end = true;
+		_fullBlocks.put(endBlock);
+	}
+
+	void CheckFinderError() throws IOException
+	{
+		if (_finderError != null)
+		{
+			IOException e = new IOException("Match finder failed");
+			e.initCause(_finderError);
+			throw e;
+		}
+	}
+
+	/**
+	 * Moves to the results of the next position
+	 *
+	 * @return False after the last position of the input
+	 */
+	boolean NextResult() throws IOException
+	{
+		if (_blockPositionsLeft == 0)
+		{
+			if (_block != null && _block.end)
+				return false;
+			if (_block != null)
+				_freeBlocks.offer(_block);
+			try
+			{
+				_block = _fullBlocks.take();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+			CheckFinderError();
+			if (_block.end)
+				return false;
+			_blockPos = 0;
+			_blockPositionsLeft = _block.numPositions;
+		}
+		_blockPositionsLeft--;
+		return true;
+	}
+
+	/**
+	 * Same as InWindow.MovePos and the normalization of BinTree, only the
+	 * window of the encoder is moved
+	 */
+	void MoveWindowPos() throws IOException
+	{
+		_pos++;
+		if (_pos > _posLimit)
+		{
+			int pointerToPostion = _bufferOffset + _pos;
+			if (pointerToPostion > _pointerToLastSafePosition)
+				MoveBlock();
+			ReadBlock();
+		}
+		if (_pos == kMaxValForNormalize)
+			ReduceOffsets(_pos - (_historySize + 1));
+	}
+
+	public int GetMatches(int[] distances) throws IOException
+	{
+		if (_inline)
+			return super.GetMatches(distances);
+		int count = 0;
+		if (NextResult())
+		{
+			int[] data = _block.data;
+			count = data[_blockPos++];
+			System.arraycopy(data, _blockPos, distances, 0, count);
+			_blockPos += count;
+		}
+		MoveWindowPos();
+		return count;
+	}
+
+	public void Skip(int num) throws IOException
+	{
+		if (_inline)
+		{
+			super.Skip(num);
+			return;
+		}
+		do
+		{
+			if (NextResult())
+				_blockPos += _block.data[_blockPos] + 1;
+			MoveWindowPos();
+		}
+		while (--num != 0);
+	}
+
+	public void MovePos() throws IOException
+	{
+		if (_inline)
+		{
+			super.MovePos();
+			return;
+		}
+		Skip(1);
+	}
+
+	void StopFinder()
+	{
+		if (_finder != null)
+		{
+			_finder.Stop();
+			_finder = null;
+		}
+	}
+
+	public void ReleaseStream()
+	{
+		super.ReleaseStream();
+		StopFinder();
+		_block = null;
+		_fullBlocks = null;
+		_freeBlocks = null;
+		_chunks = null;
+	}
+}
@@ -5,6 +5,7 @@ import SevenZip.Compression.LZMA.Base;
 import SevenZip.Compression.LZ.BinTree;
 import SevenZip.ICodeProgress;
 import java.io.IOException;
+import java.util.concurrent.Executor;
 
 public class Encoder
 {
@@ -359,11 +360,15 @@ public class Encoder
 
 	boolean _needReleaseMFStream = false;
 
+	Executor _matchFinderExecutor = null;
+
 	void Create()
 	{
 		if (_matchFinder == null)
 		{
-			SevenZip.Compression.LZ.BinTree bt = new SevenZip.Compression.LZ.BinTree();
+			SevenZip.Compression.LZ.BinTree bt = _matchFinderExecutor != null ?
+					new SevenZip.Compression.LZ.BinTreeMt(_matchFinderExecutor) :
+					new SevenZip.Compression.LZ.BinTree();
 			int numHashBytes = 4;
 			if (_matchFinderType == EMatchFinderTypeBT2)
 				numHashBytes = 2;
@@ -1412,5 +1417,17 @@ public class Encoder
 	{
 		_writeEndMark = endMarkerMode;
 	}
+
+	// the match finder runs in a task of the executor, pipelined with the encoder,
+	// null executor for the match finder in the encoding thread
+	public void SetMultiThread(Executor executor)
+	{
+		if (_matchFinder != null && _matchFinderExecutor != executor)
+		{
+			_dictionarySizePrev = -1;
+			_matchFinder = null;
+		}
+		_matchFinderExecutor = executor;
+	}
 }
 
@@ -0,0 +1,90 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.benchmark;
+
+import com.jpexs.decompiler.flash.SWF;
+import com.jpexs.decompiler.flash.action.Action;
+import com.jpexs.decompiler.flash.action.ActionList;
+import com.jpexs.decompiler.flash.helpers.CodeFormatting;
+import com.jpexs.decompiler.flash.helpers.HighlightedTextWriter;
+import com.jpexs.decompiler.flash.tags.base.ASMSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * ActionScript 2 decompilation of single scripts. The actions are read in the
+ * setup, the benchmark measures only the decompilation to text.
+ *
+ * @author JPEXS
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class As2DecompilationBenchmark {
+
+    @Param({BenchmarkCorpus.AS2_SWF})
+    public String file;
+
+    private final List<ASMSource> sources = new ArrayList<>();
+
+    private final List<ActionList> actions = new ArrayList<>();
+
+    private int index;
+
+    @Setup
+    public void setup() throws IOException, InterruptedException {
+        BenchmarkCorpus.configure();
+        SWF swf = BenchmarkCorpus.load(file);
+        for (ASMSource src : swf.getASMs(false).values()) {
+            ActionList list = src.getActions();
+            if (!list.isEmpty()) {
+                sources.add(src);
+                actions.add(list);
+            }
+        }
+
+        if (sources.isEmpty()) {
+            throw new IllegalStateException("No ActionScript in " + file);
+        }
+    }
+
+    /**
+     * Decompiles the next script of the corpus, one script per invocation
+     *
+     * @return Decompiled text
+     * @throws InterruptedException
+     */
+    @Benchmark
+    public String decompileScript() throws InterruptedException {
+        int i = index;
+        index = (i + 1) % sources.size();
+        ASMSource src = sources.get(i);
+        HighlightedTextWriter writer = new HighlightedTextWriter(new CodeFormatting(), false);
+        Action.actionsToSource(src, actions.get(i), src.toString(), writer);
+        return writer.toString();
+    }
+}
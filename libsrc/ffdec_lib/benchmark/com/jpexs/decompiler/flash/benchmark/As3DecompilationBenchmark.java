@@ -0,0 +1,138 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.benchmark;
+
+import com.jpexs.decompiler.flash.SWF;
+import com.jpexs.decompiler.flash.abc.ABC;
+import com.jpexs.decompiler.flash.abc.types.MethodBody;
+import com.jpexs.decompiler.flash.abc.types.traits.Trait;
+import com.jpexs.decompiler.flash.abc.types.traits.TraitClass;
+import com.jpexs.decompiler.flash.abc.types.traits.TraitMethodGetterSetter;
+import com.jpexs.decompiler.flash.abc.types.traits.Traits;
+import com.jpexs.decompiler.flash.exporters.modes.ScriptExportMode;
+import com.jpexs.decompiler.flash.helpers.CodeFormatting;
+import com.jpexs.decompiler.flash.helpers.HighlightedTextWriter;
+import com.jpexs.decompiler.flash.tags.ABCContainerTag;
+import com.jpexs.decompiler.graph.ScopeStack;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * ActionScript 3 decompilation of single methods of the classes
+ *
+ * @author JPEXS
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class As3DecompilationBenchmark {
+
+    @Param({BenchmarkCorpus.AS3_SWF})
+    public String file;
+
+    private final List<MethodEntry> methods = new ArrayList<>();
+
+    private int index;
+
+    private static class MethodEntry {
+
+        ABC abc;
+
+        int scriptIndex;
+
+        int classIndex;
+
+        boolean isStatic;
+
+        TraitMethodGetterSetter trait;
+
+        Traits traits;
+
+        MethodBody body;
+    }
+
+    @Setup
+    public void setup() throws IOException, InterruptedException {
+        BenchmarkCorpus.configure();
+        SWF swf = BenchmarkCorpus.load(file);
+        for (ABCContainerTag tag : swf.getAbcList()) {
+            ABC abc = tag.getABC();
+            for (int s = 0; s < abc.script_info.size(); s++) {
+                for (Trait trait : abc.script_info.get(s).traits.traits) {
+                    if (trait instanceof TraitClass) {
+                        int classIndex = ((TraitClass) trait).class_info;
+                        addMethods(abc, s, classIndex, false, abc.instance_info.get(classIndex).instance_traits);
+                        addMethods(abc, s, classIndex, true, abc.class_info.get(classIndex).static_traits);
+                    }
+                }
+            }
+        }
+
+        if (methods.isEmpty()) {
+            throw new IllegalStateException("No methods in " + file);
+        }
+    }
+
+    private void addMethods(ABC abc, int scriptIndex, int classIndex, boolean isStatic, Traits traits) {
+        for (Trait trait : traits.traits) {
+            if (trait instanceof TraitMethodGetterSetter) {
+                TraitMethodGetterSetter methodTrait = (TraitMethodGetterSetter) trait;
+                MethodBody body = abc.findBody(methodTrait.method_info);
+                if (body != null) {
+                    MethodEntry entry = new MethodEntry();
+                    entry.abc = abc;
+                    entry.scriptIndex = scriptIndex;
+                    entry.classIndex = classIndex;
+                    entry.isStatic = isStatic;
+                    entry.trait = methodTrait;
+                    entry.traits = traits;
+                    entry.body = body;
+                    methods.add(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decompiles the next method of the corpus, one method per invocation
+     *
+     * @return Decompiled text
+     * @throws InterruptedException
+     */
+    @Benchmark
+    public String decompileMethod() throws InterruptedException {
+        int i = index;
+        index = (i + 1) % methods.size();
+        MethodEntry entry = methods.get(i);
+        ABC abc = entry.abc;
+        List<String> fullyQualifiedNames = new ArrayList<>();
+        HighlightedTextWriter writer = new HighlightedTextWriter(new CodeFormatting(), false);
+        entry.body.convert("benchmark", ScriptExportMode.AS, entry.isStatic, entry.scriptIndex, entry.classIndex, abc, entry.trait, abc.constants, abc.method_info, new ScopeStack(), false, writer, fullyQualifiedNames, entry.traits, false);
+        entry.body.toString("benchmark", ScriptExportMode.AS, abc, entry.trait, abc.constants, abc.method_info, writer, fullyQualifiedNames);
+        return writer.toString();
+    }
+}
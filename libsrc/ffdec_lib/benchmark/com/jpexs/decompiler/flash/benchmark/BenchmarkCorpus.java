@@ -0,0 +1,61 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.benchmark;
+
+import com.jpexs.decompiler.flash.SWF;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Fixed set of SWF files measured by the benchmarks. The paths are relative
+ * to the library directory, the benchmark target runs the forks there.
+ *
+ * @author JPEXS
+ */
+public class BenchmarkCorpus {
+
+    public static final String AS2_SWF = "testdata/as2/as2.swf";
+
+    public static final String AS3_SWF = "testdata/as3/as3.swf";
+
+    /**
+     * Sets the configuration to the same values in every fork, so the
+     * results do not depend on the configuration file of the user
+     */
+    public static void configure() {
+        Configuration.autoDeobfuscate.set(false);
+        Configuration.decompile.set(true);
+        Configuration.registerNameFormat.set("_loc%d_");
+        Configuration.showMethodBodyId.set(false);
+        Configuration.persistentScriptCache.set(false);
+    }
+
+    public static byte[] readFile(String path) throws IOException {
+        return Files.readAllBytes(Paths.get(path));
+    }
+
+    public static SWF load(byte[] data, boolean parallelRead, boolean lazy) throws IOException, InterruptedException {
+        return new SWF(new ByteArrayInputStream(data), parallelRead, lazy);
+    }
+
+    public static SWF load(String path) throws IOException, InterruptedException {
+        return load(readFile(path), false, false);
+    }
+}
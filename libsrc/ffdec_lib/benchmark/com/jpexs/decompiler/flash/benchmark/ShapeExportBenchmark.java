@@ -0,0 +1,97 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.benchmark;
+
+import com.jpexs.decompiler.flash.SWF;
+import com.jpexs.decompiler.flash.exporters.commonshape.ExportRectangle;
+import com.jpexs.decompiler.flash.exporters.commonshape.Matrix;
+import com.jpexs.decompiler.flash.exporters.commonshape.SVGExporter;
+import com.jpexs.decompiler.flash.exporters.shape.BitmapExporter;
+import com.jpexs.decompiler.flash.tags.Tag;
+import com.jpexs.decompiler.flash.tags.base.ShapeTag;
+import com.jpexs.decompiler.flash.types.CXFORMWITHALPHA;
+import com.jpexs.decompiler.flash.types.RECT;
+import com.jpexs.helpers.SerializableImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Rasterization and SVG export of all the shapes
+ *
+ * @author JPEXS
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShapeExportBenchmark {
+
+    @Param({BenchmarkCorpus.AS2_SWF, BenchmarkCorpus.AS3_SWF})
+    public String file;
+
+    private SWF swf;
+
+    private final List<ShapeTag> shapes = new ArrayList<>();
+
+    @Setup
+    public void setup() throws IOException, InterruptedException {
+        BenchmarkCorpus.configure();
+        swf = BenchmarkCorpus.load(file);
+        for (Tag tag : swf.tags) {
+            if (tag instanceof ShapeTag) {
+                ShapeTag shape = (ShapeTag) tag;
+                // parse the shape records outside of the measurement
+                shape.getShapes();
+                shapes.add(shape);
+            }
+        }
+    }
+
+    @Benchmark
+    public void rasterize(Blackhole blackhole) {
+        for (ShapeTag shape : shapes) {
+            RECT rect = shape.getRect();
+            int width = (int) (rect.getWidth() / SWF.unitDivisor) + 1;
+            int height = (int) (rect.getHeight() / SWF.unitDivisor) + 1;
+            SerializableImage image = new SerializableImage(width, height, SerializableImage.TYPE_INT_ARGB);
+            image.fillTransparent();
+            Matrix matrix = new Matrix();
+            matrix.translate(-rect.Xmin, -rect.Ymin);
+            BitmapExporter.export(swf, shape.getShapes(), null, image, matrix, new CXFORMWITHALPHA());
+            blackhole.consume(image);
+        }
+    }
+
+    @Benchmark
+    public void exportSvg(Blackhole blackhole) throws IOException {
+        for (ShapeTag shape : shapes) {
+            SVGExporter exporter = new SVGExporter(new ExportRectangle(shape.getRect()));
+            shape.toSVG(exporter, -2, new CXFORMWITHALPHA(), 0, 1);
+            blackhole.consume(exporter.getSVG());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.benchmark;
+
+import com.jpexs.decompiler.flash.SWF;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * SWF construction from memory, lazy and non-lazy, parallel and serial
+ *
+ * @author JPEXS
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SwfReadBenchmark {
+
+    @Param({BenchmarkCorpus.AS2_SWF, BenchmarkCorpus.AS3_SWF})
+    public String file;
+
+    @Param({"false", "true"})
+    public boolean parallelRead;
+
+    @Param({"false", "true"})
+    public boolean lazy;
+
+    private byte[] data;
+
+    @Setup
+    public void setup() throws IOException {
+        BenchmarkCorpus.configure();
+        data = BenchmarkCorpus.readFile(file);
+    }
+
+    @Benchmark
+    public SWF read() throws IOException, InterruptedException {
+        return BenchmarkCorpus.load(data, parallelRead, lazy);
+    }
+}
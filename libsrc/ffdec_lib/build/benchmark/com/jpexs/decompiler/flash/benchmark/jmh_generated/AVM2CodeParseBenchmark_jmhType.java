@@ -0,0 +1,4 @@
+package com.jpexs.decompiler.flash.benchmark.jmh_generated;
+public class AVM2CodeParseBenchmark_jmhType extends AVM2CodeParseBenchmark_jmhType_B3 {
+}
+
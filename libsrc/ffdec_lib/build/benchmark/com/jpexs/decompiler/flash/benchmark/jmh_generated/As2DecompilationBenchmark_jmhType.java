@@ -0,0 +1,4 @@
+package com.jpexs.decompiler.flash.benchmark.jmh_generated;
+public class As2DecompilationBenchmark_jmhType extends As2DecompilationBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.jpexs.decompiler.flash.benchmark.jmh_generated;
+public class ShapeExportBenchmark_jmhType extends ShapeExportBenchmark_jmhType_B3 {
+}
+
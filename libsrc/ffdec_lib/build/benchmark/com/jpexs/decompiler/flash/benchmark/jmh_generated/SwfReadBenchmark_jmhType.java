@@ -0,0 +1,4 @@
+package com.jpexs.decompiler.flash.benchmark.jmh_generated;
+public class SwfReadBenchmark_jmhType extends SwfReadBenchmark_jmhType_B3 {
+}
+
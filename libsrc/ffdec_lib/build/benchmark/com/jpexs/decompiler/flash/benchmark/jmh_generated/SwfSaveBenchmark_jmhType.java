@@ -0,0 +1,4 @@
+package com.jpexs.decompiler.flash.benchmark.jmh_generated;
+public class SwfSaveBenchmark_jmhType extends SwfSaveBenchmark_jmhType_B3 {
+}
+
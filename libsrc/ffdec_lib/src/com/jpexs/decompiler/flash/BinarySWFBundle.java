@@ -18,6 +18,7 @@ package com.jpexs.decompiler.flash;
 
 import com.jpexs.helpers.SwfHeaderStreamSearch;
 import com.jpexs.helpers.streams.SeekableInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
@@ -38,6 +39,20 @@ public class BinarySWFBundle implements SWFBundle {
         search.process();
     }
 
+    /**
+     * Searches the SWFs in the memory mapped file, the file can be larger
+     * than 2 GB
+     *
+     * @param file File
+     * @param noCheck Do not check the tags
+     * @param searchMode Search mode
+     * @throws IOException
+     */
+    public BinarySWFBundle(File file, boolean noCheck, SearchMode searchMode) throws IOException {
+        search = new SWFSearch(new SwfHeaderStreamSearch(file), noCheck, searchMode);
+        search.process();
+    }
+
     @Override
     public int length() {
         return search.length();
@@ -62,7 +77,7 @@ public class BinarySWFBundle implements SWFBundle {
         }
         key = key.substring(1, key.length() - 1);
         try {
-            int address = Integer.parseInt(key);
+            long address = Long.parseLong(key);
             return search.get(null, address);
         } catch (IOException | NumberFormatException iex) {
             return null;
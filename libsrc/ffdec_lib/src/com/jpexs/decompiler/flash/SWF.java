@@ -21,8 +21,10 @@ import SevenZip.Compression.LZMA.Encoder;
 import com.jpexs.decompiler.flash.abc.ABC;
 import com.jpexs.decompiler.flash.abc.CachedDecompilation;
 import com.jpexs.decompiler.flash.abc.ClassPath;
+import com.jpexs.decompiler.flash.abc.PersistentDecompilationCache;
 import com.jpexs.decompiler.flash.abc.RenameType;
 import com.jpexs.decompiler.flash.abc.ScriptPack;
+import com.jpexs.decompiler.flash.abc.ScriptSearchIndex;
 import com.jpexs.decompiler.flash.abc.avm2.AVM2Code;
 import com.jpexs.decompiler.flash.abc.types.MethodBody;
 import com.jpexs.decompiler.flash.abc.types.ScriptInfo;
@@ -121,6 +123,7 @@ import com.jpexs.decompiler.flash.types.RECT;
 import com.jpexs.decompiler.flash.types.annotations.Internal;
 import com.jpexs.decompiler.flash.types.filters.BlendComposite;
 import com.jpexs.decompiler.flash.types.filters.FILTER;
+import com.jpexs.decompiler.flash.types.sound.SoundFormat;
 import com.jpexs.decompiler.flash.xfl.FLAVersion;
 import com.jpexs.decompiler.flash.xfl.XFLConverter;
 import com.jpexs.decompiler.graph.Graph;
@@ -133,8 +136,11 @@ import com.jpexs.helpers.ByteArrayRange;
 import com.jpexs.helpers.Cache;
 import com.jpexs.helpers.Helper;
 import com.jpexs.helpers.NulStream;
+import com.jpexs.helpers.ParallelDeflaterOutputStream;
 import com.jpexs.helpers.ProgressListener;
 import com.jpexs.helpers.SerializableImage;
+import com.jpexs.helpers.SizedByteArrayOutputStream;
+import com.jpexs.helpers.WorkerPool;
 import com.jpexs.helpers.utf8.Utf8Helper;
 import java.awt.AlphaComposite;
 import java.awt.Color;
@@ -144,12 +150,20 @@ import java.awt.RenderingHints;
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -243,6 +257,13 @@ public final class SWF implements SWFContainerItem, Timelined {
     @Internal
     public byte[] originalUncompressedData;
 
+    /**
+     * Memory mapped uncompressed data, used instead of uncompressedData and
+     * originalUncompressedData when the SWF was loaded from a file by the
+     * memory mapped mode
+     */
+    private ByteBuffer uncompressedBuffer;
+
     /**
      * ScaleForm GFx
      */
@@ -273,6 +294,18 @@ public final class SWF implements SWFContainerItem, Timelined {
 
     private static final Logger logger = Logger.getLogger(SWF.class.getName());
 
+    /**
+     * Maximal presized length of the uncompressed data when the length of the
+     * input is unknown
+     */
+    private static final int UNKNOWN_INPUT_PRESIZE_LIMIT = 4 * 1024 * 1024;
+
+    /**
+     * Maximal uncompressed length of the SWF which is LZMA compressed to the
+     * memory, larger files are compressed to a temporary file
+     */
+    static long lzmaMemoryLimit = 16 * 1024 * 1024;
+
     @Internal
     private Timeline timeline;
 
@@ -289,13 +322,16 @@ public final class SWF implements SWFContainerItem, Timelined {
     private final IdentifiersDeobfuscation deobfuscation = new IdentifiersDeobfuscation();
 
     @Internal
-    private Cache<String, SerializableImage> frameCache = Cache.getInstance(false, false, "frame");
+    private Cache<String, SerializableImage> frameCache = Cache.getInstance(false, false, "frame", Configuration.frameCacheMaxSize.get() * 1024L * 1024L);
+
+    @Internal
+    private final Cache<ASMSource, CachedScript> as2Cache = Cache.getInstance(true, false, "as2", Configuration.scriptCacheMaxSize.get() * 1024L * 1024L);
 
     @Internal
-    private final Cache<ASMSource, CachedScript> as2Cache = Cache.getInstance(true, false, "as2");
+    private final Cache<ScriptPack, CachedDecompilation> as3Cache = Cache.getInstance(true, false, "as3", Configuration.scriptCacheMaxSize.get() * 1024L * 1024L);
 
     @Internal
-    private final Cache<ScriptPack, CachedDecompilation> as3Cache = Cache.getInstance(true, false, "as3");
+    private volatile ScriptSearchIndex as3SearchIndex;
 
     public void updateCharacters() {
         characters = null;
@@ -336,6 +372,7 @@ public final class SWF implements SWFContainerItem, Timelined {
 
         as2Cache.clear();
         as3Cache.clear();
+        resetAS3SearchIndex();
         frameCache.clear();
 
         timeline = null;
@@ -600,10 +637,11 @@ public final class SWF implements SWFContainerItem, Timelined {
      * Saves this SWF into new file
      *
      * @param os OutputStream to save SWF in
+     * @return Numbers of the reused and rewritten tags
      * @throws IOException
      */
-    public void saveTo(OutputStream os) throws IOException {
-        saveTo(os, compression);
+    public SaveStatistics saveTo(OutputStream os) throws IOException {
+        return saveTo(os, compression);
     }
 
     public String getHeaderBytes() {
@@ -638,38 +676,54 @@ public final class SWF implements SWFContainerItem, Timelined {
     }
 
     /**
-     * Saves this SWF into new file
+     * Saves this SWF into new file. The unmodified tags are copied from their
+     * original bytes, only the modified tags and the sprites containing them
+     * are serialized again. The parts are streamed to the compressor without
+     * joining them into one array.
      *
      * @param os OutputStream to save SWF in
      * @param compression
+     * @return Numbers of the reused and rewritten tags
      * @throws IOException
      */
-    public void saveTo(OutputStream os, SWFCompression compression) throws IOException {
+    public SaveStatistics saveTo(OutputStream os, SWFCompression compression) throws IOException {
         try {
             fixCharactersOrder(false);
 
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            SWFOutputStream sos = new SWFOutputStream(baos, version);
+            SaveStatistics statistics = new SaveStatistics();
+            List<ByteArrayRange> parts = new ArrayList<>();
+            ByteArrayOutputStream headerBaos = new ByteArrayOutputStream();
+            SWFOutputStream sos = new SWFOutputStream(headerBaos, version);
             sos.writeRECT(displayRect);
             sos.writeUI8(0);
             sos.writeUI8(frameRate);
             sos.writeUI16(frameCount);
+            sos.close();
+            parts.add(new ByteArrayRange(headerBaos.toByteArray()));
 
-            sos.writeTags(tags);
+            addTagParts(tags, parts, statistics);
             if (hasEndTag) {
-                sos.writeUI16(0);
+                parts.add(new ByteArrayRange(new byte[2]));
+            }
+
+            long uncompressedLength = 0;
+            for (ByteArrayRange part : parts) {
+                uncompressedLength += part.getLength();
             }
 
-            sos.close();
             os.write(Utf8Helper.getBytes(getHeaderBytes(compression, gfx)));
             os.write(version);
-            byte[] data = baos.toByteArray();
             sos = new SWFOutputStream(os, version);
-            sos.writeUI32(data.length + 8);
+            sos.writeUI32(uncompressedLength + 8);
 
+            boolean parallel = Configuration.parallelSpeedUp.get();
             if (compression == SWFCompression.LZMA || compression == SWFCompression.LZMA_ABC) {
-                long uncompressedLength = data.length;
                 Encoder enc = new Encoder();
+                byte[] lzmaProperties = this.lzmaProperties;
+                if (lzmaProperties == null) {
+                    // the file was not LZMA compressed, use lc=3, lp=0, pb=2 and 8 MB dictionary
+                    lzmaProperties = new byte[]{0x5d, 0, 0, (byte) 0x80, 0};
+                }
                 int val = lzmaProperties[0] & 0xFF;
                 int lc = val % 9;
                 int remainder = val / 9;
@@ -684,20 +738,16 @@ public final class SWF implements SWFContainerItem, Timelined {
                 }
                 enc.SetDictionarySize(dictionarySize);
                 enc.SetLcLpPb(lc, lp, pb);
-                baos = new ByteArrayOutputStream();
+                if (parallel) {
+                    // the match finding runs in a pool task, the output is the same
+                    enc.SetMultiThread(WorkerPool::execute);
+                }
                 enc.SetEndMarkerMode(true);
-                enc.Code(new ByteArrayInputStream(data), baos, -1, -1, null);
-                data = baos.toByteArray();
                 if (compression == SWFCompression.LZMA) {
-                    byte[] udata = new byte[4];
-                    udata[0] = (byte) (data.length & 0xFF);
-                    udata[1] = (byte) ((data.length >> 8) & 0xFF);
-                    udata[2] = (byte) ((data.length >> 16) & 0xFF);
-                    udata[3] = (byte) ((data.length >> 24) & 0xFF);
-                    os.write(udata);
-                }
-                enc.WriteCoderProperties(os);
-                if (compression == SWFCompression.LZMA_ABC) {
+                    // the compressed length precedes the compressed data
+                    writeLzmaWithLength(enc, parts, uncompressedLength, os);
+                } else {
+                    enc.WriteCoderProperties(os);
                     byte[] udata = new byte[8];
                     udata[0] = (byte) (uncompressedLength & 0xFF);
                     udata[1] = (byte) ((uncompressedLength >> 8) & 0xFF);
@@ -708,12 +758,19 @@ public final class SWF implements SWFContainerItem, Timelined {
                     udata[6] = (byte) ((uncompressedLength >> 48) & 0xFF);
                     udata[7] = (byte) ((uncompressedLength >> 56) & 0xFF);
                     os.write(udata);
+                    enc.Code(getPartsInputStream(parts), os, -1, -1, null);
+                }
+            } else {
+                if (compression == SWFCompression.ZLIB) {
+                    os = parallel ? new ParallelDeflaterOutputStream(os) : new DeflaterOutputStream(os);
+                }
+
+                for (ByteArrayRange part : parts) {
+                    part.writeTo(os);
                 }
-            } else if (compression == SWFCompression.ZLIB) {
-                os = new DeflaterOutputStream(os);
             }
 
-            os.write(data);
+            return statistics;
         } finally {
             if (os != null) {
                 os.close();
@@ -721,6 +778,95 @@ public final class SWF implements SWFContainerItem, Timelined {
         }
     }
 
+    /**
+     * Adds the bytes of the tags: the original range of the unmodified tags,
+     * the header and the data of the modified tags
+     */
+    private static void addTagParts(List<Tag> tags, List<ByteArrayRange> parts, SaveStatistics statistics) {
+        for (Tag tag : tags) {
+            ByteArrayRange originalRange = tag.getOriginalRange();
+            if (originalRange != null && !tag.isModified()) {
+                parts.add(originalRange);
+                statistics.addReused(originalRange.getLength());
+            } else if (tag instanceof DefineSpriteTag && !Configuration.debugCopy.get()) {
+                // only the modified subtags are serialized
+                DefineSpriteTag sprite = (DefineSpriteTag) tag;
+                List<ByteArrayRange> subParts = new ArrayList<>();
+                addTagParts(sprite.subTags, subParts, statistics);
+                byte[] spriteData = new byte[]{
+                    (byte) sprite.spriteId, (byte) (sprite.spriteId >> 8),
+                    (byte) sprite.frameCount, (byte) (sprite.frameCount >> 8)};
+                long dataLength = spriteData.length + (sprite.hasEndTag ? 2 : 0);
+                for (ByteArrayRange part : subParts) {
+                    dataLength += part.getLength();
+                }
+
+                byte[] header = tag.getHeader((int) dataLength);
+                parts.add(new ByteArrayRange(header));
+                parts.add(new ByteArrayRange(spriteData));
+                parts.addAll(subParts);
+                if (sprite.hasEndTag) {
+                    parts.add(new ByteArrayRange(new byte[2]));
+                }
+
+                statistics.addRewritten(header.length + spriteData.length + (sprite.hasEndTag ? 2 : 0));
+            } else {
+                byte[] data = tag.getData();
+                byte[] header = tag.getHeader(data.length);
+                parts.add(new ByteArrayRange(header));
+                parts.add(new ByteArrayRange(data));
+                statistics.addRewritten(header.length + data.length);
+            }
+        }
+    }
+
+    /**
+     * Writes the compressed length, the LZMA properties and the compressed
+     * data. Large files are compressed to a temporary file, so the compressed
+     * data are not kept in the memory.
+     */
+    private static void writeLzmaWithLength(Encoder enc, List<ByteArrayRange> parts, long uncompressedLength, OutputStream os) throws IOException {
+        if (uncompressedLength <= lzmaMemoryLimit) {
+            SizedByteArrayOutputStream lzmaBaos = new SizedByteArrayOutputStream();
+            enc.Code(getPartsInputStream(parts), lzmaBaos, -1, -1, null);
+            writeLzmaLength(os, lzmaBaos.size());
+            enc.WriteCoderProperties(os);
+            lzmaBaos.writeTo(os);
+            return;
+        }
+
+        File tempFile = File.createTempFile("ffdec_lzma_", ".tmp");
+        try {
+            try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+                enc.Code(getPartsInputStream(parts), fos, -1, -1, null);
+            }
+
+            writeLzmaLength(os, tempFile.length());
+            enc.WriteCoderProperties(os);
+            Files.copy(tempFile.toPath(), os);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    private static void writeLzmaLength(OutputStream os, long compressedLength) throws IOException {
+        byte[] udata = new byte[4];
+        udata[0] = (byte) (compressedLength & 0xFF);
+        udata[1] = (byte) ((compressedLength >> 8) & 0xFF);
+        udata[2] = (byte) ((compressedLength >> 16) & 0xFF);
+        udata[3] = (byte) ((compressedLength >> 24) & 0xFF);
+        os.write(udata);
+    }
+
+    private static InputStream getPartsInputStream(List<ByteArrayRange> parts) {
+        List<InputStream> streams = new ArrayList<>(parts.size());
+        for (ByteArrayRange part : parts) {
+            streams.add(part.getInputStream());
+        }
+
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+
     public boolean isModified() {
         for (Tag tag : tags) {
             if (tag.isModified()) {
@@ -738,10 +884,10 @@ public final class SWF implements SWFContainerItem, Timelined {
             }
         }
 
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        SizedByteArrayOutputStream baos = new SizedByteArrayOutputStream(uncompressedData == null ? 32 : uncompressedData.length);
         try {
             saveTo(baos, SWFCompression.NONE);
-            byte[] swfData = baos.toByteArray();
+            byte[] swfData = baos.getArray();
             uncompressedData = swfData;
         } catch (IOException ex) {
             logger.log(Level.SEVERE, "Cannot save SWF", ex);
@@ -848,30 +994,34 @@ public final class SWF implements SWFContainerItem, Timelined {
     public SWF(InputStream is, String file, String fileTitle, ProgressListener listener, boolean parallelRead, boolean checkOnly, boolean lazy) throws IOException, InterruptedException {
         this.file = file;
         this.fileTitle = fileTitle;
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        SWFHeader header = decompress(is, baos, true);
-        gfx = header.gfx;
-        compression = header.compression;
-        lzmaProperties = header.lzmaProperties;
-        uncompressedData = baos.toByteArray();
-        originalUncompressedData = uncompressedData;
+        dumpInfo = new DumpInfoSwfNode(this, "rootswf", "", null, 0, 0);
+        SWFInputStream sis = readHeader(is, dumpInfo, listener);
+        readTags(sis, parallelRead, checkOnly, lazy);
+    }
 
-        SWFInputStream sis = new SWFInputStream(this, uncompressedData);
+    /**
+     * Construct SWF from file in the memory mapped mode. Uncompressed files
+     * are mapped directly, compressed files are decompressed to a temporary
+     * file which is mapped. The tag data are read from the mapped buffer
+     * without copying the file to the heap.
+     *
+     * @param file File to read
+     * @param fileTitle Title of the SWF
+     * @param listener
+     * @param parallelRead Use parallel threads?
+     * @param lazy
+     * @throws IOException
+     * @throws java.lang.InterruptedException
+     */
+    public SWF(File file, String fileTitle, ProgressListener listener, boolean parallelRead, boolean lazy) throws IOException, InterruptedException {
+        this.file = file.getPath();
+        this.fileTitle = fileTitle;
         dumpInfo = new DumpInfoSwfNode(this, "rootswf", "", null, 0, 0);
-        sis.dumpInfo = dumpInfo;
-        sis.readBytesEx(3, "signature"); // skip siganture
-        version = sis.readUI8("version");
-        fileSize = sis.readUI32("fileSize");
-        dumpInfo.lengthBytes = fileSize;
-        if (listener != null) {
-            sis.addPercentListener(listener);
-        }
-        sis.setPercentMax(fileSize);
-        displayRect = sis.readRECT("displayRect");
-        // FIXED8 (16 bit fixed point) frameRate
-        sis.readUI8("tmpFirstByetOfFrameRate"); // tmpFirstByetOfFrameRate
-        frameRate = sis.readUI8("frameRate");
-        frameCount = sis.readUI16("frameCount");
+        SWFInputStream sis = mapHeader(file, dumpInfo, listener);
+        readTags(sis, parallelRead, false, lazy);
+    }
+
+    private void readTags(SWFInputStream sis, boolean parallelRead, boolean checkOnly, boolean lazy) throws IOException, InterruptedException {
         List<Tag> tags = sis.readTagList(this, 0, parallelRead, true, !checkOnly, lazy);
         if (tags.size() > 0 && tags.get(tags.size() - 1).getId() == EndTag.ID) {
             tags.remove(tags.size() - 1);
@@ -905,6 +1055,144 @@ public final class SWF implements SWFContainerItem, Timelined {
          }*/
     }
 
+    /**
+     * Decompresses the SWF and reads the header fields
+     *
+     * @param is Stream to read SWF from
+     * @param dumpInfo Dump info of the root node or null
+     * @param listener Progress listener or null
+     * @return Stream positioned at the first tag
+     * @throws IOException
+     */
+    SWFInputStream readHeader(InputStream is, DumpInfo dumpInfo, ProgressListener listener) throws IOException {
+        SizedByteArrayOutputStream baos = new SizedByteArrayOutputStream();
+        SWFHeader header = decompress(is, baos, true);
+        gfx = header.gfx;
+        compression = header.compression;
+        lzmaProperties = header.lzmaProperties;
+        uncompressedData = baos.getArray();
+        originalUncompressedData = uncompressedData;
+
+        return readHeaderFields(new SWFInputStream(this, uncompressedData), dumpInfo, listener);
+    }
+
+    /**
+     * Maps the SWF file or its decompressed copy and reads the header fields
+     *
+     * @param file File
+     * @param dumpInfo Dump info of the root node or null
+     * @param listener Progress listener or null
+     * @return Stream positioned at the first tag
+     * @throws IOException
+     */
+    SWFInputStream mapHeader(File file, DumpInfo dumpInfo, ProgressListener listener) throws IOException {
+        byte[] hdr = new byte[8];
+        try (InputStream is = new FileInputStream(file)) {
+            if (is.read(hdr) != 8) {
+                throw new IOException("SWF header is too short");
+            }
+        }
+
+        if (!isSwfSignature(hdr)) {
+            throw new IOException("Invalid SWF file");
+        }
+
+        if (hdr[0] == 'F' || hdr[0] == 'G') { // FWS, GFX
+            long fileSize = (hdr[4] & 0xffL) | ((hdr[5] & 0xffL) << 8) | ((hdr[6] & 0xffL) << 16) | ((hdr[7] & 0xffL) << 24);
+            gfx = hdr[0] == 'G';
+            compression = SWFCompression.NONE;
+            uncompressedBuffer = mapFile(file, fileSize);
+        } else {
+            File tempFile = File.createTempFile("ffdec_swf_", ".swf");
+            try {
+                SWFHeader header;
+                try (InputStream is = new BufferedInputStream(new FileInputStream(file));
+                        OutputStream os = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+                    header = decompress(is, os, false);
+                }
+
+                gfx = header.gfx;
+                compression = header.compression;
+                lzmaProperties = header.lzmaProperties;
+                uncompressedBuffer = mapFile(tempFile, Long.MAX_VALUE);
+            } finally {
+                // the mapping stays valid after the file is deleted, Windows
+                // does not allow to delete a mapped file
+                if (!tempFile.delete()) {
+                    tempFile.deleteOnExit();
+                }
+            }
+        }
+
+        uncompressedData = null;
+        originalUncompressedData = null;
+        return readHeaderFields(new SWFInputStream(this, uncompressedBuffer), dumpInfo, listener);
+    }
+
+    private static ByteBuffer mapFile(File file, long maxLength) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = Math.min(channel.size(), maxLength);
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("SWF file is too large to be mapped");
+            }
+
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+    }
+
+    /**
+     * Gets a range of the uncompressed data, which points into the mapped
+     * buffer in the memory mapped mode
+     *
+     * @param pos Position
+     * @param length Length
+     * @return Range
+     */
+    public ByteArrayRange getUncompressedDataRange(int pos, int length) {
+        ByteBuffer buffer = uncompressedBuffer;
+        if (buffer != null) {
+            return new ByteArrayRange(buffer, pos, length);
+        }
+
+        return new ByteArrayRange(uncompressedData, pos, length);
+    }
+
+    /**
+     * Gets the original uncompressed data. In the memory mapped mode the data
+     * are copied from the mapped buffer on the first call, it is used only by
+     * the dump view.
+     *
+     * @return Data
+     */
+    public synchronized byte[] getOriginalUncompressedData() {
+        ByteBuffer buffer = uncompressedBuffer;
+        if (originalUncompressedData == null && buffer != null) {
+            originalUncompressedData = new ByteArrayRange(buffer, 0, buffer.limit()).getRangeData();
+        }
+
+        return originalUncompressedData;
+    }
+
+    private SWFInputStream readHeaderFields(SWFInputStream sis, DumpInfo dumpInfo, ProgressListener listener) throws IOException {
+        sis.dumpInfo = dumpInfo;
+        sis.readBytesEx(3, "signature"); // skip siganture
+        version = sis.readUI8("version");
+        fileSize = sis.readUI32("fileSize");
+        if (dumpInfo != null) {
+            dumpInfo.lengthBytes = fileSize;
+        }
+        if (listener != null) {
+            sis.addPercentListener(listener);
+        }
+        sis.setPercentMax(fileSize);
+        displayRect = sis.readRECT("displayRect");
+        // FIXED8 (16 bit fixed point) frameRate
+        sis.readUI8("tmpFirstByetOfFrameRate"); // tmpFirstByetOfFrameRate
+        frameRate = sis.readUI8("frameRate");
+        frameCount = sis.readUI16("frameCount");
+        return sis;
+    }
+
     @Override
     public SWF getSwf() {
         return this;
@@ -1056,23 +1344,70 @@ public final class SWF implements SWFContainerItem, Timelined {
         }
     }
 
-    private static SWFHeader decompress(InputStream is, OutputStream os, boolean allowUncompressed) throws IOException {
-        byte[] hdr = new byte[8];
+    /**
+     * Presizes the output buffer to the uncompressed size from the header, so
+     * the movie is materialized only once. The header value is not trusted
+     * when it is obviously larger than the remaining input. When the length of
+     * the input is unknown, the buffer is presized to at most
+     * UNKNOWN_INPUT_PRESIZE_LIMIT bytes and grows as the data are written.
+     *
+     * @param is Input stream positioned after the header
+     * @param os Output stream
+     * @param compressionType First byte of the signature
+     * @param fileSize Uncompressed file size from the header
+     * @throws IOException
+     */
+    private static void presizeOutput(InputStream is, SizedByteArrayOutputStream os, byte compressionType, long fileSize) throws IOException {
+        long available = is.available();
+        if (available == 0) {
+            os.expectSize(Math.min(fileSize, UNKNOWN_INPUT_PRESIZE_LIMIT));
+            return;
+        }
 
-        // SWFheader: signature, version and fileSize
-        if (is.read(hdr) != 8) {
-            throw new IOException("SWF header is too short");
+        long expectedSize = fileSize;
+        switch (compressionType) {
+            case 'C':
+            case 'Z':
+            case 'A':
+                // 1032:1 is the maximal compression ratio of zlib
+                if (fileSize > available * 1032) {
+                    return;
+                }
+                break;
+            default:
+                expectedSize = Math.min(fileSize, 8 + available);
         }
 
+        os.expectSize(expectedSize);
+    }
+
+    /**
+     * Checks the signature of the SWF header
+     *
+     * @param hdr First 3 or more bytes of the file
+     * @return True for all the signatures which can be decompressed
+     */
+    public static boolean isSwfSignature(byte[] hdr) {
         String signature = new String(hdr, 0, 3, Utf8Helper.charset);
-        if (!Arrays.asList(
+        return Arrays.asList(
                 "FWS", // Uncompressed Flash
                 "CWS", // ZLib compressed Flash
                 "ZWS", // LZMA compressed Flash
                 "GFX", // Uncompressed ScaleForm GFx
                 "CFX", // Compressed ScaleForm GFx
                 "ABC" // Non-standard LZMA compressed Flash
-        ).contains(signature)) {
+        ).contains(signature);
+    }
+
+    private static SWFHeader decompress(InputStream is, OutputStream os, boolean allowUncompressed) throws IOException {
+        byte[] hdr = new byte[8];
+
+        // SWFheader: signature, version and fileSize
+        if (is.read(hdr) != 8) {
+            throw new IOException("SWF header is too short");
+        }
+
+        if (!isSwfSignature(hdr)) {
             throw new IOException("Invalid SWF file");
         }
 
@@ -1087,6 +1422,10 @@ public final class SWF implements SWFContainerItem, Timelined {
             header.gfx = true;
         }
 
+        if (os instanceof SizedByteArrayOutputStream) {
+            presizeOutput(is, (SizedByteArrayOutputStream) os, hdr[0], fileSize);
+        }
+
         try (SWFOutputStream sos = new SWFOutputStream(os, version)) {
             sos.write(Utf8Helper.getBytes(header.gfx ? "GFX" : "FWS"));
             sos.writeUI8(version);
@@ -1433,44 +1772,8 @@ public final class SWF implements SWFContainerItem, Timelined {
         }
     }
 
-    private static void writeLE(OutputStream os, long val, int size) throws IOException {
-        for (int i = 0; i < size; i++) {
-            os.write((int) (val & 0xff));
-            val >>= 8;
-        }
-    }
-
     public static void createWavFromPcmData(OutputStream fos, int soundRateHz, boolean soundSize, boolean soundType, byte[] data) throws IOException {
-        ByteArrayOutputStream subChunk1Data = new ByteArrayOutputStream();
-        int audioFormat = 1; // PCM
-        writeLE(subChunk1Data, audioFormat, 2);
-        int numChannels = soundType ? 2 : 1;
-        writeLE(subChunk1Data, numChannels, 2);
-        int[] rateMap = {5512, 11025, 22050, 44100};
-        int sampleRate = soundRateHz; // rateMap[soundRate];
-        writeLE(subChunk1Data, sampleRate, 4);
-        int bitsPerSample = soundSize ? 16 : 8;
-        int byteRate = sampleRate * numChannels * bitsPerSample / 8;
-        writeLE(subChunk1Data, byteRate, 4);
-        int blockAlign = numChannels * bitsPerSample / 8;
-        writeLE(subChunk1Data, blockAlign, 2);
-        writeLE(subChunk1Data, bitsPerSample, 2);
-
-        ByteArrayOutputStream chunks = new ByteArrayOutputStream();
-        chunks.write(Utf8Helper.getBytes("fmt "));
-        byte[] subChunk1DataBytes = subChunk1Data.toByteArray();
-        writeLE(chunks, subChunk1DataBytes.length, 4);
-        chunks.write(subChunk1DataBytes);
-
-        chunks.write(Utf8Helper.getBytes("data"));
-        writeLE(chunks, data.length, 4);
-        chunks.write(data);
-
-        fos.write(Utf8Helper.getBytes("RIFF"));
-        byte[] chunkBytes = chunks.toByteArray();
-        writeLE(fos, 4 + chunkBytes.length, 4);
-        fos.write(Utf8Helper.getBytes("WAVE"));
-        fos.write(chunkBytes);
+        SoundFormat.createWavFromPcmData(fos, soundRateHz, soundSize, soundType, data);
     }
 
     public static String getTypePrefix(CharacterTag c) {
@@ -2058,10 +2361,7 @@ public final class SWF implements SWFContainerItem, Timelined {
     }
 
     public SerializableImage getFromCache(String key) {
-        if (frameCache.contains(key)) {
-            return frameCache.get(key);
-        }
-        return null;
+        return frameCache.get(key);
     }
 
     public void putToCache(String key, SerializableImage img) {
@@ -2085,6 +2385,43 @@ public final class SWF implements SWFContainerItem, Timelined {
     public void clearScriptCache() {
         as2Cache.clear();
         as3Cache.clear();
+        resetAS3SearchIndex();
+    }
+
+    /**
+     * Gets the full text index of the ActionScript 3 packs, the index is
+     * built on the first search or by ScriptSearchIndex.startBuild
+     *
+     * @return Search index
+     */
+    public ScriptSearchIndex getAS3SearchIndex() {
+        return getAS3SearchIndex(false);
+    }
+
+    /**
+     * Gets the full text index of the ActionScript 3 packs. An index without
+     * the P-code is replaced when the P-code is requested.
+     *
+     * @param pcode Index the P-code too
+     * @return Search index
+     */
+    public synchronized ScriptSearchIndex getAS3SearchIndex(boolean pcode) {
+        if (as3SearchIndex != null && pcode && !as3SearchIndex.isIndexPCode()) {
+            resetAS3SearchIndex();
+        }
+
+        if (as3SearchIndex == null) {
+            as3SearchIndex = new ScriptSearchIndex(getAS3Packs(), pcode);
+        }
+
+        return as3SearchIndex;
+    }
+
+    public synchronized void resetAS3SearchIndex() {
+        if (as3SearchIndex != null) {
+            as3SearchIndex.cancelBuild();
+            as3SearchIndex = null;
+        }
     }
 
     public void clearAllCache() {
@@ -2106,7 +2443,12 @@ public final class SWF implements SWFContainerItem, Timelined {
 
     public static void uncache(ScriptPack pack) {
         if (pack != null) {
-            pack.getSwf().as3Cache.remove(pack);
+            SWF swf = pack.getSwf();
+            swf.as3Cache.remove(pack);
+            ScriptSearchIndex index = swf.as3SearchIndex;
+            if (index != null) {
+                index.invalidate(pack);
+            }
         }
     }
 
@@ -2120,8 +2462,9 @@ public final class SWF implements SWFContainerItem, Timelined {
 
     public static CachedScript getCached(ASMSource src, ActionList actions) throws InterruptedException {
         SWF swf = src.getSwf();
-        if (swf.as2Cache.contains(src)) {
-            return swf.as2Cache.get(src);
+        CachedScript cached = swf.as2Cache.get(src);
+        if (cached != null) {
+            return cached;
         }
 
         if (actions == null) {
@@ -2139,8 +2482,19 @@ public final class SWF implements SWFContainerItem, Timelined {
 
     public static CachedDecompilation getCached(ScriptPack pack) throws InterruptedException {
         SWF swf = pack.getSwf();
-        if (swf.as3Cache.contains(pack)) {
-            return swf.as3Cache.get(pack);
+        CachedDecompilation cached = swf.as3Cache.get(pack);
+        if (cached != null) {
+            return cached;
+        }
+
+        PersistentDecompilationCache.Key persistentKey = null;
+        if (PersistentDecompilationCache.isEnabled()) {
+            persistentKey = PersistentDecompilationCache.computeKey(pack);
+            cached = PersistentDecompilationCache.get(persistentKey);
+            if (cached != null) {
+                swf.as3Cache.put(pack, cached);
+                return cached;
+            }
         }
 
         int scriptIndex = pack.scriptIndex;
@@ -2154,6 +2508,10 @@ public final class SWF implements SWFContainerItem, Timelined {
         HighlightedText hilightedCode = new HighlightedText(writer);
         CachedDecompilation res = new CachedDecompilation(hilightedCode);
         swf.as3Cache.put(pack, res);
+        // a timed out or failed method would stay in the output after the cause is fixed
+        if (persistentKey != null && !writer.hasDecompilationError()) {
+            PersistentDecompilationCache.put(persistentKey, res);
+        }
 
         return res;
     }
@@ -266,19 +266,19 @@ import com.jpexs.helpers.Helper;
 import com.jpexs.helpers.ImmediateFuture;
 import com.jpexs.helpers.MemoryInputStream;
 import com.jpexs.helpers.ProgressListener;
+import com.jpexs.helpers.WorkerPool;
 import com.jpexs.helpers.utf8.Utf8Helper;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -301,6 +301,8 @@ public class SWFInputStream implements AutoCloseable {
 
     private long percentMax;
 
+    private long nextPercentPos;
+
     private SWF swf;
 
     public DumpInfo dumpInfo;
@@ -317,19 +319,30 @@ public class SWFInputStream implements AutoCloseable {
     }
 
     private void informListeners() {
-        if (listeners.size() > 0 && percentMax > 0) {
-            int percent = (int) (getPos() * 100 / percentMax);
-            if (lastPercent != percent) {
-                for (ProgressListener pl : listeners) {
-                    pl.progress(percent);
-                }
-                lastPercent = percent;
+        if (listeners.isEmpty() || percentMax <= 0) {
+            return;
+        }
+
+        long pos = getPos();
+        if (pos < nextPercentPos) {
+            return;
+        }
+
+        int percent = (int) (pos * 100 / percentMax);
+        if (lastPercent != percent) {
+            for (ProgressListener pl : listeners) {
+                pl.progress(percent);
             }
+            lastPercent = percent;
         }
+
+        // first position of the next percent
+        nextPercentPos = ((percent + 1) * percentMax + 99) / 100;
     }
 
     public void setPercentMax(long percentMax) {
         this.percentMax = percentMax;
+        nextPercentPos = 0;
     }
 
     /**
@@ -358,6 +371,38 @@ public class SWFInputStream implements AutoCloseable {
         this(swf, data, 0L, data.length);
     }
 
+    /**
+     * Constructor of a stream which reads the buffer directly
+     *
+     * @param swf SWF to read
+     * @param data SWF data, usually memory mapped
+     * @throws java.io.IOException
+     */
+    public SWFInputStream(SWF swf, ByteBuffer data) throws IOException {
+        this(swf, new MemoryInputStream(data, 0, data.limit()), 0L);
+    }
+
+    /**
+     * Constructor of a stream of the array or buffer of the range. The
+     * positions are positions in the whole array, the stream is positioned at
+     * the start of the range.
+     *
+     * @param swf SWF to read
+     * @param range Range
+     * @param limit Limit, position in the whole array
+     * @throws java.io.IOException
+     */
+    public SWFInputStream(SWF swf, ByteArrayRange range, int limit) throws IOException {
+        this(swf, range.getArrayStream(limit), 0L);
+        seek(range.getPos());
+    }
+
+    private SWFInputStream(SWF swf, MemoryInputStream is, long startingPos) {
+        this.swf = swf;
+        this.startingPos = startingPos;
+        this.is = is;
+    }
+
     public SWF getSwf() {
         return swf;
     }
@@ -453,6 +498,10 @@ public class SWFInputStream implements AutoCloseable {
      * @throws IOException
      */
     public int readUI8(String name) throws IOException {
+        if (dumpInfo == null) {
+            return readEx();
+        }
+
         newDumpLevel(name, "UI8");
         int ret = readEx();
         endDumpLevel(ret);
@@ -488,6 +537,10 @@ public class SWFInputStream implements AutoCloseable {
      * @throws IOException
      */
     public long readUI32(String name) throws IOException {
+        if (dumpInfo == null) {
+            return readUI32Internal();
+        }
+
         newDumpLevel(name, "UI32");
         long ret = readUI32Internal();
         endDumpLevel(ret);
@@ -512,6 +565,10 @@ public class SWFInputStream implements AutoCloseable {
      * @throws IOException
      */
     public int readUI16(String name) throws IOException {
+        if (dumpInfo == null) {
+            return readUI16Internal();
+        }
+
         newDumpLevel(name, "UI16");
         int ret = readUI16Internal();
         endDumpLevel(ret);
@@ -718,7 +775,7 @@ public class SWFInputStream implements AutoCloseable {
         int startPos = (int) getPos();
         skipBytesEx(count);
         endDumpLevel();
-        return new ByteArrayRange(swf.uncompressedData, startPos, (int) count);
+        return swf.getUncompressedDataRange(startPos, (int) count);
     }
 
     /**
@@ -870,6 +927,10 @@ public class SWFInputStream implements AutoCloseable {
         if (nBits == 0) {
             return 0;
         }
+        if (dumpInfo == null) {
+            return readUBInternal(nBits);
+        }
+
         newDumpLevel(name, "UB");
         long ret = readUBInternal(nBits);
         endDumpLevel(ret);
@@ -891,18 +952,26 @@ public class SWFInputStream implements AutoCloseable {
         if (bitPos == 0) {
             tempByte = readNoBitReset();
         }
-        for (int bit = 0; bit < nBits; bit++) {
-            int nb = (tempByte >> (7 - bitPos)) & 1;
-            ret += (nb << (nBits - 1 - bit));
-            bitPos++;
-            if (bitPos == 8) {
-                bitPos = 0;
-                if (bit != nBits - 1) {
-                    tempByte = readNoBitReset();
-                }
+
+        // take as many bits as possible from each byte instead of bit by bit
+        int remaining = nBits;
+        while (true) {
+            int bitsInByte = 8 - bitPos;
+            if (remaining < bitsInByte) {
+                ret = (ret << remaining) | ((tempByte >> (bitsInByte - remaining)) & ((1 << remaining) - 1));
+                bitPos += remaining;
+                return ret;
             }
+
+            ret = (ret << bitsInByte) | (tempByte & ((1 << bitsInByte) - 1));
+            remaining -= bitsInByte;
+            bitPos = 0;
+            if (remaining == 0) {
+                return ret;
+            }
+
+            tempByte = readNoBitReset();
         }
-        return ret;
     }
 
     /**
@@ -917,6 +986,10 @@ public class SWFInputStream implements AutoCloseable {
         if (nBits == 0) {
             return 0;
         }
+        if (dumpInfo == null) {
+            return readSBInternal(nBits);
+        }
+
         newDumpLevel(name, "SB");
         long ret = readSBInternal(nBits);
         endDumpLevel(ret);
@@ -951,6 +1024,10 @@ public class SWFInputStream implements AutoCloseable {
         if (nBits == 0) {
             return 0;
         }
+        if (dumpInfo == null) {
+            return ((float) readSBInternal(nBits)) / 0x10000;
+        }
+
         newDumpLevel(name, "FB");
         float val = readSBInternal(nBits);
         float ret = val / 0x10000;
@@ -1064,12 +1141,7 @@ public class SWFInputStream implements AutoCloseable {
         }
 
         boolean parallel1 = level == 0 && parallel;
-        ExecutorService executor = null;
         List<Future<Tag>> futureResults = new ArrayList<>();
-        if (parallel1) {
-            executor = Executors.newFixedThreadPool(Configuration.getParallelThreadCount());
-            futureResults = new ArrayList<>();
-        }
         List<Tag> tags = new ArrayList<>();
         Tag tag;
         boolean isAS3 = false;
@@ -1147,7 +1219,7 @@ public class SWFInputStream implements AutoCloseable {
                 }
             }
             if (parseTags && doParse && parallel1 && tag instanceof TagStub) {
-                Future<Tag> future = executor.submit(new TagResolutionTask((TagStub) tag, di, level, parallel1, skipUnusualTags, lazy));
+                Future<Tag> future = WorkerPool.submit(new TagResolutionTask((TagStub) tag, di, level, parallel1, skipUnusualTags, lazy));
                 futureResults.add(future);
             } else {
                 Future<Tag> future = new ImmediateFuture<>(tag);
@@ -1167,15 +1239,13 @@ public class SWFInputStream implements AutoCloseable {
         if (parallel1) {
             for (Future<Tag> future : futureResults) {
                 try {
-                    tags.add(future.get());
+                    tags.add(WorkerPool.get(future));
                 } catch (InterruptedException ex) {
                     future.cancel(true);
                 } catch (ExecutionException e) {
                     logger.log(Level.SEVERE, "Error during tag reading", e);
                 }
             }
-
-            executor.shutdown();
         }
         return tags;
     }
@@ -1364,7 +1434,7 @@ public class SWFInputStream implements AutoCloseable {
                     ret = new ImportAssets2Tag(sis, data);
                     break;
                 case 72:
-                    ret = new DoABCTag(sis, data);
+                    ret = new DoABCTag(sis, data, lazy);
                     break;
                 case 73:
                     ret = new DefineFontAlignZonesTag(sis, data);
@@ -1386,7 +1456,7 @@ public class SWFInputStream implements AutoCloseable {
                     break;
                 //case 79-81:
                 case 82:
-                    ret = new DoABCDefineTag(sis, data);
+                    ret = new DoABCDefineTag(sis, data, lazy);
                     break;
                 case 83:
                     ret = new DefineShape4Tag(sis, data, lazy);
@@ -1503,7 +1573,7 @@ public class SWFInputStream implements AutoCloseable {
             tagLength = available;
         }
 
-        ByteArrayRange dataRange = new ByteArrayRange(swf.uncompressedData, (int) pos, (int) (tagLength + headerLength));
+        ByteArrayRange dataRange = swf.getUncompressedDataRange((int) pos, (int) (tagLength + headerLength));
         skipBytes(tagLength);
 
         TagStub tagStub = new TagStub(swf, tagID, "Unresolved", dataRange, tagDataStream);
@@ -3354,15 +3424,31 @@ public class SWFInputStream implements AutoCloseable {
         return available() * 8;
     }
 
+    /**
+     * Gets the stream of the rest of the data, positioned at the current
+     * position. The rest of a buffered stream is copied to an array with the
+     * same positions, because the ABC reader keeps the array.
+     *
+     * @return Stream
+     * @throws IOException
+     */
     public MemoryInputStream getBaseStream() throws IOException {
         int pos = (int) is.getPos();
-        MemoryInputStream mis = new MemoryInputStream(is.getAllRead(), 0, pos + is.available());
+        MemoryInputStream mis;
+        if (is.isBuffered()) {
+            byte[] data = new byte[Math.max(0, is.available())];
+            is.read(data);
+            is.seek(pos);
+            mis = new MemoryInputStream(data, -pos, pos + data.length);
+        } else {
+            mis = new MemoryInputStream(is.getAllRead(), 0, pos + is.available());
+        }
         mis.seek(pos);
         return mis;
     }
 
     public SWFInputStream getLimitedStream(int limit) throws IOException {
-        SWFInputStream sis = new SWFInputStream(swf, is.getAllRead(), startingPos, (int) (is.getPos() + limit));
+        SWFInputStream sis = new SWFInputStream(swf, is.createStream(0, (int) (is.getPos() + limit)), startingPos);
 
         // uncomment the following line to turn off lazy dump info collecting
         //sis.dumpInfo = dumpInfo;
@@ -138,7 +138,7 @@ public class SWFOutputStream extends OutputStream {
 
     public void write(ByteArrayRange b) throws IOException {
         alignByte();
-        os.write(b.getArray(), b.getPos(), b.getLength());
+        b.writeTo(os);
         pos += b.getLength();
     }
 
@@ -17,23 +17,43 @@
 package com.jpexs.decompiler.flash;
 
 import com.jpexs.helpers.Helper;
+import com.jpexs.helpers.LargeByteBuffer;
 import com.jpexs.helpers.MemoryInputStream;
 import com.jpexs.helpers.PosMarkedInputStream;
 import com.jpexs.helpers.ProgressListener;
 import com.jpexs.helpers.Searchable;
+import com.jpexs.helpers.SwfHeaderStreamSearch;
+import com.jpexs.helpers.WorkerPool;
+import com.jpexs.helpers.streams.SeekableInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.InflaterInputStream;
 
 /**
+ * Searches SWF files in binary data.
+ *
+ * The candidates with an implausible header are rejected before any
+ * decompression, the others are parsed in parallel. The results are
+ * processed in the order of the addresses.
  *
  * @author JPEXS
  */
 public class SWFSearch {
 
+    private static final Logger logger = Logger.getLogger(SWFSearch.class.getName());
+
     protected Searchable s;
 
     private final boolean noCheck;
@@ -44,7 +64,20 @@ public class SWFSearch {
 
     private final Set<ProgressListener> listeners = new HashSet<>();
 
-    private final Map<Long, MemoryInputStream> swfStreams = new HashMap<>();
+    private final Set<SWFSearchListener> searchListeners = new HashSet<>();
+
+    /**
+     * Address => length of the found SWFs
+     */
+    private final Map<Long, Long> swfLengths = new TreeMap<>();
+
+    private LargeByteBuffer data;
+
+    private long biggestSize;
+
+    private long smallestSize;
+
+    private boolean stopped;
 
     public SWFSearch(Searchable s, boolean noCheck, SearchMode searchMode) {
         this.s = s;
@@ -60,98 +93,334 @@ public class SWFSearch {
         listeners.remove(l);
     }
 
+    public void addSearchListener(SWFSearchListener l) {
+        searchListeners.add(l);
+    }
+
+    public void removeSearchListener(SWFSearchListener l) {
+        searchListeners.remove(l);
+    }
+
     private void setProgress(int p) {
         for (ProgressListener l : listeners) {
             l.progress(p);
         }
     }
 
+    private static class Candidate {
+
+        final long address;
+
+        final Future<Long> validation;
+
+        public Candidate(long address, Future<Long> validation) {
+            this.address = address;
+            this.validation = validation;
+        }
+    }
+
     public void process() {
-        Map<Long, InputStream> ret;
-        ret = s.search(new ProgressListener() {
-            @Override
-            public void progress(int p) {
-                setProgress(p);
-            }
-        },
-                "FWS".getBytes(), // Uncompressed Flash
-                "CWS".getBytes(), // ZLib compressed Flash
-                "ZWS".getBytes(), // LZMA compressed Flash
-                "GFX".getBytes(), // Uncompressed ScaleForm GFx
-                "CFX".getBytes()); // Compressed ScaleForm GFx
-        int pos = 0;
-        long biggestSize = 0;
-        long smallestSize = Long.MAX_VALUE;
-        addressLoop:
-        for (Long addr : ret.keySet()) {
-            setProgress(pos * 100 / ret.size());
-            pos++;
-            try {
-                MemoryInputStream mis = (MemoryInputStream) ret.get(addr);
-                mis.reset();
-                PosMarkedInputStream pmi = new PosMarkedInputStream(mis);
-                SWF swf = noCheck ? new SWF(pmi) : new SWF(pmi, null, null, null, false, true, true);
-                boolean valid = swf.fileSize > 0
-                        && swf.version > 0
-                        && (!swf.tags.isEmpty() || noCheck)
-                        && swf.version <= SWF.MAX_VERSION;
-                if (valid) {
-                    long limit = pmi.getPos();
-                    MemoryInputStream is = new MemoryInputStream(mis.getAllRead(), (int) (long) addr, (int) limit);
-                    switch (searchMode) {
-                        case ALL:
-                            swfStreams.put(addr, is);
-                            break;
-                        case BIGGEST:
-                            if (limit > biggestSize) {
-                                biggestSize = limit;
-                                swfStreams.clear();
-                                swfStreams.put(addr, is);
-                            }
-                            break;
-                        case SMALLEST:
-                            if (limit < smallestSize) {
-                                smallestSize = limit;
-                                swfStreams.clear();
-                                swfStreams.put(addr, is);
-                            }
-                            break;
-                        case FIRST:
-                            swfStreams.put(addr, is);
-                            break addressLoop;
-                        case LAST:
-                            swfStreams.clear();
-                            swfStreams.put(addr, is);
+        biggestSize = 0;
+        smallestSize = Long.MAX_VALUE;
+        stopped = false;
+        swfLengths.clear();
+
+        final Deque<Candidate> window = new ArrayDeque<>();
+        final int windowSize = 2 * WorkerPool.getPool().getParallelism();
+        try {
+            if (s instanceof SwfHeaderStreamSearch) {
+                SwfHeaderStreamSearch headerSearch = (SwfHeaderStreamSearch) s;
+                data = headerSearch.getData();
+                headerSearch.search(this::setProgress, address -> addCandidate(window, windowSize, address));
+            } else {
+                Map<Long, InputStream> ret = s.search(this::setProgress,
+                        "FWS".getBytes(), // Uncompressed Flash
+                        "CWS".getBytes(), // ZLib compressed Flash
+                        "ZWS".getBytes(), // LZMA compressed Flash
+                        "GFX".getBytes(), // Uncompressed ScaleForm GFx
+                        "CFX".getBytes()); // Compressed ScaleForm GFx
+                InputStream first = ret.isEmpty() ? null : ret.values().iterator().next();
+                if (first instanceof MemoryInputStream && !((MemoryInputStream) first).isBuffered()) {
+                    // the streams of the search are views of the same array
+                    data = LargeByteBuffer.wrap(((MemoryInputStream) first).getAllRead());
+                    for (Long address : new TreeSet<>(ret.keySet())) {
+                        if (!addCandidate(window, windowSize, address)) {
                             break;
+                        }
                     }
+                } else if (first != null) {
+                    logger.log(Level.WARNING, "Unsupported stream of the search: {0}", first.getClass().getName());
                 }
-            } catch (OutOfMemoryError ome) {
-                Helper.freeMem();
-            } catch (Exception | Error ex) {
+            }
+
+            while (!stopped && !window.isEmpty()) {
+                processCandidate(window.poll());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Candidate candidate : window) {
+                candidate.validation.cancel(true);
             }
         }
+
         setProgress(100);
         processed = true;
     }
 
-    public MemoryInputStream get(ProgressListener listener, long address) throws IOException {
+    /**
+     * Starts the validation of the candidate. Waits for the oldest candidate
+     * when too many candidates are validated.
+     *
+     * @return False when the search should stop
+     */
+    private boolean addCandidate(Deque<Candidate> window, int windowSize, final long address) throws InterruptedException {
+        if (!isPlausibleHeader(data, address, noCheck)) {
+            return true;
+        }
+
+        window.add(new Candidate(address, WorkerPool.submit(() -> validate(address))));
+        while (window.size() > windowSize) {
+            if (!processCandidate(window.poll())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Parses the SWF
+     *
+     * @param address Address of the SWF
+     * @return Length of the SWF data, -1 when the SWF is invalid
+     */
+    private long validate(long address) {
+        try {
+            PosMarkedInputStream pmi = new PosMarkedInputStream(data.getInputStream(address, Long.MAX_VALUE));
+            SWF swf = noCheck ? new SWF(pmi) : new SWF(pmi, null, null, null, false, true, true);
+            boolean valid = swf.fileSize > 0
+                    && swf.version > 0
+                    && (!swf.tags.isEmpty() || noCheck)
+                    && swf.version <= SWF.MAX_VERSION;
+            if (valid) {
+                return pmi.getPos();
+            }
+        } catch (OutOfMemoryError ome) {
+            Helper.freeMem();
+        } catch (Exception | Error ex) {
+        }
+
+        return -1;
+    }
+
+    /**
+     * Waits for the validation of the candidate and adds the valid SWF to the
+     * results
+     *
+     * @return False when the search should stop
+     */
+    private boolean processCandidate(Candidate candidate) throws InterruptedException {
+        long length;
+        try {
+            length = WorkerPool.get(candidate.validation);
+        } catch (ExecutionException ex) {
+            length = -1;
+        }
+
+        if (length < 0) {
+            return true;
+        }
+
+        long address = candidate.address;
+        for (SWFSearchListener l : searchListeners) {
+            l.swfFound(address, data.getInputStream(address, length));
+        }
+
+        switch (searchMode) {
+            case ALL:
+                swfLengths.put(address, length);
+                break;
+            case BIGGEST:
+                if (length > biggestSize) {
+                    biggestSize = length;
+                    swfLengths.clear();
+                    swfLengths.put(address, length);
+                }
+                break;
+            case SMALLEST:
+                if (length < smallestSize) {
+                    smallestSize = length;
+                    swfLengths.clear();
+                    swfLengths.put(address, length);
+                }
+                break;
+            case FIRST:
+                swfLengths.put(address, length);
+                stopped = true;
+                return false;
+            case LAST:
+                swfLengths.clear();
+                swfLengths.put(address, length);
+                break;
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks the header fields without decompressing the SWF
+     *
+     * @param data Data
+     * @param address Address of the signature
+     * @param noCheck Only the checks which the parsing does as well, the file
+     * size and the stage size are not checked
+     * @return False when the SWF is certainly invalid
+     */
+    static boolean isPlausibleHeader(LargeByteBuffer data, long address, boolean noCheck) {
+        long available = data.length() - address;
+        if (available < 8) {
+            return false;
+        }
+
+        int version = data.get(address + 3);
+        if (version == 0 || version > SWF.MAX_VERSION) {
+            return false;
+        }
+
+        long fileSize = readUI32(data, address + 4);
+        if (fileSize <= 8) {
+            return false;
+        }
+
+        switch (data.get(address)) {
+            case 'C': { // CWS, CFX
+                if (available < 10) {
+                    return false;
+                }
+
+                int cmf = data.get(address + 8);
+                int flg = data.get(address + 9);
+                // deflate method, window size, check bits and no preset dictionary
+                if ((cmf & 0x0f) != 8 || (cmf >> 4) > 7 || ((cmf << 8) | flg) % 31 != 0 || (flg & 0x20) != 0) {
+                    return false;
+                }
+
+                if (noCheck) {
+                    return true;
+                }
+
+                // 1032:1 is the maximal compression ratio of zlib
+                if (fileSize > (available - 8) * 1032) {
+                    return false;
+                }
+
+                // the stage size is in the first few decompressed bytes
+                byte[] start = new byte[17];
+                int count = 0;
+                try (InputStream is = new InflaterInputStream(data.getInputStream(address + 8, 4096))) {
+                    int read;
+                    while (count < start.length && (read = is.read(start, count, start.length - count)) > 0) {
+                        count += read;
+                    }
+                } catch (IOException ex) {
+                    return false;
+                }
+
+                return isPlausibleRect(LargeByteBuffer.wrap(Arrays.copyOf(start, count)), 0, fileSize - 8);
+            }
+            case 'Z': { // ZWS
+                if (available < 17) {
+                    return false;
+                }
+
+                // properties byte of LZMA: (pb * 5 + lp) * 9 + lc
+                if (data.get(address + 12) >= 9 * 5 * 5) {
+                    return false;
+                }
+
+                return noCheck || readUI32(data, address + 8) <= available - 17;
+            }
+            default: { // FWS, GFX
+                if (noCheck) {
+                    return true;
+                }
+
+                // the data may be truncated, e.g. in a memory dump, so the file
+                // size is not compared to the available data
+                return isPlausibleRect(data, address + 8, fileSize - 8);
+            }
+        }
+    }
+
+    /**
+     * Checks the stage RECT, the frame rate and the frame count follow it
+     */
+    private static boolean isPlausibleRect(LargeByteBuffer data, long pos, long maxLength) {
+        if (data.length() - pos < 1) {
+            return false;
+        }
+
+        int nBits = data.get(pos) >> 3;
+        int rectLength = (5 + 4 * nBits + 7) / 8;
+        if (rectLength + 4 > maxLength || rectLength > data.length() - pos) {
+            return false;
+        }
+
+        long bits = 0;
+        int bitCount = 0;
+        int bitPos = 5;
+        long bytePos = pos;
+        int[] values = new int[4];
+        for (int i = 0; i < 4; i++) {
+            while (bitCount < nBits) {
+                int b = data.get(bytePos);
+                int bitsInByte = 8 - bitPos;
+                bits = (bits << bitsInByte) | (b & ((1 << bitsInByte) - 1));
+                bitCount += bitsInByte;
+                bitPos = 0;
+                bytePos++;
+            }
+
+            int shift = bitCount - nBits;
+            long value = (bits >> shift) & ((1L << nBits) - 1);
+            bits &= (1L << shift) - 1;
+            bitCount = shift;
+            if (nBits > 0 && (value & (1L << (nBits - 1))) != 0) {
+                value -= 1L << nBits;
+            }
+            values[i] = (int) value;
+        }
+
+        // Xmin, Xmax, Ymin, Ymax
+        return values[0] <= values[1] && values[2] <= values[3];
+    }
+
+    private static long readUI32(LargeByteBuffer data, long pos) {
+        return data.get(pos)
+                | (data.get(pos + 1) << 8)
+                | (data.get(pos + 2) << 16)
+                | ((long) data.get(pos + 3) << 24);
+    }
+
+    public SeekableInputStream get(ProgressListener listener, long address) throws IOException {
         if (!processed) {
             return null;
         }
-        if (!swfStreams.containsKey(address)) {
+        if (!swfLengths.containsKey(address)) {
             return null;
         }
-        return swfStreams.get(address);
+        return data.getInputStream(address, swfLengths.get(address));
     }
 
     public Set<Long> getAddresses() {
-        return swfStreams.keySet();
+        return swfLengths.keySet();
     }
 
     public int length() {
         if (!processed) {
             return 0;
         }
-        return swfStreams.size();
+        return swfLengths.size();
     }
 }
@@ -17,9 +17,7 @@
 package com.jpexs.decompiler.flash;
 
 import com.jpexs.helpers.Path;
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -94,7 +92,7 @@ public class SWFSourceInfo {
             case ".zip":
                 return new ZippedSWFBundle(new File(file));
             default:
-                return new BinarySWFBundle(new BufferedInputStream(new FileInputStream(file)), noCheck, searchMode);
+                return new BinarySWFBundle(new File(file), noCheck, searchMode);
         }
     }
 }
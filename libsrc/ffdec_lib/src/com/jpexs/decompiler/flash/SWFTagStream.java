@@ -0,0 +1,190 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.tags.DefineSpriteTag;
+import com.jpexs.decompiler.flash.tags.EndTag;
+import com.jpexs.decompiler.flash.tags.Tag;
+import com.jpexs.decompiler.flash.tags.TagStub;
+import com.jpexs.decompiler.flash.timeline.Timelined;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Pull-style reader of SWF tags. Only the tag headers are decoded, the tag
+ * list, the dump info tree and the character map of the SWF are not built.
+ * Each returned TagStub can be skipped or resolved on demand.
+ *
+ * Usage:
+ * <pre>
+ * SWFTagStream stream = SWFTagStream.open(is);
+ * TagStub stub;
+ * while ((stub = stream.next()) != null) {
+ *     if (stub.getId() == DoABCDefineTag.ID) {
+ *         Tag tag = stream.resolve(stub);
+ *     }
+ * }
+ * </pre>
+ *
+ * @author JPEXS
+ */
+public class SWFTagStream implements AutoCloseable {
+
+    private final SWF swf;
+
+    private final SWFInputStream sis;
+
+    private final Timelined timelined;
+
+    private final int level;
+
+    private boolean lazy = true;
+
+    private boolean finished;
+
+    private int spriteId = -1;
+
+    private int frameCount;
+
+    private SWFTagStream(SWF swf, SWFInputStream sis, Timelined timelined, int level) {
+        this.swf = swf;
+        this.sis = sis;
+        this.timelined = timelined;
+        this.level = level;
+    }
+
+    /**
+     * Creates tag stream over the root timeline of the SWF. The tags list of
+     * the returned SWF object is not filled, only the header fields.
+     *
+     * @param is Stream to read SWF from
+     * @return Tag stream
+     * @throws IOException
+     */
+    public static SWFTagStream open(InputStream is) throws IOException {
+        SWF swf = new SWF();
+        SWFInputStream sis = swf.readHeader(is, null, null);
+        return new SWFTagStream(swf, sis, swf, 0);
+    }
+
+    /**
+     * Creates tag stream over the nested tags of a DefineSprite tag
+     *
+     * @param spriteStub Unresolved DefineSprite tag returned by this stream
+     * @return Tag stream of the sprite timeline
+     * @throws IOException
+     */
+    public SWFTagStream openSprite(TagStub spriteStub) throws IOException {
+        if (spriteStub.getId() != DefineSpriteTag.ID) {
+            throw new IllegalArgumentException("DefineSprite tag expected.");
+        }
+
+        SWFInputStream spriteStream = spriteStub.getDataStream();
+        SWFTagStream result = new SWFTagStream(swf, spriteStream, null, level + 1);
+        result.lazy = lazy;
+        result.spriteId = spriteStream.readUI16("spriteId");
+        result.frameCount = spriteStream.readUI16("frameCount");
+        return result;
+    }
+
+    /**
+     * Reads the header of the next tag. The tag data are not parsed.
+     *
+     * @return Unresolved tag or null when End tag or end of the stream was
+     * reached
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public TagStub next() throws IOException, InterruptedException {
+        if (finished || sis.available() <= 0) {
+            finished = true;
+            return null;
+        }
+
+        Tag tag;
+        try {
+            tag = sis.readTag(timelined, level, sis.getPos(), false, false, false, lazy);
+        } catch (EOFException | EndOfStreamException ex) {
+            tag = null;
+        }
+
+        if (tag == null || tag.getId() == EndTag.ID) {
+            finished = true;
+            return null;
+        }
+
+        tag.setTimelined(timelined);
+        return (TagStub) tag;
+    }
+
+    /**
+     * Parses the data of the tag. DefineSprite tags are resolved with all
+     * their nested tags, use openSprite to stream them instead.
+     *
+     * @param stub Unresolved tag returned by this stream
+     * @return Resolved tag
+     * @throws InterruptedException
+     */
+    public Tag resolve(TagStub stub) throws InterruptedException {
+        Tag tag = SWFInputStream.resolveTag(stub, level, false, false, lazy);
+        tag.setTimelined(timelined);
+        return tag;
+    }
+
+    /**
+     * Sets whether the resolved tags should be parsed lazily
+     *
+     * @param lazy Lazy parsing
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    /**
+     * Gets SWF with the header fields filled
+     *
+     * @return SWF
+     */
+    public SWF getSwf() {
+        return swf;
+    }
+
+    /**
+     * Gets character id of the streamed sprite
+     *
+     * @return Sprite id or -1 on the root timeline
+     */
+    public int getSpriteId() {
+        return spriteId;
+    }
+
+    /**
+     * Gets frame count of the streamed timeline
+     *
+     * @return Frame count
+     */
+    public int getFrameCount() {
+        return level == 0 ? swf.frameCount : frameCount;
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+        sis.close();
+    }
+}
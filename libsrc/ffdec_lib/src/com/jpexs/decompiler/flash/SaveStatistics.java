@@ -0,0 +1,83 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+/**
+ * Statistics of SWF.saveTo: the unmodified tags are copied from their
+ * original bytes, only the modified tags are serialized again. The sizes are
+ * in the uncompressed SWF.
+ *
+ * @author JPEXS
+ */
+public class SaveStatistics {
+
+    private int reusedTags;
+
+    private int rewrittenTags;
+
+    private long reusedBytes;
+
+    private long rewrittenBytes;
+
+    void addReused(long length) {
+        reusedTags++;
+        reusedBytes += length;
+    }
+
+    void addRewritten(long length) {
+        rewrittenTags++;
+        rewrittenBytes += length;
+    }
+
+    /**
+     * Gets the number of the tags copied from the original data
+     *
+     * @return Number of tags
+     */
+    public int getReusedTags() {
+        return reusedTags;
+    }
+
+    /**
+     * Gets the number of the serialized tags, a sprite with modified subtags
+     * is counted as rewritten too
+     *
+     * @return Number of tags
+     */
+    public int getRewrittenTags() {
+        return rewrittenTags;
+    }
+
+    public long getReusedBytes() {
+        return reusedBytes;
+    }
+
+    /**
+     * Gets the number of the serialized bytes, including the headers of the
+     * rewritten sprites
+     *
+     * @return Number of bytes
+     */
+    public long getRewrittenBytes() {
+        return rewrittenBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "reused " + reusedTags + " tags (" + reusedBytes + " bytes), rewritten " + rewrittenTags + " tags (" + rewrittenBytes + " bytes)";
+    }
+}
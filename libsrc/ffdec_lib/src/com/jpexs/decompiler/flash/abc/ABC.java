@@ -20,6 +20,7 @@ import com.jpexs.decompiler.flash.EventListener;
 import com.jpexs.decompiler.flash.SWF;
 import com.jpexs.decompiler.flash.abc.avm2.AVM2Code;
 import com.jpexs.decompiler.flash.abc.avm2.AVM2ConstantPool;
+import com.jpexs.decompiler.flash.abc.avm2.LazyConstantPool;
 import com.jpexs.decompiler.flash.abc.avm2.AVM2Deobfuscation;
 import com.jpexs.decompiler.flash.abc.avm2.instructions.AVM2Instruction;
 import com.jpexs.decompiler.flash.abc.avm2.instructions.executing.CallPropertyIns;
@@ -54,20 +55,27 @@ import com.jpexs.decompiler.flash.abc.usages.MethodParamsMultinameUsage;
 import com.jpexs.decompiler.flash.abc.usages.MethodReturnTypeMultinameUsage;
 import com.jpexs.decompiler.flash.abc.usages.MultinameUsage;
 import com.jpexs.decompiler.flash.abc.usages.TypeNameMultinameUsage;
+import com.jpexs.decompiler.flash.configuration.Configuration;
 import com.jpexs.decompiler.flash.helpers.SWFDecompilerPlugin;
 import com.jpexs.decompiler.flash.tags.ABCContainerTag;
 import com.jpexs.decompiler.flash.tags.Tag;
 import com.jpexs.decompiler.flash.types.annotations.Internal;
 import com.jpexs.decompiler.graph.CompilationException;
+import com.jpexs.helpers.WorkerPool;
 import com.jpexs.helpers.utf8.Utf8PrintWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -93,7 +101,13 @@ public class ABC {
 
     private Map<Integer, Integer> bodyIdxFromMethodIdx;
 
-    private long[] stringOffsets;
+    /**
+     * Bodies read lazily and the method indices of their records, null when
+     * the ABC was read eagerly
+     */
+    private LazyRecordList<MethodBody> lazyBodies;
+
+    private int[] lazyBodyMethodIndices;
 
     public static final int MINORwithDECIMAL = 17;
 
@@ -106,19 +120,20 @@ public class ABC {
     @Internal
     public ABCContainerTag parentTag;
 
+    /* Multiname usage index, null when not built yet**/
+    private volatile MultinameUsageIndex multinameUsages;
+
     /* Map from multiname index of namespace value to namespace name**/
     private Map<String, String> namespaceMap;
 
     public ABC(ABCContainerTag tag) {
         this.parentTag = tag;
         this.deobfuscation = null;
-        constants.constant_double.add(null);
-        constants.constant_int.add(null);
-        constants.constant_uint.add(null);
-        constants.constant_string.add(null);
-        constants.constant_multiname.add(null);
-        constants.constant_namespace.add(null);
-        constants.constant_namespace_set.add(null);
+        constants.addEmptyNumbers();
+        constants.addString(null);
+        constants.addMultiname(null);
+        constants.addNamespace(null);
+        constants.addNamespaceSet(null);
     }
 
     public SWF getSwf() {
@@ -132,11 +147,13 @@ public class ABC {
     public int addMethodBody(MethodBody body) {
         bodies.add(body);
         bodyIdxFromMethodIdx = null;
+        multinameUsages = null;
         return bodies.size() - 1;
     }
 
     public int addMethodInfo(MethodInfo mi) {
         method_info.add(mi);
+        multinameUsages = null;
         return method_info.size() - 1;
     }
 
@@ -155,6 +172,7 @@ public class ABC {
     }
 
     public int removeTraps() throws InterruptedException {
+        multinameUsages = null;
         int rem = 0;
         for (int s = 0; s < script_info.size(); s++) {
             rem += script_info.get(s).removeTraps(s, this, "");
@@ -163,6 +181,7 @@ public class ABC {
     }
 
     public int removeDeadCode() throws InterruptedException {
+        multinameUsages = null;
         int rem = 0;
         for (MethodBody body : bodies) {
             rem += body.removeDeadCode(constants, null/*FIXME*/, method_info.get(body.method_info));
@@ -171,6 +190,7 @@ public class ABC {
     }
 
     public void restoreControlFlow() throws InterruptedException {
+        multinameUsages = null;
         for (MethodBody body : bodies) {
             body.restoreControlFlow(constants, null/*FIXME*/, method_info.get(body.method_info));
         }
@@ -274,7 +294,9 @@ public class ABC {
         int strIndex = constants.getMultiname(multinameIndex).name_index;
         if (stringUsages.contains(strIndex) || namespaceUsages.contains(strIndex)) { // name is used elsewhere as string literal
             strIndex = constants.getStringId(newname, true);
-            constants.getMultiname(multinameIndex).name_index = strIndex;
+            Multiname m = constants.getMultiname(multinameIndex);
+            m.name_index = strIndex;
+            constants.setMultiname(multinameIndex, m);
         } else {
             constants.setString(strIndex, newname);
         }
@@ -291,14 +313,19 @@ public class ABC {
             informListeners("deobfuscate", "class " + i + "/" + instance_info.size());
             InstanceInfo insti = instance_info.get(i);
             if (insti.name_index != 0) {
-                constants.getMultiname(insti.name_index).name_index = deobfuscation.deobfuscateName(stringUsageTypes, stringUsages, namespaceUsages, namesMap, constants.getMultiname(insti.name_index).name_index, true, renameType);
-                if (constants.getMultiname(insti.name_index).namespace_index != 0) {
-                    constants.getNamespace(constants.getMultiname(insti.name_index).namespace_index).name_index
-                            = deobfuscation.deobfuscatePackageName(stringUsageTypes, stringUsages, namesMap, constants.getNamespace(constants.getMultiname(insti.name_index).namespace_index).name_index, renameType);
+                Multiname m = constants.getMultiname(insti.name_index);
+                m.name_index = deobfuscation.deobfuscateName(stringUsageTypes, stringUsages, namespaceUsages, namesMap, m.name_index, true, renameType);
+                constants.setMultiname(insti.name_index, m);
+                if (m.namespace_index != 0) {
+                    Namespace ns = constants.getNamespace(m.namespace_index);
+                    ns.name_index = deobfuscation.deobfuscatePackageName(stringUsageTypes, stringUsages, namesMap, ns.name_index, renameType);
+                    constants.setNamespace(m.namespace_index, ns);
                 }
             }
             if (insti.super_index != 0) {
-                constants.getMultiname(insti.super_index).name_index = deobfuscation.deobfuscateName(stringUsageTypes, stringUsages, namespaceUsages, namesMap, constants.getMultiname(insti.super_index).name_index, true, renameType);
+                Multiname m = constants.getMultiname(insti.super_index);
+                m.name_index = deobfuscation.deobfuscateName(stringUsageTypes, stringUsages, namespaceUsages, namesMap, m.name_index, true, renameType);
+                constants.setMultiname(insti.super_index, m);
             }
         }
         if (classesOnly) {
@@ -306,14 +333,18 @@ public class ABC {
         }
         for (int i = 1; i < constants.getMultinameCount(); i++) {
             informListeners("deobfuscate", "name " + i + "/" + constants.getMultinameCount());
-            constants.getMultiname(i).name_index = deobfuscation.deobfuscateName(stringUsageTypes, stringUsages, namespaceUsages, namesMap, constants.getMultiname(i).name_index, false, renameType);
+            Multiname m = constants.getMultiname(i);
+            m.name_index = deobfuscation.deobfuscateName(stringUsageTypes, stringUsages, namespaceUsages, namesMap, m.name_index, false, renameType);
+            constants.setMultiname(i, m);
         }
         for (int i = 1; i < constants.getNamespaceCount(); i++) {
             informListeners("deobfuscate", "namespace " + i + "/" + constants.getNamespaceCount());
             if (constants.getNamespace(i).kind != Namespace.KIND_PACKAGE) { // only packages
                 continue;
             }
-            constants.getNamespace(i).name_index = deobfuscation.deobfuscatePackageName(stringUsageTypes, stringUsages, namesMap, constants.getNamespace(i).name_index, renameType);
+            Namespace ns = constants.getNamespace(i);
+            ns.name_index = deobfuscation.deobfuscatePackageName(stringUsageTypes, stringUsages, namesMap, ns.name_index, renameType);
+            constants.setNamespace(i, ns);
         }
 
         // process reflection using getDefinitionByName too
@@ -359,6 +390,21 @@ public class ABC {
     }
 
     public ABC(ABCInputStream ais, SWF swf, ABCContainerTag tag) throws IOException {
+        this(ais, swf, tag, false);
+    }
+
+    /**
+     * Reads ABC from the stream
+     *
+     * @param ais Input stream
+     * @param swf SWF
+     * @param tag Parent tag
+     * @param lazy Decode the doubles, strings, namespaces, namespace sets and
+     * multinames on the first access. The dump info is always collected
+     * eagerly.
+     * @throws IOException
+     */
+    public ABC(ABCInputStream ais, SWF swf, ABCContainerTag tag, boolean lazy) throws IOException {
         this.parentTag = tag;
         minor_version = ais.readU16("minor_version");
         major_version = ais.readU16("major_version");
@@ -369,7 +415,6 @@ public class ABC {
 
         // constant integers
         int constant_int_pool_count = ais.readU30("int_count");
-        constants.constant_int = new ArrayList<>(constant_int_pool_count);
         if (constant_int_pool_count > 0) {
             constants.addInt(0);
         }
@@ -383,7 +428,6 @@ public class ABC {
 
         // constant unsigned integers
         int constant_uint_pool_count = ais.readU30("uint_count");
-        constants.constant_uint = new ArrayList<>(constant_uint_pool_count);
         if (constant_uint_pool_count > 0) {
             constants.addUInt(0);
         }
@@ -395,9 +439,218 @@ public class ABC {
             ais.endDumpLevel();
         }
 
+        if (lazy && ais.dumpInfo == null) {
+            readLazyConstants(ais);
+        } else {
+            readConstants(ais);
+        }
+
+        ais.endDumpLevel(); // cpool_info
+
+        if (lazy && ais.dumpInfo == null) {
+            readLazyRecords(ais, swf);
+        } else {
+            readRecords(ais, swf);
+        }
+
+        /*for(int i=0;i<script_count;i++){
+         MethodBody bod=bodies.get(bodyIdxFromMethodIdx.get(script_info.get(i).init_index));
+         GraphTextWriter t=new HighlightedTextWriter(Configuration.getCodeFormatting(),false);
+         try {
+         bod.toString("script", ScriptExportMode.PCODE,  this, null, constants, method_info, t, new ArrayList<String>());
+         } catch (InterruptedException ex) {
+         Logger.getLogger(ABC.class.getName()).log(Level.SEVERE, null, ex);
+         }
+         System.out.println(""+t.toString());
+         }
+         //System.exit(0);*/
+        SWFDecompilerPlugin.fireAbcParsed(this, swf);
+    }
+
+    private void readRecords(ABCInputStream ais, SWF swf) throws IOException {
+        // method info
+        int methods_count = ais.readU30("methods_count");
+        method_info = new ArrayList<>(methods_count); // MethodInfo[methods_count];
+        for (int i = 0; i < methods_count; i++) {
+            method_info.add(ais.readMethodInfo("method"));
+        }
+
+        readMetadata(ais);
+
+        int class_count = ais.readU30("class_count");
+        instance_info = new ArrayList<>(class_count);
+        for (int i = 0; i < class_count; i++) {
+            instance_info.add(ais.readInstanceInfo("instance"));
+        }
+        class_info = new ArrayList<>(class_count);
+        for (int i = 0; i < class_count; i++) {
+            class_info.add(readClassInfo(ais));
+        }
+        int script_count = ais.readU30("script_count");
+        script_info = new ArrayList<>(script_count);
+        for (int i = 0; i < script_count; i++) {
+            script_info.add(readScriptInfo(ais));
+        }
+
+        int bodies_count = ais.readU30("bodies_count");
+        bodies = new ArrayList<>(bodies_count);
+        for (int i = 0; i < bodies_count; i++) {
+            MethodBody mb = readMethodBody(ais);
+            bodies.add(mb);
+            method_info.get(mb.method_info).setBody(mb);
+
+            SWFDecompilerPlugin.fireMethodBodyParsed(mb, swf);
+        }
+    }
+
+    /**
+     * Reads the offsets of the method, instance, class, script and method
+     * body records. Each record is read on the first access, the traits of
+     * the record are read on their first access too. The metadata are read
+     * eagerly.
+     *
+     * @param ais Input stream
+     * @param swf SWF
+     * @throws IOException
+     */
+    private void readLazyRecords(ABCInputStream ais, SWF swf) throws IOException {
+        byte[] data = ais.getBaseStream().getAllRead();
+        int startPos = ais.getBaseStream().getStartPos();
+
+        int[] methodOffsets = new int[ais.readU30("methods_count")];
+        for (int i = 0; i < methodOffsets.length; i++) {
+            methodOffsets[i] = (int) ais.getPosition();
+            ais.skipMethodInfo();
+        }
+
+        readMetadata(ais);
+
+        int class_count = ais.readU30("class_count");
+        int[] instanceOffsets = new int[class_count];
+        for (int i = 0; i < class_count; i++) {
+            instanceOffsets[i] = (int) ais.getPosition();
+            ais.skipInstanceInfo();
+        }
+        int[] classOffsets = new int[class_count];
+        for (int i = 0; i < class_count; i++) {
+            classOffsets[i] = (int) ais.getPosition();
+            ais.readU30("cinit_index");
+            ais.skipTraits();
+        }
+        int[] scriptOffsets = new int[ais.readU30("script_count")];
+        for (int i = 0; i < scriptOffsets.length; i++) {
+            scriptOffsets[i] = (int) ais.getPosition();
+            ais.readU30("init_index");
+            ais.skipTraits();
+        }
+
+        int bodies_count = ais.readU30("bodies_count");
+        int[] bodyOffsets = new int[bodies_count];
+        int[] bodyMethodIndices = new int[bodies_count];
+        int[] methodBodyIndices = new int[methodOffsets.length];
+        Arrays.fill(methodBodyIndices, -1);
+        for (int i = 0; i < bodies_count; i++) {
+            bodyOffsets[i] = (int) ais.getPosition();
+            bodyMethodIndices[i] = ais.readU30("method_info");
+            methodBodyIndices[bodyMethodIndices[i]] = i;
+            ais.readU30("max_stack");
+            ais.readU30("max_regs");
+            ais.readU30("init_scope_depth");
+            ais.readU30("max_scope_depth");
+            ais.skipBytes(ais.readU30("code_length"));
+            int ex_count = ais.readU30("ex_count");
+            for (int j = 0; j < ex_count * 5; j++) {
+                ais.readU30("exception");
+            }
+            ais.skipTraits();
+        }
+
+        LazyRecordList<MethodBody> lazyBodies = new LazyRecordList<>(data, startPos, bodyOffsets, (ABCInputStream bis, int index) -> {
+            MethodBody mb = readMethodBody(bis);
+            SWFDecompilerPlugin.fireMethodBodyParsed(mb, swf);
+            return mb;
+        });
+        method_info = new LazyRecordList<>(data, startPos, methodOffsets, (ABCInputStream mis, int index) -> {
+            MethodInfo mi = mis.readMethodInfo("method");
+            if (methodBodyIndices[index] != -1) {
+                mi.setBody(lazyBodies.getOriginal(methodBodyIndices[index]));
+            }
+            return mi;
+        });
+        instance_info = new LazyRecordList<>(data, startPos, instanceOffsets, (ABCInputStream iis, int index) -> iis.readInstanceInfo("instance"));
+        class_info = new LazyRecordList<>(data, startPos, classOffsets, (ABCInputStream cis, int index) -> readClassInfo(cis));
+        script_info = new LazyRecordList<>(data, startPos, scriptOffsets, (ABCInputStream sis, int index) -> readScriptInfo(sis));
+        bodies = lazyBodies;
+        this.lazyBodies = lazyBodies;
+        lazyBodyMethodIndices = bodyMethodIndices;
+    }
+
+    private void readMetadata(ABCInputStream ais) throws IOException {
+        int metadata_count = ais.readU30("metadata_count");
+        metadata_info = new ArrayList<>(metadata_count);
+        for (int i = 0; i < metadata_count; i++) {
+            int name_index = ais.readU30("name_index");
+            int values_count = ais.readU30("values_count");
+            int[] keys = new int[values_count];
+            for (int v = 0; v < values_count; v++) {
+                keys[v] = ais.readU30("key");
+            }
+            int[] values = new int[values_count];
+            for (int v = 0; v < values_count; v++) {
+                values[v] = ais.readU30("value");
+            }
+            metadata_info.add(new MetadataInfo(name_index, keys, values));
+        }
+    }
+
+    private static ClassInfo readClassInfo(ABCInputStream ais) throws IOException {
+        ais.newDumpLevel("class", "class_info");
+        ClassInfo ci = new ClassInfo(null); // do not create Traits in constructor
+        ci.cinit_index = ais.readU30("cinit_index");
+        ci.static_traits = ais.readTraits("static_traits");
+        ais.endDumpLevel();
+        return ci;
+    }
+
+    private static ScriptInfo readScriptInfo(ABCInputStream ais) throws IOException {
+        ais.newDumpLevel("script", "script_info");
+        ScriptInfo si = new ScriptInfo(null); // do not create Traits in constructor
+        si.init_index = ais.readU30("init_index");
+        si.traits = ais.readTraits("traits");
+        ais.endDumpLevel();
+        si.setModified(false);
+        return si;
+    }
+
+    private static MethodBody readMethodBody(ABCInputStream ais) throws IOException {
+        ais.newDumpLevel("method_body", "method_body_info");
+        MethodBody mb = new MethodBody(null, null, null); // do not create Traits in constructor
+        mb.method_info = ais.readU30("method_info");
+        mb.max_stack = ais.readU30("max_stack");
+        mb.max_regs = ais.readU30("max_regs");
+        mb.init_scope_depth = ais.readU30("init_scope_depth");
+        mb.max_scope_depth = ais.readU30("max_scope_depth");
+        int code_length = ais.readU30("code_length");
+        mb.setCodeBytes(ais.readBytes(code_length, "code"));
+        int ex_count = ais.readU30("ex_count");
+        mb.exceptions = new ABCException[ex_count];
+        for (int j = 0; j < ex_count; j++) {
+            ABCException abce = new ABCException();
+            abce.start = ais.readU30("start");
+            abce.end = ais.readU30("end");
+            abce.target = ais.readU30("target");
+            abce.type_index = ais.readU30("type_index");
+            abce.name_index = ais.readU30("name_index");
+            mb.exceptions[j] = abce;
+        }
+        mb.traits = ais.readTraits("traits");
+        ais.endDumpLevel();
+        return mb;
+    }
+
+    private void readConstants(ABCInputStream ais) throws IOException {
         // constant double
         int constant_double_pool_count = ais.readU30("double_count");
-        constants.constant_double = new ArrayList<>(constant_double_pool_count);
         if (constant_double_pool_count > 0) {
             constants.addDouble(0);
         }
@@ -412,7 +665,6 @@ public class ABC {
         // constant decimal
         if (minor_version >= MINORwithDECIMAL) {
             int constant_decimal_pool_count = ais.readU30("decimal_count");
-            constants.constant_decimal = new ArrayList<>(constant_decimal_pool_count);
             if (constant_decimal_pool_count > 0) {
                 constants.addDecimal(null);
             }
@@ -423,30 +675,23 @@ public class ABC {
                 }
                 ais.endDumpLevel();
             }
-        } else {
-            constants.constant_decimal = new ArrayList<>(0);
         }
 
         // constant string
         int constant_string_pool_count = ais.readU30("string_count");
-        constants.constant_string = new ArrayList<>(constant_string_pool_count);
-        stringOffsets = new long[constant_string_pool_count];
         if (constant_string_pool_count > 0) {
             constants.addString("");
         }
         if (constant_string_pool_count > 1) {
             ais.newDumpLevel("strings", "string[]");
             for (int i = 1; i < constant_string_pool_count; i++) { // index 0 not used. Values 1..n-1
-                long pos = ais.getPosition();
                 constants.addString(ais.readString("string"));
-                stringOffsets[i] = pos;
             }
             ais.endDumpLevel();
         }
 
         // constant namespace
         int constant_namespace_pool_count = ais.readU30("namespace_count");
-        constants.constant_namespace = new ArrayList<>(constant_namespace_pool_count);
         if (constant_namespace_pool_count > 0) {
             constants.addNamespace(null);
         }
@@ -460,28 +705,19 @@ public class ABC {
 
         // constant namespace set
         int constant_namespace_set_pool_count = ais.readU30("ns_set_count");
-        constants.constant_namespace_set = new ArrayList<>(constant_namespace_set_pool_count);
         if (constant_namespace_set_pool_count > 0) {
             constants.addNamespaceSet(null);
         }
         if (constant_namespace_set_pool_count > 1) {
             ais.newDumpLevel("ns_sets", "ns_set[]");
             for (int i = 1; i < constant_namespace_set_pool_count; i++) { // index 0 not used. Values 1..n-1
-                ais.newDumpLevel("ns_set_infos", "ns_set_info[]");
-                constants.addNamespaceSet(new NamespaceSet());
-                int namespace_count = ais.readU30("count");
-                constants.getNamespaceSet(i).namespaces = new int[namespace_count];
-                for (int j = 0; j < namespace_count; j++) {
-                    constants.getNamespaceSet(i).namespaces[j] = ais.readU30("ns");
-                }
-                ais.endDumpLevel();
+                constants.addNamespaceSet(ais.readNamespaceSet("ns_set_infos"));
             }
             ais.endDumpLevel();
         }
 
         // constant multiname
         int constant_multiname_pool_count = ais.readU30("multiname_count");
-        constants.constant_multiname = new ArrayList<>(constant_multiname_pool_count);
         if (constant_multiname_pool_count > 0) {
             constants.addMultiname(null);
         }
@@ -492,102 +728,60 @@ public class ABC {
             }
             ais.endDumpLevel();
         }
+    }
 
-        ais.endDumpLevel(); // cpool_info
+    /**
+     * Reads the offsets of the double, string, namespace, namespace set and
+     * multiname pools. The decimals are read eagerly.
+     *
+     * @param ais Input stream
+     * @throws IOException
+     */
+    private void readLazyConstants(ABCInputStream ais) throws IOException {
+        byte[] data = ais.getBaseStream().getAllRead();
+        int base = ais.getBaseStream().getStartPos();
 
-        // method info
-        int methods_count = ais.readU30("methods_count");
-        method_info = new ArrayList<>(methods_count); // MethodInfo[methods_count];
-        for (int i = 0; i < methods_count; i++) {
-            method_info.add(ais.readMethodInfo("method"));
+        int constant_double_pool_count = ais.readU30("double_count");
+        int doubleOffset = base + (int) ais.getPosition();
+        if (constant_double_pool_count > 1) {
+            ais.skipBytes((constant_double_pool_count - 1) * 8);
         }
 
-        // metadata info
-        int metadata_count = ais.readU30("metadata_count");
-        metadata_info = new ArrayList<>(metadata_count);
-        for (int i = 0; i < metadata_count; i++) {
-            int name_index = ais.readU30("name_index");
-            int values_count = ais.readU30("values_count");
-            int[] keys = new int[values_count];
-            for (int v = 0; v < values_count; v++) {
-                keys[v] = ais.readU30("key");
+        if (minor_version >= MINORwithDECIMAL) {
+            int constant_decimal_pool_count = ais.readU30("decimal_count");
+            if (constant_decimal_pool_count > 0) {
+                constants.addDecimal(null);
             }
-            int[] values = new int[values_count];
-            for (int v = 0; v < values_count; v++) {
-                values[v] = ais.readU30("value");
+            for (int i = 1; i < constant_decimal_pool_count; i++) {
+                constants.addDecimal(ais.readDecimal("decimal"));
             }
-            metadata_info.add(new MetadataInfo(name_index, keys, values));
         }
 
-        int class_count = ais.readU30("class_count");
-        instance_info = new ArrayList<>(class_count);
-        for (int i = 0; i < class_count; i++) {
-            instance_info.add(ais.readInstanceInfo("instance"));
+        int[] stringOffsets = new int[ais.readU30("string_count")];
+        for (int i = 1; i < stringOffsets.length; i++) {
+            stringOffsets[i] = base + (int) ais.getPosition();
+            ais.skipString();
         }
-        class_info = new ArrayList<>(class_count);
-        for (int i = 0; i < class_count; i++) {
-            ais.newDumpLevel("class", "class_info");
-            ClassInfo ci = new ClassInfo(null); // do not create Traits in constructor
-            ci.cinit_index = ais.readU30("cinit_index");
-            ci.static_traits = ais.readTraits("static_traits");
-            class_info.add(ci);
-            ais.endDumpLevel();
-        }
-        int script_count = ais.readU30("script_count");
-        script_info = new ArrayList<>(script_count);
-        for (int i = 0; i < script_count; i++) {
-            ais.newDumpLevel("script", "script_info");
-            ScriptInfo si = new ScriptInfo(null); // do not create Traits in constructor
-            si.init_index = ais.readU30("init_index");
-            si.traits = ais.readTraits("traits");
-            script_info.add(si);
-            ais.endDumpLevel();
-            si.setModified(false);
+
+        int[] namespaceOffsets = new int[ais.readU30("namespace_count")];
+        for (int i = 1; i < namespaceOffsets.length; i++) {
+            namespaceOffsets[i] = base + (int) ais.getPosition();
+            ais.skipNamespace();
         }
 
-        int bodies_count = ais.readU30("bodies_count");
-        bodies = new ArrayList<>(bodies_count);
-        for (int i = 0; i < bodies_count; i++) {
-            ais.newDumpLevel("method_body", "method_body_info");
-            MethodBody mb = new MethodBody(null, null, null); // do not create Traits in constructor
-            mb.method_info = ais.readU30("method_info");
-            mb.max_stack = ais.readU30("max_stack");
-            mb.max_regs = ais.readU30("max_regs");
-            mb.init_scope_depth = ais.readU30("init_scope_depth");
-            mb.max_scope_depth = ais.readU30("max_scope_depth");
-            int code_length = ais.readU30("code_length");
-            mb.setCodeBytes(ais.readBytes(code_length, "code"));
-            int ex_count = ais.readU30("ex_count");
-            mb.exceptions = new ABCException[ex_count];
-            for (int j = 0; j < ex_count; j++) {
-                ABCException abce = new ABCException();
-                abce.start = ais.readU30("start");
-                abce.end = ais.readU30("end");
-                abce.target = ais.readU30("target");
-                abce.type_index = ais.readU30("type_index");
-                abce.name_index = ais.readU30("name_index");
-                mb.exceptions[j] = abce;
-            }
-            mb.traits = ais.readTraits("traits");
-            bodies.add(mb);
-            method_info.get(mb.method_info).setBody(mb);
-            ais.endDumpLevel();
+        int[] namespaceSetOffsets = new int[ais.readU30("ns_set_count")];
+        for (int i = 1; i < namespaceSetOffsets.length; i++) {
+            namespaceSetOffsets[i] = base + (int) ais.getPosition();
+            ais.skipNamespaceSet();
+        }
 
-            SWFDecompilerPlugin.fireMethodBodyParsed(mb, swf);
+        int[] multinameOffsets = new int[ais.readU30("multiname_count")];
+        for (int i = 1; i < multinameOffsets.length; i++) {
+            multinameOffsets[i] = base + (int) ais.getPosition();
+            ais.skipMultiname();
         }
 
-        /*for(int i=0;i<script_count;i++){
-         MethodBody bod=bodies.get(bodyIdxFromMethodIdx.get(script_info.get(i).init_index));
-         GraphTextWriter t=new HighlightedTextWriter(Configuration.getCodeFormatting(),false);
-         try {
-         bod.toString("script", ScriptExportMode.PCODE,  this, null, constants, method_info, t, new ArrayList<String>());
-         } catch (InterruptedException ex) {
-         Logger.getLogger(ABC.class.getName()).log(Level.SEVERE, null, ex);
-         }
-         System.out.println(""+t.toString());
-         }
-         //System.exit(0);*/
-        SWFDecompilerPlugin.fireAbcParsed(this, swf);
+        constants.setLazy(new LazyConstantPool(data, doubleOffset, constant_double_pool_count, stringOffsets, namespaceOffsets, namespaceSetOffsets, multinameOffsets));
     }
 
     public void saveToStream(OutputStream os) throws IOException {
@@ -844,9 +1038,16 @@ public class ABC {
     private Map<Integer, Integer> getBodyIdxFromMethodIdx() {
         if (bodyIdxFromMethodIdx == null) {
             Map<Integer, Integer> map = new HashMap<>(bodies.size());
-            for (int i = 0; i < bodies.size(); i++) {
-                MethodBody mb = bodies.get(i);
-                map.put(mb.method_info, i);
+            if (bodies == lazyBodies && !lazyBodies.isMaterialized()) {
+                // the bodies are not decoded to get their method indices
+                for (int i = 0; i < lazyBodyMethodIndices.length; i++) {
+                    map.put(lazyBodyMethodIndices[i], i);
+                }
+            } else {
+                for (int i = 0; i < bodies.size(); i++) {
+                    MethodBody mb = bodies.get(i);
+                    map.put(mb.method_info, i);
+                }
             }
 
             bodyIdxFromMethodIdx = map;
@@ -900,57 +1101,188 @@ public class ABC {
         }
     }
 
-    private void checkMultinameUsedInMethod(int multinameIndex, int methodInfo, List<MultinameUsage> ret, int classIndex, int traitIndex, boolean isStatic, boolean isInitializer, Traits traits, int parentTraitIndex) {
-        for (int p = 0; p < method_info.get(methodInfo).param_types.length; p++) {
-            if (method_info.get(methodInfo).param_types[p] == multinameIndex) {
-                ret.add(new MethodParamsMultinameUsage(this, multinameIndex, classIndex, traitIndex, isStatic, isInitializer, traits, parentTraitIndex));
-                break;
-            }
+    private static void addMultinameUsage(Map<Integer, List<MultinameUsage>> ret, int multinameIndex, MultinameUsage usage) {
+        if (multinameIndex <= 0) {
+            return;
+        }
+
+        List<MultinameUsage> usages = ret.get(multinameIndex);
+        if (usages == null) {
+            usages = new ArrayList<>();
+            ret.put(multinameIndex, usages);
+        }
+
+        usages.add(usage);
+    }
+
+    private void indexMultinameUsagesInMethod(int methodInfo, Map<Integer, List<MultinameUsage>> ret, int classIndex, int traitIndex, boolean isStatic, boolean isInitializer, Traits traits, int parentTraitIndex) {
+        MethodInfo mi = method_info.get(methodInfo);
+        Set<Integer> paramTypes = new LinkedHashSet<>();
+        for (int p = 0; p < mi.param_types.length; p++) {
+            paramTypes.add(mi.param_types[p]);
         }
-        if (method_info.get(methodInfo).ret_type == multinameIndex) {
-            ret.add(new MethodReturnTypeMultinameUsage(this, multinameIndex, classIndex, traitIndex, isStatic, isInitializer, traits, parentTraitIndex));
+        for (int m : paramTypes) {
+            addMultinameUsage(ret, m, new MethodParamsMultinameUsage(this, m, classIndex, traitIndex, isStatic, isInitializer, traits, parentTraitIndex));
         }
+        addMultinameUsage(ret, mi.ret_type, new MethodReturnTypeMultinameUsage(this, mi.ret_type, classIndex, traitIndex, isStatic, isInitializer, traits, parentTraitIndex));
         MethodBody body = findBody(methodInfo);
         if (body != null) {
-            findMultinameUsageInTraits(body.traits, multinameIndex, isStatic, classIndex, ret, traitIndex);
+            indexMultinameUsagesInTraits(body.traits, isStatic, classIndex, ret, traitIndex);
+            Set<Integer> bodyMultinames = new LinkedHashSet<>();
             for (ABCException e : body.exceptions) {
-                if ((e.name_index == multinameIndex) || (e.type_index == multinameIndex)) {
-                    ret.add(new MethodBodyMultinameUsage(this, multinameIndex, classIndex, traitIndex, isStatic, isInitializer, traits, parentTraitIndex));
-                    return;
-                }
+                bodyMultinames.add(e.name_index);
+                bodyMultinames.add(e.type_index);
             }
             for (AVM2Instruction ins : body.getCode().code) {
                 for (int o = 0; o < ins.definition.operands.length; o++) {
                     if (ins.definition.operands[o] == AVM2Code.DAT_MULTINAME_INDEX) {
-                        if (ins.operands[o] == multinameIndex) {
-                            ret.add(new MethodBodyMultinameUsage(this, multinameIndex, classIndex, traitIndex, isStatic, isInitializer, traits, parentTraitIndex));
-                            return;
-                        }
+                        bodyMultinames.add(ins.operands[o]);
                     }
                 }
             }
+            for (int m : bodyMultinames) {
+                addMultinameUsage(ret, m, new MethodBodyMultinameUsage(this, m, classIndex, traitIndex, isStatic, isInitializer, traits, parentTraitIndex));
+            }
         }
     }
 
-    private void findMultinameUsageInTraits(Traits traits, int multinameIndex, boolean isStatic, int classIndex, List<MultinameUsage> ret, int parentTraitIndex) {
+    private void indexMultinameUsagesInTraits(Traits traits, boolean isStatic, int classIndex, Map<Integer, List<MultinameUsage>> ret, int parentTraitIndex) {
         for (int t = 0; t < traits.traits.size(); t++) {
             if (traits.traits.get(t) instanceof TraitSlotConst) {
                 TraitSlotConst tsc = (TraitSlotConst) traits.traits.get(t);
-                if (tsc.name_index == multinameIndex) {
-                    ret.add(new ConstVarNameMultinameUsage(this, multinameIndex, classIndex, t, isStatic, traits, parentTraitIndex));
-                }
-                if (tsc.type_index == multinameIndex) {
-                    ret.add(new ConstVarTypeMultinameUsage(this, multinameIndex, classIndex, t, isStatic, traits, parentTraitIndex));
-                }
+                addMultinameUsage(ret, tsc.name_index, new ConstVarNameMultinameUsage(this, tsc.name_index, classIndex, t, isStatic, traits, parentTraitIndex));
+                addMultinameUsage(ret, tsc.type_index, new ConstVarTypeMultinameUsage(this, tsc.type_index, classIndex, t, isStatic, traits, parentTraitIndex));
             }
             if (traits.traits.get(t) instanceof TraitMethodGetterSetter) {
                 TraitMethodGetterSetter tmgs = (TraitMethodGetterSetter) traits.traits.get(t);
-                if (tmgs.name_index == multinameIndex) {
-                    ret.add(new MethodNameMultinameUsage(this, multinameIndex, classIndex, t, isStatic, false, traits, parentTraitIndex));
+                addMultinameUsage(ret, tmgs.name_index, new MethodNameMultinameUsage(this, tmgs.name_index, classIndex, t, isStatic, false, traits, parentTraitIndex));
+                indexMultinameUsagesInMethod(tmgs.method_info, ret, classIndex, t, isStatic, false, traits, parentTraitIndex);
+            }
+        }
+    }
+
+    private Map<Integer, List<MultinameUsage>> indexMultinameUsagesInClass(int c) {
+        Map<Integer, List<MultinameUsage>> ret = new HashMap<>();
+        InstanceInfo ii = instance_info.get(c);
+        addMultinameUsage(ret, ii.name_index, new ClassNameMultinameUsage(this, ii.name_index, c));
+        addMultinameUsage(ret, ii.super_index, new ExtendsMultinameUsage(this, ii.super_index, c));
+        for (int i = 0; i < ii.interfaces.length; i++) {
+            addMultinameUsage(ret, ii.interfaces[i], new ImplementsMultinameUsage(this, ii.interfaces[i], c));
+        }
+        indexMultinameUsagesInMethod(ii.iinit_index, ret, c, 0, false, true, null, -1);
+        indexMultinameUsagesInMethod(class_info.get(c).cinit_index, ret, c, 0, true, true, null, -1);
+        indexMultinameUsagesInTraits(ii.instance_traits, false, c, ret, -1);
+        indexMultinameUsagesInTraits(class_info.get(c).static_traits, true, c, ret, -1);
+        return ret;
+    }
+
+    private List<Map<Integer, List<MultinameUsage>>> indexMultinameUsagesInClassesParallel() throws InterruptedException {
+        List<Future<Map<Integer, List<MultinameUsage>>>> futures = new ArrayList<>();
+        try {
+            for (int c = 0; c < instance_info.size(); c++) {
+                final int classIndex = c;
+                futures.add(WorkerPool.submit(new Callable<Map<Integer, List<MultinameUsage>>>() {
+                    @Override
+                    public Map<Integer, List<MultinameUsage>> call() throws Exception {
+                        return indexMultinameUsagesInClass(classIndex);
+                    }
+                }));
+            }
+
+            List<Map<Integer, List<MultinameUsage>>> ret = new ArrayList<>();
+            for (Future<Map<Integer, List<MultinameUsage>>> future : futures) {
+                ret.add(WorkerPool.get(future));
+            }
+            return ret;
+        } catch (ExecutionException ex) {
+            logger.log(Level.SEVERE, "Multiname usage indexing failed", ex);
+            return null;
+        } finally {
+            WorkerPool.cancelAll(futures);
+        }
+    }
+
+    /**
+     * Gets the usages of all the multinames. The index is built in one pass
+     * over the classes and cached until the ABC is modified.
+     *
+     * @return Map from multiname index to its usages
+     */
+    private Map<Integer, List<MultinameUsage>> getMultinameUsages() {
+        MultinameUsageIndex index = multinameUsages;
+        AVM2ConstantPool pool = constants;
+        int constantsModificationCount = pool.getMultinameModificationCount();
+        long bodiesModificationCount = getBodiesModificationCount();
+        if (index != null && index.constants == pool
+                && index.constantsModificationCount == constantsModificationCount
+                && index.bodiesModificationCount == bodiesModificationCount) {
+            return index.usages;
+        }
+
+        List<Map<Integer, List<MultinameUsage>>> classUsages = null;
+        if (Configuration.parallelSpeedUp.get() && instance_info.size() > 1) {
+            try {
+                classUsages = indexMultinameUsagesInClassesParallel();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return new HashMap<>();
+            }
+        }
+
+        if (classUsages == null) {
+            classUsages = new ArrayList<>();
+            for (int c = 0; c < instance_info.size(); c++) {
+                classUsages.add(indexMultinameUsagesInClass(c));
+            }
+        }
+
+        // merge in class order, so the usages are ordered like in the class list
+        Map<Integer, List<MultinameUsage>> ret = new HashMap<>();
+        for (Map<Integer, List<MultinameUsage>> usages : classUsages) {
+            for (Map.Entry<Integer, List<MultinameUsage>> entry : usages.entrySet()) {
+                List<MultinameUsage> list = ret.get(entry.getKey());
+                if (list == null) {
+                    ret.put(entry.getKey(), entry.getValue());
+                } else {
+                    list.addAll(entry.getValue());
                 }
-                checkMultinameUsedInMethod(multinameIndex, tmgs.method_info, ret, classIndex, t, isStatic, false, traits, parentTraitIndex);
             }
         }
+
+        for (int m = 1; m < pool.getMultinameCount(); m++) {
+            Multiname multiname = pool.getMultiname(m);
+            if (multiname.kind == Multiname.TYPENAME) {
+                Set<Integer> typeNameParts = new LinkedHashSet<>();
+                typeNameParts.add(multiname.qname_index);
+                for (int mp : multiname.params) {
+                    typeNameParts.add(mp);
+                }
+                for (int mp : typeNameParts) {
+                    addMultinameUsage(ret, mp, new TypeNameMultinameUsage(this, m));
+                }
+            }
+        }
+
+        multinameUsages = new MultinameUsageIndex(ret, pool, constantsModificationCount, bodiesModificationCount);
+        return ret;
+    }
+
+    private long getBodiesModificationCount() {
+        long ret = 0;
+        for (MethodBody body : bodies) {
+            ret += body.getModificationCount();
+        }
+        return ret;
+    }
+
+    /**
+     * Drops the multiname usage index. The multiname setters of the constant
+     * pool and the code setters of the method bodies invalidate it themselves,
+     * this must be called after the instructions, the classes, the traits or
+     * the methods were changed in place.
+     */
+    public void clearMultinameUsages() {
+        multinameUsages = null;
     }
 
     public List<MultinameUsage> findMultinameDefinition(int multinameIndex) {
@@ -965,43 +1297,14 @@ public class ABC {
     }
 
     public List<MultinameUsage> findMultinameUsage(int multinameIndex) {
-        List<MultinameUsage> ret = new ArrayList<>();
         if (multinameIndex == 0) {
-            return ret;
+            return new ArrayList<>();
         }
-        for (int c = 0; c < instance_info.size(); c++) {
-            if (instance_info.get(c).name_index == multinameIndex) {
-                ret.add(new ClassNameMultinameUsage(this, multinameIndex, c));
-            }
-            if (instance_info.get(c).super_index == multinameIndex) {
-                ret.add(new ExtendsMultinameUsage(this, multinameIndex, c));
-            }
-            for (int i = 0; i < instance_info.get(c).interfaces.length; i++) {
-                if (instance_info.get(c).interfaces[i] == multinameIndex) {
-                    ret.add(new ImplementsMultinameUsage(this, multinameIndex, c));
-                }
-            }
-            checkMultinameUsedInMethod(multinameIndex, instance_info.get(c).iinit_index, ret, c, 0, false, true, null, -1);
-            checkMultinameUsedInMethod(multinameIndex, class_info.get(c).cinit_index, ret, c, 0, true, true, null, -1);
-            findMultinameUsageInTraits(instance_info.get(c).instance_traits, multinameIndex, false, c, ret, -1);
-            findMultinameUsageInTraits(class_info.get(c).static_traits, multinameIndex, true, c, ret, -1);
-        }
-        loopm:
-        for (int m = 1; m < constants.getMultinameCount(); m++) {
-            if (constants.getMultiname(m).kind == Multiname.TYPENAME) {
-                if (constants.getMultiname(m).qname_index == multinameIndex) {
-                    ret.add(new TypeNameMultinameUsage(this, m));
-                    continue;
-                }
-                for (int mp : constants.getMultiname(m).params) {
-                    if (mp == multinameIndex) {
-                        ret.add(new TypeNameMultinameUsage(this, m));
-                        continue loopm;
-                    }
-                }
-            }
+        List<MultinameUsage> usages = getMultinameUsages().get(multinameIndex);
+        if (usages == null) {
+            return new ArrayList<>();
         }
-        return ret;
+        return new ArrayList<>(usages);
     }
 
     public int findMethodInfoByName(int classId, String methodName) {
@@ -1101,6 +1404,7 @@ public class ABC {
     }
 
     public void addClass(ClassInfo ci, InstanceInfo ii, int index) {
+        multinameUsages = null;
         for (MethodBody b : bodies) {
             for (AVM2Instruction ins : b.getCode().code) {
                 for (int i = 0; i < ins.definition.operands.length; i++) {
@@ -1136,6 +1440,7 @@ public class ABC {
     }
 
     public void removeClass(int index) {
+        multinameUsages = null;
         for (MethodBody b : bodies) {
             for (AVM2Instruction ins : b.getCode().code) {
                 for (int i = 0; i < ins.definition.operands.length; i++) {
@@ -1180,6 +1485,7 @@ public class ABC {
     }
 
     public void removeMethod(int index) {
+        multinameUsages = null;
 
         int bindex = -1;
         for (int b = 0; b < bodies.size(); b++) {
@@ -1246,6 +1552,7 @@ public class ABC {
             }
         }
         ActionScriptParser.compile(as, this, new ArrayList<ABC>(), isDocumentClass, scriptName, newClassIndex);
+        multinameUsages = null;
         // Move newly added script to its position
         script_info.set(oldIndex, script_info.get(newIndex));
         script_info.remove(newIndex);
@@ -1268,4 +1575,22 @@ public class ABC {
             }
         }
     }
+
+    private static final class MultinameUsageIndex {
+
+        private final Map<Integer, List<MultinameUsage>> usages;
+
+        private final AVM2ConstantPool constants;
+
+        private final int constantsModificationCount;
+
+        private final long bodiesModificationCount;
+
+        public MultinameUsageIndex(Map<Integer, List<MultinameUsage>> usages, AVM2ConstantPool constants, int constantsModificationCount, long bodiesModificationCount) {
+            this.usages = usages;
+            this.constants = constants;
+            this.constantsModificationCount = constantsModificationCount;
+            this.bodiesModificationCount = bodiesModificationCount;
+        }
+    }
 }
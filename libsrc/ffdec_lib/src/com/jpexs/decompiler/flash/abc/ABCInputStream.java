@@ -22,6 +22,7 @@ import com.jpexs.decompiler.flash.abc.types.InstanceInfo;
 import com.jpexs.decompiler.flash.abc.types.MethodInfo;
 import com.jpexs.decompiler.flash.abc.types.Multiname;
 import com.jpexs.decompiler.flash.abc.types.Namespace;
+import com.jpexs.decompiler.flash.abc.types.NamespaceSet;
 import com.jpexs.decompiler.flash.abc.types.ValueKind;
 import com.jpexs.decompiler.flash.abc.types.traits.Trait;
 import com.jpexs.decompiler.flash.abc.types.traits.TraitClass;
@@ -53,6 +54,11 @@ public class ABCInputStream implements AutoCloseable {
 
     private byte[] stringDataBuffer = new byte[256];
 
+    /**
+     * Read the traits on the first access
+     */
+    private boolean lazyTraits;
+
     public void startBuffer() {
         if (bufferOs == null) {
             bufferOs = new ByteArrayOutputStream();
@@ -84,6 +90,35 @@ public class ABCInputStream implements AutoCloseable {
         is.seek(pos);
     }
 
+    public MemoryInputStream getBaseStream() {
+        return is;
+    }
+
+    /**
+     * Sets whether readTraits records only the offsets of the traits. The
+     * traits are then read on the first access. Ignored when the dump info
+     * is collected.
+     *
+     * @param lazyTraits Read the traits lazily
+     */
+    public void setLazyTraits(boolean lazyTraits) {
+        this.lazyTraits = lazyTraits;
+    }
+
+    /**
+     * Skips bytes in the stream
+     *
+     * @param count Number of bytes
+     * @throws java.io.IOException
+     */
+    public void skipBytes(int count) throws IOException {
+        if (count > is.available()) {
+            throw new EndOfStreamException();
+        }
+
+        is.seek(is.getPos() + count);
+    }
+
     public DumpInfo newDumpLevel(String name, String type) {
         if (dumpInfo != null) {
             long startByte = is.getPos();
@@ -293,6 +328,57 @@ public class ABCInputStream implements AutoCloseable {
         return new Namespace(kind, name_index);
     }
 
+    public void skipNamespace() throws IOException {
+        int kind = readInternal();
+        for (int k = 0; k < Namespace.nameSpaceKinds.length; k++) {
+            if (Namespace.nameSpaceKinds[k] == kind) {
+                readU32Internal();
+                break;
+            }
+        }
+    }
+
+    public NamespaceSet readNamespaceSet(String name) throws IOException {
+        newDumpLevel(name, "ns_set_info[]");
+        int namespace_count = readU30("count");
+        int[] namespaces = new int[namespace_count];
+        for (int j = 0; j < namespace_count; j++) {
+            namespaces[j] = readU30("ns");
+        }
+        endDumpLevel();
+        return new NamespaceSet(namespaces);
+    }
+
+    public void skipNamespaceSet() throws IOException {
+        int namespace_count = readU30Internal();
+        for (int j = 0; j < namespace_count; j++) {
+            readU32Internal();
+        }
+    }
+
+    public void skipMultiname() throws IOException {
+        int kind = readInternal();
+        int count;
+        if ((kind == Multiname.QNAME) || (kind == Multiname.QNAMEA)
+                || (kind == Multiname.MULTINAME) || (kind == Multiname.MULTINAMEA)) {
+            count = 2;
+        } else if ((kind == Multiname.RTQNAME) || (kind == Multiname.RTQNAMEA)
+                || (kind == Multiname.MULTINAMEL) || (kind == Multiname.MULTINAMELA)) {
+            count = 1;
+        } else if ((kind == Multiname.RTQNAMEL) || (kind == Multiname.RTQNAMELA)) {
+            count = 0;
+        } else if (kind == Multiname.TYPENAME) {
+            readU32Internal(); // qname_index
+            count = readU30Internal();
+        } else {
+            throw new IOException("Unknown kind of Multiname:0x" + Integer.toHexString(kind));
+        }
+
+        for (int i = 0; i < count; i++) {
+            readU32Internal();
+        }
+    }
+
     public Multiname readMultiname(String name) throws IOException {
         int kind = readU8("kind");
         int namespace_index = 0;
@@ -422,6 +508,19 @@ public class ABCInputStream implements AutoCloseable {
     }
 
     public Traits readTraits(String name) throws IOException {
+        if (lazyTraits && dumpInfo == null) {
+            int count = readU30Internal();
+            int[] offsets = new int[count];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = (int) getPosition();
+                skipTrait();
+            }
+
+            Traits traits = new Traits(0);
+            traits.traits = new LazyRecordList<>(is.getAllRead(), is.getStartPos(), offsets, (ABCInputStream ais, int index) -> ais.readTrait("trait"));
+            return traits;
+        }
+
         newDumpLevel(name, "Traits");
         int count = readU30("count");
         Traits traits = new Traits(count);
@@ -432,6 +531,69 @@ public class ABCInputStream implements AutoCloseable {
         return traits;
     }
 
+    public void skipMethodInfo() throws IOException {
+        int param_count = readU30Internal();
+        readU32Internal(); // ret_type
+        for (int i = 0; i < param_count; i++) {
+            readU32Internal();
+        }
+        readU32Internal(); // name_index
+        int flags = readInternal();
+        if ((flags & 8) == 8) { // if has_optional
+            int optional_count = readU30Internal();
+            for (int i = 0; i < optional_count; i++) {
+                readU32Internal();
+                readInternal();
+            }
+        }
+
+        if ((flags & 128) == 128) { // if has_paramnames
+            for (int i = 0; i < param_count; i++) {
+                readU32Internal();
+            }
+        }
+    }
+
+    public void skipTrait() throws IOException {
+        readU32Internal(); // name_index
+        int kind = readInternal();
+        int kindType = 0xf & kind;
+        int kindFlags = kind >> 4;
+        switch (kindType) {
+            case 0: // slot
+            case 6: // const
+                readU32Internal(); // slot_id
+                readU32Internal(); // type_index
+                if (readU32Internal() != 0) { // value_index
+                    readInternal();
+                }
+                break;
+            case 1: // method
+            case 2: // getter
+            case 3: // setter
+            case 4: // class
+            case 5: // function
+                readU32Internal();
+                readU32Internal();
+                break;
+            default:
+                throw new IOException("Unknown trait kind:" + kind);
+        }
+        if ((kindFlags & ATTR_METADATA) != 0) {
+            int metadata_count = readU30Internal();
+            for (int i = 0; i < metadata_count; i++) {
+                readU32Internal();
+            }
+        }
+    }
+
+    public void skipTraits() throws IOException {
+        int count = readU30Internal();
+        for (int i = 0; i < count; i++) {
+            skipTrait();
+        }
+    }
+
     private byte[] readBytesInternal(int count) throws IOException {
         byte[] ret = new byte[count];
         for (int i = 0; i < count; i++) {
@@ -474,6 +636,21 @@ public class ABCInputStream implements AutoCloseable {
         return ret;
     }
 
+    public void skipInstanceInfo() throws IOException {
+        readU32Internal(); // name_index
+        readU32Internal(); // super_index
+        int flags = readInternal();
+        if ((flags & CLASS_PROTECTED_NS) != 0) {
+            readU32Internal();
+        }
+        int interfaces_count = readU30Internal();
+        for (int i = 0; i < interfaces_count; i++) {
+            readU32Internal();
+        }
+        readU32Internal(); // iinit_index
+        skipTraits();
+    }
+
     public String readString(String name) throws IOException {
         newDumpLevel(name, "String");
         int length = readU30Internal();
@@ -495,6 +672,11 @@ public class ABCInputStream implements AutoCloseable {
     }
 
 
+    public void skipString() throws IOException {
+        int length = readU30Internal();
+        skipBytes(length);
+    }
+
     /*public void markStart(){
      bytesRead=0;
      }*/
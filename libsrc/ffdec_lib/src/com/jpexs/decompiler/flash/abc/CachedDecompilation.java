@@ -18,6 +18,7 @@ package com.jpexs.decompiler.flash.abc;
 
 import com.jpexs.decompiler.flash.helpers.HighlightedText;
 import com.jpexs.decompiler.flash.helpers.hilight.Highlighting;
+import com.jpexs.helpers.Weighted;
 import java.io.Serializable;
 import java.util.List;
 
@@ -25,7 +26,7 @@ import java.util.List;
  *
  * @author JPEXS
  */
-public class CachedDecompilation implements Serializable {
+public class CachedDecompilation implements Serializable, Weighted {
 
     public String text;
 
@@ -67,4 +68,18 @@ public class CachedDecompilation implements Serializable {
         this.instructionHilights = HighlightedText.instructionHilights;
         this.specialHilights = HighlightedText.specialHilights;
     }
+
+    public CachedDecompilation(CachedDecompilation value) {
+        this.text = value.text;
+        this.traitHilights = value.traitHilights;
+        this.classHilights = value.classHilights;
+        this.methodHilights = value.methodHilights;
+        this.instructionHilights = value.instructionHilights;
+        this.specialHilights = value.specialHilights;
+    }
+
+    @Override
+    public long getWeight() {
+        return text == null ? 1 : 2L * text.length();
+    }
 }
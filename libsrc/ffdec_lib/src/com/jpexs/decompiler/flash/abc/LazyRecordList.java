@@ -0,0 +1,189 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.abc;
+
+import com.jpexs.helpers.MemoryInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * List of ABC records which are decoded from the ABC bytes on the first
+ * access. The offsets are positions in the ABC stream, the records are read
+ * by a stream which reads the nested traits lazily too.
+ *
+ * Each record is decoded at most once, concurrent readers get the same
+ * instance. Any modification of the list decodes all the remaining records
+ * first.
+ *
+ * @author JPEXS
+ * @param <T> Record type
+ */
+public class LazyRecordList<T> extends AbstractList<T> implements RandomAccess, Serializable {
+
+    private static final Logger logger = Logger.getLogger(LazyRecordList.class.getName());
+
+    /**
+     * Reader of one record
+     *
+     * @param <T> Record type
+     */
+    public interface RecordReader<T> {
+
+        /**
+         * Reads the record
+         *
+         * @param ais Stream positioned at the record
+         * @param index Index of the record
+         * @return Record
+         * @throws IOException
+         */
+        public T read(ABCInputStream ais, int index) throws IOException;
+    }
+
+    private final byte[] data;
+
+    private final int startPos;
+
+    private final int[] offsets;
+
+    private final RecordReader<T> reader;
+
+    private final AtomicReferenceArray<T> records;
+
+    /**
+     * All the records, set when the list is modified
+     */
+    private volatile List<T> list;
+
+    /**
+     * Constructor
+     *
+     * @param data Data of the stream
+     * @param startPos Start position of the stream in the data
+     * @param offsets Offsets of the records in the stream
+     * @param reader Record reader
+     */
+    public LazyRecordList(byte[] data, int startPos, int[] offsets, RecordReader<T> reader) {
+        this.data = data;
+        this.startPos = startPos;
+        this.offsets = offsets;
+        this.reader = reader;
+        records = new AtomicReferenceArray<>(offsets.length);
+    }
+
+    @Override
+    public T get(int index) {
+        List<T> l = list;
+        if (l != null) {
+            return l.get(index);
+        }
+
+        return getOriginal(index);
+    }
+
+    /**
+     * Gets the record at the original index, the modifications of the list
+     * are ignored
+     *
+     * @param index Original index
+     * @return Record
+     */
+    public T getOriginal(int index) {
+        T result = records.get(index);
+        if (result == null) {
+            try {
+                ABCInputStream ais = new ABCInputStream(new MemoryInputStream(data, startPos));
+                ais.setLazyTraits(true);
+                ais.seek(offsets[index]);
+                result = reader.read(ais, index);
+            } catch (IOException ex) {
+                // the record was checked when the offsets were collected
+                logger.log(Level.SEVERE, "Cannot decode record " + index, ex);
+                return null;
+            }
+
+            if (!records.compareAndSet(index, null, result)) {
+                result = records.get(index);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public int size() {
+        List<T> l = list;
+        return l != null ? l.size() : offsets.length;
+    }
+
+    /**
+     * Checks whether the list was modified
+     *
+     * @return True when the list was modified
+     */
+    public boolean isMaterialized() {
+        return list != null;
+    }
+
+    private List<T> materialize() {
+        if (list == null) {
+            List<T> l = new ArrayList<>(offsets.length);
+            for (int i = 0; i < offsets.length; i++) {
+                l.add(getOriginal(i));
+            }
+
+            list = l;
+        }
+
+        return list;
+    }
+
+    @Override
+    public synchronized T set(int index, T element) {
+        return materialize().set(index, element);
+    }
+
+    @Override
+    public synchronized void add(int index, T element) {
+        materialize().add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public synchronized T remove(int index) {
+        T result = materialize().remove(index);
+        modCount++;
+        return result;
+    }
+
+    @Override
+    protected synchronized void removeRange(int fromIndex, int toIndex) {
+        materialize().subList(fromIndex, toIndex).clear();
+        modCount++;
+    }
+
+    private Object writeReplace() {
+        return new ArrayList<>(this);
+    }
+}
@@ -0,0 +1,704 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.abc;
+
+import com.jpexs.decompiler.flash.ApplicationInfo;
+import com.jpexs.decompiler.flash.abc.avm2.AVM2Code;
+import com.jpexs.decompiler.flash.abc.avm2.AVM2ConstantPool;
+import com.jpexs.decompiler.flash.abc.avm2.instructions.AVM2Instruction;
+import com.jpexs.decompiler.flash.abc.types.ABCException;
+import com.jpexs.decompiler.flash.abc.types.ClassInfo;
+import com.jpexs.decompiler.flash.abc.types.InstanceInfo;
+import com.jpexs.decompiler.flash.abc.types.MetadataInfo;
+import com.jpexs.decompiler.flash.abc.types.MethodBody;
+import com.jpexs.decompiler.flash.abc.types.MethodInfo;
+import com.jpexs.decompiler.flash.abc.types.ValueKind;
+import com.jpexs.decompiler.flash.abc.types.traits.Trait;
+import com.jpexs.decompiler.flash.abc.types.traits.TraitClass;
+import com.jpexs.decompiler.flash.abc.types.traits.TraitFunction;
+import com.jpexs.decompiler.flash.abc.types.traits.TraitMethodGetterSetter;
+import com.jpexs.decompiler.flash.abc.types.traits.TraitSlotConst;
+import com.jpexs.decompiler.flash.abc.types.traits.Traits;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.configuration.ConfigurationCategory;
+import com.jpexs.decompiler.flash.configuration.ConfigurationItem;
+import com.jpexs.decompiler.flash.helpers.hilight.HighlightData;
+import com.jpexs.decompiler.flash.helpers.hilight.HighlightType;
+import com.jpexs.decompiler.flash.helpers.hilight.Highlighting;
+import com.jpexs.helpers.Helper;
+import com.jpexs.helpers.utf8.Utf8Helper;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Decompiled ActionScript 3 stored on the disk between the runs.
+ *
+ * The key is a hash of the content of the script pack: the bytes of each
+ * method body with the constant pool operands replaced by the resolved
+ * constants, the method signatures and the traits, together with the
+ * decompiler version and the settings which affect the output. It contains no
+ * script, class or method indices, so an unchanged class is found in the cache
+ * even when it moved in a new build of the SWF. The class and method indices
+ * of the highlighting are stored as positions in the hashed content and
+ * translated back when the entry is loaded.
+ *
+ * The size of the directory is limited by persistentScriptCacheMaxSize, the
+ * least recently used entries are removed above it.
+ *
+ * @author JPEXS
+ */
+public class PersistentDecompilationCache {
+
+    private static final Logger logger = Logger.getLogger(PersistentDecompilationCache.class.getName());
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final String FILE_EXTENSION = ".bin";
+
+    /**
+     * Limits which can change the decompiled text
+     */
+    private static final List<String> OUTPUT_LIMITS = Arrays.asList("sublimiter", "decompilationTimeoutFile", "decompilationTimeoutSingleMethod");
+
+    private static File directory;
+
+    /**
+     * Approximate size of the cache directory, -1 when not known yet
+     */
+    private static long directorySize = -1;
+
+    /**
+     * Key of the script pack
+     */
+    public static class Key {
+
+        /**
+         * Hexadecimal SHA-256 hash of the content
+         */
+        public final String hash;
+
+        /**
+         * Method indices in the order of the hashed content
+         */
+        private final List<Integer> methodIndices;
+
+        /**
+         * Class indices in the order of the hashed content
+         */
+        private final List<Integer> classIndices;
+
+        private Key(String hash, List<Integer> methodIndices, List<Integer> classIndices) {
+            this.hash = hash;
+            this.methodIndices = methodIndices;
+            this.classIndices = classIndices;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return Configuration.persistentScriptCache.get();
+    }
+
+    public static File getCacheDirectory() {
+        File result = directory;
+        if (result != null) {
+            return result;
+        }
+
+        return new File(Configuration.getFFDecHome() + "cache" + File.separator + "as3");
+    }
+
+    /**
+     * Sets the directory of the cache
+     *
+     * @param dir Directory, null for the default directory in the FFDec home
+     */
+    public static synchronized void setCacheDirectory(File dir) {
+        directory = dir;
+        directorySize = -1;
+    }
+
+    /**
+     * Computes the content key of the script pack
+     *
+     * @param pack Script pack
+     * @return Key
+     * @throws InterruptedException
+     */
+    public static Key computeKey(ScriptPack pack) throws InterruptedException {
+        KeyBuilder builder = new KeyBuilder(pack.abc);
+        builder.append(FORMAT_VERSION);
+        builder.append(ApplicationInfo.version);
+        builder.append(getSettingsFingerprint());
+        builder.append(pack.getClassPath().toString());
+        List<Trait> traits = pack.abc.script_info.get(pack.scriptIndex).traits.traits;
+        builder.append(pack.traitIndices.size());
+        for (int t : pack.traitIndices) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+
+            builder.appendTrait(traits.get(t));
+        }
+
+        return new Key(Helper.byteArrayToHex(builder.md.digest()), builder.methodIndices, builder.classIndices);
+    }
+
+    /**
+     * Feeds the content of the traits to the digest. Constant pool references
+     * are replaced by their values, referenced methods and classes are
+     * appended in place on the first occurrence and by their position later.
+     */
+    private static class KeyBuilder {
+
+        private final MessageDigest md;
+
+        private final ABC abc;
+
+        private final AVM2ConstantPool constants;
+
+        private final List<Integer> methodIndices = new ArrayList<>();
+
+        private final List<Integer> classIndices = new ArrayList<>();
+
+        private final Map<Integer, Integer> methodPositions = new HashMap<>();
+
+        private final Map<Integer, Integer> classPositions = new HashMap<>();
+
+        private final boolean withBodyIndices = Configuration.showMethodBodyId.get();
+
+        public KeyBuilder(ABC abc) {
+            try {
+                md = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new Error(ex);
+            }
+
+            this.abc = abc;
+            this.constants = abc.constants;
+        }
+
+        public void append(long value) {
+            for (int i = 0; i < 8; i++) {
+                md.update((byte) (value >> (8 * i)));
+            }
+        }
+
+        public void append(String value) {
+            if (value == null) {
+                append(-1);
+                return;
+            }
+
+            byte[] data = Utf8Helper.getBytes(value);
+            append(data.length);
+            md.update(data);
+        }
+
+        private void appendMultiname(int index) {
+            append(index == 0 ? "*" : constants.getMultiname(index).toString(constants, null));
+        }
+
+        private void appendNamespace(int index) {
+            append(index == 0 ? null : constants.getNamespace(index).getNameWithKind(constants));
+        }
+
+        private void appendString(int index) {
+            append(index == 0 ? null : constants.getString(index));
+        }
+
+        private void appendValue(int valueKind, int valueIndex) {
+            append(valueKind);
+            append(valueIndex == 0 ? null : new ValueKind(valueIndex, valueKind).toString(constants));
+        }
+
+        public void appendTraits(Traits traits) throws InterruptedException {
+            append(traits.traits.size());
+            for (Trait trait : traits.traits) {
+                appendTrait(trait);
+            }
+        }
+
+        public void appendTrait(Trait trait) throws InterruptedException {
+            append(trait.kindType);
+            append(trait.kindFlags);
+            appendMultiname(trait.name_index);
+            append(trait.metadata.length);
+            for (int m : trait.metadata) {
+                MetadataInfo metadata = abc.metadata_info.get(m);
+                appendString(metadata.name_index);
+                append(metadata.keys.length);
+                for (int i = 0; i < metadata.keys.length; i++) {
+                    appendString(metadata.keys[i]);
+                    appendString(metadata.values[i]);
+                }
+            }
+
+            if (trait instanceof TraitSlotConst) {
+                TraitSlotConst slot = (TraitSlotConst) trait;
+                append(slot.slot_id);
+                appendMultiname(slot.type_index);
+                appendValue(slot.value_kind, slot.value_index);
+            } else if (trait instanceof TraitClass) {
+                append(((TraitClass) trait).slot_id);
+                appendClass(((TraitClass) trait).class_info);
+            } else if (trait instanceof TraitFunction) {
+                append(((TraitFunction) trait).slot_id);
+                appendMethod(((TraitFunction) trait).method_info);
+            } else if (trait instanceof TraitMethodGetterSetter) {
+                append(((TraitMethodGetterSetter) trait).disp_id);
+                appendMethod(((TraitMethodGetterSetter) trait).method_info);
+            }
+        }
+
+        public void appendClass(int classIndex) throws InterruptedException {
+            Integer position = classPositions.get(classIndex);
+            if (position != null) {
+                append(-2 - position);
+                return;
+            }
+
+            classPositions.put(classIndex, classIndices.size());
+            classIndices.add(classIndex);
+            append(classIndex < abc.instance_info.size() ? 1 : 0);
+            if (classIndex >= abc.instance_info.size()) {
+                return;
+            }
+
+            InstanceInfo instanceInfo = abc.instance_info.get(classIndex);
+            ClassInfo classInfo = abc.class_info.get(classIndex);
+            appendMultiname(instanceInfo.name_index);
+            appendMultiname(instanceInfo.super_index);
+            append(instanceInfo.flags);
+            appendNamespace(instanceInfo.protectedNS);
+            append(instanceInfo.interfaces.length);
+            for (int i : instanceInfo.interfaces) {
+                appendMultiname(i);
+            }
+
+            appendMethod(instanceInfo.iinit_index);
+            appendTraits(instanceInfo.instance_traits);
+            appendMethod(classInfo.cinit_index);
+            appendTraits(classInfo.static_traits);
+        }
+
+        public void appendMethod(int methodIndex) throws InterruptedException {
+            Integer position = methodPositions.get(methodIndex);
+            if (position != null) {
+                append(-2 - position);
+                return;
+            }
+
+            methodPositions.put(methodIndex, methodIndices.size());
+            methodIndices.add(methodIndex);
+            append(methodIndex >= 0 && methodIndex < abc.method_info.size() ? 1 : 0);
+            if (methodIndex < 0 || methodIndex >= abc.method_info.size()) {
+                return;
+            }
+
+            MethodInfo methodInfo = abc.method_info.get(methodIndex);
+            append(methodInfo.param_types.length);
+            for (int t : methodInfo.param_types) {
+                appendMultiname(t);
+            }
+
+            appendMultiname(methodInfo.ret_type);
+            appendString(methodInfo.name_index);
+            append(methodInfo.flags);
+            append(methodInfo.optional == null ? -1 : methodInfo.optional.length);
+            if (methodInfo.optional != null) {
+                for (ValueKind value : methodInfo.optional) {
+                    appendValue(value.value_kind, value.value_index);
+                }
+            }
+
+            append(methodInfo.paramNames.length);
+            for (int n : methodInfo.paramNames) {
+                appendString(n);
+            }
+
+            MethodBody body = abc.findBody(methodIndex);
+            append(body == null ? 0 : 1);
+            if (body != null) {
+                appendBody(body, methodIndex);
+            }
+        }
+
+        private void appendBody(MethodBody body, int methodIndex) throws InterruptedException {
+            if (withBodyIndices) {
+                // the index is printed to the source
+                append(abc.findBodyIndex(methodIndex));
+            }
+
+            append(body.max_stack);
+            append(body.max_regs);
+            append(body.init_scope_depth);
+            append(body.max_scope_depth);
+            append(body.exceptions.length);
+            for (ABCException exception : body.exceptions) {
+                append(exception.start);
+                append(exception.end);
+                append(exception.target);
+                appendMultiname(exception.type_index);
+                appendMultiname(exception.name_index);
+            }
+
+            // the code bytes, constant pool operands are replaced by the values
+            List<AVM2Instruction> code = body.getCode().code;
+            append(code.size());
+            for (AVM2Instruction ins : code) {
+                append(ins.definition.instructionCode);
+                int[] operandTypes = ins.definition.operands;
+                int operandCount = ins.operands == null ? 0 : ins.operands.length;
+                append(operandCount);
+                for (int i = 0; i < operandCount; i++) {
+                    int operand = ins.operands[i];
+                    switch (i < operandTypes.length ? operandTypes[i] : AVM2Code.OPT_CASE_OFFSETS) {
+                        case AVM2Code.DAT_MULTINAME_INDEX:
+                            appendMultiname(operand);
+                            break;
+                        case AVM2Code.DAT_STRING_INDEX:
+                            appendString(operand);
+                            break;
+                        case AVM2Code.DAT_INT_INDEX:
+                            append(operand == 0 ? null : Long.toString(constants.getInt(operand)));
+                            break;
+                        case AVM2Code.DAT_UINT_INDEX:
+                            append(operand == 0 ? null : Long.toString(constants.getUInt(operand)));
+                            break;
+                        case AVM2Code.DAT_DOUBLE_INDEX:
+                            append(operand == 0 ? null : Double.toString(constants.getDouble(operand)));
+                            break;
+                        case AVM2Code.DAT_DECIMAL_INDEX:
+                            append(operand == 0 ? null : String.valueOf(constants.getDecimal(operand)));
+                            break;
+                        case AVM2Code.DAT_METHOD_INDEX:
+                            appendMethod(operand);
+                            break;
+                        case AVM2Code.DAT_CLASS_INDEX:
+                            appendClass(operand);
+                            break;
+                        default:
+                            append(operand);
+                    }
+                }
+            }
+
+            appendTraits(body.traits);
+        }
+    }
+
+    /**
+     * Gets the values of all the settings which can change the decompiled
+     * text
+     */
+    private static String getSettingsFingerprint() {
+        StringBuilder sb = new StringBuilder();
+        Map<String, Field> fields = new TreeMap<>(Configuration.getConfigurationFields());
+        for (Map.Entry<String, Field> entry : fields.entrySet()) {
+            ConfigurationCategory category = entry.getValue().getAnnotation(ConfigurationCategory.class);
+            if (category == null) {
+                continue;
+            }
+
+            boolean affectsOutput;
+            switch (category.value()) {
+                case "script":
+                case "format":
+                case "decompilation":
+                    affectsOutput = true;
+                    break;
+                case "limit":
+                    affectsOutput = OUTPUT_LIMITS.contains(entry.getKey());
+                    break;
+                default:
+                    affectsOutput = false;
+            }
+
+            if (affectsOutput) {
+                try {
+                    ConfigurationItem<?> item = (ConfigurationItem<?>) entry.getValue().get(null);
+                    sb.append(entry.getKey()).append('=').append(item.get()).append(';');
+                } catch (IllegalArgumentException | IllegalAccessException ex) {
+                    // ignore
+                }
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Copies the highlighting and replaces the method and class indices
+     *
+     * @param list Highlighting
+     * @param methodMap Method index mapping
+     * @param classMap Class index mapping
+     * @return New highlighting, null when some index cannot be mapped
+     */
+    private static List<Highlighting> mapIndices(List<Highlighting> list, Map<Long, Long> methodMap, Map<Long, Long> classMap) {
+        if (list == null) {
+            return null;
+        }
+
+        List<Highlighting> result = new ArrayList<>(list.size());
+        for (Highlighting h : list) {
+            HighlightData data = h.getProperties();
+            Map<Long, Long> map = h.type == HighlightType.METHOD ? methodMap : h.type == HighlightType.CLASS ? classMap : null;
+            if (map != null) {
+                Long index = map.get(data.index);
+                if (index == null) {
+                    return null;
+                }
+
+                data = data.clone();
+                data.index = index;
+            }
+
+            Highlighting h2 = new Highlighting(h.startPos, data, h.type, h.HighlightedText);
+            h2.len = h.len;
+            result.add(h2);
+        }
+
+        return result;
+    }
+
+    private static Map<Long, Long> createMap(List<Integer> indices, boolean toPosition) {
+        Map<Long, Long> result = new HashMap<>();
+        for (int i = 0; i < indices.size(); i++) {
+            long index = indices.get(i);
+            if (toPosition) {
+                if (!result.containsKey(index)) {
+                    result.put(index, (long) i);
+                }
+            } else {
+                result.put((long) i, index);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Translates the method and class indices of the highlighting
+     *
+     * @param value Decompilation
+     * @param key Key of the script pack
+     * @param toPosition True to translate the indices to the positions in the
+     * key, false for the opposite
+     * @return New decompilation, null when some index is not known
+     */
+    private static CachedDecompilation mapIndices(CachedDecompilation value, Key key, boolean toPosition) {
+        Map<Long, Long> methodMap = createMap(key.methodIndices, toPosition);
+        Map<Long, Long> classMap = createMap(key.classIndices, toPosition);
+        CachedDecompilation result = new CachedDecompilation(value);
+        result.traitHilights = mapIndices(value.traitHilights, methodMap, classMap);
+        result.classHilights = mapIndices(value.classHilights, methodMap, classMap);
+        result.methodHilights = mapIndices(value.methodHilights, methodMap, classMap);
+        result.instructionHilights = mapIndices(value.instructionHilights, methodMap, classMap);
+        result.specialHilights = mapIndices(value.specialHilights, methodMap, classMap);
+        if ((value.traitHilights != null && result.traitHilights == null)
+                || (value.classHilights != null && result.classHilights == null)
+                || (value.methodHilights != null && result.methodHilights == null)
+                || (value.instructionHilights != null && result.instructionHilights == null)
+                || (value.specialHilights != null && result.specialHilights == null)) {
+            return null;
+        }
+
+        return result;
+    }
+
+    private static File getFile(String hash) {
+        return new File(getCacheDirectory(), hash.substring(0, 2) + File.separator + hash + FILE_EXTENSION);
+    }
+
+    public static CachedDecompilation get(Key key) {
+        File file = getFile(key.hash);
+        if (!file.exists()) {
+            return null;
+        }
+
+        CachedDecompilation value;
+        try (ObjectInputStream ois = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))))) {
+            value = (CachedDecompilation) ois.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException ex) {
+            logger.log(Level.WARNING, "Invalid decompilation cache entry: " + file, ex);
+            file.delete();
+            return null;
+        }
+
+        // the least recently used entries are removed first
+        file.setLastModified(System.currentTimeMillis());
+        return mapIndices(value, key, false);
+    }
+
+    public static void put(Key key, CachedDecompilation value) {
+        value = mapIndices(value, key, true);
+        if (value == null) {
+            // highlighting references a method outside of the script pack
+            return;
+        }
+
+        File file = getFile(key.hash);
+        File dir = file.getParentFile();
+        if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+            return;
+        }
+
+        // write to a temporary file first, so parallel readers never see partial data
+        File tempFile = new File(dir, key.hash + "." + Thread.currentThread().getId() + ".tmp");
+        try (ObjectOutputStream oos = new ObjectOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile))))) {
+            oos.writeObject(value);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Cannot write decompilation cache entry", ex);
+            tempFile.delete();
+            return;
+        }
+
+        long length = tempFile.length();
+        file.delete();
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            return;
+        }
+
+        long maxSize = Configuration.persistentScriptCacheMaxSize.get() * 1024L * 1024L;
+        boolean trim;
+        synchronized (PersistentDecompilationCache.class) {
+            if (directorySize >= 0) {
+                directorySize += length;
+            }
+            trim = maxSize > 0 && (directorySize < 0 || directorySize > maxSize);
+        }
+
+        if (trim) {
+            trim(maxSize);
+        }
+    }
+
+    private static List<File> listEntries() {
+        List<File> result = new ArrayList<>();
+        File[] dirs = getCacheDirectory().listFiles();
+        if (dirs == null) {
+            return result;
+        }
+
+        for (File dir : dirs) {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (file.getName().endsWith(FILE_EXTENSION)) {
+                        result.add(file);
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the total size of the entries
+     *
+     * @return Size in bytes
+     */
+    public static long getSize() {
+        long size = 0;
+        for (File file : listEntries()) {
+            size += file.length();
+        }
+
+        return size;
+    }
+
+    /**
+     * Removes the least recently used entries until the size of the cache is
+     * below the limit
+     *
+     * @param maxSize Maximal size in bytes
+     */
+    public static synchronized void trim(long maxSize) {
+        List<File> files = listEntries();
+        final Map<File, Long> lastModified = new HashMap<>();
+        long size = 0;
+        for (File file : files) {
+            lastModified.put(file, file.lastModified());
+            size += file.length();
+        }
+
+        if (size > maxSize) {
+            Collections.sort(files, new Comparator<File>() {
+                @Override
+                public int compare(File o1, File o2) {
+                    return Long.compare(lastModified.get(o1), lastModified.get(o2));
+                }
+            });
+
+            for (File file : files) {
+                if (size <= maxSize) {
+                    break;
+                }
+
+                long length = file.length();
+                if (file.delete()) {
+                    size -= length;
+                }
+            }
+        }
+
+        directorySize = size;
+    }
+
+    public static synchronized void clear() {
+        File[] dirs = getCacheDirectory().listFiles();
+        if (dirs == null) {
+            return;
+        }
+
+        for (File dir : dirs) {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+
+        directorySize = 0;
+    }
+}
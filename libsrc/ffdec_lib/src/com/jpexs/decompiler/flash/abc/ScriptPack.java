@@ -203,7 +203,11 @@ public class ScriptPack extends AS3ClassTreeItem {
         try (FileTextWriter writer = exportSettings.singleFile ? null : new FileTextWriter(Configuration.getCodeFormatting(), new FileOutputStream(file))) {
             try {
                 FileTextWriter writer2 = exportSettings.singleFile ? exportSettings.singleFileWriter : writer;
-                toSource(writer2, abc.script_info.get(scriptIndex).traits.traits, exportSettings.mode, parallel);
+                if (exportSettings.mode == ScriptExportMode.AS && PersistentDecompilationCache.isEnabled()) {
+                    writer2.appendNoHilight(SWF.getCached(this).text);
+                } else {
+                    toSource(writer2, abc.script_info.get(scriptIndex).traits.traits, exportSettings.mode, parallel);
+                }
             } catch (InterruptedException ex) {
                 Logger.getLogger(ScriptPack.class.getName()).log(Level.SEVERE, null, ex);
             }
@@ -0,0 +1,633 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.abc;
+
+import com.jpexs.decompiler.flash.SWF;
+import com.jpexs.decompiler.flash.abc.types.traits.Trait;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.exporters.modes.ScriptExportMode;
+import com.jpexs.decompiler.flash.helpers.CodeFormatting;
+import com.jpexs.decompiler.flash.helpers.HighlightedTextWriter;
+import com.jpexs.helpers.Cache;
+import com.jpexs.helpers.ProgressListener;
+import com.jpexs.helpers.WorkerPool;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Full text index of the decompiled ActionScript 3 (and optionally the P-code)
+ * of the script packs.
+ *
+ * The build decompiles the script packs in parallel in the background and
+ * stores the trigrams (3 consecutive case folded characters) of each text in
+ * an inverted index. A query is resolved by intersecting the document lists
+ * of the trigrams which must be present in every match, only the remaining
+ * candidates are checked by the regular expression.
+ *
+ * The index does not keep the texts. The decompiled texts of the candidates
+ * are taken from the script cache of the SWF, the P-code texts from a cache
+ * with the same size limit, so they are evicted with the scripts.
+ *
+ * @author JPEXS
+ */
+public class ScriptSearchIndex {
+
+    private static final Logger logger = Logger.getLogger(ScriptSearchIndex.class.getName());
+
+    /**
+     * Trigram key bit of the P-code texts
+     */
+    private static final long PCODE_FIELD = 1L << 48;
+
+    private final List<ScriptPack> packs;
+
+    private final boolean indexPCode;
+
+    private final Cache<ScriptPack, String> pcodeTexts;
+
+    private final Map<Long, int[]> postings = new HashMap<>();
+
+    private final Map<Long, Integer> postingSizes = new HashMap<>();
+
+    /**
+     * Documents changed after the build, they are always checked with the
+     * current text
+     */
+    private final BitSet dirty = new BitSet();
+
+    private Future<Void> buildFuture;
+
+    private volatile boolean built;
+
+    public ScriptSearchIndex(List<ScriptPack> packs, boolean indexPCode) {
+        this.packs = new ArrayList<>(packs);
+        this.indexPCode = indexPCode;
+        pcodeTexts = indexPCode ? Cache.<ScriptPack, String>getInstance(true, true, "as3_pcode_search", Configuration.scriptCacheMaxSize.get() * 1024L * 1024L) : null;
+    }
+
+    public List<ScriptPack> getPacks() {
+        return packs;
+    }
+
+    public boolean isIndexPCode() {
+        return indexPCode;
+    }
+
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Starts the build in the background. Subsequent calls return the same
+     * task.
+     *
+     * @param listener Progress listener (percent), can be null
+     * @return Build task
+     */
+    public synchronized Future<Void> startBuild(final ProgressListener listener) {
+        if (buildFuture == null) {
+            buildFuture = WorkerPool.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    build(listener);
+                    return null;
+                }
+            });
+        }
+
+        return buildFuture;
+    }
+
+    /**
+     * Starts the build when needed and waits for it
+     *
+     * @param listener Progress listener (percent), can be null
+     * @throws InterruptedException
+     */
+    public void waitForBuild(ProgressListener listener) throws InterruptedException {
+        try {
+            WorkerPool.get(startBuild(listener));
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    /**
+     * Stops the build, the index must not be used after that
+     */
+    public synchronized void cancelBuild() {
+        if (buildFuture != null && !built) {
+            buildFuture.cancel(true);
+        }
+    }
+
+    private void build(ProgressListener listener) throws InterruptedException, ExecutionException {
+        List<Future<long[]>> futures = new ArrayList<>(packs.size());
+        for (int i = 0; i < packs.size(); i++) {
+            final int doc = i;
+            futures.add(WorkerPool.submit(new Callable<long[]>() {
+                @Override
+                public long[] call() throws Exception {
+                    return indexDocument(doc);
+                }
+            }));
+        }
+
+        try {
+            int lastPercent = -1;
+            for (int i = 0; i < futures.size(); i++) {
+                long[] trigrams = WorkerPool.get(futures.get(i));
+                futures.set(i, null);
+                // documents are added in order, so the posting lists are sorted
+                synchronized (this) {
+                    for (long trigram : trigrams) {
+                        addPosting(trigram, i);
+                    }
+                }
+
+                int percent = (i + 1) * 100 / futures.size();
+                if (listener != null && percent != lastPercent) {
+                    listener.progress(percent);
+                    lastPercent = percent;
+                }
+            }
+        } catch (InterruptedException ex) {
+            for (Future<long[]> future : futures) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+            throw ex;
+        }
+
+        synchronized (this) {
+            for (Map.Entry<Long, int[]> entry : postings.entrySet()) {
+                int size = postingSizes.get(entry.getKey());
+                if (size < entry.getValue().length) {
+                    entry.setValue(Arrays.copyOf(entry.getValue(), size));
+                }
+            }
+            postingSizes.clear();
+        }
+
+        built = true;
+    }
+
+    private long[] indexDocument(int doc) throws InterruptedException {
+        ScriptPack pack = packs.get(doc);
+        String text = null;
+        String pcodeText = null;
+        try {
+            text = SWF.getCached(pack).text;
+            if (indexPCode) {
+                pcodeText = getPCode(pack);
+            }
+        } catch (InterruptedException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            logger.log(Level.SEVERE, "Cannot index " + pack.getClassPath(), ex);
+        }
+
+        if (text == null || (indexPCode && pcodeText == null)) {
+            // checked with the current text in every query
+            synchronized (this) {
+                dirty.set(doc);
+            }
+            return new long[0];
+        }
+
+        long[] trigrams = getTrigrams(text, 0);
+        if (indexPCode) {
+            pcodeTexts.put(pack, pcodeText, pcodeText.length() * 2L);
+            long[] pcodeTrigrams = getTrigrams(pcodeText, PCODE_FIELD);
+            long[] all = Arrays.copyOf(trigrams, trigrams.length + pcodeTrigrams.length);
+            System.arraycopy(pcodeTrigrams, 0, all, trigrams.length, pcodeTrigrams.length);
+            trigrams = all;
+        }
+
+        return trigrams;
+    }
+
+    /**
+     * Gets the P-code text from the cache or creates it again when it was
+     * evicted
+     */
+    private String getCachedPCode(ScriptPack pack) throws InterruptedException {
+        String text = pcodeTexts.get(pack);
+        if (text == null) {
+            text = getPCode(pack);
+            pcodeTexts.put(pack, text, text.length() * 2L);
+        }
+
+        return text;
+    }
+
+    private static String getPCode(ScriptPack pack) throws InterruptedException {
+        HighlightedTextWriter writer = new HighlightedTextWriter(new CodeFormatting(), false);
+        List<Trait> traits = pack.abc.script_info.get(pack.scriptIndex).traits.traits;
+        pack.toSource(writer, traits, ScriptExportMode.PCODE, false);
+        return writer.toString();
+    }
+
+    private void addPosting(long trigram, int doc) {
+        int[] list = postings.get(trigram);
+        Integer size = postingSizes.get(trigram);
+        if (list == null) {
+            list = new int[4];
+            size = 0;
+            postings.put(trigram, list);
+        } else if (size == list.length) {
+            list = Arrays.copyOf(list, size * 2);
+            postings.put(trigram, list);
+        }
+
+        list[size] = doc;
+        postingSizes.put(trigram, size + 1);
+    }
+
+    /**
+     * Marks the script pack as changed. The pack is checked with its current
+     * text from then on.
+     *
+     * @param pack Script pack
+     */
+    public synchronized void invalidate(ScriptPack pack) {
+        int doc = packs.indexOf(pack);
+        if (doc != -1) {
+            dirty.set(doc);
+            if (pcodeTexts != null) {
+                pcodeTexts.remove(pack);
+            }
+        }
+    }
+
+    /**
+     * Searches the script packs, waits for the build when it is not finished
+     *
+     * @param text Searched text or regular expression
+     * @param ignoreCase Ignore case
+     * @param regexp The text is a regular expression
+     * @param pcode Search the P-code instead of the decompiled text
+     * @return Matching script packs in the order of the index
+     * @throws InterruptedException
+     */
+    public List<ScriptPack> search(String text, boolean ignoreCase, boolean regexp, boolean pcode) throws InterruptedException {
+        int flags = ignoreCase ? (Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE) : 0;
+        Pattern pattern = Pattern.compile(regexp ? text : Pattern.quote(text), flags);
+        List<String> literals = regexp ? getRequiredLiterals(text) : Arrays.asList(text);
+        return search(pattern, literals, pcode);
+    }
+
+    /**
+     * Searches the script packs, waits for the build when it is not finished
+     *
+     * @param pattern Pattern
+     * @param pcode Search the P-code instead of the decompiled text
+     * @return Matching script packs in the order of the index
+     * @throws InterruptedException
+     */
+    public List<ScriptPack> search(Pattern pattern, boolean pcode) throws InterruptedException {
+        List<String> literals = (pattern.flags() & Pattern.LITERAL) != 0
+                ? Arrays.asList(pattern.pattern())
+                : getRequiredLiterals(pattern.pattern());
+        return search(pattern, literals, pcode);
+    }
+
+    private List<ScriptPack> search(Pattern pattern, List<String> literals, boolean pcode) throws InterruptedException {
+        if (pcode && !indexPCode) {
+            throw new IllegalStateException("P-code is not indexed");
+        }
+
+        waitForBuild(null);
+
+        BitSet candidates = getCandidates(literals, pcode ? PCODE_FIELD : 0);
+        BitSet dirtyCopy;
+        synchronized (this) {
+            dirtyCopy = (BitSet) dirty.clone();
+        }
+        candidates.or(dirtyCopy);
+
+        List<ScriptPack> result = new ArrayList<>();
+        for (int doc = candidates.nextSetBit(0); doc >= 0; doc = candidates.nextSetBit(doc + 1)) {
+            ScriptPack pack = packs.get(doc);
+            String text;
+            if (pcode) {
+                text = dirtyCopy.get(doc) ? getPCode(pack) : getCachedPCode(pack);
+            } else {
+                text = SWF.getCached(pack).text;
+            }
+
+            if (pattern.matcher(text).find()) {
+                result.add(packs.get(doc));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the documents which contain all the trigrams of the literals
+     */
+    private BitSet getCandidates(List<String> literals, long field) {
+        BitSet result = new BitSet(packs.size());
+        result.set(0, packs.size());
+        for (String literal : literals) {
+            for (long trigram : getTrigrams(literal, field)) {
+                int[] list = postings.get(trigram);
+                if (list == null) {
+                    result.clear();
+                    return result;
+                }
+
+                BitSet docs = new BitSet(packs.size());
+                for (int doc : list) {
+                    docs.set(doc);
+                }
+                result.and(docs);
+                if (result.isEmpty()) {
+                    return result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static char fold(char c) {
+        // the same folding as the case insensitive unicode regular expressions
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Gets the sorted distinct trigrams of the text
+     */
+    static long[] getTrigrams(String text, long field) {
+        int count = text.length() - 2;
+        if (count <= 0) {
+            return new long[0];
+        }
+
+        long[] trigrams = new long[count];
+        long c0 = fold(text.charAt(0));
+        long c1 = fold(text.charAt(1));
+        for (int i = 0; i < count; i++) {
+            long c2 = fold(text.charAt(i + 2));
+            trigrams[i] = field | (c0 << 32) | (c1 << 16) | c2;
+            c0 = c1;
+            c1 = c2;
+        }
+
+        Arrays.sort(trigrams);
+        int size = 1;
+        for (int i = 1; i < count; i++) {
+            if (trigrams[i] != trigrams[size - 1]) {
+                trigrams[size++] = trigrams[i];
+            }
+        }
+
+        return Arrays.copyOf(trigrams, size);
+    }
+
+    /**
+     * Gets the literal strings which are contained in every match of the
+     * regular expression. Only the literals of at least 3 characters are
+     * returned, an empty list means that any text can match.
+     *
+     * @param regex Regular expression
+     * @return List of literals
+     */
+    public static List<String> getRequiredLiterals(String regex) {
+        List<String> result = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean lastLiteral = false;
+        int length = regex.length();
+        int i = 0;
+        while (i < length) {
+            char c = regex.charAt(i++);
+            switch (c) {
+                case '\\':
+                    if (i >= length) {
+                        return new ArrayList<>();
+                    }
+                    char n = regex.charAt(i++);
+                    if (n == 'Q') {
+                        int end = regex.indexOf("\\E", i);
+                        if (end == -1) {
+                            end = length;
+                        }
+                        current.append(regex, i, end);
+                        lastLiteral = end > i;
+                        i = Math.min(end + 2, length);
+                    } else if (Character.isLetterOrDigit(n)) {
+                        i = skipEscape(regex, i, n);
+                        endLiteral(current, result);
+                        lastLiteral = false;
+                    } else {
+                        current.append(n);
+                        lastLiteral = true;
+                    }
+                    break;
+                case '[':
+                    i = skipCharacterClass(regex, i);
+                    endLiteral(current, result);
+                    lastLiteral = false;
+                    break;
+                case '(':
+                    int groupEnd = skipGroup(regex, i);
+                    if (regex.startsWith("?", i)) {
+                        // inline flags, the comments mode changes the meaning of the whitespace
+                        for (int j = i + 1; j < groupEnd; j++) {
+                            char f = regex.charAt(j);
+                            if (f == 'x') {
+                                return new ArrayList<>();
+                            }
+                            if (f == ':' || f == ')' || !Character.isLetter(f) && f != '-') {
+                                break;
+                            }
+                        }
+                    }
+                    i = groupEnd;
+                    endLiteral(current, result);
+                    lastLiteral = false;
+                    break;
+                case '|':
+                    // alternative at the top level, nothing is required
+                    return new ArrayList<>();
+                case '*':
+                case '?':
+                case '{':
+                    if (c == '{') {
+                        int end = regex.indexOf('}', i);
+                        i = end == -1 ? length : end + 1;
+                    }
+                    // the previous element can be missing
+                    if (lastLiteral && current.length() > 0) {
+                        current.setLength(current.length() - 1);
+                    }
+                    i = skipQuantifierMode(regex, i);
+                    endLiteral(current, result);
+                    lastLiteral = false;
+                    break;
+                case '+':
+                    i = skipQuantifierMode(regex, i);
+                    endLiteral(current, result);
+                    lastLiteral = false;
+                    break;
+                case '.':
+                case '^':
+                case '$':
+                    endLiteral(current, result);
+                    lastLiteral = false;
+                    break;
+                default:
+                    current.append(c);
+                    lastLiteral = true;
+            }
+        }
+
+        endLiteral(current, result);
+        return result;
+    }
+
+    private static void endLiteral(StringBuilder current, List<String> result) {
+        if (current.length() >= 3) {
+            result.add(current.toString());
+        }
+        current.setLength(0);
+    }
+
+    private static int skipQuantifierMode(String regex, int i) {
+        if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+            return i + 1;
+        }
+
+        return i;
+    }
+
+    private static int skipBraces(String regex, int i, char open, char close) {
+        if (i < regex.length() && regex.charAt(i) == open) {
+            int end = regex.indexOf(close, i);
+            return end == -1 ? regex.length() : end + 1;
+        }
+
+        return i;
+    }
+
+    /**
+     * Skips the rest of an escape sequence which starts with a letter or a
+     * digit
+     */
+    private static int skipEscape(String regex, int i, char n) {
+        int length = regex.length();
+        switch (n) {
+            case 'x':
+                if (i < length && regex.charAt(i) == '{') {
+                    return skipBraces(regex, i, '{', '}');
+                }
+                return Math.min(i + 2, length);
+            case 'u':
+                return Math.min(i + 4, length);
+            case 'c':
+                return Math.min(i + 1, length);
+            case '0':
+                for (int k = 0; k < 3 && i < length && regex.charAt(i) >= '0' && regex.charAt(i) <= '7'; k++) {
+                    i++;
+                }
+                return i;
+            case 'p':
+            case 'P':
+                if (i < length && regex.charAt(i) == '{') {
+                    return skipBraces(regex, i, '{', '}');
+                }
+                return Math.min(i + 1, length);
+            case 'k':
+                return skipBraces(regex, i, '<', '>');
+            case 'N':
+                return skipBraces(regex, i, '{', '}');
+            default:
+                if (n >= '1' && n <= '9') {
+                    while (i < length && Character.isDigit(regex.charAt(i))) {
+                        i++;
+                    }
+                }
+                return i;
+        }
+    }
+
+    private static int skipCharacterClass(String regex, int i) {
+        int length = regex.length();
+        int depth = 1;
+        if (i < length && regex.charAt(i) == '^') {
+            i++;
+        }
+        if (i < length && regex.charAt(i) == ']') {
+            i++;
+        }
+        while (i < length) {
+            char c = regex.charAt(i++);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+                if (depth == 0) {
+                    return i;
+                }
+            }
+        }
+
+        return length;
+    }
+
+    private static int skipGroup(String regex, int i) {
+        int length = regex.length();
+        int depth = 1;
+        while (i < length) {
+            char c = regex.charAt(i++);
+            if (c == '\\') {
+                if (i < length && regex.charAt(i) == 'Q') {
+                    int end = regex.indexOf("\\E", i);
+                    i = end == -1 ? length : end + 2;
+                } else {
+                    i++;
+                }
+            } else if (c == '[') {
+                i = skipCharacterClass(regex, i);
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) {
+                    return i;
+                }
+            }
+        }
+
+        return length;
+    }
+}
@@ -22,121 +22,428 @@ import com.jpexs.decompiler.flash.abc.types.Namespace;
 import com.jpexs.decompiler.flash.abc.types.NamespaceSet;
 import com.jpexs.helpers.utf8.Utf8PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Constant pool of ABC. Numbers are stored in primitive arrays, the lookups of
+ * values use hash indices which are built on the first lookup.
+ *
+ * Pool entries (namespaces, namespace sets and multinames) changed in place
+ * must be set again by the setter, otherwise the lookups may not find them.
+ *
+ * @author JPEXS
+ */
 public class AVM2ConstantPool {
 
     private static final Logger logger = Logger.getLogger(AVM2ConstantPool.class.getName());
 
-    public List<Long> constant_int = new ArrayList<>();
+    private long[] constant_int = new long[16];
+
+    private int intCount;
+
+    private long[] constant_uint = new long[16];
 
-    public List<Long> constant_uint = new ArrayList<>();
+    private int uintCount;
+
+    private double[] constant_double = new double[16];
+
+    private int doubleCount;
 
-    public List<Double> constant_double = new ArrayList<>();
     /* Only for some minor versions */
+    private List<Decimal> constant_decimal = new ArrayList<>();
+
+    private String[] constant_string = new String[16];
+
+    private int stringCount;
+
+    private List<Namespace> constant_namespace = new ArrayList<>();
+
+    private List<NamespaceSet> constant_namespace_set = new ArrayList<>();
+
+    private List<Multiname> constant_multiname = new ArrayList<>();
+
+    private ConstantIndex intIndex;
+
+    private ConstantIndex uintIndex;
+
+    private ConstantIndex doubleIndex;
+
+    private ConstantIndex stringIndex;
+
+    private ConstantIndex namespaceIndex;
+
+    private ConstantIndex namespaceSetIndex;
 
-    public List<Decimal> constant_decimal = new ArrayList<>();
+    private ConstantIndex multinameIndex;
 
-    public List<String> constant_string = new ArrayList<>();
+    /**
+     * Count of the multiname additions and replacements, used by ABC to detect
+     * a stale multiname usage index
+     */
+    private volatile int multinameModificationCount;
 
-    public List<Namespace> constant_namespace = new ArrayList<>();
+    /**
+     * Entries which were not decoded yet, null when the pool is fully
+     * materialized
+     */
+    private volatile LazyConstantPool lazy;
 
-    public List<NamespaceSet> constant_namespace_set = new ArrayList<>();
+    /**
+     * Sets the lazily decoded part of the pool. The double, string,
+     * namespace, namespace set and multiname pools must be empty.
+     *
+     * @param lazy Lazy pool
+     */
+    public synchronized void setLazy(LazyConstantPool lazy) {
+        doubleCount = lazy.getDoubleCount();
+        constant_double = new double[Math.max(doubleCount, 16)];
+        stringCount = lazy.getStringCount();
+        constant_string = new String[Math.max(stringCount, 16)];
+        constant_namespace = new ArrayList<>(Collections.<Namespace>nCopies(lazy.getNamespaceCount(), null));
+        constant_namespace_set = new ArrayList<>(Collections.<NamespaceSet>nCopies(lazy.getNamespaceSetCount(), null));
+        constant_multiname = new ArrayList<>(Collections.<Multiname>nCopies(lazy.getMultinameCount(), null));
+        if (stringCount > 0) {
+            constant_string[0] = "";
+        }
+
+        this.lazy = lazy;
+    }
+
+    public boolean isLazy() {
+        return lazy != null;
+    }
+
+    /**
+     * Reserves the unused entry 0 of the empty int, uint and double pools of
+     * a new ABC. No value is stored to the entry and it is not added to the
+     * lookup indices.
+     */
+    public synchronized void addEmptyNumbers() {
+        if (intCount == 0) {
+            intCount = 1;
+        }
+        if (uintCount == 0) {
+            uintCount = 1;
+        }
+        if (doubleCount == 0) {
+            doubleCount = 1;
+        }
+    }
+
+    /**
+     * Decodes all the lazy entries. Called before the pool is modified.
+     */
+    public synchronized void materialize() {
+        LazyConstantPool l = lazy;
+        if (l == null) {
+            return;
+        }
+
+        for (int i = 1; i < l.getDoubleCount(); i++) {
+            constant_double[i] = l.getDouble(i);
+        }
+        for (int i = 1; i < l.getStringCount(); i++) {
+            constant_string[i] = l.getString(i);
+        }
+        for (int i = 1; i < l.getNamespaceCount(); i++) {
+            constant_namespace.set(i, l.getNamespace(i));
+        }
+        for (int i = 1; i < l.getNamespaceSetCount(); i++) {
+            constant_namespace_set.set(i, l.getNamespaceSet(i));
+        }
+        for (int i = 1; i < l.getMultinameCount(); i++) {
+            constant_multiname.set(i, l.getMultiname(i));
+        }
+
+        lazy = null;
+    }
+
+    private static int hashLong(long value) {
+        return (int) (value ^ (value >>> 32));
+    }
+
+    private static int hashDouble(double value) {
+        // doubleToLongBits makes all NaNs equal
+        return hashLong(Double.doubleToLongBits(value));
+    }
+
+    private static int hashString(String value) {
+        return value == null ? 0 : value.hashCode();
+    }
+
+    private static int hashNamespace(Namespace ns) {
+        return ns == null ? 0 : ns.kind * 31 + ns.name_index;
+    }
+
+    private static int hashNamespaceSet(NamespaceSet nss) {
+        if (nss == null || nss.namespaces == null) {
+            return 0;
+        }
+
+        // the order of the namespaces does not matter
+        int[] namespaces = nss.namespaces.clone();
+        Arrays.sort(namespaces);
+        int hash = namespaces.length;
+        for (int i = 0; i < namespaces.length; i++) {
+            if (i == 0 || namespaces[i] != namespaces[i - 1]) {
+                hash = hash * 31 + namespaces[i];
+            }
+        }
+        return hash;
+    }
+
+    private static int hashMultiname(Multiname m) {
+        if (m == null) {
+            return 0;
+        }
+
+        int hash = m.kind;
+        hash = hash * 31 + m.name_index;
+        hash = hash * 31 + m.namespace_index;
+        hash = hash * 31 + m.namespace_set_index;
+        hash = hash * 31 + m.qname_index;
+        if (m.params != null) {
+            for (Integer p : m.params) {
+                hash = hash * 31 + p;
+            }
+        }
+        return hash;
+    }
+
+    private static boolean namespaceEquals(Namespace ns, Namespace val) {
+        return ns != null && ns.name_index == val.name_index && ns.kind == val.kind;
+    }
+
+    private static boolean namespaceSetEquals(NamespaceSet ts, NamespaceSet val) {
+        if (ts == null || ts.namespaces.length != val.namespaces.length) {
+            return false;
+        }
+        for (int j = 0; j < val.namespaces.length; j++) {
+            boolean found = false;
+            for (int k = 0; k < val.namespaces.length; k++) {
+                if (ts.namespaces[j] == val.namespaces[k]) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-    public List<Multiname> constant_multiname = new ArrayList<>();
+    private static boolean multinameEquals(Multiname mul, Multiname val) {
+        if (mul == null || mul.kind != val.kind || mul.name_index != val.name_index || mul.namespace_index != val.namespace_index || mul.namespace_set_index != val.namespace_set_index || mul.qname_index != val.qname_index) {
+            return false;
+        }
+        int size = mul.params == null ? 0 : mul.params.size();
+        int valSize = val.params == null ? 0 : val.params.size();
+        if (size != valSize) {
+            return false;
+        }
+        for (int p = 0; p < size; p++) {
+            if (mul.params.get(p).intValue() != val.params.get(p).intValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
 
     public synchronized int addInt(long value) {
-        constant_int.add(value);
-        return constant_int.size() - 1;
+        materialize();
+        if (intCount == constant_int.length) {
+            constant_int = Arrays.copyOf(constant_int, intCount * 2);
+        }
+        constant_int[intCount] = value;
+        if (intIndex != null) {
+            intIndex.add(intCount, hashLong(value));
+        }
+        return intCount++;
     }
 
     public synchronized int addNamespace(Namespace ns) {
+        materialize();
         constant_namespace.add(ns);
-        return constant_namespace.size() - 1;
+        int index = constant_namespace.size() - 1;
+        if (namespaceIndex != null) {
+            namespaceIndex.add(index, hashNamespace(ns));
+        }
+        return index;
     }
 
     public synchronized int addNamespaceSet(NamespaceSet nss) {
+        materialize();
         constant_namespace_set.add(nss);
-        return constant_namespace_set.size() - 1;
+        int index = constant_namespace_set.size() - 1;
+        if (namespaceSetIndex != null) {
+            namespaceSetIndex.add(index, hashNamespaceSet(nss));
+        }
+        return index;
     }
 
     public synchronized int addMultiname(Multiname m) {
+        materialize();
         constant_multiname.add(m);
-        return constant_multiname.size() - 1;
+        int index = constant_multiname.size() - 1;
+        if (multinameIndex != null) {
+            multinameIndex.add(index, hashMultiname(m));
+        }
+        multinameModificationCount++;
+        return index;
     }
 
     public synchronized int addUInt(long value) {
-        constant_uint.add(value);
-        return constant_uint.size() - 1;
+        materialize();
+        if (uintCount == constant_uint.length) {
+            constant_uint = Arrays.copyOf(constant_uint, uintCount * 2);
+        }
+        constant_uint[uintCount] = value;
+        if (uintIndex != null) {
+            uintIndex.add(uintCount, hashLong(value));
+        }
+        return uintCount++;
     }
 
     public synchronized int addDouble(double value) {
-        constant_double.add(value);
-        return constant_double.size() - 1;
+        materialize();
+        if (doubleCount == constant_double.length) {
+            constant_double = Arrays.copyOf(constant_double, doubleCount * 2);
+        }
+        constant_double[doubleCount] = value;
+        if (doubleIndex != null) {
+            doubleIndex.add(doubleCount, hashDouble(value));
+        }
+        return doubleCount++;
     }
 
     public synchronized int addDecimal(Decimal value) {
+        materialize();
         constant_decimal.add(value);
         return constant_decimal.size() - 1;
     }
 
     public synchronized int addString(String value) {
-        constant_string.add(value);
-        return constant_string.size() - 1;
+        materialize();
+        if (stringCount == constant_string.length) {
+            constant_string = Arrays.copyOf(constant_string, stringCount * 2);
+        }
+        constant_string[stringCount] = value;
+        if (stringIndex != null) {
+            stringIndex.add(stringCount, hashString(value));
+        }
+        return stringCount++;
     }
 
-    public long setInt(int index, long value) {
-        constant_int.set(index, value);
+    public synchronized long setInt(int index, long value) {
+        materialize();
+        checkIndex(index, intCount);
+        constant_int[index] = value;
+        if (intIndex != null) {
+            intIndex.remove(index);
+            intIndex.add(index, hashLong(value));
+        }
         return value;
     }
 
-    public Namespace setNamespace(int index, Namespace ns) {
+    public synchronized Namespace setNamespace(int index, Namespace ns) {
+        materialize();
         constant_namespace.set(index, ns);
+        if (namespaceIndex != null) {
+            namespaceIndex.remove(index);
+            namespaceIndex.add(index, hashNamespace(ns));
+        }
         return ns;
     }
 
-    public NamespaceSet setNamespaceSet(int index, NamespaceSet nss) {
+    public synchronized NamespaceSet setNamespaceSet(int index, NamespaceSet nss) {
+        materialize();
         constant_namespace_set.set(index, nss);
+        if (namespaceSetIndex != null) {
+            namespaceSetIndex.remove(index);
+            namespaceSetIndex.add(index, hashNamespaceSet(nss));
+        }
         return nss;
     }
 
-    public Multiname setMultiname(int index, Multiname m) {
+    public synchronized Multiname setMultiname(int index, Multiname m) {
+        materialize();
         constant_multiname.set(index, m);
+        if (multinameIndex != null) {
+            multinameIndex.remove(index);
+            multinameIndex.add(index, hashMultiname(m));
+        }
+        multinameModificationCount++;
         return m;
     }
 
-    public long setUInt(int index, long value) {
-        constant_uint.set(index, value);
+    public synchronized long setUInt(int index, long value) {
+        materialize();
+        checkIndex(index, uintCount);
+        constant_uint[index] = value;
+        if (uintIndex != null) {
+            uintIndex.remove(index);
+            uintIndex.add(index, hashLong(value));
+        }
         return value;
     }
 
-    public double setDouble(int index, double value) {
-        constant_double.set(index, value);
+    public synchronized double setDouble(int index, double value) {
+        materialize();
+        checkIndex(index, doubleCount);
+        constant_double[index] = value;
+        if (doubleIndex != null) {
+            doubleIndex.remove(index);
+            doubleIndex.add(index, hashDouble(value));
+        }
         return value;
     }
 
-    public Decimal setDecimal(int index, Decimal value) {
+    public synchronized Decimal setDecimal(int index, Decimal value) {
+        materialize();
         constant_decimal.set(index, value);
         return value;
     }
 
-    public String setString(int index, String value) {
-        constant_string.set(index, value);
+    public synchronized String setString(int index, String value) {
+        materialize();
+        checkIndex(index, stringCount);
+        constant_string[index] = value;
+        if (stringIndex != null) {
+            stringIndex.remove(index);
+            stringIndex.add(index, hashString(value));
+        }
         return value;
     }
 
+    public int getMultinameModificationCount() {
+        return multinameModificationCount;
+    }
+
+    private static void checkIndex(int index, int count) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+        }
+    }
+
     public long getInt(int index) {
-        try {
-            return constant_int.get(index);
-        } catch (IndexOutOfBoundsException ex) {
-            logger.log(Level.SEVERE, "Int not found. Index: " + index, ex);
+        if (index < 0 || index >= intCount) {
+            logger.log(Level.SEVERE, "Int not found. Index: {0}", index);
+            return 0;
         }
-        return 0;
+        return constant_int[index];
     }
 
     public Namespace getNamespace(int index) {
+        LazyConstantPool l = lazy;
+        if (l != null && index > 0 && index < l.getNamespaceCount()) {
+            return l.getNamespace(index);
+        }
+
         try {
             return constant_namespace.get(index);
         } catch (IndexOutOfBoundsException ex) {
@@ -146,6 +453,11 @@ public class AVM2ConstantPool {
     }
 
     public NamespaceSet getNamespaceSet(int index) {
+        LazyConstantPool l = lazy;
+        if (l != null && index > 0 && index < l.getNamespaceSetCount()) {
+            return l.getNamespaceSet(index);
+        }
+
         try {
             return constant_namespace_set.get(index);
         } catch (IndexOutOfBoundsException ex) {
@@ -155,6 +467,11 @@ public class AVM2ConstantPool {
     }
 
     public Multiname getMultiname(int index) {
+        LazyConstantPool l = lazy;
+        if (l != null && index > 0 && index < l.getMultinameCount()) {
+            return l.getMultiname(index);
+        }
+
         try {
             return constant_multiname.get(index);
         } catch (IndexOutOfBoundsException ex) {
@@ -164,21 +481,24 @@ public class AVM2ConstantPool {
     }
 
     public long getUInt(int index) {
-        try {
-            return constant_uint.get(index);
-        } catch (IndexOutOfBoundsException ex) {
-            logger.log(Level.SEVERE, "UInt not found. Index: " + index, ex);
+        if (index < 0 || index >= uintCount) {
+            logger.log(Level.SEVERE, "UInt not found. Index: {0}", index);
+            return 0;
         }
-        return 0;
+        return constant_uint[index];
     }
 
     public double getDouble(int index) {
-        try {
-            return constant_double.get(index);
-        } catch (IndexOutOfBoundsException ex) {
-            logger.log(Level.SEVERE, "Double not found. Index: " + index, ex);
+        LazyConstantPool l = lazy;
+        if (l != null && index > 0 && index < l.getDoubleCount()) {
+            return l.getDouble(index);
+        }
+
+        if (index < 0 || index >= doubleCount) {
+            logger.log(Level.SEVERE, "Double not found. Index: {0}", index);
+            return 0;
         }
-        return 0;
+        return constant_double[index];
     }
 
     public Decimal getDecimal(int index) {
@@ -191,16 +511,20 @@ public class AVM2ConstantPool {
     }
 
     public String getString(int index) {
-        try {
-            return constant_string.get(index);
-        } catch (IndexOutOfBoundsException ex) {
-            logger.log(Level.SEVERE, "String not found. Index: " + index, ex);
+        LazyConstantPool l = lazy;
+        if (l != null && index > 0 && index < l.getStringCount()) {
+            return l.getString(index);
         }
-        return null;
+
+        if (index < 0 || index >= stringCount) {
+            logger.log(Level.SEVERE, "String not found. Index: {0}", index);
+            return null;
+        }
+        return constant_string[index];
     }
 
     public int getIntCount() {
-        return constant_int.size();
+        return intCount;
     }
 
     public int getNamespaceCount() {
@@ -216,11 +540,11 @@ public class AVM2ConstantPool {
     }
 
     public int getUIntCount() {
-        return constant_uint.size();
+        return uintCount;
     }
 
     public int getDoubleCount() {
-        return constant_double.size();
+        return doubleCount;
     }
 
     public int getDecimalCount() {
@@ -228,89 +552,211 @@ public class AVM2ConstantPool {
     }
 
     public int getStringCount() {
-        return constant_string.size();
+        return stringCount;
+    }
+
+    /**
+     * Names of the pools in the XML export. The number and string pools are
+     * stored in primitive arrays and the lazy entries are decoded on access,
+     * so the pools are exported by these names instead of the fields.
+     */
+    public static final List<String> XML_POOL_NAMES = Collections.unmodifiableList(Arrays.asList(
+            "constant_int", "constant_uint", "constant_double", "constant_decimal",
+            "constant_string", "constant_namespace", "constant_namespace_set", "constant_multiname"));
+
+    /**
+     * Gets the type of the items of the pool in the XML export
+     *
+     * @param poolName Name of the pool
+     * @return Type, null for an unknown pool
+     */
+    public static Class<?> getXmlItemType(String poolName) {
+        switch (poolName) {
+            case "constant_int":
+            case "constant_uint":
+                return Long.class;
+            case "constant_double":
+                return Double.class;
+            case "constant_decimal":
+                return Decimal.class;
+            case "constant_string":
+                return String.class;
+            case "constant_namespace":
+                return Namespace.class;
+            case "constant_namespace_set":
+                return NamespaceSet.class;
+            case "constant_multiname":
+                return Multiname.class;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Gets the values of the pool for the XML export, the lazy entries are
+     * decoded
+     *
+     * @param poolName Name of the pool
+     * @return Values
+     */
+    public List<Object> getXmlValues(String poolName) {
+        List<Object> result = new ArrayList<>();
+        switch (poolName) {
+            case "constant_int":
+                for (int i = 0; i < getIntCount(); i++) {
+                    result.add(getInt(i));
+                }
+                break;
+            case "constant_uint":
+                for (int i = 0; i < getUIntCount(); i++) {
+                    result.add(getUInt(i));
+                }
+                break;
+            case "constant_double":
+                for (int i = 0; i < getDoubleCount(); i++) {
+                    result.add(getDouble(i));
+                }
+                break;
+            case "constant_decimal":
+                for (int i = 0; i < getDecimalCount(); i++) {
+                    result.add(getDecimal(i));
+                }
+                break;
+            case "constant_string":
+                for (int i = 0; i < getStringCount(); i++) {
+                    result.add(getString(i));
+                }
+                break;
+            case "constant_namespace":
+                for (int i = 0; i < getNamespaceCount(); i++) {
+                    result.add(getNamespace(i));
+                }
+                break;
+            case "constant_namespace_set":
+                for (int i = 0; i < getNamespaceSetCount(); i++) {
+                    result.add(getNamespaceSet(i));
+                }
+                break;
+            case "constant_multiname":
+                for (int i = 0; i < getMultinameCount(); i++) {
+                    result.add(getMultiname(i));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown pool: " + poolName);
+        }
+        return result;
+    }
+
+    /**
+     * Adds a value of the XML import to the pool
+     *
+     * @param poolName Name of the pool
+     * @param value Value, null for the default value of the number pools
+     */
+    public void addXmlValue(String poolName, Object value) {
+        switch (poolName) {
+            case "constant_int":
+                addInt(value == null ? 0 : (Long) value);
+                break;
+            case "constant_uint":
+                addUInt(value == null ? 0 : (Long) value);
+                break;
+            case "constant_double":
+                addDouble(value == null ? 0 : (Double) value);
+                break;
+            case "constant_decimal":
+                addDecimal((Decimal) value);
+                break;
+            case "constant_string":
+                addString((String) value);
+                break;
+            case "constant_namespace":
+                addNamespace((Namespace) value);
+                break;
+            case "constant_namespace_set":
+                addNamespaceSet((NamespaceSet) value);
+                break;
+            case "constant_multiname":
+                addMultiname((Multiname) value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown pool: " + poolName);
+        }
     }
 
     public int getNamespaceSubIndex(int namespaceId) {
-        Namespace ns = constant_namespace.get(namespaceId);
+        Namespace ns = getNamespace(namespaceId);
         int index = 0;
         for (int n = 1; n < namespaceId; n++) {
-            if (constant_namespace.get(n).name_index == ns.name_index && constant_namespace.get(n).kind == ns.kind) {
+            if (getNamespace(n).name_index == ns.name_index && getNamespace(n).kind == ns.kind) {
                 index++;
             }
         }
         return index;
     }
 
-    public int getNamespaceId(Namespace val, int index) {
-        for (int n = 1; n < constant_namespace.size(); n++) {
-            Namespace ns = constant_namespace.get(n);
-            if (ns.name_index == val.name_index && (ns.kind == val.kind)) {
-                if (index == 0) {
-                    return n;
-                }
-                index--;
+    public synchronized int getNamespaceId(Namespace val, int index) {
+        if (namespaceIndex == null) {
+            namespaceIndex = new ConstantIndex();
+            for (int i = 1; i < constant_namespace.size(); i++) {
+                namespaceIndex.add(i, hashNamespace(getNamespace(i)));
             }
         }
-        return 0;
+        return namespaceIndex.find(hashNamespace(val), (int i) -> namespaceEquals(getNamespace(i), val), index);
     }
 
-    public int getIntId(long value) {
-        for (int i = 1; i < constant_int.size(); i++) {
-            if (constant_int.get(i) == value) {
-                return i;
+    public synchronized int getIntId(long value) {
+        if (intIndex == null) {
+            intIndex = new ConstantIndex();
+            for (int i = 1; i < intCount; i++) {
+                intIndex.add(i, hashLong(constant_int[i]));
             }
         }
-        return 0;
+        return intIndex.find(hashLong(value), (int i) -> constant_int[i] == value);
     }
 
-    public int getUIntId(long value) {
-        for (int i = 1; i < constant_uint.size(); i++) {
-            if (constant_uint.get(i) == value) {
-                return i;
+    public synchronized int getUIntId(long value) {
+        if (uintIndex == null) {
+            uintIndex = new ConstantIndex();
+            for (int i = 1; i < uintCount; i++) {
+                uintIndex.add(i, hashLong(constant_uint[i]));
             }
         }
-        return 0;
+        return uintIndex.find(hashLong(value), (int i) -> constant_uint[i] == value);
     }
 
-    public int getDoubleId(double value) {
-        for (int i = 1; i < constant_double.size(); i++) {
-            if (Double.isNaN(value) && Double.isNaN(constant_double.get(i))) {
-                return i;
-            }
-            if (Double.compare(constant_double.get(i), value) == 0) {
-                return i;
+    public synchronized int getDoubleId(double value) {
+        if (doubleIndex == null) {
+            doubleIndex = new ConstantIndex();
+            for (int i = 1; i < doubleCount; i++) {
+                doubleIndex.add(i, hashDouble(getDouble(i)));
             }
         }
-        return 0;
+        return doubleIndex.find(hashDouble(value), (int i) -> Double.compare(getDouble(i), value) == 0);
     }
 
-    public int getStringId(String val) {
+    public synchronized int getStringId(String val) {
         if (val == null) {
             return 0;
         }
-        for (int i = 1; i < constant_string.size(); i++) {
-            if (constant_string.get(i).equals(val)) {
-                return i;
+        if (stringIndex == null) {
+            stringIndex = new ConstantIndex();
+            for (int i = 1; i < stringCount; i++) {
+                stringIndex.add(i, hashString(getString(i)));
             }
         }
-        return 0;
+        return stringIndex.find(val.hashCode(), (int i) -> val.equals(getString(i)));
     }
 
-    public int getMultinameId(Multiname val) {
-        loopm:
-        for (int m = 1; m < constant_multiname.size(); m++) {
-            Multiname mul = constant_multiname.get(m);
-            if (mul.kind == val.kind && mul.name_index == val.name_index && mul.namespace_index == val.namespace_index && mul.namespace_set_index == val.namespace_set_index && mul.qname_index == val.qname_index && mul.params.size() == val.params.size()) {
-                for (int p = 0; p < mul.params.size(); p++) {
-                    if (mul.params.get(p) != val.params.get(p)) {
-                        continue loopm;
-                    }
-                }
-                return m;
+    public synchronized int getMultinameId(Multiname val) {
+        if (multinameIndex == null) {
+            multinameIndex = new ConstantIndex();
+            for (int i = 1; i < constant_multiname.size(); i++) {
+                multinameIndex.add(i, hashMultiname(getMultiname(i)));
             }
         }
-        return 0;
+        return multinameIndex.find(hashMultiname(val), (int i) -> multinameEquals(getMultiname(i), val));
     }
 
     public int getQnameId(String name, int namespaceKind, String namespaceName, boolean add) {
@@ -321,7 +767,7 @@ public class AVM2ConstantPool {
         return getQnameId(name, Namespace.KIND_PACKAGE, "", add);
     }
 
-    public int getMultinameId(Multiname val, boolean add) {
+    public synchronized int getMultinameId(Multiname val, boolean add) {
         int id = getMultinameId(val);
         if (add && id == 0) {
             id = addMultiname(val);
@@ -329,7 +775,7 @@ public class AVM2ConstantPool {
         return id;
     }
 
-    public int getStringId(String val, boolean add) {
+    public synchronized int getStringId(String val, boolean add) {
         if (val == null) {
             return 0;
         }
@@ -340,7 +786,7 @@ public class AVM2ConstantPool {
         return id;
     }
 
-    public int getIntId(long val, boolean add) {
+    public synchronized int getIntId(long val, boolean add) {
         int id = getIntId(val);
         if (add && id == 0) {
             id = addInt(val);
@@ -348,7 +794,7 @@ public class AVM2ConstantPool {
         return id;
     }
 
-    public int getNamespaceId(Namespace val, int index, boolean add) {
+    public synchronized int getNamespaceId(Namespace val, int index, boolean add) {
         int id = getNamespaceId(val, index);
         if (add && id == 0) {
             id = addNamespace(val);
@@ -356,31 +802,17 @@ public class AVM2ConstantPool {
         return id;
     }
 
-    public int getNamespaceSetId(NamespaceSet val) {
-        loopi:
-        for (int i = 1; i < constant_namespace_set.size(); i++) {
-            NamespaceSet ts = constant_namespace_set.get(i);
-            if (ts.namespaces.length != val.namespaces.length) {
-                continue;
-            }
-            for (int j = 0; j < val.namespaces.length; j++) {
-                boolean found = false;
-                for (int k = 0; k < val.namespaces.length; k++) {
-                    if (ts.namespaces[j] == val.namespaces[k]) {
-                        found = true;
-                        break;
-                    }
-                }
-                if (!found) {
-                    continue loopi;
-                }
+    public synchronized int getNamespaceSetId(NamespaceSet val) {
+        if (namespaceSetIndex == null) {
+            namespaceSetIndex = new ConstantIndex();
+            for (int i = 1; i < constant_namespace_set.size(); i++) {
+                namespaceSetIndex.add(i, hashNamespaceSet(getNamespaceSet(i)));
             }
-            return i;
         }
-        return 0;
+        return namespaceSetIndex.find(hashNamespaceSet(val), (int i) -> namespaceSetEquals(getNamespaceSet(i), val));
     }
 
-    public int getNamespaceSetId(NamespaceSet val, boolean add) {
+    public synchronized int getNamespaceSetId(NamespaceSet val, boolean add) {
         int id = getNamespaceSetId(val);
         if (add && id == 0) {
             id = addNamespaceSet(val);
@@ -388,7 +820,7 @@ public class AVM2ConstantPool {
         return id;
     }
 
-    public int getUIntId(long val, boolean add) {
+    public synchronized int getUIntId(long val, boolean add) {
         int id = getUIntId(val);
         if (add && id == 0) {
             id = addUInt(val);
@@ -396,7 +828,7 @@ public class AVM2ConstantPool {
         return id;
     }
 
-    public int getDoubleId(double val, boolean add) {
+    public synchronized int getDoubleId(double val, boolean add) {
         int id = getDoubleId(val);
         if (add && id == 0) {
             id = addDouble(val);
@@ -406,27 +838,27 @@ public class AVM2ConstantPool {
 
     public void dump(Utf8PrintWriter writer) {
         String s = "";
-        for (int i = 1; i < constant_int.size(); i++) {
-            writer.println("INT[" + i + "]=" + constant_int.get(i));
+        for (int i = 1; i < intCount; i++) {
+            writer.println("INT[" + i + "]=" + getInt(i));
         }
-        for (int i = 1; i < constant_uint.size(); i++) {
-            writer.println("UINT[" + i + "]=" + constant_uint.get(i));
+        for (int i = 1; i < uintCount; i++) {
+            writer.println("UINT[" + i + "]=" + getUInt(i));
         }
-        for (int i = 1; i < constant_double.size(); i++) {
-            writer.println("Double[" + i + "]=" + constant_double.get(i));
+        for (int i = 1; i < doubleCount; i++) {
+            writer.println("Double[" + i + "]=" + getDouble(i));
         }
-        for (int i = 1; i < constant_string.size(); i++) {
-            writer.println("String[" + i + "]=" + constant_string.get(i));
+        for (int i = 1; i < stringCount; i++) {
+            writer.println("String[" + i + "]=" + getString(i));
         }
         for (int i = 1; i < constant_namespace.size(); i++) {
-            writer.println("Namespace[" + i + "]=" + constant_namespace.get(i).toString(this));
+            writer.println("Namespace[" + i + "]=" + getNamespace(i).toString(this));
         }
         for (int i = 1; i < constant_namespace_set.size(); i++) {
-            writer.println("NamespaceSet[" + i + "]=" + constant_namespace_set.get(i).toString(this));
+            writer.println("NamespaceSet[" + i + "]=" + getNamespaceSet(i).toString(this));
         }
 
         for (int i = 1; i < constant_multiname.size(); i++) {
-            writer.println("Multiname[" + i + "]=" + constant_multiname.get(i).toString(this, new ArrayList<String>()));
+            writer.println("Multiname[" + i + "]=" + getMultiname(i).toString(this, new ArrayList<String>()));
         }
     }
 
@@ -434,20 +866,20 @@ public class AVM2ConstantPool {
         if (index == 0) {
             return "null";
         }
-        return constant_multiname.get(index).toString(this, new ArrayList<String>());
+        return getMultiname(index).toString(this, new ArrayList<String>());
     }
 
     public String namespaceToString(int index) {
         if (index == 0) {
             return "null";
         }
-        return constant_namespace.get(index).toString(this);
+        return getNamespace(index).toString(this);
     }
 
     public String namespaceSetToString(int index) {
         if (index == 0) {
             return "null";
         }
-        return constant_namespace_set.get(index).toString(this);
+        return getNamespaceSet(index).toString(this);
     }
 }
@@ -0,0 +1,160 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.abc.avm2;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Hash index of constant pool entries. It is an open addressing table with
+ * linear probing which stores the entry indices, the hash of each entry is
+ * remembered, so the entry can be removed even when its value was changed in
+ * place. Equal values are allowed, lookup returns the lowest matching index.
+ *
+ * @author JPEXS
+ */
+class ConstantIndex {
+
+    /**
+     * Entry index + 1, 0 = free slot
+     */
+    private int[] table = new int[16];
+
+    private int[] hashes = new int[16];
+
+    private int size;
+
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    public void add(int index, int hash) {
+        if (index >= hashes.length) {
+            hashes = Arrays.copyOf(hashes, Math.max(index + 1, hashes.length * 2));
+        }
+        hashes[index] = hash;
+        if ((size + 1) * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        insert(index);
+        size++;
+    }
+
+    private void insert(int index) {
+        int mask = table.length - 1;
+        int pos = mix(hashes[index]) & mask;
+        while (table[pos] != 0) {
+            pos = (pos + 1) & mask;
+        }
+        table[pos] = index + 1;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldTable = table;
+        table = new int[capacity];
+        for (int entry : oldTable) {
+            if (entry != 0) {
+                insert(entry - 1);
+            }
+        }
+    }
+
+    public void remove(int index) {
+        if (index >= hashes.length) {
+            return;
+        }
+
+        int mask = table.length - 1;
+        int pos = mix(hashes[index]) & mask;
+        while (table[pos] != index + 1) {
+            if (table[pos] == 0) {
+                return;
+            }
+            pos = (pos + 1) & mask;
+        }
+
+        // backward shift deletion
+        int free = pos;
+        pos = (pos + 1) & mask;
+        while (table[pos] != 0) {
+            int home = mix(hashes[table[pos] - 1]) & mask;
+            if (((pos - home) & mask) >= ((pos - free) & mask)) {
+                table[free] = table[pos];
+                free = pos;
+            }
+            pos = (pos + 1) & mask;
+        }
+        table[free] = 0;
+        size--;
+    }
+
+    /**
+     * Finds the lowest index with the hash, which is accepted by the predicate
+     *
+     * @param hash Hash of the value
+     * @param matches Compares the entry with the value
+     * @return Index or 0 when not found
+     */
+    public int find(int hash, IntPredicate matches) {
+        return find(hash, matches, 0);
+    }
+
+    /**
+     * Finds the n-th lowest index with the hash, which is accepted by the
+     * predicate
+     *
+     * @param hash Hash of the value
+     * @param matches Compares the entry with the value
+     * @param n Number of the matching entries to skip
+     * @return Index or 0 when not found
+     */
+    public int find(int hash, IntPredicate matches, int n) {
+        int mask = table.length - 1;
+        int pos = mix(hash) & mask;
+        int[] found = null;
+        int foundCount = 0;
+        int result = 0;
+        while (table[pos] != 0) {
+            int index = table[pos] - 1;
+            if (hashes[index] == hash && matches.test(index)) {
+                if (n == 0) {
+                    if (result == 0 || index < result) {
+                        result = index;
+                    }
+                } else {
+                    if (found == null) {
+                        found = new int[4];
+                    } else if (foundCount == found.length) {
+                        found = Arrays.copyOf(found, foundCount * 2);
+                    }
+                    found[foundCount++] = index;
+                }
+            }
+            pos = (pos + 1) & mask;
+        }
+
+        if (n == 0) {
+            return result;
+        }
+        if (foundCount <= n) {
+            return 0;
+        }
+        Arrays.sort(found, 0, foundCount);
+        return found[n];
+    }
+}
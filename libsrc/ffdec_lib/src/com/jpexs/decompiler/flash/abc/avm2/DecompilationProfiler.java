@@ -0,0 +1,420 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.abc.avm2;
+
+import com.jpexs.helpers.Helper;
+import com.jpexs.helpers.utf8.Utf8Helper;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opt-in profiler of the AS3 method decompilation. When enabled, each
+ * converted method body gets a MethodProfile with the time and allocation
+ * spent in the decompilation stages. The stages are measured per thread, the
+ * hooks do nothing when the profiler is disabled or when no method is entered
+ * on the current thread. Only the most recent profiles are kept, see
+ * setMaxProfiles.
+ *
+ * @author JPEXS
+ */
+public class DecompilationProfiler {
+
+    public enum Stage {
+
+        CODE_PARSING("codeParsing"),
+        DEOBFUSCATION("deobfuscation"),
+        VISIT_CODE("visitCode"),
+        GRAPH_CONSTRUCTION("graphConstruction"),
+        STRUCTURING("structuring"),
+        FINAL_PROCESS("finalProcess"),
+        TEXT_OUTPUT("textOutput");
+
+        private final String id;
+
+        private Stage(String id) {
+            this.id = id;
+        }
+
+        public String getId() {
+            return id;
+        }
+    }
+
+    private static class Frame {
+
+        final MethodProfile profile;
+
+        final Deque<Stage> stages = new ArrayDeque<>();
+
+        Frame(MethodProfile profile) {
+            this.profile = profile;
+        }
+    }
+
+    private static class ThreadState {
+
+        final Deque<Frame> frames = new ArrayDeque<>();
+
+        long lastTime;
+
+        long lastAllocation;
+    }
+
+    /**
+     * Default maximal number of kept profiles
+     */
+    public static final int DEFAULT_MAX_PROFILES = 100000;
+
+    private static volatile boolean enabled = false;
+
+    private static volatile int maxProfiles = DEFAULT_MAX_PROFILES;
+
+    private static final ConcurrentLinkedQueue<MethodProfile> profiles = new ConcurrentLinkedQueue<>();
+
+    private static final AtomicInteger profileCount = new AtomicInteger();
+
+    private static final AtomicInteger droppedCount = new AtomicInteger();
+
+    private static final ThreadLocal<ThreadState> threadState = new ThreadLocal<ThreadState>() {
+        @Override
+        protected ThreadState initialValue() {
+            return new ThreadState();
+        }
+    };
+
+    private static final com.sun.management.ThreadMXBean allocationBean;
+
+    static {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean sunBean = null;
+        try {
+            if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+                sunBean = (com.sun.management.ThreadMXBean) bean;
+                sunBean.setThreadAllocatedMemoryEnabled(true);
+            }
+        } catch (UnsupportedOperationException | SecurityException ex) {
+            sunBean = null;
+        }
+        allocationBean = sunBean;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        DecompilationProfiler.enabled = enabled;
+    }
+
+    /**
+     * Sets the maximal number of kept profiles. When a new profile exceeds
+     * the limit, the oldest profile is dropped.
+     *
+     * @param maxProfiles Maximal number of profiles
+     */
+    public static void setMaxProfiles(int maxProfiles) {
+        if (maxProfiles <= 0) {
+            throw new IllegalArgumentException("maxProfiles must be positive");
+        }
+
+        DecompilationProfiler.maxProfiles = maxProfiles;
+        trimProfiles();
+    }
+
+    public static int getMaxProfiles() {
+        return maxProfiles;
+    }
+
+    /**
+     * Gets the number of the profiles dropped because of the limit
+     *
+     * @return Number of dropped profiles
+     */
+    public static int getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Removes the collected profiles
+     */
+    public static void clear() {
+        while (profiles.poll() != null) {
+            profileCount.decrementAndGet();
+        }
+        droppedCount.set(0);
+    }
+
+    private static void trimProfiles() {
+        while (profileCount.get() > maxProfiles && profiles.poll() != null) {
+            profileCount.decrementAndGet();
+            droppedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Gets the collected profiles in the order of creation
+     *
+     * @return List of profiles
+     */
+    public static List<MethodProfile> getProfiles() {
+        return new ArrayList<>(profiles);
+    }
+
+    /**
+     * Creates and registers the profile of a method
+     *
+     * @param path Path of the method
+     * @param methodInfo Method info index
+     * @return Profile or null when the profiler is disabled
+     */
+    public static MethodProfile createProfile(String path, int methodInfo) {
+        if (!enabled) {
+            return null;
+        }
+
+        MethodProfile profile = new MethodProfile(path, methodInfo);
+        profiles.add(profile);
+        profileCount.incrementAndGet();
+        trimProfiles();
+        return profile;
+    }
+
+    /**
+     * Makes the profile the current profile of the thread. The stages of the
+     * outer profile are suspended until the profile is exited.
+     *
+     * @param profile Profile, can be null
+     */
+    public static void enter(MethodProfile profile) {
+        if (profile == null) {
+            return;
+        }
+
+        ThreadState state = threadState.get();
+        charge(state);
+        state.frames.push(new Frame(profile));
+    }
+
+    /**
+     * Ends the profile entered on the current thread
+     *
+     * @param profile Profile, can be null
+     */
+    public static void exit(MethodProfile profile) {
+        if (profile == null) {
+            return;
+        }
+
+        ThreadState state = threadState.get();
+        Frame frame = state.frames.peek();
+        if (frame == null || frame.profile != profile) {
+            return;
+        }
+
+        charge(state);
+        state.frames.pop();
+    }
+
+    public static void startStage(Stage stage) {
+        if (!enabled) {
+            return;
+        }
+
+        ThreadState state = threadState.get();
+        Frame frame = state.frames.peek();
+        if (frame != null) {
+            charge(state);
+            frame.stages.push(stage);
+        }
+    }
+
+    public static void endStage() {
+        if (!enabled) {
+            return;
+        }
+
+        ThreadState state = threadState.get();
+        Frame frame = state.frames.peek();
+        if (frame != null && !frame.stages.isEmpty()) {
+            charge(state);
+            frame.stages.pop();
+        }
+    }
+
+    public static void setInstructionCount(int instructionCount) {
+        MethodProfile profile = getCurrentProfile();
+        if (profile != null) {
+            profile.setInstructionCount(instructionCount);
+        }
+    }
+
+    public static void setGraphPartCount(int graphPartCount) {
+        MethodProfile profile = getCurrentProfile();
+        if (profile != null) {
+            profile.setGraphPartCount(graphPartCount);
+        }
+    }
+
+    private static MethodProfile getCurrentProfile() {
+        if (!enabled) {
+            return null;
+        }
+
+        Frame frame = threadState.get().frames.peek();
+        return frame == null ? null : frame.profile;
+    }
+
+    /**
+     * Adds the time and allocation since the last change to the current stage
+     * of the current profile
+     */
+    private static void charge(ThreadState state) {
+        long time = System.nanoTime();
+        long allocation = allocationBean == null ? 0 : allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        Frame frame = state.frames.peek();
+        if (frame != null && !frame.stages.isEmpty()) {
+            frame.profile.add(frame.stages.peek(), time - state.lastTime, Math.max(0, allocation - state.lastAllocation));
+        }
+
+        state.lastTime = time;
+        state.lastAllocation = allocation;
+    }
+
+    /**
+     * Gets the slowest methods
+     *
+     * @param count Maximum number of methods
+     * @return Profiles sorted by the total time, slowest first
+     */
+    public static List<MethodProfile> getSlowest(int count) {
+        List<MethodProfile> result = getProfiles();
+        result.sort((a, b) -> Long.compare(b.getTotalTime(), a.getTotalTime()));
+        if (result.size() > count) {
+            result = new ArrayList<>(result.subList(0, count));
+        }
+        return result;
+    }
+
+    /**
+     * Prints the table of the slowest methods
+     *
+     * @param out Output stream
+     * @param count Maximum number of methods
+     */
+    public static void printSummary(PrintStream out, int count) {
+        List<MethodProfile> slowest = getSlowest(count);
+        int dropped = droppedCount.get();
+        out.println("Slowest methods (" + slowest.size() + " of " + profileCount.get() + (dropped > 0 ? ", " + dropped + " oldest dropped" : "") + "):");
+        for (MethodProfile profile : slowest) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(toMillis(profile.getTotalTime())).append(" ms ");
+            sb.append(profile.getPath());
+            sb.append(" [instructions: ").append(profile.getInstructionCount());
+            sb.append(", parts: ").append(profile.getGraphPartCount());
+            sb.append(", result: ").append(profile.getResult());
+            for (Stage stage : Stage.values()) {
+                sb.append(", ").append(stage.getId()).append(": ").append(toMillis(profile.getTime(stage))).append(" ms");
+            }
+            sb.append("]");
+            out.println(sb.toString());
+        }
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos / 1000000;
+    }
+
+    /**
+     * Writes the profiles to the file in CSV format. Times are in nanoseconds,
+     * allocations in bytes.
+     *
+     * @param file Output file
+     * @throws IOException On write error
+     */
+    public static void writeCsv(File file) throws IOException {
+        try (PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), Utf8Helper.charset))) {
+            StringBuilder header = new StringBuilder("path,methodInfo,result,instructionCount,graphPartCount,totalTime,totalAllocation");
+            for (Stage stage : Stage.values()) {
+                header.append(",").append(stage.getId()).append("Time");
+                header.append(",").append(stage.getId()).append("Allocation");
+            }
+            pw.print(header.toString() + "\r\n");
+            for (MethodProfile profile : profiles) {
+                StringBuilder sb = new StringBuilder();
+                sb.append("\"").append(profile.getPath().replace("\"", "\"\"")).append("\"");
+                sb.append(",").append(profile.getMethodInfo());
+                sb.append(",").append(profile.getResult());
+                sb.append(",").append(profile.getInstructionCount());
+                sb.append(",").append(profile.getGraphPartCount());
+                sb.append(",").append(profile.getTotalTime());
+                sb.append(",").append(profile.getTotalAllocation());
+                for (Stage stage : Stage.values()) {
+                    sb.append(",").append(profile.getTime(stage));
+                    sb.append(",").append(profile.getAllocation(stage));
+                }
+                pw.print(sb.toString() + "\r\n");
+            }
+        }
+    }
+
+    /**
+     * Writes the profiles to the file in JSON format. Times are in
+     * nanoseconds, allocations in bytes.
+     *
+     * @param file Output file
+     * @throws IOException On write error
+     */
+    public static void writeJson(File file) throws IOException {
+        List<MethodProfile> list = getProfiles();
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), Utf8Helper.charset);
+                PrintWriter pw = new PrintWriter(writer)) {
+            pw.println("{");
+            pw.println("  \"methodCount\": " + list.size() + ",");
+            pw.println("  \"methods\": [");
+            for (int i = 0; i < list.size(); i++) {
+                MethodProfile profile = list.get(i);
+                pw.print("    {\"path\": \"" + Helper.escapeJavaString(profile.getPath()) + "\"");
+                pw.print(", \"methodInfo\": " + profile.getMethodInfo());
+                pw.print(", \"result\": \"" + profile.getResult() + "\"");
+                pw.print(", \"instructionCount\": " + profile.getInstructionCount());
+                pw.print(", \"graphPartCount\": " + profile.getGraphPartCount());
+                pw.print(", \"totalTime\": " + profile.getTotalTime());
+                pw.print(", \"totalAllocation\": " + profile.getTotalAllocation());
+                for (Stage stage : Stage.values()) {
+                    pw.print(", \"" + stage.getId() + "Time\": " + profile.getTime(stage));
+                    pw.print(", \"" + stage.getId() + "Allocation\": " + profile.getAllocation(stage));
+                }
+                pw.println(i < list.size() - 1 ? "}," : "}");
+            }
+            pw.println("  ]");
+            pw.println("}");
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.abc.avm2;
+
+import com.jpexs.decompiler.flash.abc.ABCInputStream;
+import com.jpexs.decompiler.flash.abc.types.Multiname;
+import com.jpexs.decompiler.flash.abc.types.Namespace;
+import com.jpexs.decompiler.flash.abc.types.NamespaceSet;
+import com.jpexs.helpers.MemoryInputStream;
+import com.jpexs.helpers.utf8.Utf8Helper;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Constant pool entries which are decoded from the ABC bytes on the first
+ * access. The offsets are positions in the data array, index 0 of each pool
+ * is not stored.
+ *
+ * Each entry is decoded at most once, concurrent readers get the same
+ * instance, so the changes made to the returned objects are kept.
+ *
+ * @author JPEXS
+ */
+public class LazyConstantPool {
+
+    private static final Logger logger = Logger.getLogger(LazyConstantPool.class.getName());
+
+    private final byte[] data;
+
+    private final int doubleOffset;
+
+    private final int[] stringOffsets;
+
+    private final int[] namespaceOffsets;
+
+    private final int[] namespaceSetOffsets;
+
+    private final int[] multinameOffsets;
+
+    private final AtomicReferenceArray<Double> doubles;
+
+    private final AtomicReferenceArray<String> strings;
+
+    private final AtomicReferenceArray<Namespace> namespaces;
+
+    private final AtomicReferenceArray<NamespaceSet> namespaceSets;
+
+    private final AtomicReferenceArray<Multiname> multinames;
+
+    /**
+     * Constructor
+     *
+     * @param data ABC data
+     * @param doubleOffset Offset of the first double (doubles have fixed
+     * size)
+     * @param doubleCount Double pool count
+     * @param stringOffsets Offsets of the strings
+     * @param namespaceOffsets Offsets of the namespaces
+     * @param namespaceSetOffsets Offsets of the namespace sets
+     * @param multinameOffsets Offsets of the multinames
+     */
+    public LazyConstantPool(byte[] data, int doubleOffset, int doubleCount, int[] stringOffsets, int[] namespaceOffsets, int[] namespaceSetOffsets, int[] multinameOffsets) {
+        this.data = data;
+        this.doubleOffset = doubleOffset;
+        this.stringOffsets = stringOffsets;
+        this.namespaceOffsets = namespaceOffsets;
+        this.namespaceSetOffsets = namespaceSetOffsets;
+        this.multinameOffsets = multinameOffsets;
+        doubles = new AtomicReferenceArray<>(doubleCount);
+        strings = new AtomicReferenceArray<>(stringOffsets.length);
+        namespaces = new AtomicReferenceArray<>(namespaceOffsets.length);
+        namespaceSets = new AtomicReferenceArray<>(namespaceSetOffsets.length);
+        multinames = new AtomicReferenceArray<>(multinameOffsets.length);
+    }
+
+    public int getDoubleCount() {
+        return doubles.length();
+    }
+
+    public int getStringCount() {
+        return strings.length();
+    }
+
+    public int getNamespaceCount() {
+        return namespaces.length();
+    }
+
+    public int getNamespaceSetCount() {
+        return namespaceSets.length();
+    }
+
+    public int getMultinameCount() {
+        return multinames.length();
+    }
+
+    public double getDouble(int index) {
+        Double result = doubles.get(index);
+        if (result == null) {
+            int pos = doubleOffset + (index - 1) * 8;
+            long bits = 0;
+            for (int i = 7; i >= 0; i--) {
+                bits = (bits << 8) | (data[pos + i] & 0xff);
+            }
+
+            result = Double.longBitsToDouble(bits);
+            doubles.lazySet(index, result);
+        }
+
+        return result;
+    }
+
+    public String getString(int index) {
+        String result = strings.get(index);
+        if (result == null) {
+            int pos = stringOffsets[index];
+            long length = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = data[pos++] & 0xff;
+                length += ((long) (b & 0x7f)) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+
+            // strings are immutable, so an other thread may decode the same entry
+            result = new String(data, pos, (int) length, Utf8Helper.charset);
+            strings.lazySet(index, result);
+        }
+
+        return result;
+    }
+
+    public Namespace getNamespace(int index) {
+        Namespace result = namespaces.get(index);
+        if (result == null) {
+            try {
+                result = getStream(namespaceOffsets[index]).readNamespace("namespace");
+            } catch (IOException ex) {
+                // the entry was checked when the offsets were collected
+                logger.log(Level.SEVERE, "Cannot decode namespace " + index, ex);
+                return null;
+            }
+
+            if (!namespaces.compareAndSet(index, null, result)) {
+                result = namespaces.get(index);
+            }
+        }
+
+        return result;
+    }
+
+    public NamespaceSet getNamespaceSet(int index) {
+        NamespaceSet result = namespaceSets.get(index);
+        if (result == null) {
+            try {
+                result = getStream(namespaceSetOffsets[index]).readNamespaceSet("ns_set_infos");
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, "Cannot decode namespace set " + index, ex);
+                return null;
+            }
+
+            if (!namespaceSets.compareAndSet(index, null, result)) {
+                result = namespaceSets.get(index);
+            }
+        }
+
+        return result;
+    }
+
+    public Multiname getMultiname(int index) {
+        Multiname result = multinames.get(index);
+        if (result == null) {
+            try {
+                result = getStream(multinameOffsets[index]).readMultiname("multiname");
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, "Cannot decode multiname " + index, ex);
+                return null;
+            }
+
+            if (!multinames.compareAndSet(index, null, result)) {
+                result = multinames.get(index);
+            }
+        }
+
+        return result;
+    }
+
+    private ABCInputStream getStream(int offset) throws IOException {
+        return new ABCInputStream(new MemoryInputStream(data, offset));
+    }
+}
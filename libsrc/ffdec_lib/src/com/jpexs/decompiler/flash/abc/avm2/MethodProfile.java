@@ -0,0 +1,143 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.abc.avm2;
+
+import com.jpexs.decompiler.flash.abc.avm2.DecompilationProfiler.Stage;
+
+/**
+ * Time and allocation spent in the decompilation stages of a single method.
+ * The stage values are exclusive, the time of a nested stage or a nested
+ * method is not included in the outer stage.
+ *
+ * @author JPEXS
+ */
+public class MethodProfile {
+
+    public static final String RESULT_OK = "ok";
+
+    public static final String RESULT_TIMEOUT = "timeout";
+
+    public static final String RESULT_ERROR = "error";
+
+    private final String path;
+
+    private final int methodInfo;
+
+    private final long[] times = new long[Stage.values().length];
+
+    private final long[] allocations = new long[Stage.values().length];
+
+    private volatile int instructionCount = -1;
+
+    private volatile int graphPartCount = -1;
+
+    private volatile String result = RESULT_OK;
+
+    public MethodProfile(String path, int methodInfo) {
+        this.path = path;
+        this.methodInfo = methodInfo;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getMethodInfo() {
+        return methodInfo;
+    }
+
+    synchronized void add(Stage stage, long time, long allocation) {
+        times[stage.ordinal()] += time;
+        allocations[stage.ordinal()] += allocation;
+    }
+
+    /**
+     * Gets the time spent in the stage
+     *
+     * @param stage Stage
+     * @return Time in nanoseconds
+     */
+    public synchronized long getTime(Stage stage) {
+        return times[stage.ordinal()];
+    }
+
+    /**
+     * Gets the bytes allocated in the stage
+     *
+     * @param stage Stage
+     * @return Allocated bytes, 0 when the JVM does not support the
+     * measurement
+     */
+    public synchronized long getAllocation(Stage stage) {
+        return allocations[stage.ordinal()];
+    }
+
+    /**
+     * Gets the time spent in all the stages
+     *
+     * @return Time in nanoseconds
+     */
+    public synchronized long getTotalTime() {
+        long total = 0;
+        for (long time : times) {
+            total += time;
+        }
+        return total;
+    }
+
+    /**
+     * Gets the bytes allocated in all the stages
+     *
+     * @return Allocated bytes
+     */
+    public synchronized long getTotalAllocation() {
+        long total = 0;
+        for (long allocation : allocations) {
+            total += allocation;
+        }
+        return total;
+    }
+
+    public int getInstructionCount() {
+        return instructionCount;
+    }
+
+    public void setInstructionCount(int instructionCount) {
+        this.instructionCount = instructionCount;
+    }
+
+    public int getGraphPartCount() {
+        return graphPartCount;
+    }
+
+    public void setGraphPartCount(int graphPartCount) {
+        this.graphPartCount = graphPartCount;
+    }
+
+    /**
+     * Gets the result of the conversion
+     *
+     * @return One of the RESULT_ constants
+     */
+    public String getResult() {
+        return result;
+    }
+
+    public void setResult(String result) {
+        this.result = result;
+    }
+}
@@ -21,6 +21,7 @@ import com.jpexs.decompiler.flash.FinalProcessLocalData;
 import com.jpexs.decompiler.flash.abc.ABC;
 import com.jpexs.decompiler.flash.abc.AVM2LocalData;
 import com.jpexs.decompiler.flash.abc.avm2.AVM2Code;
+import com.jpexs.decompiler.flash.abc.avm2.DecompilationProfiler;
 import com.jpexs.decompiler.flash.abc.avm2.instructions.AVM2Instruction;
 import com.jpexs.decompiler.flash.abc.avm2.instructions.jumps.IfStrictEqIns;
 import com.jpexs.decompiler.flash.abc.avm2.instructions.jumps.IfStrictNeIns;
@@ -128,11 +129,17 @@ public class AVM2Graph extends Graph {
         localData.ip = 0;
         localData.refs = refs;
         localData.code = code;
-        g.init(localData);
         List<GraphPart> allParts = new ArrayList<>();
-        for (GraphPart head : g.heads) {
-            populateParts(head, allParts);
+        DecompilationProfiler.startStage(DecompilationProfiler.Stage.GRAPH_CONSTRUCTION);
+        try {
+            g.init(localData);
+            for (GraphPart head : g.heads) {
+                populateParts(head, allParts);
+            }
+        } finally {
+            DecompilationProfiler.endStage();
         }
+        DecompilationProfiler.setGraphPartCount(allParts.size());
         return g.translate(localData, staticOperation, path);
     }
 
@@ -613,6 +620,26 @@ public class AVM2Graph extends Graph {
         return ret;
     }
 
+    @Override
+    protected Object getCheckPartState(BaseLocalData localData) {
+        AVM2LocalData aLocalData = (AVM2LocalData) localData;
+        List<Object> state = new ArrayList<>();
+        state.add(new ArrayList<>(aLocalData.finallyJumps));
+        state.add(new ArrayList<>(aLocalData.ignoredSwitches));
+        return state;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void setCheckPartState(BaseLocalData localData, Object state) {
+        AVM2LocalData aLocalData = (AVM2LocalData) localData;
+        List<Object> stateList = (List<Object>) state;
+        aLocalData.finallyJumps.clear();
+        aLocalData.finallyJumps.addAll((List<Integer>) stateList.get(0));
+        aLocalData.ignoredSwitches.clear();
+        aLocalData.ignoredSwitches.addAll((List<Integer>) stateList.get(1));
+    }
+
     @Override
     protected GraphPart checkPart(TranslateStack stack, BaseLocalData localData, GraphPart next, List<GraphPart> allParts) {
         AVM2LocalData aLocalData = (AVM2LocalData) localData;
@@ -724,6 +751,16 @@ public class AVM2Graph extends Graph {
         return loopItem;
     }
 
+    @Override
+    protected void finalProcessGraph(TranslateStack stack, List<GraphTargetItem> ret) {
+        DecompilationProfiler.startStage(DecompilationProfiler.Stage.FINAL_PROCESS);
+        try {
+            super.finalProcessGraph(stack, ret);
+        } finally {
+            DecompilationProfiler.endStage();
+        }
+    }
+
     @Override
     protected void finalProcess(List<GraphTargetItem> list, int level, FinalProcessLocalData localData) {
         super.finalProcess(list, level, localData);
@@ -1689,7 +1689,7 @@ public class AVM2SourceGenerator implements SourceGenerator {
                             TraitSlotConst tsc = (TraitSlotConst) mbody.traits.traits.get(i);
                             GraphTargetItem type = TypeItem.UNBOUNDED;
                             if (tsc.type_index > 0) {
-                                type = new TypeItem(abc.constants.constant_multiname.get(tsc.type_index).getNameWithNamespace(abc.constants, true));
+                                type = new TypeItem(abc.constants.getMultiname(tsc.type_index).getNameWithNamespace(abc.constants, true));
                             }
                             NameAVM2Item d = new NameAVM2Item(type, 0, tsc.getName(abc).getName(abc.constants, new ArrayList<String>(), true), NameAVM2Item.getDefaultValue("" + type), true, new ArrayList<Integer>());
                             d.setSlotNumber(tsc.slot_id);
@@ -1961,8 +1961,8 @@ public class AVM2SourceGenerator implements SourceGenerator {
         }
         TypeItem sup = (TypeItem) un;
         int propId = resolveType(localData, sup, abc, allABCs);
-        int[] nss = new int[]{abc.constants.constant_multiname.get(propId).namespace_index};
-        return abc.constants.getMultinameId(new Multiname(Multiname.MULTINAME, abc.constants.constant_multiname.get(propId).name_index, 0, abc.constants.getNamespaceSetId(new NamespaceSet(nss), true), 0, new ArrayList<Integer>()), true);
+        int[] nss = new int[]{abc.constants.getMultiname(propId).namespace_index};
+        return abc.constants.getMultinameId(new Multiname(Multiname.MULTINAME, abc.constants.getMultiname(propId).name_index, 0, abc.constants.getNamespaceSetId(new NamespaceSet(nss), true), 0, new ArrayList<Integer>()), true);
 
     }
 
@@ -2149,8 +2149,8 @@ public class AVM2SourceGenerator implements SourceGenerator {
                     mbCode.add(ins(new GetScopeObjectIns(), 0));
                     traitScope++;
                 } else {
-                    NamespaceSet nsset = new NamespaceSet(new int[]{abc.constants.constant_multiname.get(tc.name_index).namespace_index});
-                    mbCode.add(ins(new FindPropertyStrictIns(), abc.constants.getMultinameId(new Multiname(Multiname.MULTINAME, abc.constants.constant_multiname.get(tc.name_index).name_index, 0, abc.constants.getNamespaceSetId(nsset, true), 0, new ArrayList<Integer>()), true)));
+                    NamespaceSet nsset = new NamespaceSet(new int[]{abc.constants.getMultiname(tc.name_index).namespace_index});
+                    mbCode.add(ins(new FindPropertyStrictIns(), abc.constants.getMultinameId(new Multiname(Multiname.MULTINAME, abc.constants.getMultiname(tc.name_index).name_index, 0, abc.constants.getNamespaceSetId(nsset, true), 0, new ArrayList<Integer>()), true)));
                 }
                 if (abc.instance_info.get(tc.class_info).isInterface()) {
                     mbCode.add(ins(new PushNullIns()));
@@ -2197,7 +2197,7 @@ public class AVM2SourceGenerator implements SourceGenerator {
                 indices.add(m);
                 continue;
             }
-            Multiname superName = a.constants.constant_multiname.get(m);
+            Multiname superName = a.constants.getMultiname(m);
             indices.add(
                     abc.constants.getMultinameId(
                             new Multiname(Multiname.QNAME,
@@ -2324,7 +2324,7 @@ public class AVM2SourceGenerator implements SourceGenerator {
                             }
                         }
 
-                        Multiname superName = abc.constants.constant_multiname.get(ii.super_index);
+                        Multiname superName = abc.constants.getMultiname(ii.super_index);
                         if (superName != null) {
                             return searchPrototypeChain(instanceOnly, abcs, superName.getNamespace(abc.constants).getName(abc.constants, true), superName.getName(abc.constants, new ArrayList<String>(), true), propertyName, outName, outNs, outPropNs, outPropNsKind, outPropNsIndex, outPropType, outPropValue);
                         } else {
@@ -2339,9 +2339,9 @@ public class AVM2SourceGenerator implements SourceGenerator {
 
     public static void parentNames(ABC abc, List<ABC> allABCs, int name_index, List<Integer> indices, List<String> names, List<String> namespaces, List<ABC> outABCs) {
         indices.add(name_index);
-        names.add(abc.constants.constant_multiname.get(name_index).getName(abc.constants, new ArrayList<String>(), true));
-        namespaces.add(abc.constants.constant_multiname.get(name_index).getNamespace(abc.constants).getName(abc.constants, true));
-        Multiname mname = abc.constants.constant_multiname.get(name_index);
+        names.add(abc.constants.getMultiname(name_index).getName(abc.constants, new ArrayList<String>(), true));
+        namespaces.add(abc.constants.getMultiname(name_index).getNamespace(abc.constants).getName(abc.constants, true));
+        Multiname mname = abc.constants.getMultiname(name_index);
 
         outABCs.add(abc);
 
@@ -2351,11 +2351,11 @@ public class AVM2SourceGenerator implements SourceGenerator {
 
         for (ABC a : abcs) {
             for (int i = 0; i < a.instance_info.size(); i++) {
-                Multiname m = a.constants.constant_multiname.get(a.instance_info.get(i).name_index);
+                Multiname m = a.constants.getMultiname(a.instance_info.get(i).name_index);
                 if (m.getName(a.constants, new ArrayList<String>(), true).equals(mname.getName(abc.constants, new ArrayList<String>(), true))) {
 
                     if (m.getNamespace(a.constants).hasName(mname.getNamespace(abc.constants).getName(abc.constants, true), a.constants)) {
-                        //Multiname superName = a.constants.constant_multiname.get(a.instance_info.get(i).super_index);
+                        //Multiname superName = a.constants.getMultiname(a.instance_info.get(i).super_index);
                         abcs.remove(a);
                         if (a.instance_info.get(i).super_index != 0) {
                             parentNames(a, abcs, a.instance_info.get(i).super_index, indices, names, namespaces, outABCs);
@@ -2447,7 +2447,7 @@ public class AVM2SourceGenerator implements SourceGenerator {
             name = name.substring(name.lastIndexOf('.') + 1);
         }
         for (InstanceInfo ii : abc.instance_info) {
-            Multiname mname = abc.constants.constant_multiname.get(ii.name_index);
+            Multiname mname = abc.constants.getMultiname(ii.name_index);
             if (mname != null && name.equals(mname.getName(abc.constants, new ArrayList<String>(), true))) {
                 if (mname.getNamespace(abc.constants).hasName(pkg, abc.constants)) {
                     name_index = ii.name_index;
@@ -2455,8 +2455,8 @@ public class AVM2SourceGenerator implements SourceGenerator {
                 }
             }
         }
-        for (int i = 1; i < abc.constants.constant_multiname.size(); i++) {
-            Multiname mname = abc.constants.constant_multiname.get(i);
+        for (int i = 1; i < abc.constants.getMultinameCount(); i++) {
+            Multiname mname = abc.constants.getMultiname(i);
             if (mname != null && name.equals(mname.getName(abc.constants, new ArrayList<String>(), true))) {
                 if (mname.getNamespace(abc.constants) != null && pkg.equals(mname.getNamespace(abc.constants).getName(abc.constants, true))) {
                     name_index = i;
@@ -106,7 +106,7 @@ public class PropertyAVM2Item extends AssignableAVM2Item {
         if (m_index == 0) {
             return TypeItem.UNBOUNDED;
         }
-        Multiname m = constants.constant_multiname.get(m_index);
+        Multiname m = constants.getMultiname(m_index);
         if (m.kind == Multiname.TYPENAME) {
             GraphTargetItem obj = multinameToType(m.qname_index, constants);
             List<GraphTargetItem> params = new ArrayList<>();
@@ -163,7 +163,7 @@ public class PropertyAVM2Item extends AssignableAVM2Item {
                      for (ABC a : abcs) {
                      for (int h = 0; h < a.instance_info.size(); h++) {
                      InstanceInfo ii = a.instance_info.get(h);
-                     Multiname n = a.constants.constant_multiname.get(ii.name_index);
+                     Multiname n = a.constants.getMultiname(ii.name_index);
                      if (name.equals(n.getName(a.constants, new ArrayList<String>())) && n.getNamespace(a.constants).hasName(nsname,a.constants)) {
                      Reference<String> outName = new Reference<>("");
                      Reference<String> outNs = new Reference<>("");
@@ -263,11 +263,11 @@ public class PropertyAVM2Item extends AssignableAVM2Item {
                         loopobjType:
                         for (int i = 0; i < openedNamespaces.size(); i++) {
                             int nsindex = openedNamespaces.get(i);
-                            int nsKind = abc.constants.constant_namespace.get(openedNamespaces.get(i)).kind;
-                            String nsname = abc.constants.constant_namespace.get(openedNamespaces.get(i)).getName(abc.constants, true);
+                            int nsKind = abc.constants.getNamespace(openedNamespaces.get(i)).kind;
+                            String nsname = abc.constants.getNamespace(openedNamespaces.get(i)).getName(abc.constants, true);
                             int name_index = 0;
-                            for (int m = 1; m < abc.constants.constant_multiname.size(); m++) {
-                                Multiname mname = abc.constants.constant_multiname.get(m);
+                            for (int m = 1; m < abc.constants.getMultinameCount(); m++) {
+                                Multiname mname = abc.constants.getMultiname(m);
                                 if (mname.kind == Multiname.QNAME && mname.getName(abc.constants, new ArrayList<String>(), true).equals(propertyName) && mname.namespace_index == nsindex) {
                                     name_index = m;
                                     break;
@@ -333,7 +333,7 @@ public class PropertyAVM2Item extends AssignableAVM2Item {
                                         if (ii.deleted) {
                                             continue;
                                         }
-                                        Multiname n = a.constants.constant_multiname.get(ii.name_index);
+                                        Multiname n = a.constants.getMultiname(ii.name_index);
                                         if (n.getNamespace(a.constants).kind == Namespace.KIND_PACKAGE && n.getNamespace(a.constants).getName(a.constants, true).equals(nsname)) {
                                             Reference<String> outName = new Reference<>("");
                                             Reference<String> outNs = new Reference<>("");
@@ -400,11 +400,11 @@ public class PropertyAVM2Item extends AssignableAVM2Item {
      loopo:
      for (int i = 0; i < openedNamespaces.size(); i++) {
      int nsindex = openedNamespaces.get(i);
-     int nsKind = abc.constants.constant_namespace.get(openedNamespaces.get(i)).kind;
-     String nsname = abc.constants.constant_namespace.get(openedNamespaces.get(i)).getName(abc.constants);
+     int nsKind = abc.constants.getNamespace(openedNamespaces.get(i)).kind;
+     String nsname = abc.constants.getNamespace(openedNamespaces.get(i)).getName(abc.constants);
      int name_index = 0;
-     for (int m = 1; m < abc.constants.constant_multiname.size(); m++) {
-     Multiname mname = abc.constants.constant_multiname.get(m);
+     for (int m = 1; m < abc.constants.getMultinameCount(); m++) {
+     Multiname mname = abc.constants.getMultiname(m);
      if (mname.kind == Multiname.QNAME && mname.getName(abc.constants, new ArrayList<String>()).equals(propertyName) && mname.namespace_index == nsindex) {
      name_index = m;
      break;
@@ -439,7 +439,7 @@ public class PropertyAVM2Item extends AssignableAVM2Item {
      for (ABC a : otherABCs) {
      for (int h = 0; h < a.instance_info.size(); h++) {
      InstanceInfo ii = a.instance_info.get(h);
-     Multiname n = a.constants.constant_multiname.get(ii.name_index);
+     Multiname n = a.constants.getMultiname(ii.name_index);
      if (n.getNamespace(a.constants).kind == Namespace.KIND_PACKAGE && n.getNamespace(a.constants).getName(a.constants).equals(nsname)) {
      Reference<String> outName = new Reference<>("");
      Reference<String> outNs = new Reference<>("");
@@ -478,15 +478,15 @@ public class PropertyAVM2Item extends AssignableAVM2Item {
      if (tsc.type_index == 0) {
      return TypeItem.UNBOUNDED;
      }
-     return new TypeItem(a.constants.constant_multiname.get(tsc.type_index).getNameWithNamespace(a.constants));
+     return new TypeItem(a.constants.getMultiname(tsc.type_index).getNameWithNamespace(a.constants));
      }
      if (t instanceof TraitMethodGetterSetter) {
      TraitMethodGetterSetter tmgs = (TraitMethodGetterSetter) t;
      if (tmgs.kindType == Trait.TRAIT_GETTER) {
-     return new TypeItem(a.constants.constant_multiname.get(a.method_info.get(tmgs.method_info).ret_type).getNameWithNamespace(a.constants));
+     return new TypeItem(a.constants.getMultiname(a.method_info.get(tmgs.method_info).ret_type).getNameWithNamespace(a.constants));
      }
      if (tmgs.kindType == Trait.TRAIT_SETTER) {
-     return new TypeItem(a.constants.constant_multiname.get(a.method_info.get(tmgs.method_info).param_types[0]).getNameWithNamespace(a.constants));
+     return new TypeItem(a.constants.getMultiname(a.method_info.get(tmgs.method_info).param_types[0]).getNameWithNamespace(a.constants));
      }
      }
      if (t instanceof TraitFunction) {
@@ -21,6 +21,8 @@ import com.jpexs.decompiler.flash.abc.ABCInputStream;
 import com.jpexs.decompiler.flash.abc.avm2.AVM2Code;
 import com.jpexs.decompiler.flash.abc.avm2.AVM2ConstantPool;
 import com.jpexs.decompiler.flash.abc.avm2.CodeStats;
+import com.jpexs.decompiler.flash.abc.avm2.DecompilationProfiler;
+import com.jpexs.decompiler.flash.abc.avm2.MethodProfile;
 import com.jpexs.decompiler.flash.abc.avm2.UnknownInstructionCode;
 import com.jpexs.decompiler.flash.abc.types.traits.Trait;
 import com.jpexs.decompiler.flash.abc.types.traits.Traits;
@@ -80,6 +82,16 @@ public final class MethodBody implements Cloneable {
     @Internal
     public transient Throwable convertException;
 
+    @Internal
+    private transient MethodProfile profile;
+
+    /**
+     * Count of the code replacements, used by ABC to detect a stale multiname
+     * usage index
+     */
+    @Internal
+    private transient volatile int modificationCount;
+
     public MethodBody() {
         this.traits = new Traits();
         this.codeBytes = new byte[0];
@@ -95,6 +107,7 @@ public final class MethodBody implements Cloneable {
     public synchronized void setCodeBytes(byte codeBytes[]) {
         this.codeBytes = codeBytes;
         this.code = null;
+        modificationCount++;
     }
 
     public synchronized byte[] getCodeBytes() {
@@ -108,21 +121,31 @@ public final class MethodBody implements Cloneable {
     public synchronized AVM2Code getCode() {
         if (code == null) {
             AVM2Code avm2Code;
+            DecompilationProfiler.startStage(DecompilationProfiler.Stage.CODE_PARSING);
             try {
-                ABCInputStream ais = new ABCInputStream(new MemoryInputStream(codeBytes));
-                avm2Code = new AVM2Code(ais);
-            } catch (UnknownInstructionCode | IOException ex) {
-                avm2Code = new AVM2Code();
-                Logger.getLogger(MethodBody.class.getName()).log(Level.SEVERE, null, ex);
+                try {
+                    ABCInputStream ais = new ABCInputStream(new MemoryInputStream(codeBytes));
+                    avm2Code = new AVM2Code(ais);
+                } catch (UnknownInstructionCode | IOException ex) {
+                    avm2Code = new AVM2Code();
+                    Logger.getLogger(MethodBody.class.getName()).log(Level.SEVERE, null, ex);
+                }
+                avm2Code.compact();
+            } finally {
+                DecompilationProfiler.endStage();
             }
-            avm2Code.compact();
             code = avm2Code;
         }
         return code;
     }
 
-    public void setCode(AVM2Code code) {
+    public synchronized void setCode(AVM2Code code) {
         this.code = code;
+        modificationCount++;
+    }
+
+    public int getModificationCount() {
+        return modificationCount;
     }
 
     public List<Integer> getExceptionEntries() {
@@ -204,14 +227,40 @@ public final class MethodBody implements Cloneable {
             }
             int timeout = Configuration.decompilationTimeoutSingleMethod.get();
             convertException = null;
+            final MethodProfile methodProfile = DecompilationProfiler.createProfile(path, this.method_info);
+            profile = methodProfile;
             try {
                 Callable<Void> callable = new Callable<Void>() {
                     @Override
                     public Void call() throws InterruptedException {
-                        MethodBody converted = convertMethodBody(path, isStatic, scriptIndex, classIndex, abc, trait, constants, method_info, scopeStack, isStaticInitializer, fullyQualifiedNames, initTraits);
-                        HashMap<Integer, String> localRegNames = getLocalRegNames(abc);
-                        convertedItems = converted.getCode().toGraphTargetItems(path, isStatic, scriptIndex, classIndex, abc, constants, method_info, converted, localRegNames, scopeStack, isStaticInitializer, fullyQualifiedNames, initTraits, Graph.SOP_USE_STATIC, new HashMap<Integer, Integer>(), converted.getCode().visitCode(converted));
-                        Graph.graphToString(convertedItems, writer, LocalData.create(constants, localRegNames, fullyQualifiedNames));
+                        DecompilationProfiler.enter(methodProfile);
+                        try {
+                            MethodBody converted = convertMethodBody(path, isStatic, scriptIndex, classIndex, abc, trait, constants, method_info, scopeStack, isStaticInitializer, fullyQualifiedNames, initTraits);
+                            HashMap<Integer, String> localRegNames = getLocalRegNames(abc);
+                            AVM2Code convertedCode = converted.getCode();
+                            DecompilationProfiler.setInstructionCount(convertedCode.code.size());
+                            HashMap<Integer, List<Integer>> refs;
+                            DecompilationProfiler.startStage(DecompilationProfiler.Stage.VISIT_CODE);
+                            try {
+                                refs = convertedCode.visitCode(converted);
+                            } finally {
+                                DecompilationProfiler.endStage();
+                            }
+                            DecompilationProfiler.startStage(DecompilationProfiler.Stage.STRUCTURING);
+                            try {
+                                convertedItems = convertedCode.toGraphTargetItems(path, isStatic, scriptIndex, classIndex, abc, constants, method_info, converted, localRegNames, scopeStack, isStaticInitializer, fullyQualifiedNames, initTraits, Graph.SOP_USE_STATIC, new HashMap<Integer, Integer>(), refs);
+                            } finally {
+                                DecompilationProfiler.endStage();
+                            }
+                            DecompilationProfiler.startStage(DecompilationProfiler.Stage.TEXT_OUTPUT);
+                            try {
+                                Graph.graphToString(convertedItems, writer, LocalData.create(constants, localRegNames, fullyQualifiedNames));
+                            } finally {
+                                DecompilationProfiler.endStage();
+                            }
+                        } finally {
+                            DecompilationProfiler.exit(methodProfile);
+                        }
                         return null;
                     }
                 };
@@ -228,6 +277,9 @@ public final class MethodBody implements Cloneable {
                 } else {
                     Logger.getLogger(MethodBody.class.getName()).log(Level.SEVERE, "Decompilation error in " + path, ex);
                 }
+                if (methodProfile != null) {
+                    methodProfile.setResult(ex instanceof TimeoutException ? MethodProfile.RESULT_TIMEOUT : MethodProfile.RESULT_ERROR);
+                }
                 convertException = ex;
                 Throwable cause = ex.getCause();
                 if (ex instanceof ExecutionException && cause instanceof Exception) {
@@ -257,7 +309,15 @@ public final class MethodBody implements Cloneable {
                     writer.appendNoHilight(abc.findBodyIndex(this.method_info));
                     writer.newLine();
                 }
-                Graph.graphToString(convertedItems, writer, LocalData.create(constants, localRegNames, fullyQualifiedNames));
+                MethodProfile methodProfile = profile;
+                DecompilationProfiler.enter(methodProfile);
+                DecompilationProfiler.startStage(DecompilationProfiler.Stage.TEXT_OUTPUT);
+                try {
+                    Graph.graphToString(convertedItems, writer, LocalData.create(constants, localRegNames, fullyQualifiedNames));
+                } finally {
+                    DecompilationProfiler.endStage();
+                    DecompilationProfiler.exit(methodProfile);
+                }
                 //writer.endMethod();
             } else if (convertException instanceof TimeoutException) {
                 // exception was logged in convert method
@@ -275,10 +335,13 @@ public final class MethodBody implements Cloneable {
         AVM2Code deobfuscated = b.getCode();
         deobfuscated.markMappedOffsets();
         if (Configuration.autoDeobfuscate.get()) {
+            DecompilationProfiler.startStage(DecompilationProfiler.Stage.DEOBFUSCATION);
             try {
                 deobfuscated.removeTraps(constants, trait, method_info.get(this.method_info), b, abc, scriptIndex, classIndex, isStatic, path);
             } catch (StackOverflowError ex) {
                 Logger.getLogger(MethodBody.class.getName()).log(Level.SEVERE, "Error during remove traps in " + path, ex);
+            } finally {
+                DecompilationProfiler.endStage();
             }
         }
         //deobfuscated.restoreControlFlow(constants, b);
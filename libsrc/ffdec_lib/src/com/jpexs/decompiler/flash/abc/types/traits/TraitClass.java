@@ -64,10 +64,10 @@ public class TraitClass extends Trait implements TraitWithSlot {
 
         int protectedNS = abc.instance_info.get(class_info).protectedNS;
         if (protectedNS != 0) {
-            abc.constants.constant_namespace.get(protectedNS).deleted = d;
+            abc.constants.getNamespace(protectedNS).deleted = d;
         }
 
-        abc.constants.constant_multiname.get(name_index).deleted = d;
+        abc.constants.getMultiname(name_index).deleted = d;
     }
 
     @Override
@@ -34,7 +34,7 @@ public class TraitFunction extends Trait implements TraitWithSlot {
 
     @Override
     public void delete(ABC abc, boolean d) {
-        abc.constants.constant_multiname.get(name_index).deleted = d;
+        abc.constants.getMultiname(name_index).deleted = d;
         abc.method_info.get(method_info).delete(abc, d);
     }
 
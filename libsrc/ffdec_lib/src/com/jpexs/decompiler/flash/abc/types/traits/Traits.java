@@ -17,17 +17,16 @@
 package com.jpexs.decompiler.flash.abc.types.traits;
 
 import com.jpexs.decompiler.flash.abc.ABC;
-import com.jpexs.decompiler.flash.configuration.Configuration;
 import com.jpexs.decompiler.flash.exporters.modes.ScriptExportMode;
 import com.jpexs.decompiler.flash.helpers.GraphTextWriter;
 import com.jpexs.decompiler.flash.helpers.NulWriter;
+import com.jpexs.decompiler.flash.helpers.RecordingTextWriter;
+import com.jpexs.helpers.WorkerPool;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -141,7 +140,56 @@ public class Traits implements Serializable {
         }
     }
 
+    private class TraitToStringTask implements Callable<RecordingTextWriter> {
+
+        Trait trait;
+
+        int traitIndex;
+
+        Trait parent;
+
+        String path;
+
+        ABC abc;
+
+        boolean isStatic;
+
+        ScriptExportMode exportMode;
+
+        boolean makePackages;
+
+        int scriptIndex;
+
+        int classIndex;
+
+        RecordingTextWriter writer;
+
+        List<String> fullyQualifiedNames;
+
+        public TraitToStringTask(Trait trait, int traitIndex, Trait parent, String path, ABC abc, boolean isStatic, ScriptExportMode exportMode, boolean makePackages, int scriptIndex, int classIndex, RecordingTextWriter writer, List<String> fullyQualifiedNames) {
+            this.trait = trait;
+            this.traitIndex = traitIndex;
+            this.parent = parent;
+            this.path = path;
+            this.abc = abc;
+            this.isStatic = isStatic;
+            this.exportMode = exportMode;
+            this.makePackages = makePackages;
+            this.scriptIndex = scriptIndex;
+            this.classIndex = classIndex;
+            this.writer = writer;
+            this.fullyQualifiedNames = fullyQualifiedNames;
+        }
+
+        @Override
+        public RecordingTextWriter call() throws InterruptedException {
+            traitToString(trait, traitIndex, parent, path, abc, isStatic, exportMode, makePackages, scriptIndex, classIndex, writer, fullyQualifiedNames, true);
+            return writer;
+        }
+    }
+
     public GraphTextWriter toString(Class[] traitTypes, Trait parent, String path, ABC abc, boolean isStatic, ScriptExportMode exportMode, boolean makePackages, int scriptIndex, int classIndex, GraphTextWriter writer, List<String> fullyQualifiedNames, boolean parallel) throws InterruptedException {
+        List<Integer> traitIndices = new ArrayList<>();
         for (int t = 0; t < traits.size(); t++) {
             Trait trait = traits.get(t);
             if (traitTypes != null) {
@@ -156,32 +204,74 @@ public class Traits implements Serializable {
                     continue;
                 }
             }
-            writer.newLine();
-            int h = t;
-            if (classIndex != -1) {
-                if (!isStatic) {
-                    h += abc.class_info.get(classIndex).static_traits.traits.size();
-                }
-            }
-            if (trait instanceof TraitClass) {
-                writer.startClass(((TraitClass) trait).class_info);
-            } else {
-                writer.startTrait(h);
-            }
-            if (makePackages) {
-                trait.toStringPackaged(parent, path, abc, isStatic, exportMode, scriptIndex, classIndex, writer, fullyQualifiedNames, parallel);
-            } else {
-                trait.toString(parent, path, abc, isStatic, exportMode, scriptIndex, classIndex, writer, fullyQualifiedNames, parallel);
+            traitIndices.add(t);
+        }
+
+        // NulWriter keeps the loop state of the converted code, so it can not be recorded
+        if (!parallel || traitIndices.size() < 2 || writer instanceof NulWriter) {
+            for (int t : traitIndices) {
+                traitToString(traits.get(t), t, parent, path, abc, isStatic, exportMode, makePackages, scriptIndex, classIndex, writer, fullyQualifiedNames, parallel);
             }
-            if (trait instanceof TraitClass) {
-                writer.endClass();
-            } else {
-                writer.endTrait();
+            return writer;
+        }
+
+        // each trait is rendered to its own recording writer, the recorded
+        // output is then replayed to the writer in the original trait order
+        List<Future<RecordingTextWriter>> futureResults = new ArrayList<>();
+        for (int t : traitIndices) {
+            TraitToStringTask task = new TraitToStringTask(traits.get(t), t, parent, path, abc, isStatic, exportMode, makePackages, scriptIndex, classIndex, new RecordingTextWriter(writer), fullyQualifiedNames);
+            futureResults.add(WorkerPool.submit(task));
+        }
+
+        for (int f = 0; f < futureResults.size(); f++) {
+            try {
+                WorkerPool.get(futureResults.get(f)).replay(writer);
+            } catch (InterruptedException ex) {
+                WorkerPool.cancelAll(futureResults);
+                throw ex;
+            } catch (ExecutionException ex) {
+                WorkerPool.cancelAll(futureResults);
+                Throwable cause = ex.getCause();
+                if (cause instanceof InterruptedException) {
+                    throw (InterruptedException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(cause);
             }
         }
         return writer;
     }
 
+    private void traitToString(Trait trait, int t, Trait parent, String path, ABC abc, boolean isStatic, ScriptExportMode exportMode, boolean makePackages, int scriptIndex, int classIndex, GraphTextWriter writer, List<String> fullyQualifiedNames, boolean parallel) throws InterruptedException {
+        writer.newLine();
+        int h = t;
+        if (classIndex != -1) {
+            if (!isStatic) {
+                h += abc.class_info.get(classIndex).static_traits.traits.size();
+            }
+        }
+        if (trait instanceof TraitClass) {
+            writer.startClass(((TraitClass) trait).class_info);
+        } else {
+            writer.startTrait(h);
+        }
+        if (makePackages) {
+            trait.toStringPackaged(parent, path, abc, isStatic, exportMode, scriptIndex, classIndex, writer, fullyQualifiedNames, parallel);
+        } else {
+            trait.toString(parent, path, abc, isStatic, exportMode, scriptIndex, classIndex, writer, fullyQualifiedNames, parallel);
+        }
+        if (trait instanceof TraitClass) {
+            writer.endClass();
+        } else {
+            writer.endTrait();
+        }
+    }
+
     public void convert(Trait parent, String path, ABC abc, boolean isStatic, ScriptExportMode exportMode, boolean makePackages, int scriptIndex, int classIndex, NulWriter writer, List<String> fullyQualifiedNames, boolean parallel) throws InterruptedException {
         if (!parallel || traits.size() < 2) {
             for (int t = 0; t < traits.size(); t++) {
@@ -189,28 +279,26 @@ public class Traits implements Serializable {
                 task.call();
             }
         } else {
-            ExecutorService executor = Executors.newFixedThreadPool(Configuration.getParallelThreadCount());
             List<Future<Void>> futureResults = null;
 
             futureResults = new ArrayList<>();
             for (int t = 0; t < traits.size(); t++) {
                 // each convert task needs a separate NulWriter, because they are executed parallel
                 TraitConvertTask task = new TraitConvertTask(traits.get(t), parent, makePackages, path, abc, isStatic, exportMode, scriptIndex, classIndex, new NulWriter(), fullyQualifiedNames, t, parallel);
-                Future<Void> future = executor.submit(task);
+                Future<Void> future = WorkerPool.submit(task);
                 futureResults.add(future);
             }
 
             for (int f = 0; f < futureResults.size(); f++) {
                 try {
-                    futureResults.get(f).get();
+                    WorkerPool.get(futureResults.get(f));
                 } catch (InterruptedException ex) {
-                    executor.shutdownNow();
+                    WorkerPool.cancelAll(futureResults);
                     throw ex;
                 } catch (ExecutionException ex) {
                     Logger.getLogger(Traits.class.getName()).log(Level.SEVERE, "Error during traits converting", ex);
                 }
             }
-            executor.shutdown();
         }
     }
 }
@@ -17,6 +17,7 @@
 package com.jpexs.decompiler.flash.action;
 
 import com.jpexs.decompiler.flash.helpers.hilight.Highlighting;
+import com.jpexs.helpers.Weighted;
 import java.io.Serializable;
 import java.util.List;
 
@@ -24,7 +25,7 @@ import java.util.List;
  *
  * @author JPEXS
  */
-public class CachedScript implements Serializable {
+public class CachedScript implements Serializable, Weighted {
 
     public String text;
 
@@ -34,4 +35,9 @@ public class CachedScript implements Serializable {
         this.text = text;
         this.hilights = hilights;
     }
+
+    @Override
+    public long getWeight() {
+        return text == null ? 1 : 2L * text.length();
+    }
 }
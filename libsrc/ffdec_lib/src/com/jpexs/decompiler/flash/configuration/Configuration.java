@@ -72,6 +72,10 @@ public class Configuration {
     @ConfigurationCategory("decompilation")
     public static final ConfigurationItem<Integer> parallelThreadCount = null;
 
+    @ConfigurationDefaultBoolean(false)
+    @ConfigurationCategory("decompilation")
+    public static final ConfigurationItem<Boolean> memoryMappedLoading = null;
+
     @ConfigurationDefaultBoolean(false)
     @ConfigurationCategory("script")
     public static final ConfigurationItem<Boolean> autoDeobfuscate = null;
@@ -84,6 +88,10 @@ public class Configuration {
     @ConfigurationCategory("decompilation")
     public static final ConfigurationItem<Boolean> cacheOnDisk = null;
 
+    @ConfigurationDefaultBoolean(true)
+    @ConfigurationCategory("decompilation")
+    public static final ConfigurationItem<Boolean> graphAnalysisCache = null;
+
     @ConfigurationDefaultBoolean(false)
     @ConfigurationCategory("display")
     public static final ConfigurationItem<Boolean> internalFlashViewer = null;
@@ -288,6 +296,61 @@ public class Configuration {
     @ConfigurationCategory("limit")
     public static final ConfigurationItem<Integer> syntaxHighlightLimit = null;
 
+    /**
+     * Maximal size of the rendered frame cache of one SWF in MiB, 0 =
+     * unlimited
+     */
+    @ConfigurationDefaultInt(512)
+    @ConfigurationCategory("limit")
+    public static final ConfigurationItem<Integer> frameCacheMaxSize = null;
+
+    /**
+     * Maximal size of the decompiled script cache of one SWF in MiB, 0 =
+     * unlimited and released by the garbage collector
+     */
+    @ConfigurationDefaultInt(0)
+    @ConfigurationCategory("limit")
+    public static final ConfigurationItem<Integer> scriptCacheMaxSize = null;
+
+    /**
+     * Maximal size of the shape outline caches in MiB, 0 = unlimited
+     */
+    @ConfigurationDefaultInt(64)
+    @ConfigurationCategory("limit")
+    public static final ConfigurationItem<Integer> shapeCacheMaxSize = null;
+
+    /**
+     * Store the decompiled scripts to the disk and reuse them when the same
+     * class is opened again
+     */
+    @ConfigurationDefaultBoolean(false)
+    @ConfigurationCategory("script")
+    public static final ConfigurationItem<Boolean> persistentScriptCache = null;
+
+    /**
+     * Maximal size of the persistent script cache directory in MiB, 0 =
+     * unlimited
+     */
+    @ConfigurationDefaultInt(256)
+    @ConfigurationCategory("limit")
+    public static final ConfigurationItem<Integer> persistentScriptCacheMaxSize = null;
+
+    /**
+     * Decompile the ActionScript 3 classes in the background after opening a
+     * SWF file, so the search does not need to wait for the decompilation
+     */
+    @ConfigurationDefaultBoolean(false)
+    @ConfigurationCategory("script")
+    public static final ConfigurationItem<Boolean> backgroundScriptIndexing = null;
+
+    /**
+     * Maximal size of the frames rendered ahead of the writer during the
+     * parallel frame export in MiB
+     */
+    @ConfigurationDefaultInt(256)
+    @ConfigurationCategory("limit")
+    public static final ConfigurationItem<Integer> frameExportBufferSize = null;
+
     public static final ConfigurationItem<Integer> guiFontPreviewSampleText = null;
 
     @ConfigurationName("gui.fontPreviewWindow.width")
@@ -388,6 +451,10 @@ public class Configuration {
     @ConfigurationCategory("export")
     public static final ConfigurationItem<Boolean> textExportExportFontFace = null;
 
+    @ConfigurationDefaultBoolean(false)
+    @ConfigurationCategory("export")
+    public static final ConfigurationItem<Boolean> svgExportExternalImages = null;
+
     @ConfigurationDefaultInt(128)
     public static final ConfigurationItem<Integer> lzmaFastBytes = null;
 
@@ -72,6 +72,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.imageio.stream.FileImageOutputStream;
@@ -165,12 +166,15 @@ public class FrameExporter {
                         rect.yMax *= settings.zoom;
                         rect.xMin *= settings.zoom;
                         rect.yMin *= settings.zoom;
-                        SVGExporter exporter = new SVGExporter(rect);
+                        SVGExporter exporter = new SVGExporter(rect, fos);
+                        if (Configuration.svgExportExternalImages.get()) {
+                            exporter.setImageDirectory(f.getParentFile());
+                        }
                         if (fbackgroundColor != null) {
                             exporter.setBackGroundColor(fbackgroundColor);
                         }
                         SWF.frameToSvg(tim, frame, 0, null, 0, exporter, new ColorTransform(), 0, settings.zoom);
-                        fos.write(Utf8Helper.getBytes(exporter.getSVG()));
+                        exporter.finish();
                     }
                     ret.add(f);
                 }, handler).run();
@@ -298,6 +302,8 @@ public class FrameExporter {
 
         final Timeline ftim = tim;
         final Color fbackgroundColor = backgroundColor;
+        final FrameRenderPipeline pipeline = Configuration.parallelSpeedUp.get() && fframes.size() > 1
+                ? new FrameRenderPipeline(ftim, fframes, fbackgroundColor, settings.zoom) : null;
         final Iterator<BufferedImage> frameImages = new Iterator<BufferedImage>() {
 
             private int pos = 0;
@@ -322,7 +328,20 @@ public class FrameExporter {
                     evl.handleExportingEvent("frame", pos + 1, fframes.size(), tim.parentTag == null ? "" : tim.parentTag.getName());
                 }
 
-                BufferedImage result = SWF.frameToImageGet(ftim, fframes.get(pos++), 0, null, 0, ftim.displayRect, new Matrix(), new ColorTransform(), fbackgroundColor, false, settings.zoom).getBufferedImage();
+                BufferedImage result;
+                if (pipeline != null) {
+                    pos++;
+                    try {
+                        result = pipeline.next();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(ex);
+                    } catch (ExecutionException ex) {
+                        throw FrameRenderPipeline.unwrap(ex);
+                    }
+                } else {
+                    result = SWF.frameToImageGet(ftim, fframes.get(pos++), 0, null, 0, ftim.displayRect, new Matrix(), new ColorTransform(), fbackgroundColor, false, settings.zoom).getBufferedImage();
+                }
 
                 if (evl != null) {
                     evl.handleExportedEvent("frame", pos, fframes.size(), tim.parentTag == null ? "" : tim.parentTag.getName());
@@ -332,6 +351,18 @@ public class FrameExporter {
             }
         };
 
+        try {
+            writeFrames(handler, foutdir, swf, fframes, frameImages, settings, evl, ret);
+        } finally {
+            if (pipeline != null) {
+                pipeline.cancel();
+            }
+        }
+
+        return ret;
+    }
+
+    private void writeFrames(AbortRetryIgnoreHandler handler, final File foutdir, final SWF swf, final List<Integer> fframes, final Iterator<BufferedImage> frameImages, final FramesExportSettings settings, final EventListener evl, final List<File> ret) throws IOException {
         switch (settings.mode) {
             case GIF:
                 new RetryTask(() -> {
@@ -392,8 +423,6 @@ public class FrameExporter {
                 }, handler).run();
                 break;
         }
-
-        return ret;
     }
 
     private static String jsArrColor(RGB rgb) {
@@ -0,0 +1,185 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.exporters;
+
+import com.jpexs.decompiler.flash.SWF;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.exporters.commonshape.Matrix;
+import com.jpexs.decompiler.flash.tags.base.CharacterTag;
+import com.jpexs.decompiler.flash.tags.base.ImageTag;
+import com.jpexs.decompiler.flash.tags.base.ShapeTag;
+import com.jpexs.decompiler.flash.timeline.Timeline;
+import com.jpexs.decompiler.flash.timeline.Timelined;
+import com.jpexs.decompiler.flash.types.ColorTransform;
+import com.jpexs.helpers.WorkerPool;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Renders the frames of a timeline in parallel and returns them in the
+ * original order.
+ *
+ * The frames are rasterized by the worker pool at most a window ahead of the
+ * consumer, which encodes them in order. The window is limited by
+ * Configuration.frameExportBufferSize, so the number of the rendered images
+ * held in memory is bounded. The timelines and the characters are prepared
+ * in the constructor, so the frames can be rendered independently.
+ *
+ * @author JPEXS
+ */
+public class FrameRenderPipeline {
+
+    private final Timeline timeline;
+
+    private final List<Integer> frames;
+
+    private final Color backgroundColor;
+
+    private final double zoom;
+
+    private final int windowSize;
+
+    private final Deque<Future<BufferedImage>> pending = new ArrayDeque<>();
+
+    private int submitted;
+
+    private int taken;
+
+    public FrameRenderPipeline(Timeline timeline, List<Integer> frames, Color backgroundColor, double zoom) {
+        this.timeline = timeline;
+        this.frames = frames;
+        this.backgroundColor = backgroundColor;
+        this.zoom = zoom;
+        prepareTimeline(timeline, frames);
+
+        long frameBytes = 4L * ((long) (timeline.displayRect.getWidth() * zoom / SWF.unitDivisor) + 1)
+                * ((long) (timeline.displayRect.getHeight() * zoom / SWF.unitDivisor) + 1);
+        long bufferBytes = Configuration.frameExportBufferSize.get() * 1024L * 1024L;
+        long maxFrames = bufferBytes / Math.max(frameBytes, 1);
+        int threads = WorkerPool.getPool().getParallelism();
+        // one frame is always allowed, even when it is bigger than the buffer
+        windowSize = (int) Math.max(1, Math.min(maxFrames, 2L * threads));
+    }
+
+    /**
+     * Initializes the timeline, the nested timelines and the characters
+     * displayed in the frames. These are lazily computed and not thread safe,
+     * after this call the rendering of a frame only reads them.
+     *
+     * @param timeline Timeline
+     * @param frames Frames to render
+     */
+    public static void prepareTimeline(Timeline timeline, List<Integer> frames) {
+        Set<Integer> characters = new HashSet<>();
+        for (int frame : frames) {
+            timeline.getNeededCharacters(frame, characters);
+        }
+
+        for (int characterId : characters) {
+            CharacterTag character = timeline.swf.getCharacter(characterId);
+            if (character instanceof Timelined) {
+                ((Timelined) character).getTimeline().getFrameCount();
+            } else if (character instanceof ShapeTag) {
+                ((ShapeTag) character).load();
+            } else if (character instanceof ImageTag) {
+                ((ImageTag) character).getImage();
+            }
+        }
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public boolean hasNext() {
+        return taken < frames.size();
+    }
+
+    /**
+     * Gets the next frame in the order of the frame list
+     *
+     * @return Rendered frame
+     * @throws InterruptedException
+     * @throws ExecutionException When the rendering failed
+     */
+    public BufferedImage next() throws InterruptedException, ExecutionException {
+        fill();
+        Future<BufferedImage> future = pending.poll();
+        taken++;
+        try {
+            return WorkerPool.get(future);
+        } catch (InterruptedException ex) {
+            cancel();
+            throw ex;
+        } finally {
+            fill();
+        }
+    }
+
+    private void fill() {
+        while (submitted < frames.size() && pending.size() < windowSize) {
+            final int frame = frames.get(submitted++);
+            pending.add(WorkerPool.submit(new Callable<BufferedImage>() {
+                @Override
+                public BufferedImage call() {
+                    return SWF.frameToImageGet(timeline, frame, 0, null, 0, timeline.displayRect, new Matrix(), new ColorTransform(), backgroundColor, false, zoom).getBufferedImage();
+                }
+            }));
+        }
+    }
+
+    /**
+     * Cancels the frames rendered ahead. Must be called when the consumer
+     * stops before the last frame.
+     */
+    public void cancel() {
+        for (Future<BufferedImage> future : pending) {
+            future.cancel(true);
+        }
+
+        pending.clear();
+        submitted = frames.size();
+        taken = frames.size();
+    }
+
+    /**
+     * Unwraps the failure of the rendering task
+     *
+     * @param ex Exception thrown by next
+     * @return Exception to rethrow
+     */
+    public static RuntimeException unwrap(ExecutionException ex) {
+        Throwable cause = ex.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+
+        return new RuntimeException(cause);
+    }
+}
@@ -20,6 +20,7 @@ import com.jpexs.decompiler.flash.AbortRetryIgnoreHandler;
 import com.jpexs.decompiler.flash.EventListener;
 import com.jpexs.decompiler.flash.RetryTask;
 import com.jpexs.decompiler.flash.SWF;
+import com.jpexs.decompiler.flash.configuration.Configuration;
 import com.jpexs.decompiler.flash.exporters.commonshape.ExportRectangle;
 import com.jpexs.decompiler.flash.exporters.commonshape.SVGExporter;
 import com.jpexs.decompiler.flash.exporters.modes.MorphShapeExportMode;
@@ -95,9 +96,12 @@ public class MorphShapeExporter {
                                 rect.yMax *= settings.zoom;
                                 rect.xMin *= settings.zoom;
                                 rect.yMin *= settings.zoom;
-                                SVGExporter exporter = new SVGExporter(rect);
+                                SVGExporter exporter = new SVGExporter(rect, fos);
+                                if (Configuration.svgExportExternalImages.get()) {
+                                    exporter.setImageDirectory(file.getParentFile());
+                                }
                                 mst.toSVG(exporter, -2, new CXFORMWITHALPHA(), 0, settings.zoom);
-                                fos.write(Utf8Helper.getBytes(exporter.getSVG()));
+                                exporter.finish();
                             }
                             break;
                         case CANVAS:
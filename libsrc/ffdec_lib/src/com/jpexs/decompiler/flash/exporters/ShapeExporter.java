@@ -20,6 +20,7 @@ import com.jpexs.decompiler.flash.AbortRetryIgnoreHandler;
 import com.jpexs.decompiler.flash.EventListener;
 import com.jpexs.decompiler.flash.RetryTask;
 import com.jpexs.decompiler.flash.SWF;
+import com.jpexs.decompiler.flash.configuration.Configuration;
 import com.jpexs.decompiler.flash.exporters.commonshape.ExportRectangle;
 import com.jpexs.decompiler.flash.exporters.commonshape.Matrix;
 import com.jpexs.decompiler.flash.exporters.commonshape.SVGExporter;
@@ -109,9 +110,12 @@ public class ShapeExporter {
                                 rect.yMax *= settings.zoom;
                                 rect.xMin *= settings.zoom;
                                 rect.yMin *= settings.zoom;
-                                SVGExporter exporter = new SVGExporter(rect);
+                                SVGExporter exporter = new SVGExporter(rect, fos);
+                                if (Configuration.svgExportExternalImages.get()) {
+                                    exporter.setImageDirectory(file.getParentFile());
+                                }
                                 st.toSVG(exporter, -2, new CXFORMWITHALPHA(), 0, settings.zoom);
-                                fos.write(Utf8Helper.getBytes(exporter.getSVG()));
+                                exporter.finish();
                             }
                             break;
                         case PNG:
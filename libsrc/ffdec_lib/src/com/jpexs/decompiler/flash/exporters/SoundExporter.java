@@ -21,6 +21,7 @@ import com.jpexs.decompiler.flash.EventListener;
 import com.jpexs.decompiler.flash.RetryTask;
 import com.jpexs.decompiler.flash.SWF;
 import com.jpexs.decompiler.flash.SWFInputStream;
+import com.jpexs.decompiler.flash.configuration.Configuration;
 import com.jpexs.decompiler.flash.exporters.modes.SoundExportMode;
 import com.jpexs.decompiler.flash.exporters.settings.SoundExportSettings;
 import com.jpexs.decompiler.flash.flv.AUDIODATA;
@@ -34,15 +35,22 @@ import com.jpexs.decompiler.flash.tags.base.SoundTag;
 import com.jpexs.decompiler.flash.types.sound.SoundFormat;
 import com.jpexs.helpers.Helper;
 import com.jpexs.helpers.Path;
+import com.jpexs.helpers.WorkerPool;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  *
@@ -59,63 +67,152 @@ public class SoundExporter {
         File foutdir = new File(outdir);
         Path.createDirectorySafe(foutdir);
 
-        int count = 0;
+        List<SoundTag> soundTags = new ArrayList<>();
         for (Tag t : tags) {
             if (t instanceof SoundTag) {
-                count++;
+                soundTags.add((SoundTag) t);
             }
         }
 
+        int count = soundTags.size();
         if (count == 0) {
             return ret;
         }
 
-        int currentIndex = 1;
-        for (Tag t : tags) {
-            if (t instanceof SoundTag) {
+        List<File> files = new ArrayList<>();
+        for (SoundTag st : soundTags) {
+            String ext = "wav";
+            SoundFormat fmt = st.getSoundFormat();
+            switch (fmt.getNativeExportFormat()) {
+                case SoundFormat.EXPORT_MP3:
+                    if (settings.mode.hasMP3()) {
+                        ext = "mp3";
+                    }
+                    break;
+                case SoundFormat.EXPORT_FLV:
+                    if (settings.mode.hasFlv()) {
+                        ext = "flv";
+                    }
+                    break;
+            }
+            if (settings.mode == SoundExportMode.FLV) {
+                ext = "flv";
+            }
+
+            files.add(new File(outdir + File.separator + Helper.makeFileName(st.getCharacterExportFileName()) + "." + ext));
+        }
+
+        // the sounds are decoded in parallel, at most window sounds ahead of the
+        // reported one, the errors are handled in the tag order. Sounds with
+        // the same file name are exported sequentially, the last one wins.
+        boolean parallel = Configuration.parallelSpeedUp.get() && count > 1 && new HashSet<>(files).size() == count;
+        int window = parallel ? Math.max(2, Runtime.getRuntime().availableProcessors() * 2) : 0;
+        Deque<Future<Void>> futureResults = new ArrayDeque<>();
+        int next = 0;
+        try {
+            for (int i = 0; i < count; i++) {
+                final SoundTag st = soundTags.get(i);
+                final File file = files.get(i);
                 if (evl != null) {
-                    evl.handleExportingEvent("sound", currentIndex, count, t.getName());
+                    evl.handleExportingEvent("sound", i + 1, count, ((Tag) st).getName());
                 }
 
-                final SoundTag st = (SoundTag) t;
-
-                String ext = "wav";
-                SoundFormat fmt = st.getSoundFormat();
-                switch (fmt.getNativeExportFormat()) {
-                    case SoundFormat.EXPORT_MP3:
-                        if (settings.mode.hasMP3()) {
-                            ext = "mp3";
-                        }
-                        break;
-                    case SoundFormat.EXPORT_FLV:
-                        if (settings.mode.hasFlv()) {
-                            ext = "flv";
-                        }
-                        break;
-                }
-                if (settings.mode == SoundExportMode.FLV) {
-                    ext = "flv";
+                while (next < count && futureResults.size() < window) {
+                    final SoundTag nextTag = soundTags.get(next);
+                    final File nextFile = files.get(next);
+                    futureResults.add(WorkerPool.submit(() -> {
+                        exportSound(nextFile, nextTag, settings.mode);
+                        return null;
+                    }));
+                    next++;
                 }
 
-                final File file = new File(outdir + File.separator + Helper.makeFileName(st.getCharacterExportFileName()) + "." + ext);
+                final Future<Void> future = futureResults.poll();
+                final boolean[] firstRun = new boolean[]{true};
                 new RetryTask(() -> {
-                    try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
-                        exportSound(os, st, settings.mode);
+                    if (future != null && firstRun[0]) {
+                        firstRun[0] = false;
+                        waitFor(future);
+                    } else {
+                        exportSound(file, st, settings.mode);
                     }
                 }, handler).run();
 
                 ret.add(file);
 
                 if (evl != null) {
-                    evl.handleExportedEvent("sound", currentIndex, count, t.getName());
+                    evl.handleExportedEvent("sound", i + 1, count, ((Tag) st).getName());
                 }
-
-                currentIndex++;
             }
+        } finally {
+            WorkerPool.cancelAll(new ArrayList<>(futureResults));
         }
+
         return ret;
     }
 
+    private static void waitFor(Future<Void> future) throws IOException {
+        try {
+            WorkerPool.get(future);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Exports the sound to the file. The WAV files are written directly
+     * without collecting the decoded data in memory. The data are written to a
+     * temporary file which is renamed when the export is complete, so a failed
+     * or aborted export does not leave a partial file.
+     *
+     * @param file Output file
+     * @param st Sound tag
+     * @param mode Export mode
+     * @throws IOException On write error
+     */
+    public void exportSound(File file, SoundTag st, SoundExportMode mode) throws IOException {
+        File tempFile = new File(file.getParentFile(), file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+        boolean done = false;
+        try {
+            if (isWav(st, mode)) {
+                st.getSoundFormat().createWav(getSoundInputStreams(st), tempFile);
+            } else {
+                try (OutputStream os = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+                    exportSound(os, st, mode);
+                }
+            }
+
+            if (Thread.currentThread().isInterrupted()) {
+                // the parallel export was aborted
+                throw new InterruptedIOException();
+            }
+
+            file.delete();
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Cannot access " + file);
+            }
+
+            done = true;
+        } finally {
+            if (!done) {
+                tempFile.delete();
+            }
+        }
+    }
+
     public byte[] exportSound(SoundTag t, SoundExportMode mode) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         exportSound(baos, t, mode);
@@ -155,13 +252,25 @@ public class SoundExporter {
                 }
             }
         } else {
-            List<byte[]> soundData = st.getRawSoundData();
-            SWF swf = ((Tag) st).getSwf();
-            List<SWFInputStream> siss = new ArrayList<>();
-            for (byte[] data : soundData) {
-                siss.add(new SWFInputStream(swf, data));
-            }
-            fmt.createWav(siss, fos);
+            fmt.createWav(getSoundInputStreams(st), fos);
+        }
+    }
+
+    private static boolean isWav(SoundTag st, SoundExportMode mode) {
+        int nativeFormat = st.getSoundFormat().getNativeExportFormat();
+        if (nativeFormat == SoundFormat.EXPORT_MP3 && mode.hasMP3()) {
+            return false;
+        }
+        return !((nativeFormat == SoundFormat.EXPORT_FLV && mode.hasFlv()) || mode == SoundExportMode.FLV);
+    }
+
+    private static List<SWFInputStream> getSoundInputStreams(SoundTag st) throws IOException {
+        List<byte[]> soundData = st.getRawSoundData();
+        SWF swf = ((Tag) st).getSwf();
+        List<SWFInputStream> siss = new ArrayList<>();
+        for (byte[] data : soundData) {
+            siss.add(new SWFInputStream(swf, data));
         }
+        return siss;
     }
 }
@@ -81,9 +81,9 @@ public class TextExporter {
                     new RetryTask(() -> {
                         try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(file))) {
                             ExportRectangle rect = new ExportRectangle(textTag.getRect());
-                            SVGExporter exporter = new SVGExporter(rect);
+                            SVGExporter exporter = new SVGExporter(rect, fos);
                             textTag.toSVG(exporter, -2, new CXFORMWITHALPHA(), 0, settings.zoom);
-                            fos.write(Utf8Helper.getBytes(exporter.getSVG()));
+                            exporter.finish();
                         }
                     }, handler).run();
                     ret.add(file);
@@ -23,34 +23,42 @@ import com.jpexs.decompiler.flash.tags.Tag;
 import com.jpexs.decompiler.flash.types.RECT;
 import com.jpexs.decompiler.flash.types.RGBA;
 import com.jpexs.helpers.Helper;
+import com.jpexs.helpers.SimpleXMLStreamWriter;
+import com.jpexs.helpers.utf8.Utf8Helper;
+import com.jpexs.helpers.utf8.Utf8OutputStreamWriter;
 import java.awt.Color;
-import java.io.StringWriter;
-import java.util.ArrayList;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import org.w3c.dom.Attr;
-import org.w3c.dom.CDATASection;
-import org.w3c.dom.DOMImplementation;
 import org.w3c.dom.Document;
-import org.w3c.dom.DocumentType;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 
 /**
+ * Writes SVG document directly to the output stream. The elements created by
+ * createElement are written as soon as they are added (the last added element
+ * can still be modified until the next call of the exporter), the groups are
+ * written when they get the first child, so the empty groups are omitted.
+ *
+ * The groups created in the defs are collected until they are ended, then the
+ * same groups and elements added by addDef are written only once. The defs are
+ * written to the output as soon as they are complete, so they can appear
+ * inside the main group.
  *
  * @author JPEXS
  */
@@ -60,17 +68,36 @@ public class SVGExporter {
 
     protected static final String xlinkNamespace = "http://www.w3.org/1999/xlink";
 
+    private static final String INDENT = "  ";
+
+    /**
+     * Creates the elements, they are not added to this document
+     */
     protected Document _svg;
 
-    protected Element _svgDefs;
+    private final Element svgRoot;
+
+    private final Writer writer;
+
+    private final ByteArrayOutputStream buffer;
+
+    private final Stack<Group> groups = new Stack<>();
+
+    private Node pendingNode;
+
+    private boolean rootWritten;
 
-    protected CDATASection _svgStyle;
+    private boolean inDefs;
 
-    protected Stack<Element> _svgGs = new Stack<>();
+    private boolean finished;
 
-    public List<Element> gradients;
+    private IOException writeException;
 
-    protected int lastPatternId;
+    private final Map<String, String> defIds = new HashMap<>();
+
+    private final Map<String, String> idAliases = new HashMap<>();
+
+    private File imageDirectory;
 
     public Map<Tag, String> exportedTags = new HashMap<>();
 
@@ -84,47 +111,59 @@ public class SVGExporter {
 
     public boolean useTextTag = Configuration.textExportExportFontFace.get();
 
+    /**
+     * Creates exporter which collects the SVG for getSVG
+     *
+     * @param bounds Bounds of the image
+     */
     public SVGExporter(ExportRectangle bounds) {
+        this(bounds, null);
+    }
 
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
+    /**
+     * Creates exporter which writes the SVG to the stream. The document is
+     * complete after calling finish.
+     *
+     * @param bounds Bounds of the image
+     * @param os Output stream, it is not closed by the exporter
+     */
+    public SVGExporter(ExportRectangle bounds, OutputStream os) {
+        if (os == null) {
+            buffer = new ByteArrayOutputStream();
+            os = buffer;
+        } else {
+            buffer = null;
+        }
+
+        writer = new Utf8OutputStreamWriter(os);
         try {
-            DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-            DOMImplementation impl = docBuilder.getDOMImplementation();
-            DocumentType svgDocType = impl.createDocumentType("svg", "-//W3C//DTD SVG 1.0//EN",
-                    "http://www.w3.org/TR/2001/REC-SVG-20010904/DTD/svg10.dtd");
-            _svg = impl.createDocument(sNamespace, "svg", svgDocType);
-            Element svgRoot = _svg.getDocumentElement();
-            svgRoot.setAttribute("xmlns:xlink", xlinkNamespace);
-            if (bounds != null) {
-                svgRoot.setAttribute("width", (bounds.getWidth() / SWF.unitDivisor) + "px");
-                svgRoot.setAttribute("height", (bounds.getHeight() / SWF.unitDivisor) + "px");
-                createDefGroup(bounds, null);
-            }
+            _svg = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
         } catch (ParserConfigurationException ex) {
             Logger.getLogger(SVGExporter.class.getName()).log(Level.SEVERE, null, ex);
         }
-        gradients = new ArrayList<>();
-    }
 
-    private Element getDefs() {
-        if (_svgDefs == null) {
-            _svgDefs = _svg.createElement("defs");
-            _svg.getDocumentElement().appendChild(_svgDefs);
+        svgRoot = _svg.createElement("svg");
+        svgRoot.setAttribute("xmlns", sNamespace);
+        svgRoot.setAttribute("xmlns:xlink", xlinkNamespace);
+        if (bounds != null) {
+            svgRoot.setAttribute("width", (bounds.getWidth() / SWF.unitDivisor) + "px");
+            svgRoot.setAttribute("height", (bounds.getHeight() / SWF.unitDivisor) + "px");
+            createDefGroup(bounds, null);
         }
-        return _svgDefs;
     }
 
-    private CDATASection getStyle() {
-        if (_svgStyle == null) {
-            Element style = _svg.createElement("style");
-            _svgStyle = _svg.createCDATASection("");
-            style.appendChild(_svgStyle);
-            getDefs().appendChild(style);
-        }
-        return _svgStyle;
+    /**
+     * Stores the bitmaps to files in the directory instead of embedding them
+     * to the SVG. The SVG file should be written to the same directory.
+     *
+     * @param imageDirectory Directory or null to embed the bitmaps
+     */
+    public void setImageDirectory(File imageDirectory) {
+        this.imageDirectory = imageDirectory;
     }
 
     public final void createDefGroup(ExportRectangle bounds, String id) {
+        flushPendingNode();
         Element g = _svg.createElement("g");
         if (bounds != null) {
             g.setAttribute("transform", "matrix(1, 0, 0, 1, "
@@ -133,18 +172,20 @@ public class SVGExporter {
         if (id != null) {
             g.setAttribute("id", id);
         }
-        if (_svgGs.size() == 0) {
-            _svg.getDocumentElement().appendChild(g);
+        if (groups.isEmpty()) {
+            groups.add(new Group(g, null, null, 1, false));
         } else {
-            getDefs().appendChild(g);
+            groups.add(new Group(g, null, null, 2, true));
         }
-        _svgGs.add(g);
     }
 
     public void endGroup() {
-        Element g = _svgGs.pop();
-        if (g.getChildNodes().getLength() == 0) {
-            g.getParentNode().removeChild(g);
+        flushPendingNode();
+        Group g = groups.pop();
+        if (g.content != null) {
+            writeDefGroup(g);
+        } else if (g.started) {
+            writeContent(g.target, Helper.newLine + getIndent(g.depth) + "</" + g.element.getTagName() + ">");
         }
     }
 
@@ -155,56 +196,118 @@ public class SVGExporter {
     }
 
     public final Element createClipPath(Matrix transform, String id) {
+        Element parent = groups.peek().element;
         Element group = createSubGroup(transform, id, "clipPath");
-        Node parent = group.getParentNode();
-        if (parent instanceof Element) {
-            Element parentElement = (Element) parent;
-            group.setAttribute("transform", parentElement.getAttribute("transform"));
-        }
+        group.setAttribute("transform", parent.getAttribute("transform"));
         return group;
     }
 
     private Element createSubGroup(Matrix transform, String id, String tagName) {
+        flushPendingNode();
         Element group = _svg.createElement(tagName);
         if (id != null) {
             group.setAttribute("id", id);
         }
-        _svgGs.peek().appendChild(group);
-        _svgGs.add(group);
+        Group parent = groups.peek();
+        groups.add(new Group(group, parent, parent.content != null ? parent : parent.target, parent.depth + 1, false));
         return group;
     }
 
     public void addToGroup(Node newChild) {
-        _svgGs.peek().appendChild(newChild);
+        flushPendingNode();
+        pendingNode = newChild;
     }
 
     public void addToDefs(Node newChild) {
-        getDefs().appendChild(newChild);
+        flushPendingNode();
+        StringBuilder sb = new StringBuilder();
+        appendNode(sb, newChild, 2);
+        writeDef(sb.toString());
+    }
+
+    /**
+     * Adds the element to the defs unless the same element was already added.
+     * The element must not have an id, it is assigned here.
+     *
+     * @param element Element
+     * @param idPrefix Prefix of the id
+     * @return Id of the element in the document
+     */
+    public String addDef(Element element, String idPrefix) {
+        flushPendingNode();
+        StringBuilder sb = new StringBuilder();
+        appendNode(sb, element, 2);
+        String key = getContentHash(sb.toString());
+        String id = defIds.get(key);
+        if (id != null) {
+            return id;
+        }
+
+        id = getUniqueId(idPrefix);
+        element.setAttribute("id", id);
+        defIds.put(key, id);
+        sb.setLength(0);
+        appendNode(sb, element, 2);
+        writeDef(sb.toString());
+        return id;
     }
 
     public Element createElement(String tagName) {
         return _svg.createElement(tagName);
     }
 
+    /**
+     * Finishes the document and returns it. Only for the exporters created
+     * without output stream.
+     *
+     * @return SVG document
+     */
     public String getSVG() {
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
-        StringWriter writer = new StringWriter();
+        if (buffer == null) {
+            throw new IllegalStateException("The SVG was written to the output stream.");
+        }
+
         try {
-            Transformer transformer = transformerFactory.newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-            DOMSource source = new DOMSource(_svg);
-            StreamResult result = new StreamResult(writer);
-            transformer.transform(source, result);
-        } catch (TransformerException ex) {
+            finish();
+        } catch (IOException ex) {
             Logger.getLogger(SVGExporter.class.getName()).log(Level.SEVERE, null, ex);
         }
-        return writer.toString();
+
+        return new String(buffer.toByteArray(), Utf8Helper.charset);
+    }
+
+    /**
+     * Ends all the open groups and the document, and flushes the output
+     *
+     * @throws IOException On write error
+     */
+    public void finish() throws IOException {
+        if (!finished) {
+            flushPendingNode();
+            while (!groups.isEmpty()) {
+                endGroup();
+            }
+
+            writeRootStart();
+            closeDefs();
+            writeRoot(Helper.newLine + "</svg>" + Helper.newLine);
+            finished = true;
+            if (writeException == null) {
+                try {
+                    writer.flush();
+                } catch (IOException ex) {
+                    writeException = ex;
+                }
+            }
+        }
+
+        if (writeException != null) {
+            throw writeException;
+        }
     }
 
     public void setBackGroundColor(Color backGroundColor) {
-        Attr attr = _svg.createAttribute("style");
-        attr.setValue("background: " + new RGBA(backGroundColor).toHexARGB());
+        svgRoot.setAttribute("style", "background: " + new RGBA(backGroundColor).toHexARGB());
     }
 
     public Element addUse(Matrix transform, RECT boundRect, String href) {
@@ -214,11 +317,12 @@ public class SVGExporter {
             image.setAttribute("width", Double.toString(boundRect.getWidth() / (double) SWF.unitDivisor));
             image.setAttribute("height", Double.toString(boundRect.getHeight() / (double) SWF.unitDivisor));
         }
-        image.setAttribute("xlink:href", "#" + href);
+        String alias = idAliases.get(href);
+        image.setAttribute("xlink:href", "#" + (alias != null ? alias : href));
         if (clip != null) {
             image.setAttribute("clip-path", "url(#" + clip + ")");
         }
-        _svgGs.peek().appendChild(image);
+        addToGroup(image);
         return image;
     }
 
@@ -226,8 +330,7 @@ public class SVGExporter {
         if (!fontFaces.contains(fontFace)) {
             fontFaces.add(fontFace);
             String base64Data = Helper.byteArrayToBase64String(data);
-            String value = getStyle().getTextContent();
-            value += Helper.newLine;
+            String value = Helper.newLine;
             value += "      @font-face {" + Helper.newLine;
             value += "        font-family: \"" + fontFace + "\";" + Helper.newLine;
             switch (mode) {
@@ -239,8 +342,38 @@ public class SVGExporter {
                     break;
             }
             value += "      }" + Helper.newLine;
-            getStyle().setTextContent(value);
+            Element style = _svg.createElement("style");
+            style.appendChild(_svg.createCDATASection(value));
+            addToDefs(style);
+        }
+    }
+
+    /**
+     * Gets the link of the bitmap. The bitmap is embedded as base64 data or
+     * stored to the image directory, each different bitmap only once.
+     *
+     * @param format Image format (file extension)
+     * @param imageData Image file data
+     * @return Value of the href attribute
+     */
+    public String getImageHref(String format, byte[] imageData) {
+        if (imageDirectory == null) {
+            return "data:image/" + format + ";base64," + Helper.byteArrayToBase64String(imageData);
+        }
+
+        String fileName = "image_" + getContentHash(imageData).substring(0, 32) + "." + format;
+        File file = new File(imageDirectory, fileName);
+        if (!file.exists()) {
+            try (OutputStream fos = new FileOutputStream(file)) {
+                fos.write(imageData);
+            } catch (IOException ex) {
+                if (writeException == null) {
+                    writeException = ex;
+                }
+            }
         }
+
+        return fileName;
     }
 
     public String getUniqueId(String prefix) {
@@ -265,4 +398,216 @@ public class SVGExporter {
     protected static double roundPixels20(double pixels) {
         return Math.round(pixels * 100) / 100.0;
     }
+
+    private void flushPendingNode() {
+        if (pendingNode != null) {
+            Node node = pendingNode;
+            pendingNode = null;
+            Group g = groups.peek();
+            startGroup(g);
+            StringBuilder sb = new StringBuilder();
+            appendNode(sb, node, g.depth + 1);
+            writeContent(g.content != null ? g : g.target, sb.toString());
+        }
+    }
+
+    private void startGroup(Group g) {
+        if (g.started) {
+            return;
+        }
+
+        g.started = true;
+        if (g.content != null) {
+            // start tag of the def group is written with its content
+            return;
+        }
+
+        if (g.parent != null) {
+            startGroup(g.parent);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        appendStartTag(sb, g.element, g.depth, false);
+        sb.append('>');
+        writeContent(g.target, sb.toString());
+    }
+
+    private void writeDefGroup(Group g) {
+        if (g.content.length() == 0) {
+            return;
+        }
+
+        String id = g.element.getAttribute("id");
+        g.element.removeAttribute("id");
+        StringBuilder sb = new StringBuilder();
+        appendStartTag(sb, g.element, g.depth, false);
+        String key = getContentHash(sb.append('>').append(g.content).toString());
+        String existingId = defIds.get(key);
+        if (existingId != null) {
+            if (!id.isEmpty()) {
+                idAliases.put(id, existingId);
+            }
+            return;
+        }
+
+        if (!id.isEmpty()) {
+            g.element.setAttribute("id", id);
+            defIds.put(key, id);
+        }
+
+        sb.setLength(0);
+        appendStartTag(sb, g.element, g.depth, false);
+        sb.append('>').append(g.content);
+        sb.append(Helper.newLine).append(getIndent(g.depth)).append("</").append(g.element.getTagName()).append('>');
+        writeDef(sb.toString());
+    }
+
+    private void writeContent(Group target, String str) {
+        if (target != null) {
+            target.content.append(str);
+            return;
+        }
+
+        writeRootStart();
+        closeDefs();
+        writeRoot(str);
+    }
+
+    private void writeDef(String str) {
+        writeRootStart();
+        if (!inDefs) {
+            writeRoot(Helper.newLine + INDENT + "<defs>");
+            inDefs = true;
+        }
+
+        writeRoot(str);
+    }
+
+    private void closeDefs() {
+        if (inDefs) {
+            writeRoot(Helper.newLine + INDENT + "</defs>");
+            inDefs = false;
+        }
+    }
+
+    private void writeRootStart() {
+        if (!rootWritten) {
+            rootWritten = true;
+            StringBuilder sb = new StringBuilder();
+            sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+            appendStartTag(sb, svgRoot, 0, false);
+            sb.append('>');
+            writeRoot(sb.toString());
+        }
+    }
+
+    private void writeRoot(String str) {
+        if (writeException != null) {
+            return;
+        }
+
+        try {
+            writer.write(str);
+        } catch (IOException ex) {
+            writeException = ex;
+        }
+    }
+
+    private static String getIndent(int depth) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            sb.append(INDENT);
+        }
+        return sb.toString();
+    }
+
+    private static void appendStartTag(StringBuilder sb, Element element, int depth, boolean empty) {
+        sb.append(Helper.newLine).append(getIndent(depth)).append('<').append(element.getTagName());
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node attr = attributes.item(i);
+            sb.append(' ').append(attr.getNodeName()).append("=\"");
+            SimpleXMLStreamWriter.appendEscaped(sb, attr.getNodeValue(), true);
+            sb.append('"');
+        }
+        if (empty) {
+            sb.append("/>");
+        }
+    }
+
+    private static void appendNode(StringBuilder sb, Node node, int depth) {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                Element element = (Element) node;
+                NodeList children = element.getChildNodes();
+                if (children.getLength() == 0) {
+                    appendStartTag(sb, element, depth, true);
+                    break;
+                }
+
+                appendStartTag(sb, element, depth, false);
+                sb.append('>');
+                boolean hasElements = false;
+                for (int i = 0; i < children.getLength(); i++) {
+                    Node child = children.item(i);
+                    hasElements |= child.getNodeType() == Node.ELEMENT_NODE;
+                    appendNode(sb, child, depth + 1);
+                }
+                if (hasElements) {
+                    sb.append(Helper.newLine).append(getIndent(depth));
+                }
+                sb.append("</").append(element.getTagName()).append('>');
+                break;
+            case Node.TEXT_NODE:
+                SimpleXMLStreamWriter.appendEscaped(sb, node.getNodeValue(), false);
+                break;
+            case Node.CDATA_SECTION_NODE:
+                sb.append("<![CDATA[").append(node.getNodeValue()).append("]]>");
+                break;
+        }
+    }
+
+    private static String getContentHash(String content) {
+        return getContentHash(Utf8Helper.getBytes(content));
+    }
+
+    private static String getContentHash(byte[] data) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new Error(ex);
+        }
+
+        return Helper.byteArrayToHex(md.digest(data));
+    }
+
+    private static class Group {
+
+        private final Element element;
+
+        private final Group parent;
+
+        /**
+         * Def group which collects the output, null for the output stream
+         */
+        private final Group target;
+
+        private final int depth;
+
+        /**
+         * Collected content of a def group
+         */
+        private final StringBuilder content;
+
+        private boolean started;
+
+        public Group(Element element, Group parent, Group target, int depth, boolean def) {
+            this.element = element;
+            this.parent = parent;
+            this.target = target;
+            this.depth = depth;
+            this.content = def ? new StringBuilder() : null;
+        }
+    }
 }
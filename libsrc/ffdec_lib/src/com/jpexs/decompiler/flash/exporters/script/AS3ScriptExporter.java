@@ -24,13 +24,12 @@ import com.jpexs.decompiler.flash.configuration.Configuration;
 import com.jpexs.decompiler.flash.exporters.settings.ScriptExportSettings;
 import com.jpexs.helpers.CancellableWorker;
 import com.jpexs.helpers.Helper;
+import com.jpexs.helpers.WorkerPool;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -70,26 +69,31 @@ public class AS3ScriptExporter {
                 logger.log(Level.SEVERE, "Error during ABC export", ex);
             }
         } else {
-            ExecutorService executor = Executors.newFixedThreadPool(Configuration.getParallelThreadCount());
             List<Future<File>> futureResults = new ArrayList<>();
             for (ScriptPack item : packs) {
-                Future<File> future = executor.submit(new ExportPackTask(handler, cnt, packs.size(), item.getClassPath(), item, outdir, exportSettings, parallel, evl));
+                Future<File> future = WorkerPool.submit(new ExportPackTask(handler, cnt, packs.size(), item.getClassPath(), item, outdir, exportSettings, parallel, evl));
                 futureResults.add(future);
             }
 
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Configuration.exportTimeout.get());
             try {
-                executor.shutdown();
-                if (!executor.awaitTermination(Configuration.exportTimeout.get(), TimeUnit.SECONDS)) {
-                    logger.log(Level.SEVERE, Helper.formatTimeToText(Configuration.exportTimeout.get()) + " ActionScript export limit reached");
+                for (Future<File> future : futureResults) {
+                    try {
+                        WorkerPool.get(future, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    } catch (ExecutionException ex) {
+                        // logged below
+                    }
                 }
+            } catch (TimeoutException ex) {
+                logger.log(Level.SEVERE, Helper.formatTimeToText(Configuration.exportTimeout.get()) + " ActionScript export limit reached");
             } catch (InterruptedException ex) {
             } finally {
-                executor.shutdownNow();
+                WorkerPool.cancelAll(futureResults);
             }
 
             for (int f = 0; f < futureResults.size(); f++) {
                 try {
-                    if (futureResults.get(f).isDone()) {
+                    if (futureResults.get(f).isDone() && !futureResults.get(f).isCancelled()) {
                         ret.add(futureResults.get(f).get());
                     }
                 } catch (InterruptedException ex) {
@@ -46,8 +46,6 @@ public class SVGShapeExporter extends DefaultSVGShapeExporter {
 
     protected Element path;
 
-    protected int lastPatternId;
-
     private final Color defaultColor;
 
     private final SWF swf;
@@ -87,18 +85,10 @@ public class SVGShapeExporter extends DefaultSVGShapeExporter {
                 ? exporter.createElement("linearGradient")
                 : exporter.createElement("radialGradient");
         populateGradientElement(gradient, type, gradientRecords, matrix, spreadMethod, interpolationMethod, focalPointRatio);
-        int id = exporter.gradients.indexOf(gradient);
-        if (id < 0) {
-            // todo: filter same gradients
-            id = exporter.gradients.size();
-            exporter.gradients.add(gradient);
-        }
-        String gradientId = "gradient" + id;
-        gradient.setAttribute("id", gradientId);
+        String gradientId = exporter.addDef(gradient, "gradient");
         path.setAttribute("stroke", "none");
         path.setAttribute("fill", "url(#" + gradientId + ")");
         path.setAttribute("fill-rule", "evenodd");
-        exporter.addToDefs(gradient);
     }
 
     @Override
@@ -120,9 +110,6 @@ public class SVGShapeExporter extends DefaultSVGShapeExporter {
                 colorTransform.apply(img);
                 int width = img.getWidth();
                 int height = img.getHeight();
-                lastPatternId++;
-                String patternId = "PatternID_";
-                patternId += lastPatternId;
                 String format = image.getImageFormat();
                 InputStream imageStream = image.getImageData();
                 byte[] imageData;
@@ -133,10 +120,7 @@ public class SVGShapeExporter extends DefaultSVGShapeExporter {
                     ImageHelper.write(img.getBufferedImage(), format.toUpperCase(Locale.ENGLISH), baos);
                     imageData = baos.toByteArray();
                 }
-                String base64ImgData = Helper.byteArrayToBase64String(imageData);
-                path.setAttribute("style", "fill:url(#" + patternId + ")");
                 Element pattern = exporter.createElement("pattern");
-                pattern.setAttribute("id", patternId);
                 pattern.setAttribute("patternUnits", "userSpaceOnUse");
                 pattern.setAttribute("overflow", "visible");
                 pattern.setAttribute("width", "" + width);
@@ -148,9 +132,10 @@ public class SVGShapeExporter extends DefaultSVGShapeExporter {
                 Element imageElement = exporter.createElement("image");
                 imageElement.setAttribute("width", "" + width);
                 imageElement.setAttribute("height", "" + height);
-                imageElement.setAttribute("xlink:href", "data:image/" + format + ";base64," + base64ImgData);
+                imageElement.setAttribute("xlink:href", exporter.getImageHref(format, imageData));
                 pattern.appendChild(imageElement);
-                exporter.addToGroup(pattern);
+                String patternId = exporter.addDef(pattern, "PatternID_");
+                path.setAttribute("style", "fill:url(#" + patternId + ")");
             }
         }
     }
@@ -204,16 +189,9 @@ public class SVGShapeExporter extends DefaultSVGShapeExporter {
                 ? exporter.createElement("linearGradient")
                 : exporter.createElement("radialGradient");
         populateGradientElement(gradient, type, gradientRecords, matrix, spreadMethod, interpolationMethod, focalPointRatio);
-        int id = exporter.gradients.indexOf(gradient);
-        if (id < 0) {
-            // todo: filter same gradients
-            id = exporter.gradients.size();
-            exporter.gradients.add(gradient);
-        }
-        gradient.setAttribute("id", "gradient" + id);
-        path.setAttribute("stroke", "url(#gradient" + id + ")");
+        String gradientId = exporter.addDef(gradient, "gradient");
+        path.setAttribute("stroke", "url(#" + gradientId + ")");
         path.setAttribute("fill", "none");
-        exporter.addToDefs(gradient);
     }
 
     @Override
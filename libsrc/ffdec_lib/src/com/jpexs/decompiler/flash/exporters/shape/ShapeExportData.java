@@ -18,13 +18,21 @@ package com.jpexs.decompiler.flash.exporters.shape;
 
 import com.jpexs.decompiler.flash.types.FILLSTYLE;
 import com.jpexs.decompiler.flash.types.LINESTYLE;
+import com.jpexs.helpers.Weighted;
 import java.util.List;
 
 /**
  *
  * @author JPEXS
  */
-public class ShapeExportData {
+public class ShapeExportData implements Weighted {
+
+    /**
+     * Approximate size of one edge with its points
+     */
+    private static final int EDGE_WEIGHT = 96;
+
+    private static final int STYLE_WEIGHT = 64;
 
     public List<FILLSTYLE> fillStyles;
 
@@ -33,4 +41,17 @@ public class ShapeExportData {
     public List<List<IEdge>> fillPaths;
 
     public List<List<IEdge>> linePaths;
+
+    private static long getEdgeCount(List<List<IEdge>> paths) {
+        long count = 0;
+        for (List<IEdge> path : paths) {
+            count += path.size();
+        }
+        return count;
+    }
+
+    @Override
+    public long getWeight() {
+        return (getEdgeCount(fillPaths) + getEdgeCount(linePaths)) * EDGE_WEIGHT + (fillStyles.size() + lineStyles.size()) * STYLE_WEIGHT;
+    }
 }
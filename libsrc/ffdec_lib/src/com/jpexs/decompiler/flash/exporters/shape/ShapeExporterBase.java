@@ -16,6 +16,7 @@
  */
 package com.jpexs.decompiler.flash.exporters.shape;
 
+import com.jpexs.decompiler.flash.configuration.Configuration;
 import com.jpexs.decompiler.flash.exporters.commonshape.Matrix;
 import com.jpexs.decompiler.flash.exporters.commonshape.PointInt;
 import com.jpexs.decompiler.flash.types.ColorTransform;
@@ -58,7 +59,7 @@ public abstract class ShapeExporterBase implements IShapeExporter {
 
     private final ColorTransform colorTransform;
 
-    private static final Cache<SHAPE, ShapeExportData> exportDataCache = Cache.getInstance(true, true, "shapeExportDataCache");
+    private static final Cache<SHAPE, ShapeExportData> exportDataCache = Cache.getInstance(true, true, "shapeExportDataCache", Configuration.shapeCacheMaxSize.get() * 1024L * 1024L);
 
     public ShapeExporterBase(SHAPE shape, ColorTransform colorTransform) {
         this.shape = shape;
@@ -18,189 +18,351 @@ package com.jpexs.decompiler.flash.exporters.swf;
 
 import com.jpexs.decompiler.flash.ApplicationInfo;
 import com.jpexs.decompiler.flash.SWF;
+import com.jpexs.decompiler.flash.abc.avm2.AVM2ConstantPool;
 import com.jpexs.decompiler.flash.helpers.InternalClass;
 import com.jpexs.decompiler.flash.helpers.LazyObject;
-import com.jpexs.decompiler.flash.types.annotations.Internal;
+import com.jpexs.decompiler.flash.tags.Tag;
 import com.jpexs.helpers.ByteArrayRange;
 import com.jpexs.helpers.Helper;
-import com.jpexs.helpers.ReflectionTools;
+import com.jpexs.helpers.IndentingXMLStreamWriter;
+import com.jpexs.helpers.SimpleXMLStreamWriter;
+import com.jpexs.helpers.SwfFieldAccessor;
+import com.jpexs.helpers.utf8.Utf8Helper;
 import com.jpexs.helpers.utf8.Utf8OutputStreamWriter;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.io.Writer;
+import java.io.OutputStream;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 /**
+ * Writes the SWF structure to XML. The XML is streamed to the output, binary
+ * data are base64 encoded, optionally the large binary data are stored in a
+ * separate binary file next to the XML file.
  *
  * @author JPEXS
  */
 public class SwfXmlExporter {
 
-    private final Map<Class, List<Field>> cachedFields = new HashMap<>();
+    /**
+     * Binary data longer than this are stored in the binary file when it is
+     * used
+     */
+    public static final int BINARY_FILE_THRESHOLD = 1024;
+
+    public static final String BINARY_FILE_EXTENSION = ".bin";
+
+    public static final String ATTRIBUTE_TYPE = "type";
+
+    public static final String ATTRIBUTE_IS_NULL = "isNull";
+
+    public static final String ATTRIBUTE_BINARY_ENCODING = "binaryEncoding";
+
+    public static final String ATTRIBUTE_BINARY_FILE = "binaryFile";
+
+    public static final String ATTRIBUTE_BINARY_OFFSET = "binaryOffset";
+
+    public static final String ATTRIBUTE_BINARY_LENGTH = "binaryLength";
+
+    public static final String ATTRIBUTE_STRING_ENCODING = "stringEncoding";
+
+    /**
+     * Tag.forceWriteAsLong is internal, so it is not a field of the export
+     */
+    public static final String ATTRIBUTE_FORCE_WRITE_AS_LONG = "forceWriteAsLong";
+
+    public static final String BINARY_ENCODING_BASE64 = "base64";
+
+    private OutputStream binaryOutput;
+
+    private String binaryFileName;
+
+    private long binaryOffset;
 
     public List<File> exportXml(SWF swf, File outFile) throws IOException {
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-        try {
-            DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-            Document xmlDoc = docBuilder.newDocument();
-            exportXml(swf, xmlDoc, xmlDoc);
-            try (Writer writer = new Utf8OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(outFile)))) {
-                writer.append(getXml(xmlDoc));
+        return exportXml(swf, outFile, false);
+    }
+
+    /**
+     * Exports the SWF to XML file
+     *
+     * @param swf SWF
+     * @param outFile XML file
+     * @param useBinaryFile Store the large binary data to a separate file
+     * named as the XML file with .bin extension
+     * @return Written files
+     * @throws IOException On write error
+     */
+    public List<File> exportXml(SWF swf, File outFile, boolean useBinaryFile) throws IOException {
+        List<File> ret = new ArrayList<>();
+        File binaryFile = new File(outFile.getPath() + BINARY_FILE_EXTENSION);
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(outFile))) {
+            if (useBinaryFile) {
+                binaryOutput = new BufferedOutputStream(new FileOutputStream(binaryFile));
+                binaryFileName = binaryFile.getName();
+                binaryOffset = 0;
+            }
+
+            XMLStreamWriter writer = new IndentingXMLStreamWriter(new SimpleXMLStreamWriter(new Utf8OutputStreamWriter(os)), 2, Helper.newLine);
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeCharacters(Helper.newLine);
+            exportXml(swf, writer);
+            writer.writeEndDocument();
+            writer.close();
+        } catch (XMLStreamException ex) {
+            throw new IOException("Cannot write XML", ex);
+        } finally {
+            if (binaryOutput != null) {
+                binaryOutput.close();
+                binaryOutput = null;
+                binaryFileName = null;
             }
-        } catch (ParserConfigurationException ex) {
-            Logger.getLogger(SwfXmlExporter.class.getName()).log(Level.SEVERE, null, ex);
         }
 
-        List<File> ret = new ArrayList<>();
         ret.add(outFile);
-        return ret;
-    }
+        if (useBinaryFile) {
+            ret.add(binaryFile);
+        }
 
-    private String getXml(Document xml) {
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
-        StringWriter writer = new StringWriter();
-        try {
-            Transformer transformer = transformerFactory.newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
-            DOMSource source = new DOMSource(xml);
-            StreamResult result = new StreamResult(writer);
-            transformer.transform(source, result);
-        } catch (TransformerException ex) {
-            Logger.getLogger(SwfXmlExporter.class.getName()).log(Level.SEVERE, null, ex);
-        }
-        return writer.toString();
+        return ret;
     }
 
-    public void exportXml(SWF swf, Document doc, Node node) throws IOException {
-        generateXml(doc, node, "swf", swf, false, 0);
+    public void exportXml(SWF swf, XMLStreamWriter writer) throws IOException, XMLStreamException {
+        writeObject(writer, "swf", swf, 0);
     }
 
     public List<Field> getSwfFieldsCached(Class cls) {
-        List<Field> result = cachedFields.get(cls);
-        if (result == null) {
-            result = ReflectionTools.getSwfFields(cls);
-            cachedFields.put(cls, result);
+        List<Field> result = new ArrayList<>();
+        for (SwfFieldAccessor accessor : SwfFieldAccessor.getAccessors(cls)) {
+            result.add(accessor.getField());
         }
 
         return result;
     }
 
-    private void generateXml(Document doc, Node node, String name, Object obj, boolean isListItem, int level) {
-        Class cls = obj != null ? obj.getClass() : null;
-
-        if (cls == Byte.class || cls == byte.class
-                || cls == Short.class || cls == short.class
-                || cls == Integer.class || cls == int.class
-                || cls == Long.class || cls == long.class
-                || cls == Float.class || cls == float.class
-                || cls == Double.class || cls == double.class
-                || cls == Boolean.class || cls == boolean.class
-                || cls == Character.class || cls == char.class
-                || cls == String.class) {
-            Object value = obj;
-            if (value instanceof String) {
-                value = Helper.removeInvalidXMLCharacters((String) value);
-            }
+    private static boolean isSimpleValue(Object obj) {
+        Class cls = obj.getClass();
+        return cls == Byte.class
+                || cls == Short.class
+                || cls == Integer.class
+                || cls == Long.class
+                || cls == Float.class
+                || cls == Double.class
+                || cls == Boolean.class
+                || cls == Character.class
+                || cls == String.class
+                || cls.isEnum();
+    }
 
-            if (isListItem) {
-                Element childNode = doc.createElement(name);
-                childNode.setTextContent(value.toString());
-                node.appendChild(childNode);
-            } else {
-                ((Element) node).setAttribute(name, value.toString());
+    /**
+     * Strings with characters which are not allowed in XML are stored in an
+     * element as base64 encoded UTF-8 bytes
+     */
+    private static boolean isEncodedString(Object obj) {
+        if (!(obj instanceof String)) {
+            return false;
+        }
+
+        String text = (String) obj;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch <= 31 && ch != 9 && ch != 10 && ch != 13) {
+                return true;
             }
-        } else if (cls != null && cls.isEnum()) {
-            ((Element) node).setAttribute(name, obj.toString());
-        } else if (obj instanceof ByteArrayRange) {
+        }
+
+        return false;
+    }
+
+    private static boolean isBinary(Object obj) {
+        return obj instanceof ByteArrayRange || obj instanceof byte[];
+    }
+
+    private boolean isInBinaryFile(Object obj) {
+        if (binaryOutput == null) {
+            return false;
+        }
+
+        int length = obj instanceof ByteArrayRange ? ((ByteArrayRange) obj).getLength() : ((byte[]) obj).length;
+        return length > BINARY_FILE_THRESHOLD;
+    }
+
+    private static String getSimpleValue(Object obj) {
+        if (obj instanceof String) {
+            return Helper.removeInvalidXMLCharacters((String) obj);
+        }
+
+        return obj.toString();
+    }
+
+    private static String getBase64Value(Object obj) {
+        byte[] data = obj instanceof ByteArrayRange ? ((ByteArrayRange) obj).getRangeData() : (byte[]) obj;
+        return Helper.byteArrayToBase64String(data);
+    }
+
+    private void writeBinaryReference(XMLStreamWriter writer, Object obj) throws IOException, XMLStreamException {
+        int length;
+        if (obj instanceof ByteArrayRange) {
             ByteArrayRange range = (ByteArrayRange) obj;
-            byte[] data = range.getRangeData();
-            ((Element) node).setAttribute(name, Helper.byteArrayToHex(data));
-        } else if (obj instanceof byte[]) {
+            length = range.getLength();
+            range.writeTo(binaryOutput);
+        } else {
             byte[] data = (byte[]) obj;
-            ((Element) node).setAttribute(name, Helper.byteArrayToHex(data));
-        } else if (cls != null && List.class.isAssignableFrom(cls)) {
+            length = data.length;
+            binaryOutput.write(data);
+        }
+
+        writer.writeAttribute(ATTRIBUTE_BINARY_OFFSET, Long.toString(binaryOffset));
+        writer.writeAttribute(ATTRIBUTE_BINARY_LENGTH, Integer.toString(length));
+        binaryOffset += length;
+    }
+
+    /**
+     * Writes a value stored in an element: list, array, object or binary data
+     * in the binary file
+     */
+    private void writeElement(XMLStreamWriter writer, String name, Object obj, int level) throws IOException, XMLStreamException {
+        if (isEncodedString(obj)) {
+            writer.writeStartElement(name);
+            writer.writeAttribute(ATTRIBUTE_STRING_ENCODING, BINARY_ENCODING_BASE64);
+            writer.writeCharacters(Helper.byteArrayToBase64String(Utf8Helper.getBytes((String) obj)));
+            writer.writeEndElement();
+        } else if (isBinary(obj)) {
+            writer.writeEmptyElement(name);
+            writeBinaryReference(writer, obj);
+        } else if (obj instanceof List) {
             List list = (List) obj;
-            Element listNode = doc.createElement(name);
-            node.appendChild(listNode);
-            for (int i = 0; i < list.size(); i++) {
-                generateXml(doc, listNode, "item", list.get(i), true, level + 1);
+            if (list.isEmpty()) {
+                writer.writeEmptyElement(name);
+            } else {
+                writer.writeStartElement(name);
+                for (Object item : list) {
+                    writeItem(writer, item, level + 1);
+                }
+                writer.writeEndElement();
             }
-        } else if (cls != null && cls.isArray()) {
-            Class arrayType = cls.getComponentType();
-            Element arrayNode = doc.createElement(name);
-            node.appendChild(arrayNode);
+        } else if (obj.getClass().isArray()) {
             int length = Array.getLength(obj);
-            for (int i = 0; i < length; i++) {
-                generateXml(doc, arrayNode, "item", Array.get(obj, i), true, level + 1);
-            }
-        } else if (obj != null) {
-            if (obj instanceof LazyObject) {
-                ((LazyObject) obj).load();
+            if (length == 0) {
+                writer.writeEmptyElement(name);
+            } else {
+                writer.writeStartElement(name);
+                for (int i = 0; i < length; i++) {
+                    writeItem(writer, Array.get(obj, i), level + 1);
+                }
+                writer.writeEndElement();
             }
+        } else {
+            writeObject(writer, name, obj, level);
+        }
+    }
 
-            Class clazz = obj.getClass();
-            if (obj instanceof InternalClass) {
-                clazz = clazz.getSuperclass();
-            }
+    private void writeItem(XMLStreamWriter writer, Object obj, int level) throws IOException, XMLStreamException {
+        if (obj == null) {
+            writer.writeEmptyElement("item");
+            writer.writeAttribute(ATTRIBUTE_IS_NULL, Boolean.TRUE.toString());
+        } else if (isSimpleValue(obj) && !isEncodedString(obj)) {
+            writer.writeStartElement("item");
+            writer.writeCharacters(getSimpleValue(obj));
+            writer.writeEndElement();
+        } else if (isBinary(obj) && !isInBinaryFile(obj)) {
+            writer.writeStartElement("item");
+            writer.writeCharacters(getBase64Value(obj));
+            writer.writeEndElement();
+        } else {
+            writeElement(writer, "item", obj, level);
+        }
+    }
 
-            String className = clazz.getSimpleName();
-            List<Field> fields = getSwfFieldsCached(obj.getClass());
-            Element objNode = doc.createElement(name);
-            objNode.setAttribute("type", className);
-            node.appendChild(objNode);
+    private void writeObject(XMLStreamWriter writer, String name, Object obj, int level) throws IOException, XMLStreamException {
+        if (obj instanceof LazyObject) {
+            ((LazyObject) obj).load();
+        }
 
-            if (level == 0) {
-                objNode.appendChild(doc.createComment("WARNING: The structure of this XML is not final. In later versions of FFDec it can be changed."));
-                objNode.appendChild(doc.createComment(ApplicationInfo.applicationVerName));
-            }
+        if (obj instanceof AVM2ConstantPool) {
+            writeConstantPool(writer, name, (AVM2ConstantPool) obj, level);
+            return;
+        }
 
-            for (Field f : fields) {
-                if (Modifier.isStatic(f.getModifiers())) {
-                    continue;
-                }
+        Class clazz = obj.getClass();
+        if (obj instanceof InternalClass) {
+            clazz = clazz.getSuperclass();
+        }
 
-                Internal inter = f.getAnnotation(Internal.class);
-                if (inter != null) {
-                    continue;
-                }
+        String className = clazz.getSimpleName();
+        List<SwfFieldAccessor> accessors = SwfFieldAccessor.getAccessors(obj.getClass());
 
-                try {
-                    f.setAccessible(true);
-                    generateXml(doc, objNode, f.getName(), f.get(obj), false, level + 1);
-                } catch (IllegalArgumentException | IllegalAccessException ex) {
-                    Logger.getLogger(SwfXmlExporter.class.getName()).log(Level.SEVERE, null, ex);
-                }
+        // attributes have to be written before the child elements
+        Object[] values = new Object[accessors.size()];
+        boolean[] isAttribute = new boolean[values.length];
+        boolean hasElements = level == 0;
+        for (int i = 0; i < values.length; i++) {
+            Object value = accessors.get(i).get(obj);
+            values[i] = value;
+            if (value != null) {
+                isAttribute[i] = (isSimpleValue(value) && !isEncodedString(value)) || (isBinary(value) && !isInBinaryFile(value));
+                hasElements |= !isAttribute[i];
             }
+        }
+
+        if (hasElements) {
+            writer.writeStartElement(name);
         } else {
-            if (isListItem) {
-                Element childNode = doc.createElement(name);
-                childNode.setAttribute("isNull", Boolean.TRUE.toString());
-                node.appendChild(childNode);
+            writer.writeEmptyElement(name);
+        }
+
+        writer.writeAttribute(ATTRIBUTE_TYPE, className);
+        if (obj instanceof Tag && ((Tag) obj).forceWriteAsLong) {
+            writer.writeAttribute(ATTRIBUTE_FORCE_WRITE_AS_LONG, "true");
+        }
+
+        if (level == 0) {
+            writer.writeAttribute(ATTRIBUTE_BINARY_ENCODING, BINARY_ENCODING_BASE64);
+            if (binaryFileName != null) {
+                writer.writeAttribute(ATTRIBUTE_BINARY_FILE, binaryFileName);
+            }
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            if (isAttribute[i]) {
+                Object value = values[i];
+                String fieldName = accessors.get(i).getName();
+                writer.writeAttribute(fieldName, isBinary(value) ? getBase64Value(value) : getSimpleValue(value));
             }
         }
+
+        if (level == 0) {
+            writer.writeComment("WARNING: The structure of this XML is not final. In later versions of FFDec it can be changed.");
+            writer.writeComment(ApplicationInfo.applicationVerName);
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null && !isAttribute[i]) {
+                writeElement(writer, accessors.get(i).getName(), values[i], level + 1);
+            }
+        }
+
+        if (hasElements) {
+            writer.writeEndElement();
+        }
+    }
+
+    /**
+     * Writes the constant pool by the pool names of AVM2ConstantPool, the
+     * pools are not stored in fields
+     */
+    private void writeConstantPool(XMLStreamWriter writer, String name, AVM2ConstantPool pool, int level) throws IOException, XMLStreamException {
+        writer.writeStartElement(name);
+        writer.writeAttribute(ATTRIBUTE_TYPE, AVM2ConstantPool.class.getSimpleName());
+        for (String poolName : AVM2ConstantPool.XML_POOL_NAMES) {
+            writeElement(writer, poolName, pool.getXmlValues(poolName), level + 1);
+        }
+        writer.writeEndElement();
     }
 }
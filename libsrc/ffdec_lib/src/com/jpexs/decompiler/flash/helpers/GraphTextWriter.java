@@ -33,6 +33,8 @@ public abstract class GraphTextWriter {
 
     protected CodeFormatting formatting;
 
+    private volatile boolean decompilationError;
+
     public CodeFormatting getFormatting() {
         return formatting;
     }
@@ -46,6 +48,17 @@ public abstract class GraphTextWriter {
         return false;
     }
 
+    /**
+     * Marks that an error or timeout comment was written instead of some code
+     */
+    public void markDecompilationError() {
+        decompilationError = true;
+    }
+
+    public boolean hasDecompilationError() {
+        return decompilationError;
+    }
+
     /**
      * Highlights specified text as instruction
      *
@@ -0,0 +1,260 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.helpers;
+
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.tags.DefineBitsLossless2Tag;
+import com.jpexs.decompiler.flash.tags.DefineBitsLosslessTag;
+import com.jpexs.decompiler.flash.types.RGB;
+import com.jpexs.decompiler.flash.types.RGBA;
+import com.jpexs.helpers.ByteArrayRange;
+import com.jpexs.helpers.SerializableImage;
+import com.jpexs.helpers.WorkerPool;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decodes the zlib bitmap data of DefineBitsLossless and DefineBitsLossless2
+ * tags directly to the int raster of the image, without creating the
+ * COLORMAPDATA/BITMAPDATA objects. The rows of large images are converted in
+ * parallel.
+ *
+ * @author JPEXS
+ */
+public class LosslessImageDecoder {
+
+    /**
+     * Minimal pixel count of the image to convert it in parallel
+     */
+    private static final int PARALLEL_PIXEL_COUNT = 256 * 256;
+
+    /**
+     * Pixel count converted by one task
+     */
+    private static final int TASK_PIXEL_COUNT = 64 * 1024;
+
+    /**
+     * Color value divided by alpha, indexed by (alpha &lt;&lt; 8) | value. It
+     * gives the same result as ImageTag.multiplyAlpha.
+     */
+    private static final byte[] UNMULTIPLY_TABLE = new byte[256 * 256];
+
+    static {
+        for (int a = 0; a < 256; a++) {
+            float multiplier = a == 0 ? 0 : 255.0f / a;
+            for (int v = 0; v < 256; v++) {
+                float val = v * multiplier;
+                UNMULTIPLY_TABLE[(a << 8) | v] = (byte) (val > 255 ? 255 : (int) val);
+            }
+        }
+    }
+
+    private static final int KIND_COLORMAPPED = 0;
+
+    private static final int KIND_15BIT_RGB = 1;
+
+    private static final int KIND_24BIT_RGB = 2;
+
+    private static final int KIND_32BIT_ARGB = 3;
+
+    /**
+     * Decodes the bitmap
+     *
+     * @param bitmapFormat Format of the bitmap
+     * @param colorTableSize Color table size - 1 of the colormapped bitmap
+     * @param width Width
+     * @param height Height
+     * @param zlibBitmapData Compressed data
+     * @param alpha True for DefineBitsLossless2 data
+     * @return Image of TYPE_INT_ARGB for DefineBitsLossless2, TYPE_INT_RGB
+     * otherwise. Unknown formats give an empty image.
+     */
+    public static SerializableImage decode(int bitmapFormat, int colorTableSize, int width, int height, ByteArrayRange zlibBitmapData, boolean alpha) {
+        SerializableImage image = new SerializableImage(width, height, alpha ? SerializableImage.TYPE_INT_ARGB : SerializableImage.TYPE_INT_RGB);
+        int kind;
+        int tableLength = 0;
+        int stride;
+        if (bitmapFormat == DefineBitsLosslessTag.FORMAT_8BIT_COLORMAPPED) {
+            kind = KIND_COLORMAPPED;
+            tableLength = (colorTableSize + 1) * (alpha ? 4 : 3);
+            stride = (width + 3) & ~3;
+        } else if (!alpha && bitmapFormat == DefineBitsLosslessTag.FORMAT_15BIT_RGB) {
+            kind = KIND_15BIT_RGB;
+            stride = (width * 2 + 3) & ~3;
+        } else if (!alpha && bitmapFormat == DefineBitsLosslessTag.FORMAT_24BIT_RGB) {
+            kind = KIND_24BIT_RGB;
+            stride = width * 4;
+        } else if (alpha && bitmapFormat == DefineBitsLossless2Tag.FORMAT_32BIT_ARGB) {
+            kind = KIND_32BIT_ARGB;
+            stride = width * 4;
+        } else {
+            return image;
+        }
+
+        byte[] data = inflate(zlibBitmapData, tableLength + stride * height);
+        int[] colorTable = null;
+        if (kind == KIND_COLORMAPPED) {
+            colorTable = new int[colorTableSize + 1];
+            for (int i = 0, pos = 0; i < colorTable.length; i++) {
+                int r = data[pos++] & 0xff;
+                int g = data[pos++] & 0xff;
+                int b = data[pos++] & 0xff;
+                colorTable[i] = alpha ? unmultiplyAlpha(data[pos++] & 0xff, r, g, b) : RGB.toInt(r, g, b);
+            }
+        }
+
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        RowConverter converter = new RowConverter(kind, data, tableLength, stride, colorTable, width, pixels, 0, height);
+        if (Configuration.parallelSpeedUp.get() && width * height >= PARALLEL_PIXEL_COUNT) {
+            WorkerPool.getPool().invoke(converter);
+        } else {
+            converter.convertRows();
+        }
+
+        return image;
+    }
+
+    /**
+     * Inflates the data to an array of the expected length. Missing data are
+     * left zero, extra data are ignored.
+     *
+     * @param zlibData Compressed data
+     * @param length Expected length
+     * @return Uncompressed data
+     */
+    public static byte[] inflate(ByteArrayRange zlibData, int length) {
+        byte[] result = new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            if (zlibData.isBuffered()) {
+                inflater.setInput(zlibData.getRangeData());
+            } else {
+                inflater.setInput(zlibData.getArray(), zlibData.getPos(), zlibData.getLength());
+            }
+            int pos = 0;
+            while (pos < length) {
+                int count = inflater.inflate(result, pos, length - pos);
+                if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+
+                pos += count;
+            }
+        } catch (DataFormatException ex) {
+            Logger.getLogger(LosslessImageDecoder.class.getName()).log(Level.SEVERE, "Invalid bitmap data", ex);
+        } finally {
+            inflater.end();
+        }
+
+        return result;
+    }
+
+    private static int unmultiplyAlpha(int a, int r, int g, int b) {
+        int row = a << 8;
+        return RGBA.toInt(UNMULTIPLY_TABLE[row | r] & 0xff, UNMULTIPLY_TABLE[row | g] & 0xff, UNMULTIPLY_TABLE[row | b] & 0xff, a);
+    }
+
+    private static class RowConverter extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int kind;
+
+        private final byte[] data;
+
+        private final int dataOffset;
+
+        private final int stride;
+
+        private final int[] colorTable;
+
+        private final int width;
+
+        private final int[] pixels;
+
+        private final int fromRow;
+
+        private final int toRow;
+
+        public RowConverter(int kind, byte[] data, int dataOffset, int stride, int[] colorTable, int width, int[] pixels, int fromRow, int toRow) {
+            this.kind = kind;
+            this.data = data;
+            this.dataOffset = dataOffset;
+            this.stride = stride;
+            this.colorTable = colorTable;
+            this.width = width;
+            this.pixels = pixels;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+        }
+
+        @Override
+        protected void compute() {
+            int rowCount = toRow - fromRow;
+            if (rowCount > 1 && rowCount * width > TASK_PIXEL_COUNT) {
+                int middle = fromRow + rowCount / 2;
+                invokeAll(new RowConverter(kind, data, dataOffset, stride, colorTable, width, pixels, fromRow, middle),
+                        new RowConverter(kind, data, dataOffset, stride, colorTable, width, pixels, middle, toRow));
+            } else {
+                convertRows();
+            }
+        }
+
+        private void convertRows() {
+            byte[] data = this.data;
+            int[] pixels = this.pixels;
+            for (int y = fromRow; y < toRow; y++) {
+                int pos = dataOffset + y * stride;
+                int pixelPos = y * width;
+                int pixelEnd = pixelPos + width;
+                switch (kind) {
+                    case KIND_COLORMAPPED:
+                        int[] colorTable = this.colorTable;
+                        for (; pixelPos < pixelEnd; pixelPos++) {
+                            int colorTableIndex = data[pos++] & 0xff;
+                            pixels[pixelPos] = colorTableIndex < colorTable.length ? colorTable[colorTableIndex] : 0;
+                        }
+                        break;
+                    case KIND_15BIT_RGB:
+                        for (; pixelPos < pixelEnd; pixelPos++) {
+                            int pix15 = ((data[pos] & 0xff) << 8) | (data[pos + 1] & 0xff);
+                            pixels[pixelPos] = RGB.toInt(((pix15 >> 10) & 0x1f) << 3, ((pix15 >> 5) & 0x1f) << 3, (pix15 & 0x1f) << 3);
+                            pos += 2;
+                        }
+                        break;
+                    case KIND_24BIT_RGB:
+                        for (; pixelPos < pixelEnd; pixelPos++) {
+                            // first byte is reserved
+                            pixels[pixelPos] = RGB.toInt(data[pos + 1], data[pos + 2], data[pos + 3]);
+                            pos += 4;
+                        }
+                        break;
+                    case KIND_32BIT_ARGB:
+                        for (; pixelPos < pixelEnd; pixelPos++) {
+                            pixels[pixelPos] = unmultiplyAlpha(data[pos] & 0xff, data[pos + 1] & 0xff, data[pos + 2] & 0xff, data[pos + 3] & 0xff);
+                            pos += 4;
+                        }
+                        break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.helpers;
+
+import com.jpexs.decompiler.flash.helpers.hilight.HighlightData;
+import com.jpexs.decompiler.flash.helpers.hilight.HighlightSpecialType;
+import com.jpexs.decompiler.graph.GraphSourceItem;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the calls made on the writer, so the text can be rendered on another
+ * thread and replayed into the target writer later. The replay produces the
+ * same text and highlights as if the calls were made on the target directly.
+ *
+ * @author JPEXS
+ */
+public class RecordingTextWriter extends GraphTextWriter {
+
+    private interface WriterCall {
+
+        void apply(GraphTextWriter writer);
+    }
+
+    private final List<WriterCall> calls = new ArrayList<>();
+
+    private final boolean hilight;
+
+    private int indent;
+
+    private int length;
+
+    /**
+     * Creates the writer with the formatting, indentation and highlighting of
+     * the target writer
+     *
+     * @param target Writer which will receive the recorded calls
+     */
+    public RecordingTextWriter(GraphTextWriter target) {
+        super(target.getFormatting());
+        this.hilight = target.getIsHighlighted();
+        this.indent = target.getIndent();
+    }
+
+    /**
+     * Replays the recorded calls in the original order
+     *
+     * @param target Target writer
+     * @return Target writer
+     */
+    public GraphTextWriter replay(GraphTextWriter target) {
+        for (WriterCall call : calls) {
+            call.apply(target);
+        }
+        return target;
+    }
+
+    @Override
+    public boolean getIsHighlighted() {
+        return hilight;
+    }
+
+    @Override
+    public RecordingTextWriter startOffset(GraphSourceItem src, int pos, HighlightData data) {
+        calls.add(w -> w.startOffset(src, pos, data));
+        return this;
+    }
+
+    @Override
+    public RecordingTextWriter endOffset() {
+        calls.add(w -> w.endOffset());
+        return this;
+    }
+
+    @Override
+    public RecordingTextWriter startMethod(long index) {
+        calls.add(w -> w.startMethod(index));
+        return this;
+    }
+
+    @Override
+    public RecordingTextWriter endMethod() {
+        calls.add(w -> w.endMethod());
+        return this;
+    }
+
+    @Override
+    public RecordingTextWriter startClass(long index) {
+        calls.add(w -> w.startClass(index));
+        return this;
+    }
+
+    @Override
+    public RecordingTextWriter endClass() {
+        calls.add(w -> w.endClass());
+        return this;
+    }
+
+    @Override
+    public RecordingTextWriter startTrait(long index) {
+        calls.add(w -> w.startTrait(index));
+        return this;
+    }
+
+    @Override
+    public RecordingTextWriter endTrait() {
+        calls.add(w -> w.endTrait());
+        return this;
+    }
+
+    @Override
+    protected RecordingTextWriter hilightSpecial(String text, HighlightSpecialType type, String specialValue, HighlightData data) {
+        calls.add(w -> w.hilightSpecial(text, type, specialValue, data));
+        length += text.length();
+        return this;
+    }
+
+    @Override
+    public RecordingTextWriter appendWithData(String str, HighlightData data) {
+        calls.add(w -> w.appendWithData(str, data));
+        length += str.length();
+        return this;
+    }
+
+    @Override
+    public RecordingTextWriter append(String str) {
+        calls.add(w -> w.append(str));
+        length += str.length();
+        return this;
+    }
+
+    @Override
+    public RecordingTextWriter append(String str, long offset) {
+        calls.add(w -> w.append(str, offset));
+        length += str.length();
+        return this;
+    }
+
+    @Override
+    public RecordingTextWriter appendNoHilight(int i) {
+        return appendNoHilight(Integer.toString(i));
+    }
+
+    @Override
+    public RecordingTextWriter appendNoHilight(String str) {
+        calls.add(w -> w.appendNoHilight(str));
+        length += str.length();
+        return this;
+    }
+
+    @Override
+    public RecordingTextWriter indent() {
+        calls.add(w -> w.indent());
+        indent++;
+        return this;
+    }
+
+    @Override
+    public RecordingTextWriter unindent() {
+        calls.add(w -> w.unindent());
+        indent--;
+        return this;
+    }
+
+    @Override
+    public void markDecompilationError() {
+        calls.add(w -> w.markDecompilationError());
+        super.markDecompilationError();
+    }
+
+    @Override
+    public RecordingTextWriter newLine() {
+        calls.add(w -> w.newLine());
+        length += formatting.newLineChars.length();
+        return this;
+    }
+
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public int getIndent() {
+        return indent;
+    }
+}
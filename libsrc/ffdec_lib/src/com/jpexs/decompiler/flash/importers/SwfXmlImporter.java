@@ -35,6 +35,7 @@ import com.jpexs.decompiler.flash.abc.types.traits.TraitFunction;
 import com.jpexs.decompiler.flash.abc.types.traits.TraitMethodGetterSetter;
 import com.jpexs.decompiler.flash.abc.types.traits.TraitSlotConst;
 import com.jpexs.decompiler.flash.abc.types.traits.Traits;
+import com.jpexs.decompiler.flash.exporters.swf.SwfXmlExporter;
 import com.jpexs.decompiler.flash.tags.Tag;
 import com.jpexs.decompiler.flash.types.ALPHABITMAPDATA;
 import com.jpexs.decompiler.flash.types.ALPHACOLORMAPDATA;
@@ -94,28 +95,29 @@ import com.jpexs.decompiler.flash.types.shaperecords.EndShapeRecord;
 import com.jpexs.decompiler.flash.types.shaperecords.StraightEdgeRecord;
 import com.jpexs.decompiler.flash.types.shaperecords.StyleChangeRecord;
 import com.jpexs.helpers.ByteArrayRange;
+import com.jpexs.helpers.Helper;
 import com.jpexs.helpers.ReflectionTools;
+import com.jpexs.helpers.SwfFieldAccessor;
+import com.jpexs.helpers.utf8.Utf8Helper;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.io.StringReader;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import org.w3c.dom.Attr;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 /**
  *
@@ -130,114 +132,229 @@ public class SwfXmlImporter {
 
     private Map<String, Class> swfObjectsParam;
 
+    private boolean base64;
+
+    private RandomAccessFile binaryFile;
+
     public void importSwf(SWF swf, String xml) throws IOException {
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
         try {
-            DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-            Document doc = docBuilder.parse(new InputSource(new StringReader(xml)));
-            processElement(doc.getDocumentElement(), swf, swf, null);
-        } catch (ParserConfigurationException | SAXException ex) {
-            Logger.getLogger(SwfXmlImporter.class.getName()).log(Level.SEVERE, null, ex);
+            importSwf(swf, createInputFactory().createXMLStreamReader(new StringReader(xml)), null);
+        } catch (XMLStreamException ex) {
+            throw new IOException("Cannot read XML", ex);
+        }
+    }
+
+    /**
+     * Imports the SWF from XML file. The binary file referenced from the XML
+     * is searched in the directory of the XML file.
+     *
+     * @param swf SWF
+     * @param xmlFile XML file
+     * @throws IOException On read error
+     */
+    public void importSwf(SWF swf, File xmlFile) throws IOException {
+        try (InputStream is = new BufferedInputStream(new FileInputStream(xmlFile))) {
+            importSwf(swf, createInputFactory().createXMLStreamReader(is), xmlFile.getAbsoluteFile().getParentFile());
+        } catch (XMLStreamException ex) {
+            throw new IOException("Cannot read XML", ex);
         }
     }
 
-    private Field getField(Class cls, String name) throws NoSuchFieldException {
-        Field field;
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        return inputFactory;
+    }
+
+    private void importSwf(SWF swf, XMLStreamReader reader, File directory) throws IOException, XMLStreamException {
         try {
-            field = cls.getField(name);
-        } catch (NoSuchFieldException ex) {
-            field = cls.getDeclaredField(name);
-            field.setAccessible(true);
+            reader.nextTag();
+            base64 = SwfXmlExporter.BINARY_ENCODING_BASE64.equals(reader.getAttributeValue(null, SwfXmlExporter.ATTRIBUTE_BINARY_ENCODING));
+            String binaryFileName = reader.getAttributeValue(null, SwfXmlExporter.ATTRIBUTE_BINARY_FILE);
+            if (binaryFileName != null) {
+                if (directory == null) {
+                    throw new IOException("Binary file " + binaryFileName + " can't be located.");
+                }
+
+                binaryFile = new RandomAccessFile(new File(directory, binaryFileName), "r");
+            }
+
+            processElement(reader, swf, swf, null);
+        } finally {
+            reader.close();
+            if (binaryFile != null) {
+                binaryFile.close();
+                binaryFile = null;
+            }
         }
+    }
 
-        return field;
+    /**
+     * Skips the rest of the current element including its end tag
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
     }
 
-    private void processElement(Element element, Object obj, SWF swf, Tag tag) {
+    private void processElement(XMLStreamReader reader, Object obj, SWF swf, Tag tag) throws IOException, XMLStreamException {
+        if (obj instanceof AVM2ConstantPool) {
+            processConstantPool(reader, (AVM2ConstantPool) obj, swf, tag);
+            return;
+        }
+
         Class cls = obj.getClass();
-        for (int i = 0; i < element.getAttributes().getLength(); i++) {
-            Attr attr = (Attr) element.getAttributes().item(i);
-            String name = attr.getName();
-            if (!name.equals("type")) {
-                try {
-                    Field field = getField(cls, name);
-                    String attrValue = attr.getValue();
-                    field.set(obj, getAs(field.getType(), attrValue));
-                } catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException ex) {
-                    Logger.getLogger(SwfXmlImporter.class.getName()).log(Level.SEVERE, null, ex);
-                }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String name = reader.getAttributeLocalName(i);
+            if (name.equals(SwfXmlExporter.ATTRIBUTE_TYPE)) {
+                continue;
+            }
+
+            if (obj instanceof Tag && name.equals(SwfXmlExporter.ATTRIBUTE_FORCE_WRITE_AS_LONG)) {
+                ((Tag) obj).forceWriteAsLong = Boolean.parseBoolean(reader.getAttributeValue(i));
+                continue;
+            }
+
+            if (obj == swf && (name.equals(SwfXmlExporter.ATTRIBUTE_BINARY_ENCODING) || name.equals(SwfXmlExporter.ATTRIBUTE_BINARY_FILE))) {
+                continue;
+            }
+
+            SwfFieldAccessor accessor = SwfFieldAccessor.getAccessor(cls, name);
+            if (accessor == null) {
+                Logger.getLogger(SwfXmlImporter.class.getName()).log(Level.SEVERE, "Field {0} not found in {1}", new Object[]{name, cls.getName()});
+                continue;
+            }
+
+            try {
+                accessor.set(obj, getAs(accessor.getType(), reader.getAttributeValue(i)));
+            } catch (IllegalArgumentException | ClassCastException ex) {
+                Logger.getLogger(SwfXmlImporter.class.getName()).log(Level.SEVERE, null, ex);
             }
         }
 
-        for (int i = 0; i < element.getChildNodes().getLength(); i++) {
-            Node childNode = element.getChildNodes().item(i);
-            if (childNode instanceof Element) {
-                Element child = (Element) childNode;
-                String name = child.getTagName();
-                try {
-                    Field field = getField(cls, name);
-                    Class childCls = field.getType();
-                    if (List.class.isAssignableFrom(childCls)) {
-                        List list = new ArrayList();
-                        for (int j = 0; j < child.getChildNodes().getLength(); j++) {
-                            Node childChildNode = child.getChildNodes().item(j);
-                            if (childChildNode instanceof Element) {
-                                Element childChild = (Element) child.getChildNodes().item(j);
-                                Object childObj = processObject(childChild, ReflectionTools.getFieldSubType(obj, field), swf, tag);
-                                list.add(childObj);
-                            }
-                        }
-
-                        field.set(obj, list);
-                    } else if (childCls.isArray()) {
-                        List list = new ArrayList();
-                        for (int j = 0; j < child.getChildNodes().getLength(); j++) {
-                            Node childChildNode = child.getChildNodes().item(j);
-                            if (childChildNode instanceof Element) {
-                                Element childChild = (Element) child.getChildNodes().item(j);
-                                Object childObj = processObject(childChild, childCls.getComponentType(), swf, tag);
-                                list.add(childObj);
-                            }
-                        }
-
-                        Object array = Array.newInstance(childCls.getComponentType(), list.size());
-                        for (int j = 0; j < list.size(); j++) {
-                            Array.set(array, j, list.get(j));
-                        }
-
-                        field.set(obj, array);
-                    } else {
-                        Object childObj = processObject(child, null, swf, tag);
-                        field.set(obj, childObj);
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            SwfFieldAccessor accessor = SwfFieldAccessor.getAccessor(cls, name);
+            if (accessor == null) {
+                Logger.getLogger(SwfXmlImporter.class.getName()).log(Level.SEVERE, "Field {0} not found in {1}", new Object[]{name, cls.getName()});
+                skipElement(reader);
+                continue;
+            }
+
+            Class childCls = accessor.getType();
+            try {
+                if (List.class.isAssignableFrom(childCls)) {
+                    List list = new ArrayList();
+                    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                        list.add(processObject(reader, accessor.getSubType(), swf, tag));
+                    }
+
+                    accessor.set(obj, list);
+                } else if (childCls.isArray()) {
+                    List list = new ArrayList();
+                    while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                        list.add(processObject(reader, childCls.getComponentType(), swf, tag));
+                    }
+
+                    Object array = Array.newInstance(childCls.getComponentType(), list.size());
+                    for (int j = 0; j < list.size(); j++) {
+                        Array.set(array, j, list.get(j));
                     }
-                } catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException | NoSuchMethodException | InstantiationException | InvocationTargetException ex) {
-                    Logger.getLogger(SwfXmlImporter.class.getName()).log(Level.SEVERE, null, ex);
+
+                    accessor.set(obj, array);
+                } else {
+                    Object childObj = processObject(reader, childCls, swf, tag);
+                    accessor.set(obj, childObj);
                 }
+            } catch (IllegalArgumentException | ClassCastException ex) {
+                Logger.getLogger(SwfXmlImporter.class.getName()).log(Level.SEVERE, null, ex);
             }
         }
     }
 
-    private Object processObject(Element element, Class requiredType, SWF swf, Tag tag) throws IllegalArgumentException, IllegalAccessException, NoSuchMethodException, InstantiationException, InvocationTargetException {
-        String type = element.getAttribute("type");
+    /**
+     * Reads the constant pool written by SwfXmlExporter. The values are added
+     * by the pool methods, the pool does not have fields for them.
+     */
+    private void processConstantPool(XMLStreamReader reader, AVM2ConstantPool pool, SWF swf, Tag tag) throws IOException, XMLStreamException {
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String name = reader.getLocalName();
+            Class itemType = AVM2ConstantPool.getXmlItemType(name);
+            if (itemType == null) {
+                Logger.getLogger(SwfXmlImporter.class.getName()).log(Level.SEVERE, "Field {0} not found in {1}", new Object[]{name, AVM2ConstantPool.class.getName()});
+                skipElement(reader);
+                continue;
+            }
+
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                pool.addXmlValue(name, processObject(reader, itemType, swf, tag));
+            }
+        }
+    }
+
+    private Object processObject(XMLStreamReader reader, Class requiredType, SWF swf, Tag tag) throws IOException, XMLStreamException {
+        String type = reader.getAttributeValue(null, SwfXmlExporter.ATTRIBUTE_TYPE);
         if (type != null && !type.isEmpty()) {
-            Object childObj = createObject(type, swf, tag);
+            Object childObj = null;
+            try {
+                childObj = createObject(type, swf, tag);
+            } catch (ReflectiveOperationException | IllegalArgumentException ex) {
+                Logger.getLogger(SwfXmlImporter.class.getName()).log(Level.SEVERE, null, ex);
+            }
+
+            if (childObj == null) {
+                skipElement(reader);
+                return null;
+            }
+
             if (childObj instanceof Tag) {
                 tag = (Tag) childObj;
             }
 
-            processElement(element, childObj, swf, tag);
+            processElement(reader, childObj, swf, tag);
             return childObj;
-        } else {
-            String isNullAttr = element.getAttribute("isNull");
-            if (Boolean.parseBoolean(isNullAttr)) {
-                return null;
-            }
+        }
+
+        if (Boolean.parseBoolean(reader.getAttributeValue(null, SwfXmlExporter.ATTRIBUTE_IS_NULL))) {
+            skipElement(reader);
+            return null;
+        }
 
-            return getAs(requiredType, element.getTextContent());
+        if (SwfXmlExporter.BINARY_ENCODING_BASE64.equals(reader.getAttributeValue(null, SwfXmlExporter.ATTRIBUTE_STRING_ENCODING))) {
+            return getAs(requiredType, new String(Helper.base64StringToByteArray(reader.getElementText()), Utf8Helper.charset));
         }
+
+        String binaryOffset = reader.getAttributeValue(null, SwfXmlExporter.ATTRIBUTE_BINARY_OFFSET);
+        if (binaryOffset != null) {
+            long offset = Long.parseLong(binaryOffset);
+            int length = Integer.parseInt(reader.getAttributeValue(null, SwfXmlExporter.ATTRIBUTE_BINARY_LENGTH));
+            skipElement(reader);
+            return getBinaryAs(requiredType, readBinary(offset, length));
+        }
+
+        return getAs(requiredType, reader.getElementText());
+    }
+
+    private byte[] readBinary(long offset, int length) throws IOException {
+        if (binaryFile == null) {
+            throw new IOException("Binary file is not specified.");
+        }
+
+        byte[] data = new byte[length];
+        binaryFile.seek(offset);
+        binaryFile.readFully(data);
+        return data;
     }
 
-    private Object createObject(String type, SWF swf, Tag tag) throws NoSuchMethodException, InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+    private Object createObject(String type, SWF swf, Tag tag) throws ReflectiveOperationException {
         if (swfTags == null) {
             Map<String, Class> tags = new HashMap<>();
             Map<Integer, Class> knownTags = Tag.getKnownClasses();
@@ -319,7 +436,17 @@ public class SwfXmlImporter {
         return null;
     }
 
-    private Object getAs(Class cls, String stringValue) throws IllegalArgumentException, IllegalAccessException {
+    private Object getBinaryAs(Class cls, byte[] data) {
+        if (cls == ByteArrayRange.class) {
+            return new ByteArrayRange(data);
+        } else if (cls == byte[].class) {
+            return data;
+        } else {
+            throw new RuntimeException("Unsupported object type.");
+        }
+    }
+
+    private Object getAs(Class cls, String stringValue) {
         if (cls == Byte.class || cls == byte.class) {
             return Byte.parseByte(stringValue);
         } else if (cls == Short.class || cls == short.class) {
@@ -338,12 +465,12 @@ public class SwfXmlImporter {
             return stringValue.charAt(0);
         } else if (cls == String.class) {
             return stringValue;
-        } else if (cls == ByteArrayRange.class) {
-            ByteArrayRange range = new ByteArrayRange(stringValue);
-            return range;
-        } else if (cls == byte[].class) {
-            ByteArrayRange range = new ByteArrayRange(stringValue);
-            return range.getArray();
+        } else if (cls == ByteArrayRange.class || cls == byte[].class) {
+            if (base64) {
+                return getBinaryAs(cls, Helper.base64StringToByteArray(stringValue));
+            }
+
+            return getBinaryAs(cls, new ByteArrayRange(stringValue).getArray());
         } else if (cls.isEnum()) {
             return Enum.valueOf(cls, stringValue);
         } else {
@@ -27,7 +27,6 @@ import com.jpexs.decompiler.flash.types.annotations.Reserved;
 import com.jpexs.decompiler.flash.types.annotations.SWFType;
 import com.jpexs.helpers.ByteArrayRange;
 import com.jpexs.helpers.utf8.Utf8Helper;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -94,7 +93,7 @@ public class DefineBinaryDataTag extends CharacterTag {
 
         if (Configuration.autoLoadEmbeddedSwfs.get()) {
             try {
-                InputStream is = new ByteArrayInputStream(binaryData.getArray(), binaryData.getPos(), binaryData.getLength());
+                InputStream is = binaryData.getInputStream();
                 SWF bswf = new SWF(is, null, "(SWF Data)", Configuration.parallelSpeedUp.get());
                 innerSwf = bswf;
                 bswf.binaryData = this;
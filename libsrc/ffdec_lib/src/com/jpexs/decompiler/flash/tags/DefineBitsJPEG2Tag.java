@@ -27,7 +27,6 @@ import com.jpexs.decompiler.flash.types.annotations.SWFType;
 import com.jpexs.helpers.ByteArrayRange;
 import com.jpexs.helpers.SerializableImage;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -56,9 +55,9 @@ public class DefineBitsJPEG2Tag extends ImageTag implements AloneTag {
     @Override
     public InputStream getImageData() {
         if (SWF.hasErrorHeader(imageData)) {
-            return new ByteArrayInputStream(imageData.getArray(), imageData.getPos() + 4, imageData.getLength() - 4);
+            return imageData.getArrayRange(imageData.getPos() + 4, imageData.getLength() - 4).getInputStream();
         }
-        return new ByteArrayInputStream(imageData.getArray(), imageData.getPos(), imageData.getLength());
+        return imageData.getInputStream();
     }
 
     @Override
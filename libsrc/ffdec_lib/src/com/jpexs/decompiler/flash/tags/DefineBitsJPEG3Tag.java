@@ -91,9 +91,9 @@ public class DefineBitsJPEG3Tag extends ImageTag implements AloneTag {
         try {
             InputStream stream;
             if (SWF.hasErrorHeader(imageData)) {
-                stream = new ByteArrayInputStream(imageData.getArray(), imageData.getPos() + 4, imageData.getLength() - 4);
+                stream = imageData.getArrayRange(imageData.getPos() + 4, imageData.getLength() - 4).getInputStream();
             } else {
-                stream = new ByteArrayInputStream(imageData.getArray(), imageData.getPos(), imageData.getLength());
+                stream = imageData.getInputStream();
             }
 
             BufferedImage image = ImageHelper.read(stream);
@@ -28,7 +28,6 @@ import com.jpexs.helpers.ByteArrayRange;
 import com.jpexs.helpers.SerializableImage;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferInt;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -97,7 +96,7 @@ public class DefineBitsJPEG4Tag extends ImageTag implements AloneTag {
             return cachedImage;
         }
         try {
-            BufferedImage image = ImageHelper.read(new ByteArrayInputStream(imageData.getArray(), imageData.getPos(), imageData.getLength()));
+            BufferedImage image = ImageHelper.read(imageData.getInputStream());
             SerializableImage img = image == null ? null : new SerializableImage(image);
             if (bitmapAlphaData.getLength() == 0) {
                 cachedImage = img;
@@ -20,6 +20,7 @@ import com.jpexs.decompiler.flash.SWF;
 import com.jpexs.decompiler.flash.SWFInputStream;
 import com.jpexs.decompiler.flash.SWFOutputStream;
 import com.jpexs.decompiler.flash.helpers.ImageHelper;
+import com.jpexs.decompiler.flash.helpers.LosslessImageDecoder;
 import com.jpexs.decompiler.flash.tags.base.AloneTag;
 import com.jpexs.decompiler.flash.tags.base.ImageTag;
 import com.jpexs.decompiler.flash.types.ALPHABITMAPDATA;
@@ -191,7 +192,7 @@ public class DefineBitsLossless2Tag extends ImageTag implements AloneTag {
 
     private void uncompressData() {
         try {
-            SWFInputStream sis = new SWFInputStream(swf, Helper.readStream(new InflaterInputStream(new ByteArrayInputStream(zlibBitmapData.getArray(), zlibBitmapData.getPos(), zlibBitmapData.getLength()))));
+            SWFInputStream sis = new SWFInputStream(swf, Helper.readStream(new InflaterInputStream(zlibBitmapData.getInputStream())));
             if (bitmapFormat == FORMAT_8BIT_COLORMAPPED) {
                 colorMapData = sis.readALPHACOLORMAPDATA(bitmapColorTableSize, bitmapWidth, bitmapHeight, "colorMapData");
             }
@@ -243,37 +244,7 @@ public class DefineBitsLossless2Tag extends ImageTag implements AloneTag {
         if (cachedImage != null) {
             return cachedImage;
         }
-        SerializableImage bi = new SerializableImage(bitmapWidth, bitmapHeight, SerializableImage.TYPE_INT_ARGB);
-        ALPHACOLORMAPDATA colorMapData = null;
-        ALPHABITMAPDATA bitmapData = null;
-        if (bitmapFormat == DefineBitsLossless2Tag.FORMAT_8BIT_COLORMAPPED) {
-            colorMapData = getColorMapData();
-        }
-        if (bitmapFormat == DefineBitsLossless2Tag.FORMAT_32BIT_ARGB) {
-            bitmapData = getBitmapData();
-        }
-        int pos32aligned = 0;
-        int pos = 0;
-        for (int y = 0; y < bitmapHeight; y++) {
-            for (int x = 0; x < bitmapWidth; x++) {
-                int c = 0;
-                if ((bitmapFormat == DefineBitsLossless2Tag.FORMAT_8BIT_COLORMAPPED)) {
-                    int colorTableIndex = colorMapData.colorMapPixelData[pos32aligned] & 0xff;
-                    if (colorTableIndex < colorMapData.colorTableRGB.length) {
-                        c = multiplyAlpha(colorMapData.colorTableRGB[colorTableIndex].toInt());
-                    }
-                }
-                if ((bitmapFormat == DefineBitsLossless2Tag.FORMAT_32BIT_ARGB)) {
-                    c = multiplyAlpha(bitmapData.bitmapPixelData[pos].toInt());
-                }
-                bi.setRGB(x, y, c);
-                pos32aligned++;
-                pos++;
-            }
-            while ((pos32aligned % 4 != 0)) {
-                pos32aligned++;
-            }
-        }
+        SerializableImage bi = LosslessImageDecoder.decode(bitmapFormat, bitmapColorTableSize, bitmapWidth, bitmapHeight, zlibBitmapData, true);
         cachedImage = bi;
         return bi;
     }
@@ -20,13 +20,13 @@ import com.jpexs.decompiler.flash.SWF;
 import com.jpexs.decompiler.flash.SWFInputStream;
 import com.jpexs.decompiler.flash.SWFOutputStream;
 import com.jpexs.decompiler.flash.helpers.ImageHelper;
+import com.jpexs.decompiler.flash.helpers.LosslessImageDecoder;
 import com.jpexs.decompiler.flash.tags.base.AloneTag;
 import com.jpexs.decompiler.flash.tags.base.ImageTag;
 import com.jpexs.decompiler.flash.types.BITMAPDATA;
 import com.jpexs.decompiler.flash.types.BasicType;
 import com.jpexs.decompiler.flash.types.COLORMAPDATA;
 import com.jpexs.decompiler.flash.types.PIX24;
-import com.jpexs.decompiler.flash.types.RGB;
 import com.jpexs.decompiler.flash.types.annotations.Conditional;
 import com.jpexs.decompiler.flash.types.annotations.HideInRawEdit;
 import com.jpexs.decompiler.flash.types.annotations.Internal;
@@ -147,41 +147,7 @@ public class DefineBitsLosslessTag extends ImageTag implements AloneTag {
         if (cachedImage != null) {
             return cachedImage;
         }
-        SerializableImage bi = new SerializableImage(bitmapWidth, bitmapHeight, SerializableImage.TYPE_INT_RGB);
-        COLORMAPDATA colorMapData = null;
-        BITMAPDATA bitmapData = null;
-        if (bitmapFormat == DefineBitsLosslessTag.FORMAT_8BIT_COLORMAPPED) {
-            colorMapData = getColorMapData();
-        }
-        if ((bitmapFormat == DefineBitsLosslessTag.FORMAT_15BIT_RGB) || (bitmapFormat == DefineBitsLosslessTag.FORMAT_24BIT_RGB)) {
-            bitmapData = getBitmapData();
-        }
-        int pos32aligned = 0;
-        int pos = 0;
-        for (int y = 0; y < bitmapHeight; y++) {
-            for (int x = 0; x < bitmapWidth; x++) {
-                int c = 0;
-                if (bitmapFormat == DefineBitsLosslessTag.FORMAT_8BIT_COLORMAPPED) {
-                    int colorTableIndex = colorMapData.colorMapPixelData[pos32aligned] & 0xff;
-                    if (colorTableIndex < colorMapData.colorTableRGB.length) {
-                        RGB color = colorMapData.colorTableRGB[colorTableIndex];
-                        c = color.toInt();
-                    }
-                }
-                if (bitmapFormat == DefineBitsLosslessTag.FORMAT_15BIT_RGB) {
-                    c = new RGB(bitmapData.bitmapPixelDataPix15[pos].red * 8, bitmapData.bitmapPixelDataPix15[pos].green * 8, bitmapData.bitmapPixelDataPix15[pos].blue * 8).toInt();
-                }
-                if (bitmapFormat == DefineBitsLosslessTag.FORMAT_24BIT_RGB) {
-                    c = new RGB(bitmapData.bitmapPixelDataPix24[pos].red, bitmapData.bitmapPixelDataPix24[pos].green, bitmapData.bitmapPixelDataPix24[pos].blue).toInt();
-                }
-                bi.setRGB(x, y, c);
-                pos32aligned++;
-                pos++;
-            }
-            while ((pos32aligned % 4 != 0)) {
-                pos32aligned++;
-            }
-        }
+        SerializableImage bi = LosslessImageDecoder.decode(bitmapFormat, bitmapColorTableSize, bitmapWidth, bitmapHeight, zlibBitmapData, false);
         cachedImage = bi;
         return bi;
     }
@@ -207,7 +173,7 @@ public class DefineBitsLosslessTag extends ImageTag implements AloneTag {
 
     private void uncompressData() {
         try {
-            SWFInputStream sis = new SWFInputStream(swf, Helper.readStream(new InflaterInputStream(new ByteArrayInputStream(zlibBitmapData.getArray(), zlibBitmapData.getPos(), zlibBitmapData.getLength()))));
+            SWFInputStream sis = new SWFInputStream(swf, Helper.readStream(new InflaterInputStream(zlibBitmapData.getInputStream())));
             if (bitmapFormat == FORMAT_8BIT_COLORMAPPED) {
                 colorMapData = sis.readCOLORMAPDATA(bitmapColorTableSize, bitmapWidth, bitmapHeight, "colorMapData");
             }
@@ -192,10 +192,7 @@ public class DefineButtonTag extends ButtonTag implements ASMSource {
     public ActionList getActions() throws InterruptedException {
         try {
             int prevLength = actionBytes.getPos();
-            SWFInputStream rri = new SWFInputStream(swf, actionBytes.getArray());
-            if (prevLength != 0) {
-                rri.seek(prevLength);
-            }
+            SWFInputStream rri = new SWFInputStream(swf, actionBytes, actionBytes.getArrayLength());
 
             ActionList list = ActionListReader.readActionListTimeout(listeners, rri, getVersion(), prevLength, prevLength + actionBytes.getLength(), toString()/*FIXME?*/);
             return list;
@@ -55,8 +55,7 @@ public class DefineShape2Tag extends ShapeTag {
     public SHAPEWITHSTYLE getShapes() {
         if (shapes == null && shapeData != null) {
             try {
-                SWFInputStream sis = new SWFInputStream(swf, shapeData.getArray(), 0, shapeData.getPos() + shapeData.getLength());
-                sis.seek(shapeData.getPos());
+                SWFInputStream sis = new SWFInputStream(swf, shapeData, shapeData.getPos() + shapeData.getLength());
                 shapes = sis.readSHAPEWITHSTYLE(2, false, "shapes");
                 shapeData = null; // not needed anymore, give it to GC
             } catch (IOException ex) {
@@ -124,7 +123,7 @@ public class DefineShape2Tag extends ShapeTag {
         if (!lazy) {
             shapes = sis.readSHAPEWITHSTYLE(2, false, "shapes");
         } else {
-            shapeData = new ByteArrayRange(data.getArray(), (int) sis.getPos(), sis.available());
+            shapeData = data.getArrayRange((int) sis.getPos(), sis.available());
         }
     }
 
@@ -54,8 +54,7 @@ public class DefineShapeTag extends ShapeTag {
     public SHAPEWITHSTYLE getShapes() {
         if (shapes == null && shapeData != null) {
             try {
-                SWFInputStream sis = new SWFInputStream(swf, shapeData.getArray(), 0, shapeData.getPos() + shapeData.getLength());
-                sis.seek(shapeData.getPos());
+                SWFInputStream sis = new SWFInputStream(swf, shapeData, shapeData.getPos() + shapeData.getLength());
                 shapes = sis.readSHAPEWITHSTYLE(1, false, "shapes");
                 shapeData = null; // not needed anymore, give it to GC
             } catch (IOException ex) {
@@ -118,7 +117,7 @@ public class DefineShapeTag extends ShapeTag {
         if (!lazy) {
             shapes = sis.readSHAPEWITHSTYLE(1, false, "shapes");
         } else {
-            shapeData = new ByteArrayRange(data.getArray(), (int) sis.getPos(), sis.available());
+            shapeData = data.getArrayRange((int) sis.getPos(), sis.available());
         }
     }
 
@@ -71,11 +71,12 @@ public class DoABCTag extends Tag implements ABCContainerTag {
      *
      * @param sis
      * @param data
+     * @param lazy Decode the constant pool on demand
      * @throws IOException
      */
-    public DoABCTag(SWFInputStream sis, ByteArrayRange data) throws IOException {
+    public DoABCTag(SWFInputStream sis, ByteArrayRange data, boolean lazy) throws IOException {
         super(sis.getSwf(), ID, "DoABC", data);
-        readData(sis, data, 0, false, false, false);
+        readData(sis, data, 0, false, false, lazy);
     }
 
     @Override
@@ -83,7 +84,7 @@ public class DoABCTag extends Tag implements ABCContainerTag {
         ABCInputStream ais = new ABCInputStream(sis.getBaseStream());
         // put it to the dumpview:
         sis.readByteRangeEx(sis.available(), "abcBytes");
-        abc = new ABC(ais, swf, this);
+        abc = new ABC(ais, swf, this, lazy);
     }
 
     /**
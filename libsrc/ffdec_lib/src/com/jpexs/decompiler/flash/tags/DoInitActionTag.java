@@ -134,10 +134,7 @@ public class DoInitActionTag extends Tag implements CharacterIdTag, ASMSource {
     public ActionList getActions() throws InterruptedException {
         try {
             int prevLength = actionBytes.getPos();
-            SWFInputStream rri = new SWFInputStream(swf, actionBytes.getArray());
-            if (prevLength != 0) {
-                rri.seek(prevLength);
-            }
+            SWFInputStream rri = new SWFInputStream(swf, actionBytes, actionBytes.getArrayLength());
 
             ActionList list = ActionListReader.readActionListTimeout(listeners, rri, getVersion(), prevLength, prevLength + actionBytes.getLength(), toString()/*FIXME?*/);
             return list;
@@ -403,11 +403,20 @@ public abstract class Tag implements NeedsCharacters, Exportable, Serializable {
     }
 
     protected byte[] getHeader(byte[] data) {
+        return getHeader(data.length);
+    }
+
+    /**
+     * Gets the tag header (type and length)
+     *
+     * @param tagLength Length of the tag data
+     * @return Header bytes
+     */
+    public byte[] getHeader(int tagLength) {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         try {
 
             SWFOutputStream sos = new SWFOutputStream(baos, swf.version);
-            int tagLength = data.length;
             int tagID = getId();
             int tagIDLength = (tagID << 6);
             if ((tagLength <= 62) && (!forceWriteAsLong)) {
@@ -452,7 +461,7 @@ public abstract class Tag implements NeedsCharacters, Exportable, Serializable {
             sos.write(newHeaderData);
             sos.write(newData);
         } else {
-            sos.write(originalRange.getArray(), originalRange.getPos(), originalRange.getLength());
+            sos.write(originalRange);
         }
     }
 
@@ -512,11 +521,7 @@ public abstract class Tag implements NeedsCharacters, Exportable, Serializable {
         }
 
         int dataLength = getOriginalDataLength();
-        int pos = (int) (originalRange.getPos() + originalRange.getLength() - dataLength);
-
-        byte[] data = new byte[dataLength];
-        System.arraycopy(originalRange.getArray(), pos, data, 0, dataLength);
-        return data;
+        return originalRange.getRangeData(originalRange.getLength() - dataLength, dataLength);
     }
 
     public final int getOriginalDataLength() {
@@ -528,7 +533,7 @@ public abstract class Tag implements NeedsCharacters, Exportable, Serializable {
     }
 
     private boolean isLongOriginal() {
-        int shortLength = originalRange.getArray()[(int) originalRange.getPos()] & 0x003F;
+        int shortLength = originalRange.get(0) & 0x003F;
         return shortLength == 0x3f;
     }
 
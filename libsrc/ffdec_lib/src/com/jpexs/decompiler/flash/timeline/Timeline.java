@@ -89,12 +89,16 @@ public class Timeline {
 
     public final List<Tag> otherTags = new ArrayList<>();
 
-    private boolean initialized = false;
+    private volatile boolean initialized = false;
 
     private void ensureInitialized() {
         if (!initialized) {
-            initialize();
-            initialized = true;
+            synchronized (this) {
+                if (!initialized) {
+                    initialize();
+                    initialized = true;
+                }
+            }
         }
     }
 
@@ -195,10 +195,7 @@ public class CLIPACTIONRECORD implements ASMSource, Serializable {
     public ActionList getActions() throws InterruptedException {
         try {
             int prevLength = actionBytes.getPos();
-            SWFInputStream rri = new SWFInputStream(swf, actionBytes.getArray());
-            if (prevLength != 0) {
-                rri.seek(prevLength);
-            }
+            SWFInputStream rri = new SWFInputStream(swf, actionBytes, actionBytes.getArrayLength());
 
             ActionList list = ActionListReader.readActionListTimeout(listeners, rri, swf.version, prevLength, prevLength + actionBytes.getLength(), toString()/*FIXME?*/);
             return list;
@@ -42,15 +42,20 @@ public class MP3Decoder extends SoundDecoder {
         Decoder decoder = new Decoder();
         Bitstream bitstream = new Bitstream(new ByteArrayInputStream(sis.readBytesEx(sis.available(), "soundStream")));
         SampleBuffer buf;
+        // the decoder reuses its sample buffer, so the output buffer is reused too
+        byte[] d = new byte[0];
         while ((buf = readFrame(decoder, bitstream)) != null) {
             short[] audio = buf.getBuffer();
-            byte[] d = new byte[buf.getBufferLength() * 2];
-            for (int i = 0; i < buf.getBufferLength(); i++) {
+            int length = buf.getBufferLength();
+            if (d.length < length * 2) {
+                d = new byte[length * 2];
+            }
+            for (int i = 0; i < length; i++) {
                 int s = audio[i];
                 d[i * 2] = (byte) (s & 0xff);
                 d[i * 2 + 1] = (byte) ((s >> 8) & 0xff);
             }
-            os.write(d);
+            os.write(d, 0, length * 2);
         }
     }
 
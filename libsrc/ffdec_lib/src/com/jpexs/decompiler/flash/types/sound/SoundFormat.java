@@ -18,9 +18,15 @@ package com.jpexs.decompiler.flash.types.sound;
 
 import com.jpexs.decompiler.flash.SWFInputStream;
 import com.jpexs.helpers.utf8.Utf8Helper;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
@@ -63,6 +69,8 @@ public class SoundFormat {
 
     public static final int EXPORT_FLV = 2;
 
+    private static final int WAV_HEADER_SIZE = 44;
+
     public SoundFormat() {
 
     }
@@ -174,6 +182,15 @@ public class SoundFormat {
         }
     }
 
+    /**
+     * Decodes the sound data and writes them as WAV. The PCM data are
+     * collected in memory, because the size must be known before they are
+     * written.
+     *
+     * @param siss Sound data
+     * @param os Output stream
+     * @return False on error
+     */
     public boolean createWav(List<SWFInputStream> siss, OutputStream os) {
         ensureFormat();
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -181,43 +198,80 @@ public class SoundFormat {
             decode(sis, baos);
         }
         try {
-            createWavFromPcmData(os, samplingRate, true, stereo, baos.toByteArray());
+            writeWavHeader(os, samplingRate, true, stereo, baos.size());
+            baos.writeTo(os);
             return true;
         } catch (IOException ex) {
             return false;
         }
     }
 
-    public static void createWavFromPcmData(OutputStream fos, int soundRateHz, boolean sample16bit, boolean stereo, byte[] data) throws IOException {
-        ByteArrayOutputStream subChunk1Data = new ByteArrayOutputStream();
+    /**
+     * Decodes the sound data and writes them as WAV file. The PCM data are
+     * written directly to the file, the header is written at the end, when the
+     * data size and the format (which can be changed by the MP3 decoder) are
+     * known.
+     *
+     * @param siss Sound data
+     * @param file Output file
+     * @throws IOException On write error
+     */
+    public void createWav(List<SWFInputStream> siss, File file) throws IOException {
+        ensureFormat();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream os = new BufferedOutputStream(Channels.newOutputStream(channel));
+            os.write(new byte[WAV_HEADER_SIZE]);
+            for (SWFInputStream sis : siss) {
+                decode(sis, os);
+            }
+            os.flush();
+
+            long dataLength = channel.position() - WAV_HEADER_SIZE;
+            ByteArrayOutputStream header = new ByteArrayOutputStream(WAV_HEADER_SIZE);
+            writeWavHeader(header, samplingRate, true, stereo, dataLength);
+            channel.position(0);
+            channel.write(ByteBuffer.wrap(header.toByteArray()));
+        }
+    }
+
+    /**
+     * Writes the RIFF, fmt and data chunk headers of the WAV file, the PCM
+     * data should follow
+     *
+     * @param os Output stream
+     * @param soundRateHz Sampling rate
+     * @param sample16bit True for 16 bit samples, false for 8 bit samples
+     * @param stereo True for 2 channels
+     * @param dataLength Length of the PCM data in bytes
+     * @throws IOException On write error
+     */
+    public static void writeWavHeader(OutputStream os, int soundRateHz, boolean sample16bit, boolean stereo, long dataLength) throws IOException {
+        os.write(Utf8Helper.getBytes("RIFF"));
+        writeLE(os, WAV_HEADER_SIZE - 8 + dataLength, 4);
+        os.write(Utf8Helper.getBytes("WAVE"));
+
+        os.write(Utf8Helper.getBytes("fmt "));
+        writeLE(os, 16, 4);
         int audioFormat = 1; //PCM
-        writeLE(subChunk1Data, audioFormat, 2);
+        writeLE(os, audioFormat, 2);
         int numChannels = stereo ? 2 : 1;
-        writeLE(subChunk1Data, numChannels, 2);
+        writeLE(os, numChannels, 2);
 
         int sampleRate = soundRateHz;//rateMap[soundRate];
-        writeLE(subChunk1Data, sampleRate, 4);
+        writeLE(os, sampleRate, 4);
         int bitsPerSample = sample16bit ? 16 : 8;
         int byteRate = sampleRate * numChannels * bitsPerSample / 8;
-        writeLE(subChunk1Data, byteRate, 4);
+        writeLE(os, byteRate, 4);
         int blockAlign = numChannels * bitsPerSample / 8;
-        writeLE(subChunk1Data, blockAlign, 2);
-        writeLE(subChunk1Data, bitsPerSample, 2);
-
-        ByteArrayOutputStream chunks = new ByteArrayOutputStream();
-        chunks.write(Utf8Helper.getBytes("fmt "));
-        byte[] subChunk1DataBytes = subChunk1Data.toByteArray();
-        writeLE(chunks, subChunk1DataBytes.length, 4);
-        chunks.write(subChunk1DataBytes);
-
-        chunks.write(Utf8Helper.getBytes("data"));
-        writeLE(chunks, data.length, 4);
-        chunks.write(data);
-
-        fos.write(Utf8Helper.getBytes("RIFF"));
-        byte[] chunkBytes = chunks.toByteArray();
-        writeLE(fos, 4 + chunkBytes.length, 4);
-        fos.write(Utf8Helper.getBytes("WAVE"));
-        fos.write(chunkBytes);
+        writeLE(os, blockAlign, 2);
+        writeLE(os, bitsPerSample, 2);
+
+        os.write(Utf8Helper.getBytes("data"));
+        writeLE(os, dataLength, 4);
+    }
+
+    public static void createWavFromPcmData(OutputStream fos, int soundRateHz, boolean sample16bit, boolean stereo, byte[] data) throws IOException {
+        writeWavHeader(fos, soundRateHz, sample16bit, stereo, data.length);
+        fos.write(data);
     }
 }
@@ -0,0 +1,73 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.xfl;
+
+import com.jpexs.decompiler.flash.AbortRetryIgnoreHandler;
+import com.jpexs.decompiler.flash.RetryTask;
+import com.jpexs.helpers.Path;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the XFL files to a directory
+ *
+ * @author JPEXS
+ */
+public class DirectoryXFLOutput implements XFLOutput {
+
+    private final File directory;
+
+    private final AbortRetryIgnoreHandler handler;
+
+    public DirectoryXFLOutput(File directory, AbortRetryIgnoreHandler handler) {
+        this.directory = directory;
+        this.handler = handler;
+    }
+
+    private File getFile(String name) throws IOException {
+        File file = new File(directory, name.replace('/', File.separatorChar));
+        Path.createDirectorySafe(file.getParentFile());
+        return file;
+    }
+
+    @Override
+    public void writeFile(String name, byte[] data) throws IOException {
+        final File file = getFile(name);
+        new RetryTask(() -> {
+            try (FileOutputStream fos = new FileOutputStream(file)) {
+                fos.write(data);
+            }
+        }, handler).run();
+    }
+
+    @Override
+    public void writeXml(String name, String xml) throws IOException {
+        final File file = getFile(name);
+        new RetryTask(() -> {
+            try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
+                XFLConverter.writeXml(xml, os);
+            }
+        }, handler).run();
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+}
@@ -102,8 +102,10 @@ import com.jpexs.decompiler.flash.types.shaperecords.StyleChangeRecord;
 import com.jpexs.decompiler.flash.types.sound.MP3FRAME;
 import com.jpexs.decompiler.flash.types.sound.MP3SOUNDDATA;
 import com.jpexs.decompiler.flash.types.sound.SoundFormat;
+import com.jpexs.helpers.IndentingXMLStreamWriter;
 import com.jpexs.helpers.Path;
 import com.jpexs.helpers.SerializableImage;
+import com.jpexs.helpers.WorkerPool;
 import com.jpexs.helpers.utf8.Utf8Helper;
 import java.awt.Font;
 import java.awt.Point;
@@ -111,28 +113,31 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.StringReader;
-import java.io.StringWriter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 import javax.xml.parsers.SAXParserFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.transform.stream.StreamSource;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -157,7 +162,62 @@ public class XFLConverter {
 
     public static final int KEY_MODE_SHAPE_LAYERS = 8192;
 
-    private static final Random random = new Random(123); // predictable random
+    private static final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+        @Override
+        protected Random initialValue() {
+            return new Random(123); // predictable random
+        }
+    };
+
+    /**
+     * Content of the bin file of the ActionScript controlled video
+     */
+    private static final byte[] VIDEO_DAT_FILE = new byte[]{ //Magic numbers, if anybody knows why, please tell me
+                    (byte) 0x03, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
+                    (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
+                    (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
+                    (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0xA0, (byte) 0x00, (byte) 0x00,
+                    (byte) 0x00, (byte) 0x78, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
+                    (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x01, (byte) 0x00, (byte) 0x00,
+                    (byte) 0x00, (byte) 0x01, (byte) 0x01, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x01,
+                    (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
+                    (byte) 0x00, (byte) 0x59, (byte) 0x40, (byte) 0x18, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
+                    (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
+                    (byte) 0x01, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
+                    (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0xFF, (byte) 0xFE, (byte) 0xFF,
+                    (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00
+    };
+
+    /**
+     * Builds the media element of the library item, the index and the dat file
+     * name are known only when the items are written in order
+     */
+    private interface MediaLink {
+
+        public String get(int mediaIndex, String datFileName);
+    }
+
+    private static class LibraryItem {
+
+        /**
+         * Name of the file in the LIBRARY folder
+         */
+        String fileName;
+
+        byte[] data;
+
+        /**
+         * Include element of the symbol
+         */
+        String symbolLink;
+
+        MediaLink mediaLink;
+
+        /**
+         * The media needs a file in the bin folder
+         */
+        boolean needsDatFile;
+    }
 
     private XFLConverter() {
     }
@@ -1184,354 +1244,494 @@ public class XFLConverter {
         return new Date().getTime() / 1000;
     }
 
-    public static String convertLibrary(SWF swf, Map<Integer, String> characterVariables, Map<Integer, String> characterClasses, List<Integer> nonLibraryShapes, String backgroundColor, List<Tag> tags, HashMap<Integer, CharacterTag> characters, HashMap<String, byte[]> files, HashMap<String, byte[]> datfiles, FLAVersion flaVersion) {
+    public static String convertLibrary(SWF swf, Map<Integer, String> characterVariables, Map<Integer, String> characterClasses, List<Integer> nonLibraryShapes, String backgroundColor, List<Tag> tags, HashMap<Integer, CharacterTag> characters, Set<String> files, XFLOutput output, boolean parallel, FLAVersion flaVersion) throws IOException, InterruptedException {
 
         //TODO: Imported assets
         //linkageImportForRS="true" linkageIdentifier="xxx" linkageURL="yyy.swf"
         StringBuilder ret = new StringBuilder();
         List<String> media = new ArrayList<>();
         List<String> symbols = new ArrayList<>();
-        for (int ch : characters.keySet()) {
-            CharacterTag symbol = characters.get(ch);
-            if ((symbol instanceof ShapeTag) && nonLibraryShapes.contains(symbol.getCharacterId())) {
-                continue; //shapes with 1 ocurrence and single layer are not added to library
-            }
-            if ((symbol instanceof ShapeTag) || (symbol instanceof DefineSpriteTag) || (symbol instanceof ButtonTag)) {
-                StringBuilder symbolStr = new StringBuilder();
-
-                symbolStr.append("<DOMSymbolItem xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns=\"http://ns.adobe.com/xfl/2008/\" name=\"Symbol ").append(symbol.getCharacterId()).append("\" lastModified=\"").append(getTimestamp()).append("\""); //TODO:itemID
-                if (symbol instanceof ShapeTag) {
-                    symbolStr.append(" symbolType=\"graphic\"");
-                } else if (symbol instanceof ButtonTag) {
-                    symbolStr.append(" symbolType=\"button\"");
-                    if (((ButtonTag) symbol).trackAsMenu()) {
-                        symbolStr.append("  trackAsMenu=\"true\"");
-                    }
+        int datFileCount = 0;
+        List<Integer> characterIds = new ArrayList<>(characters.keySet());
+        // the items are converted in parallel, but written in the character order,
+        // at most window items are converted ahead of the written one
+        int window = parallel ? Math.max(2, Runtime.getRuntime().availableProcessors() * 2) : 0;
+        Deque<Future<LibraryItem>> futureResults = new ArrayDeque<>();
+        int next = 0;
+        try {
+            while (next < characterIds.size() || !futureResults.isEmpty()) {
+                LibraryItem item;
+                if (parallel) {
+                    while (next < characterIds.size() && futureResults.size() < window) {
+                        final CharacterTag symbol = characters.get(characterIds.get(next++));
+                        futureResults.add(WorkerPool.submit(() -> convertLibraryItem(swf, symbol, characterVariables, characterClasses, nonLibraryShapes, backgroundColor, tags, characters, files, flaVersion)));
+                    }
+                    item = WorkerPool.get(futureResults.poll());
+                } else {
+                    CharacterTag symbol = characters.get(characterIds.get(next++));
+                    item = convertLibraryItem(swf, symbol, characterVariables, characterClasses, nonLibraryShapes, backgroundColor, tags, characters, files, flaVersion);
                 }
-                boolean linkageExportForAS = false;
-                if (characterClasses.containsKey(symbol.getCharacterId())) {
-                    linkageExportForAS = true;
-                    symbolStr.append(" linkageClassName=\"").append(xmlString(characterClasses.get(symbol.getCharacterId()))).append("\"");
+                if (item == null) {
+                    continue;
                 }
-                if (characterVariables.containsKey(symbol.getCharacterId())) {
-                    linkageExportForAS = true;
-                    symbolStr.append(" linkageIdentifier=\"").append(xmlString(characterVariables.get(symbol.getCharacterId()))).append("\"");
+                if (item.fileName != null) {
+                    output.writeFile("LIBRARY/" + item.fileName, item.data);
                 }
-                if (linkageExportForAS) {
-                    symbolStr.append(" linkageExportForAS=\"true\"");
-                }
-                symbolStr.append(">");
-                symbolStr.append("<timeline>");
-                String itemIcon = null;
-                if (symbol instanceof ButtonTag) {
-                    itemIcon = "0";
-                    symbolStr.append("<DOMTimeline name=\"Symbol ").append(symbol.getCharacterId()).append("\" currentFrame=\"0\">");
-                    symbolStr.append("<layers>");
-
-                    ButtonTag button = (ButtonTag) symbol;
-                    List<BUTTONRECORD> records = button.getRecords();
-
-                    int maxDepth = 0;
-                    for (BUTTONRECORD rec : records) {
-                        if (rec.placeDepth > maxDepth) {
-                            maxDepth = rec.placeDepth;
-                        }
+                if (item.symbolLink != null) {
+                    symbols.add(item.symbolLink);
+                }
+                if (item.mediaLink != null) {
+                    String datFileName = null;
+                    if (item.needsDatFile) {
+                        datFileCount++;
+                        datFileName = "M " + datFileCount + " " + getTimestamp() + ".dat";
+                        output.writeFile("bin/" + datFileName, VIDEO_DAT_FILE);
                     }
-                    for (int i = maxDepth; i >= 1; i--) {
-                        symbolStr.append("<DOMLayer name=\"Layer ").append(maxDepth - i + 1).append("\"");
-                        if (i == 1) {
-                            symbolStr.append(" current=\"true\" isSelected=\"true\"");
-                        }
-                        symbolStr.append(" color=\"").append(randomOutlineColor()).append("\">");
-                        symbolStr.append("<frames>");
-                        int lastFrame = 0;
-                        loopframes:
-                        for (int frame = 1; frame <= 4; frame++) {
-                            for (BUTTONRECORD rec : records) {
-                                if (rec.placeDepth == i) {
-                                    boolean ok = false;
-                                    switch (frame) {
-                                        case 1:
-                                            ok = rec.buttonStateUp;
-                                            break;
-                                        case 2:
-                                            ok = rec.buttonStateOver;
-                                            break;
-                                        case 3:
-                                            ok = rec.buttonStateDown;
-                                            break;
-                                        case 4:
-                                            ok = rec.buttonStateHitTest;
-                                            break;
-                                    }
-                                    if (!ok) {
-                                        continue;
-                                    }
-                                    CXFORMWITHALPHA colorTransformAlpha = null;
-                                    int blendMode = 0;
-                                    List<FILTER> filters = new ArrayList<>();
-                                    if (button instanceof DefineButton2Tag) {
-                                        colorTransformAlpha = rec.colorTransform;
-                                        if (rec.buttonHasBlendMode) {
-                                            blendMode = rec.blendMode;
-                                        }
-                                        if (rec.buttonHasFilterList) {
-                                            filters = rec.filterList;
-                                        }
+                    media.add(item.mediaLink.get(media.size() + 1, datFileName));
+                }
+            }
+        } catch (InterruptedException ex) {
+            WorkerPool.cancelAll(new ArrayList<>(futureResults));
+            throw ex;
+        } catch (ExecutionException ex) {
+            WorkerPool.cancelAll(new ArrayList<>(futureResults));
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+        if (!media.isEmpty()) {
+            ret.append("<media>");
+            for (String m : media) {
+                ret.append(m);
+            }
+            ret.append("</media>");
+        }
+        if (!symbols.isEmpty()) {
+            ret.append("<symbols>");
+            for (String s : symbols) {
+                ret.append(s);
+            }
+            ret.append("</symbols>");
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Converts the library item of the character. The method can be called
+     * from more threads at once.
+     *
+     * @return Converted item or null when the character is not in the library
+     */
+    private static LibraryItem convertLibraryItem(SWF swf, CharacterTag symbol, Map<Integer, String> characterVariables, Map<Integer, String> characterClasses, List<Integer> nonLibraryShapes, String backgroundColor, List<Tag> tags, HashMap<Integer, CharacterTag> characters, Set<String> files, FLAVersion flaVersion) throws IOException {
+        LibraryItem item = new LibraryItem();
+        random.set(new Random(123 + symbol.getCharacterId()));
+        if ((symbol instanceof ShapeTag) && nonLibraryShapes.contains(symbol.getCharacterId())) {
+            return null; //shapes with 1 ocurrence and single layer are not added to library
+        }
+        if ((symbol instanceof ShapeTag) || (symbol instanceof DefineSpriteTag) || (symbol instanceof ButtonTag)) {
+            StringBuilder symbolStr = new StringBuilder();
+
+            symbolStr.append("<DOMSymbolItem xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns=\"http://ns.adobe.com/xfl/2008/\" name=\"Symbol ").append(symbol.getCharacterId()).append("\" lastModified=\"").append(getTimestamp()).append("\""); //TODO:itemID
+            if (symbol instanceof ShapeTag) {
+                symbolStr.append(" symbolType=\"graphic\"");
+            } else if (symbol instanceof ButtonTag) {
+                symbolStr.append(" symbolType=\"button\"");
+                if (((ButtonTag) symbol).trackAsMenu()) {
+                    symbolStr.append("  trackAsMenu=\"true\"");
+                }
+            }
+            boolean linkageExportForAS = false;
+            if (characterClasses.containsKey(symbol.getCharacterId())) {
+                linkageExportForAS = true;
+                symbolStr.append(" linkageClassName=\"").append(xmlString(characterClasses.get(symbol.getCharacterId()))).append("\"");
+            }
+            if (characterVariables.containsKey(symbol.getCharacterId())) {
+                linkageExportForAS = true;
+                symbolStr.append(" linkageIdentifier=\"").append(xmlString(characterVariables.get(symbol.getCharacterId()))).append("\"");
+            }
+            if (linkageExportForAS) {
+                symbolStr.append(" linkageExportForAS=\"true\"");
+            }
+            symbolStr.append(">");
+            symbolStr.append("<timeline>");
+            String itemIcon = null;
+            if (symbol instanceof ButtonTag) {
+                itemIcon = "0";
+                symbolStr.append("<DOMTimeline name=\"Symbol ").append(symbol.getCharacterId()).append("\" currentFrame=\"0\">");
+                symbolStr.append("<layers>");
+
+                ButtonTag button = (ButtonTag) symbol;
+                List<BUTTONRECORD> records = button.getRecords();
+
+                int maxDepth = 0;
+                for (BUTTONRECORD rec : records) {
+                    if (rec.placeDepth > maxDepth) {
+                        maxDepth = rec.placeDepth;
+                    }
+                }
+                for (int i = maxDepth; i >= 1; i--) {
+                    symbolStr.append("<DOMLayer name=\"Layer ").append(maxDepth - i + 1).append("\"");
+                    if (i == 1) {
+                        symbolStr.append(" current=\"true\" isSelected=\"true\"");
+                    }
+                    symbolStr.append(" color=\"").append(randomOutlineColor()).append("\">");
+                    symbolStr.append("<frames>");
+                    int lastFrame = 0;
+                    loopframes:
+                    for (int frame = 1; frame <= 4; frame++) {
+                        for (BUTTONRECORD rec : records) {
+                            if (rec.placeDepth == i) {
+                                boolean ok = false;
+                                switch (frame) {
+                                    case 1:
+                                        ok = rec.buttonStateUp;
+                                        break;
+                                    case 2:
+                                        ok = rec.buttonStateOver;
+                                        break;
+                                    case 3:
+                                        ok = rec.buttonStateDown;
+                                        break;
+                                    case 4:
+                                        ok = rec.buttonStateHitTest;
+                                        break;
+                                }
+                                if (!ok) {
+                                    continue;
+                                }
+                                CXFORMWITHALPHA colorTransformAlpha = null;
+                                int blendMode = 0;
+                                List<FILTER> filters = new ArrayList<>();
+                                if (button instanceof DefineButton2Tag) {
+                                    colorTransformAlpha = rec.colorTransform;
+                                    if (rec.buttonHasBlendMode) {
+                                        blendMode = rec.blendMode;
                                     }
-                                    CharacterTag character = characters.get(rec.characterId);
-                                    MATRIX matrix = rec.placeMatrix;
-                                    String recCharStr;
-                                    if (character instanceof TextTag) {
-                                        recCharStr = convertText(null, (TextTag) character, matrix, filters, null);
-                                    } else if (character instanceof DefineVideoStreamTag) {
-                                        recCharStr = convertVideoInstance(null, matrix, (DefineVideoStreamTag) character, null);
-                                    } else {
-                                        recCharStr = convertSymbolInstance(null, matrix, colorTransformAlpha, false, blendMode, filters, true, null, null, characters.get(rec.characterId), characters, tags, flaVersion);
+                                    if (rec.buttonHasFilterList) {
+                                        filters = rec.filterList;
                                     }
-                                    int duration = frame - lastFrame;
-                                    lastFrame = frame;
-                                    if (duration > 0) {
-                                        if (duration > 1) {
-                                            symbolStr.append("<DOMFrame index=\"");
-                                            symbolStr.append((frame - duration));
-                                            symbolStr.append("\"");
-                                            symbolStr.append(" duration=\"").append(duration - 1).append("\"");
-                                            symbolStr.append(" keyMode=\"").append(KEY_MODE_NORMAL).append("\">");
-                                            symbolStr.append("<elements>");
-                                            symbolStr.append("</elements>");
-                                            symbolStr.append("</DOMFrame>");
-                                        }
+                                }
+                                CharacterTag character = characters.get(rec.characterId);
+                                MATRIX matrix = rec.placeMatrix;
+                                String recCharStr;
+                                if (character instanceof TextTag) {
+                                    recCharStr = convertText(null, (TextTag) character, matrix, filters, null);
+                                } else if (character instanceof DefineVideoStreamTag) {
+                                    recCharStr = convertVideoInstance(null, matrix, (DefineVideoStreamTag) character, null);
+                                } else {
+                                    recCharStr = convertSymbolInstance(null, matrix, colorTransformAlpha, false, blendMode, filters, true, null, null, characters.get(rec.characterId), characters, tags, flaVersion);
+                                }
+                                int duration = frame - lastFrame;
+                                lastFrame = frame;
+                                if (duration > 0) {
+                                    if (duration > 1) {
                                         symbolStr.append("<DOMFrame index=\"");
-                                        symbolStr.append((frame - 1));
+                                        symbolStr.append((frame - duration));
                                         symbolStr.append("\"");
+                                        symbolStr.append(" duration=\"").append(duration - 1).append("\"");
                                         symbolStr.append(" keyMode=\"").append(KEY_MODE_NORMAL).append("\">");
                                         symbolStr.append("<elements>");
-                                        symbolStr.append(recCharStr);
                                         symbolStr.append("</elements>");
                                         symbolStr.append("</DOMFrame>");
                                     }
+                                    symbolStr.append("<DOMFrame index=\"");
+                                    symbolStr.append((frame - 1));
+                                    symbolStr.append("\"");
+                                    symbolStr.append(" keyMode=\"").append(KEY_MODE_NORMAL).append("\">");
+                                    symbolStr.append("<elements>");
+                                    symbolStr.append(recCharStr);
+                                    symbolStr.append("</elements>");
+                                    symbolStr.append("</DOMFrame>");
                                 }
                             }
                         }
-                        symbolStr.append("</frames>");
-                        symbolStr.append("</DOMLayer>");
-                    }
-                    symbolStr.append("</layers>");
-                    symbolStr.append("</DOMTimeline>");
-                } else if (symbol instanceof DefineSpriteTag) {
-                    DefineSpriteTag sprite = (DefineSpriteTag) symbol;
-                    if (sprite.subTags.isEmpty()) { //probably AS2 class
-                        continue;
-                    }
-                    symbolStr.append(convertTimeline(sprite.spriteId, nonLibraryShapes, backgroundColor, tags, sprite.getSubTags(), characters, "Symbol " + symbol.getCharacterId(), flaVersion, files));
-                } else if (symbol instanceof ShapeTag) {
-                    itemIcon = "1";
-                    ShapeTag shape = (ShapeTag) symbol;
-                    symbolStr.append("<DOMTimeline name=\"Symbol ").append(symbol.getCharacterId()).append("\" currentFrame=\"0\">");
-                    symbolStr.append("<layers>");
-                    symbolStr.append(convertShape(characters, null, shape.getShapeNum(), shape.getShapes().shapeRecords, shape.getShapes().fillStyles, shape.getShapes().lineStyles, false, true));
-                    symbolStr.append("</layers>");
-                    symbolStr.append("</DOMTimeline>");
-                }
-                symbolStr.append("</timeline>");
-                symbolStr.append("</DOMSymbolItem>");
-                String symbolStr2 = prettyFormatXML(symbolStr.toString());
-                String symbolFile = "Symbol " + symbol.getCharacterId() + ".xml";
-                files.put(symbolFile, Utf8Helper.getBytes(symbolStr2));
-                String symbLinkStr = "";
-                symbLinkStr += "<Include href=\"" + symbolFile + "\"";
-                if (itemIcon != null) {
-                    symbLinkStr += " itemIcon=\"" + itemIcon + "\"";
-                }
-                symbLinkStr += " loadImmediate=\"false\"";
-                if (flaVersion.ordinal() >= FLAVersion.CS5_5.ordinal()) {
-                    symbLinkStr += " lastModified=\"" + getTimestamp() + "\"";
-                    //TODO: itemID=\"518de416-00000341\"
-                }
-                symbLinkStr += "/>";
-                symbols.add(symbLinkStr);
-            } else if (symbol instanceof ImageTag) {
-                ImageTag imageTag = (ImageTag) symbol;
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                SerializableImage image = imageTag.getImage();
-                // do not store the image in cache during xfl conversion
-                imageTag.clearCache();
-                String format = imageTag.getImageFormat();
-                ImageHelper.write(image.getBufferedImage(), format.toUpperCase(), baos);
-                String symbolFile = "bitmap" + symbol.getCharacterId() + "." + imageTag.getImageFormat();
-                files.put(symbolFile, baos.toByteArray());
-                String mediaLinkStr = "<DOMBitmapItem name=\"" + symbolFile + "\" sourceLastImported=\"" + getTimestamp() + "\" externalFileSize=\"" + baos.toByteArray().length + "\"";
-                switch (format) {
-                    case "png":
-                    case "gif":
-                        mediaLinkStr += " useImportedJPEGData=\"false\" compressionType=\"lossless\" originalCompressionType=\"lossless\"";
+                    }
+                    symbolStr.append("</frames>");
+                    symbolStr.append("</DOMLayer>");
+                }
+                symbolStr.append("</layers>");
+                symbolStr.append("</DOMTimeline>");
+            } else if (symbol instanceof DefineSpriteTag) {
+                DefineSpriteTag sprite = (DefineSpriteTag) symbol;
+                if (sprite.subTags.isEmpty()) { //probably AS2 class
+                    return null;
+                }
+                symbolStr.append(convertTimeline(sprite.spriteId, nonLibraryShapes, backgroundColor, tags, sprite.getSubTags(), characters, "Symbol " + symbol.getCharacterId(), flaVersion, files));
+            } else if (symbol instanceof ShapeTag) {
+                itemIcon = "1";
+                ShapeTag shape = (ShapeTag) symbol;
+                symbolStr.append("<DOMTimeline name=\"Symbol ").append(symbol.getCharacterId()).append("\" currentFrame=\"0\">");
+                symbolStr.append("<layers>");
+                symbolStr.append(convertShape(characters, null, shape.getShapeNum(), shape.getShapes().shapeRecords, shape.getShapes().fillStyles, shape.getShapes().lineStyles, false, true));
+                symbolStr.append("</layers>");
+                symbolStr.append("</DOMTimeline>");
+            }
+            symbolStr.append("</timeline>");
+            symbolStr.append("</DOMSymbolItem>");
+            String symbolFile = "Symbol " + symbol.getCharacterId() + ".xml";
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            writeXml(symbolStr.toString(), baos);
+            item.fileName = symbolFile;
+            item.data = baos.toByteArray();
+            String symbLinkStr = "";
+            symbLinkStr += "<Include href=\"" + symbolFile + "\"";
+            if (itemIcon != null) {
+                symbLinkStr += " itemIcon=\"" + itemIcon + "\"";
+            }
+            symbLinkStr += " loadImmediate=\"false\"";
+            if (flaVersion.ordinal() >= FLAVersion.CS5_5.ordinal()) {
+                symbLinkStr += " lastModified=\"" + getTimestamp() + "\"";
+                //TODO: itemID=\"518de416-00000341\"
+            }
+            symbLinkStr += "/>";
+            item.symbolLink = symbLinkStr;
+        } else if (symbol instanceof ImageTag) {
+            ImageTag imageTag = (ImageTag) symbol;
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            SerializableImage image = imageTag.getImage();
+            // do not store the image in cache during xfl conversion
+            imageTag.clearCache();
+            String format = imageTag.getImageFormat();
+            ImageHelper.write(image.getBufferedImage(), format.toUpperCase(), baos);
+            String symbolFile = "bitmap" + symbol.getCharacterId() + "." + imageTag.getImageFormat();
+            item.fileName = symbolFile;
+            item.data = baos.toByteArray();
+            String mediaLinkStr = "<DOMBitmapItem name=\"" + symbolFile + "\" sourceLastImported=\"" + getTimestamp() + "\" externalFileSize=\"" + item.data.length + "\"";
+            switch (format) {
+                case "png":
+                case "gif":
+                    mediaLinkStr += " useImportedJPEGData=\"false\" compressionType=\"lossless\" originalCompressionType=\"lossless\"";
+                    break;
+                case "jpg":
+                    mediaLinkStr += " isJPEG=\"true\"";
+                    break;
+            }
+            if (characterClasses.containsKey(symbol.getCharacterId())) {
+                mediaLinkStr += " linkageExportForAS=\"true\" linkageClassName=\"" + characterClasses.get(symbol.getCharacterId()) + "\"";
+            }
+            final String mediaLinkStart = mediaLinkStr + " quality=\"50\" href=\"" + symbolFile + "\" bitmapDataHRef=\"M ";
+            final String mediaLinkEnd = " " + getTimestamp() + ".dat\" frameRight=\"" + image.getWidth() + "\" frameBottom=\"" + image.getHeight() + "\"/>\n";
+            item.mediaLink = (mediaIndex, datFileName) -> mediaLinkStart + mediaIndex + mediaLinkEnd;
+
+        } else if ((symbol instanceof SoundStreamHeadTypeTag) || (symbol instanceof DefineSoundTag)) {
+            int soundFormat = 0;
+            int soundRate = 0;
+            boolean soundType = false;
+            boolean soundSize = false;
+            long soundSampleCount = 0;
+            byte[] soundData = new byte[0];
+            int[] rateMap = {5, 11, 22, 44};
+            String exportFormat = getSoundExportFormat(symbol);
+            if (symbol instanceof SoundStreamHeadTypeTag) {
+                SoundStreamHeadTypeTag sstream = (SoundStreamHeadTypeTag) symbol;
+                soundFormat = sstream.getSoundFormatId();
+                soundRate = sstream.getSoundRate();
+                soundType = sstream.getSoundType();
+                soundSize = sstream.getSoundSize();
+                soundSampleCount = sstream.getSoundSampleCount();
+                boolean found = false;
+                for (Tag t : tags) {
+                    if (found && (t instanceof SoundStreamBlockTag)) {
+                        SoundStreamBlockTag bl = (SoundStreamBlockTag) t;
+                        soundData = bl.streamSoundData.getRangeData();
+                        break;
+                    }
+                    if (t == symbol) {
+                        found = true;
+                    }
+                }
+            } else if (symbol instanceof DefineSoundTag) {
+                DefineSoundTag sound = (DefineSoundTag) symbol;
+                soundFormat = sound.soundFormat;
+                soundRate = sound.soundRate;
+                soundType = sound.soundType;
+                soundData = sound.soundData.getRangeData();
+                soundSize = sound.soundSize;
+                soundSampleCount = sound.soundSampleCount;
+            }
+            int format = 0;
+            int bits = 0;
+            if ((soundFormat == SoundFormat.FORMAT_ADPCM)
+                    || (soundFormat == SoundFormat.FORMAT_UNCOMPRESSED_LITTLE_ENDIAN)
+                    || (soundFormat == SoundFormat.FORMAT_UNCOMPRESSED_NATIVE_ENDIAN)) {
+                if (soundType) { //stereo
+                    format += 1;
+                }
+                switch (soundRate) {
+                    case 0:
+                        format += 2;
+                        break;
+                    case 1:
+                        format += 6;
                         break;
-                    case "jpg":
-                        mediaLinkStr += " isJPEG=\"true\"";
+                    case 2:
+                        format += 10;
+                        break;
+                    case 3:
+                        format += 14;
                         break;
                 }
-                if (characterClasses.containsKey(symbol.getCharacterId())) {
-                    mediaLinkStr += " linkageExportForAS=\"true\" linkageClassName=\"" + characterClasses.get(symbol.getCharacterId()) + "\"";
-                }
-                mediaLinkStr += " quality=\"50\" href=\"" + symbolFile + "\" bitmapDataHRef=\"M " + (media.size() + 1) + " " + getTimestamp() + ".dat\" frameRight=\"" + image.getWidth() + "\" frameBottom=\"" + image.getHeight() + "\"/>\n";
-                media.add(mediaLinkStr);
-
-            } else if ((symbol instanceof SoundStreamHeadTypeTag) || (symbol instanceof DefineSoundTag)) {
-                int soundFormat = 0;
-                int soundRate = 0;
-                boolean soundType = false;
-                boolean soundSize = false;
-                long soundSampleCount = 0;
-                byte[] soundData = new byte[0];
-                int[] rateMap = {5, 11, 22, 44};
-                String exportFormat = "flv";
-                if (symbol instanceof SoundStreamHeadTypeTag) {
-                    SoundStreamHeadTypeTag sstream = (SoundStreamHeadTypeTag) symbol;
-                    soundFormat = sstream.getSoundFormatId();
-                    soundRate = sstream.getSoundRate();
-                    soundType = sstream.getSoundType();
-                    soundSize = sstream.getSoundSize();
-                    soundSampleCount = sstream.getSoundSampleCount();
-                    boolean found = false;
-                    for (Tag t : tags) {
-                        if (found && (t instanceof SoundStreamBlockTag)) {
-                            SoundStreamBlockTag bl = (SoundStreamBlockTag) t;
-                            soundData = bl.streamSoundData.getRangeData();
+            }
+            if (soundFormat == SoundFormat.FORMAT_SPEEX) {
+                bits = 18;
+            }
+            if (soundFormat == SoundFormat.FORMAT_ADPCM) {
+                try {
+                    SWFInputStream sis = new SWFInputStream(swf, soundData);
+                    int adpcmCodeSize = (int) sis.readUB(2, "adpcmCodeSize");
+                    bits = 2 + adpcmCodeSize;
+                } catch (IOException ex) {
+                    Logger.getLogger(XFLConverter.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+            if (soundFormat == SoundFormat.FORMAT_MP3) {
+                if (!soundType) { //mono
+                    format += 1;
+                }
+                format += 4; //quality best
+                try {
+                    MP3SOUNDDATA s = new MP3SOUNDDATA(new SWFInputStream(swf, soundData), false);
+                    //sis.readSI16();
+                    //MP3FRAME frame = new MP3FRAME(sis);
+                    MP3FRAME frame = s.frames.get(0);
+                    int bitRate = frame.getBitRate();
+
+                    switch (bitRate) {
+                        case 8:
+                            bits = 6;
                             break;
-                        }
-                        if (t == symbol) {
-                            found = true;
-                        }
-                    }
-                } else if (symbol instanceof DefineSoundTag) {
-                    DefineSoundTag sound = (DefineSoundTag) symbol;
-                    soundFormat = sound.soundFormat;
-                    soundRate = sound.soundRate;
-                    soundType = sound.soundType;
-                    soundData = sound.soundData.getRangeData();
-                    soundSize = sound.soundSize;
-                    soundSampleCount = sound.soundSampleCount;
-                }
-                int format = 0;
-                int bits = 0;
-                if ((soundFormat == SoundFormat.FORMAT_ADPCM)
-                        || (soundFormat == SoundFormat.FORMAT_UNCOMPRESSED_LITTLE_ENDIAN)
-                        || (soundFormat == SoundFormat.FORMAT_UNCOMPRESSED_NATIVE_ENDIAN)) {
-                    exportFormat = "wav";
-                    if (soundType) { //stereo
-                        format += 1;
-                    }
-                    switch (soundRate) {
-                        case 0:
-                            format += 2;
+                        case 16:
+                            bits = 7;
                             break;
-                        case 1:
-                            format += 6;
+                        case 20:
+                            bits = 8;
                             break;
-                        case 2:
-                            format += 10;
+                        case 24:
+                            bits = 9;
                             break;
-                        case 3:
-                            format += 14;
+                        case 32:
+                            bits = 10;
+                            break;
+                        case 48:
+                            bits = 11;
+                            break;
+                        case 56:
+                            bits = 12;
+                            break;
+                        case 64:
+                            bits = 13;
+                            break;
+                        case 80:
+                            bits = 14;
+                            break;
+                        case 112:
+                            bits = 15;
+                            break;
+                        case 128:
+                            bits = 16;
+                            break;
+                        case 160:
+                            bits = 17;
                             break;
-                    }
-                }
-                if (soundFormat == SoundFormat.FORMAT_SPEEX) {
-                    bits = 18;
-                }
-                if (soundFormat == SoundFormat.FORMAT_ADPCM) {
-                    exportFormat = "wav";
-                    try {
-                        SWFInputStream sis = new SWFInputStream(swf, soundData);
-                        int adpcmCodeSize = (int) sis.readUB(2, "adpcmCodeSize");
-                        bits = 2 + adpcmCodeSize;
-                    } catch (IOException ex) {
-                        Logger.getLogger(XFLConverter.class.getName()).log(Level.SEVERE, null, ex);
-                    }
-                }
-                if (soundFormat == SoundFormat.FORMAT_MP3) {
-                    exportFormat = "mp3";
-                    if (!soundType) { //mono
-                        format += 1;
-                    }
-                    format += 4; //quality best
-                    try {
-                        MP3SOUNDDATA s = new MP3SOUNDDATA(new SWFInputStream(swf, soundData), false);
-                        //sis.readSI16();
-                        //MP3FRAME frame = new MP3FRAME(sis);
-                        MP3FRAME frame = s.frames.get(0);
-                        int bitRate = frame.getBitRate();
-
-                        switch (bitRate) {
-                            case 8:
-                                bits = 6;
-                                break;
-                            case 16:
-                                bits = 7;
-                                break;
-                            case 20:
-                                bits = 8;
-                                break;
-                            case 24:
-                                bits = 9;
-                                break;
-                            case 32:
-                                bits = 10;
-                                break;
-                            case 48:
-                                bits = 11;
-                                break;
-                            case 56:
-                                bits = 12;
-                                break;
-                            case 64:
-                                bits = 13;
-                                break;
-                            case 80:
-                                bits = 14;
-                                break;
-                            case 112:
-                                bits = 15;
-                                break;
-                            case 128:
-                                bits = 16;
-                                break;
-                            case 160:
-                                bits = 17;
-                                break;
 
-                        }
-                    } catch (IOException ex) {
-                        Logger.getLogger(XFLConverter.class.getName()).log(Level.SEVERE, null, ex);
                     }
-                }
-                SoundTag st = (SoundTag) symbol;
-                SoundFormat fmt = st.getSoundFormat();
-                byte[] data = new byte[0];
-                try {
-                    data = new SoundExporter().exportSound(st, SoundExportMode.MP3_WAV);
                 } catch (IOException ex) {
                     Logger.getLogger(XFLConverter.class.getName()).log(Level.SEVERE, null, ex);
                 }
+            }
+            SoundTag st = (SoundTag) symbol;
+            SoundFormat fmt = st.getSoundFormat();
+            byte[] data = new byte[0];
+            try {
+                data = new SoundExporter().exportSound(st, SoundExportMode.MP3_WAV);
+            } catch (IOException ex) {
+                Logger.getLogger(XFLConverter.class.getName()).log(Level.SEVERE, null, ex);
+            }
+
+            String symbolFile = "sound" + symbol.getCharacterId() + "." + exportFormat;
+            item.fileName = symbolFile;
+            item.data = data;
+            String mediaLinkStr = "<DOMSoundItem name=\"" + symbolFile + "\" sourceLastImported=\"" + getTimestamp() + "\" externalFileSize=\"" + data.length + "\"";
+            mediaLinkStr += " href=\"" + symbolFile + "\"";
+            mediaLinkStr += " format=\"";
+            mediaLinkStr += rateMap[soundRate] + "kHz";
+            mediaLinkStr += " " + (soundSize ? "16bit" : "8bit");
+            mediaLinkStr += " " + (soundType ? "Stereo" : "Mono");
+            mediaLinkStr += "\"";
+            mediaLinkStr += " exportFormat=\"" + format + "\" exportBits=\"" + bits + "\" sampleCount=\"" + soundSampleCount + "\"";
+
+            boolean linkageExportForAS = false;
+            if (characterClasses.containsKey(symbol.getCharacterId())) {
+                linkageExportForAS = true;
+                mediaLinkStr += " linkageClassName=\"" + characterClasses.get(symbol.getCharacterId()) + "\"";
+            }
+
+            if (characterVariables.containsKey(symbol.getCharacterId())) {
+                linkageExportForAS = true;
+                mediaLinkStr += " linkageIdentifier=\"" + xmlString(characterVariables.get(symbol.getCharacterId())) + "\"";
+            }
+            if (linkageExportForAS) {
+                mediaLinkStr += " linkageExportForAS=\"true\"";
+            }
+
+            mediaLinkStr += "/>\n";
+            final String soundMediaLink = mediaLinkStr;
+            item.mediaLink = (mediaIndex, datFileName) -> soundMediaLink;
+
+        } else if (symbol instanceof DefineVideoStreamTag) {
+            DefineVideoStreamTag video = (DefineVideoStreamTag) symbol;
+            String videoType = "no media";
+            switch (video.codecID) {
+                case 2:
+                    videoType = "h263 media";
+                    break;
+                case 3:
+                    videoType = "screen share media";
+                    break;
+                case 4:
+                    videoType = "vp6 media";
+                    break;
+                case 5:
+                    videoType = "vp6 alpha media";
+                    break;
+            }
 
-                String symbolFile = "sound" + symbol.getCharacterId() + "." + exportFormat;
-                files.put(symbolFile, data);
-                String mediaLinkStr = "<DOMSoundItem name=\"" + symbolFile + "\" sourceLastImported=\"" + getTimestamp() + "\" externalFileSize=\"" + data.length + "\"";
+            byte[] data = new byte[0];
+            try {
+                data = new MovieExporter().exportMovie(video, MovieExportMode.FLV);
+            } catch (IOException ex) {
+                Logger.getLogger(XFLConverter.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            String symbolFile = "movie" + symbol.getCharacterId() + "." + "flv";
+            String mediaLinkStr;
+            if (data.length == 0) { //Video has zero length, this probably means it is "Video - Actionscript-controlled"
+                //Use the dat file, otherwise it does not work
+                item.needsDatFile = true;
+                item.mediaLink = (mediaIndex, datFileName) -> "<DOMVideoItem name=\"" + symbolFile + "\" sourceExternalFilepath=\"./LIBRARY/" + symbolFile + "\" sourceLastImported=\"" + getTimestamp() + "\" videoDataHRef=\"" + datFileName + "\" channels=\"0\" isSpecial=\"true\" />";
+            } else {
+                item.fileName = symbolFile;
+                item.data = data;
+                mediaLinkStr = "<DOMVideoItem name=\"" + symbolFile + "\" sourceLastImported=\"" + getTimestamp() + "\" externalFileSize=\"" + data.length + "\"";
                 mediaLinkStr += " href=\"" + symbolFile + "\"";
-                mediaLinkStr += " format=\"";
-                mediaLinkStr += rateMap[soundRate] + "kHz";
-                mediaLinkStr += " " + (soundSize ? "16bit" : "8bit");
-                mediaLinkStr += " " + (soundType ? "Stereo" : "Mono");
-                mediaLinkStr += "\"";
-                mediaLinkStr += " exportFormat=\"" + format + "\" exportBits=\"" + bits + "\" sampleCount=\"" + soundSampleCount + "\"";
-
+                mediaLinkStr += " videoType=\"" + videoType + "\"";
+                mediaLinkStr += " fps=\"" + swf.frameRate + "\"";
+                mediaLinkStr += " width=\"" + video.width + "\"";
+                mediaLinkStr += " height=\"" + video.height + "\"";
+                double len = ((double) video.numFrames) / ((double) swf.frameRate);
+                mediaLinkStr += " length=\"" + len + "\"";
                 boolean linkageExportForAS = false;
                 if (characterClasses.containsKey(symbol.getCharacterId())) {
                     linkageExportForAS = true;
                     mediaLinkStr += " linkageClassName=\"" + characterClasses.get(symbol.getCharacterId()) + "\"";
                 }
-
                 if (characterVariables.containsKey(symbol.getCharacterId())) {
                     linkageExportForAS = true;
                     mediaLinkStr += " linkageIdentifier=\"" + xmlString(characterVariables.get(symbol.getCharacterId())) + "\"";
@@ -1539,122 +1739,173 @@ public class XFLConverter {
                 if (linkageExportForAS) {
                     mediaLinkStr += " linkageExportForAS=\"true\"";
                 }
-
                 mediaLinkStr += "/>\n";
-                media.add(mediaLinkStr);
+                final String videoMediaLink = mediaLinkStr;
+                item.mediaLink = (mediaIndex, datFileName) -> videoMediaLink;
+            }
+        }
+        if (item.fileName == null && item.symbolLink == null && item.mediaLink == null) {
+            return null;
+        }
+        return item;
+    }
 
-            } else if (symbol instanceof DefineVideoStreamTag) {
-                DefineVideoStreamTag video = (DefineVideoStreamTag) symbol;
-                String videoType = "no media";
-                switch (video.codecID) {
-                    case 2:
-                        videoType = "h263 media";
+    /**
+     * Gets the extension of the sound file in the library
+     *
+     * @param symbol SoundStreamHeadTypeTag or DefineSoundTag
+     * @return Extension
+     */
+    private static String getSoundExportFormat(CharacterTag symbol) {
+        int soundFormat = 0;
+        if (symbol instanceof SoundStreamHeadTypeTag) {
+            soundFormat = ((SoundStreamHeadTypeTag) symbol).getSoundFormatId();
+        } else if (symbol instanceof DefineSoundTag) {
+            soundFormat = ((DefineSoundTag) symbol).soundFormat;
+        }
+        if ((soundFormat == SoundFormat.FORMAT_ADPCM)
+                || (soundFormat == SoundFormat.FORMAT_UNCOMPRESSED_LITTLE_ENDIAN)
+                || (soundFormat == SoundFormat.FORMAT_UNCOMPRESSED_NATIVE_ENDIAN)) {
+            return "wav";
+        }
+        if (soundFormat == SoundFormat.FORMAT_MP3) {
+            return "mp3";
+        }
+        return "flv";
+    }
+
+    /**
+     * Gets the names of the files which will be written to the library
+     */
+    private static Set<String> getLibraryFiles(HashMap<Integer, CharacterTag> characters) {
+        Set<String> files = new HashSet<>();
+        for (CharacterTag symbol : characters.values()) {
+            if ((symbol instanceof SoundStreamHeadTypeTag) || (symbol instanceof DefineSoundTag)) {
+                files.add("sound" + symbol.getCharacterId() + "." + getSoundExportFormat(symbol));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Writes the XML with indentation. The XML is copied through StAX, so the
+     * document is not built in memory.
+     *
+     * @param xml XML
+     * @param os Output stream, it is not closed
+     * @throws IOException On write or parse error
+     */
+    public static void writeXml(String xml, OutputStream os) throws IOException {
+        XMLStreamReader reader = null;
+        XMLStreamWriter writer = null;
+        try {
+            XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+            inputFactory.setProperty(XMLInputFactory.IS_COALESCING, false);
+            try {
+                // keep the scripts in CDATA sections
+                inputFactory.setProperty("http://java.sun.com/xml/stream/properties/report-cdata-event", true);
+            } catch (IllegalArgumentException ex) {
+                //ignore
+            }
+            reader = inputFactory.createXMLStreamReader(new StringReader(xml));
+            writer = new IndentingXMLStreamWriter(XMLOutputFactory.newInstance().createXMLStreamWriter(os, "UTF-8"), 5, "\n");
+            while (reader.hasNext()) {
+                int event = reader.next();
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        writeStartElement(reader, writer);
                         break;
-                    case 3:
-                        videoType = "screen share media";
+                    case XMLStreamConstants.END_ELEMENT:
+                        writer.writeEndElement();
                         break;
-                    case 4:
-                        videoType = "vp6 media";
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.SPACE:
+                        writer.writeCharacters(reader.getText());
                         break;
-                    case 5:
-                        videoType = "vp6 alpha media";
+                    case XMLStreamConstants.CDATA:
+                        writer.writeCData(reader.getText());
+                        break;
+                    case XMLStreamConstants.COMMENT:
+                        writer.writeComment(reader.getText());
                         break;
                 }
-
-                byte[] data = new byte[0];
-                try {
-                    data = new MovieExporter().exportMovie(video, MovieExportMode.FLV);
-                } catch (IOException ex) {
-                    Logger.getLogger(XFLConverter.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            writer.writeEndDocument();
+            writer.flush();
+        } catch (XMLStreamException ex) {
+            throw new IOException("Cannot write XML", ex);
+        } finally {
+            try {
+                if (reader != null) {
+                    reader.close();
                 }
-                String symbolFile = "movie" + symbol.getCharacterId() + "." + "flv";
-                String mediaLinkStr = "";
-                if (data.length == 0) { //Video has zero length, this probably means it is "Video - Actionscript-controlled"
-                    long ts = getTimestamp();
-                    String datFileName = "M " + (datfiles.size() + 1) + " " + ts + ".dat";
-                    mediaLinkStr = "<DOMVideoItem name=\"" + symbolFile + "\" sourceExternalFilepath=\"./LIBRARY/" + symbolFile + "\" sourceLastImported=\"" + ts + "\" videoDataHRef=\"" + datFileName + "\" channels=\"0\" isSpecial=\"true\" />";
-                    //Use the dat file, otherwise it does not work
-                    datfiles.put(datFileName, new byte[]{ //Magic numbers, if anybody knows why, please tell me
-                        (byte) 0x03, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
-                        (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
-                        (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
-                        (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0xA0, (byte) 0x00, (byte) 0x00,
-                        (byte) 0x00, (byte) 0x78, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
-                        (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x01, (byte) 0x00, (byte) 0x00,
-                        (byte) 0x00, (byte) 0x01, (byte) 0x01, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x01,
-                        (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
-                        (byte) 0x00, (byte) 0x59, (byte) 0x40, (byte) 0x18, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
-                        (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
-                        (byte) 0x01, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00,
-                        (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0xFF, (byte) 0xFE, (byte) 0xFF,
-                        (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00, (byte) 0x00
-                    });
-                } else {
-                    files.put(symbolFile, data);
-                    mediaLinkStr = "<DOMVideoItem name=\"" + symbolFile + "\" sourceLastImported=\"" + getTimestamp() + "\" externalFileSize=\"" + data.length + "\"";
-                    mediaLinkStr += " href=\"" + symbolFile + "\"";
-                    mediaLinkStr += " videoType=\"" + videoType + "\"";
-                    mediaLinkStr += " fps=\"" + swf.frameRate + "\"";
-                    mediaLinkStr += " width=\"" + video.width + "\"";
-                    mediaLinkStr += " height=\"" + video.height + "\"";
-                    double len = ((double) video.numFrames) / ((double) swf.frameRate);
-                    mediaLinkStr += " length=\"" + len + "\"";
-                    boolean linkageExportForAS = false;
-                    if (characterClasses.containsKey(symbol.getCharacterId())) {
-                        linkageExportForAS = true;
-                        mediaLinkStr += " linkageClassName=\"" + characterClasses.get(symbol.getCharacterId()) + "\"";
-                    }
-                    if (characterVariables.containsKey(symbol.getCharacterId())) {
-                        linkageExportForAS = true;
-                        mediaLinkStr += " linkageIdentifier=\"" + xmlString(characterVariables.get(symbol.getCharacterId())) + "\"";
-                    }
-                    if (linkageExportForAS) {
-                        mediaLinkStr += " linkageExportForAS=\"true\"";
-                    }
-                    mediaLinkStr += "/>\n";
+                if (writer != null) {
+                    writer.close();
                 }
-                media.add(mediaLinkStr);
+            } catch (XMLStreamException ex) {
+                //ignore
             }
+        }
+    }
 
+    /**
+     * Copies the start element with its namespaces and attributes. Elements
+     * without content are written as empty elements.
+     */
+    private static void writeStartElement(XMLStreamReader reader, XMLStreamWriter writer) throws XMLStreamException {
+        String prefix = reader.getPrefix() == null ? "" : reader.getPrefix();
+        String namespace = reader.getNamespaceURI() == null ? "" : reader.getNamespaceURI();
+        String localName = reader.getLocalName();
+        List<String[]> namespaces = new ArrayList<>();
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            namespaces.add(new String[]{reader.getNamespacePrefix(i), reader.getNamespaceURI(i)});
+        }
+        List<String[]> attributes = new ArrayList<>();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            attributes.add(new String[]{reader.getAttributePrefix(i), reader.getAttributeNamespace(i), reader.getAttributeLocalName(i), reader.getAttributeValue(i)});
+        }
+
+        boolean empty = reader.next() == XMLStreamConstants.END_ELEMENT;
+        if (empty) {
+            writer.writeEmptyElement(prefix, localName, namespace);
+        } else {
+            writer.writeStartElement(prefix, localName, namespace);
         }
-        if (!media.isEmpty()) {
-            ret.append("<media>");
-            for (String m : media) {
-                ret.append(m);
+        for (String[] ns : namespaces) {
+            if (ns[0] == null || ns[0].isEmpty()) {
+                writer.writeDefaultNamespace(ns[1]);
+            } else {
+                writer.writeNamespace(ns[0], ns[1]);
             }
-            ret.append("</media>");
         }
-        if (!symbols.isEmpty()) {
-            ret.append("<symbols>");
-            for (String s : symbols) {
-                ret.append(s);
+        for (String[] attribute : attributes) {
+            if (attribute[1] == null || attribute[1].isEmpty()) {
+                writer.writeAttribute(attribute[2], attribute[3]);
+            } else {
+                writer.writeAttribute(attribute[0] == null ? "" : attribute[0], attribute[1], attribute[2], attribute[3]);
             }
-            ret.append("</symbols>");
         }
-        return ret.toString();
-    }
 
-    private static String prettyFormatXML(String input) {
-        int indent = 5;
-        try {
-            Source xmlInput = new StreamSource(new StringReader(input));
-            StringWriter stringWriter = new StringWriter();
-            StreamResult xmlOutput = new StreamResult(stringWriter);
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            transformerFactory.setAttribute("indent-number", indent);
-            Transformer transformer = transformerFactory.newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-            transformer.transform(xmlInput, xmlOutput);
-            return xmlOutput.getWriter().toString();
-        } catch (TransformerFactoryConfigurationError | IllegalArgumentException | TransformerException e) {
-            System.err.println(input);
-            Logger.getLogger(XFLConverter.class.getName()).log(Level.SEVERE, "Pretty print error", e);
-            return input;
+        if (!empty) {
+            switch (reader.getEventType()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    writeStartElement(reader, writer);
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.SPACE:
+                    writer.writeCharacters(reader.getText());
+                    break;
+                case XMLStreamConstants.CDATA:
+                    writer.writeCData(reader.getText());
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    writer.writeComment(reader.getText());
+                    break;
+            }
         }
     }
 
-    private static String convertFrame(boolean shapeTween, HashMap<Integer, CharacterTag> characters, List<Tag> tags, SoundStreamHeadTypeTag soundStreamHead, StartSoundTag startSound, int frame, int duration, String actionScript, String elements, HashMap<String, byte[]> files) {
+    private static String convertFrame(boolean shapeTween, HashMap<Integer, CharacterTag> characters, List<Tag> tags, SoundStreamHeadTypeTag soundStreamHead, StartSoundTag startSound, int frame, int duration, String actionScript, String elements, Set<String> files) {
         StringBuilder ret = new StringBuilder();
         DefineSoundTag sound = null;
         if (startSound != null) {
@@ -1783,7 +2034,7 @@ public class XFLConverter {
         return ret.toString();
     }
 
-    private static String convertFrames(String prevStr, String afterStr, List<Integer> nonLibraryShapes, List<Tag> tags, List<Tag> timelineTags, HashMap<Integer, CharacterTag> characters, int depth, FLAVersion flaVersion, HashMap<String, byte[]> files) {
+    private static String convertFrames(String prevStr, String afterStr, List<Integer> nonLibraryShapes, List<Tag> tags, List<Tag> timelineTags, HashMap<Integer, CharacterTag> characters, int depth, FLAVersion flaVersion, Set<String> files) {
         StringBuilder ret = new StringBuilder();
         prevStr += "<frames>";
         int frame = -1;
@@ -2128,7 +2379,7 @@ public class XFLConverter {
         return retStr;
     }
 
-    public static String convertSoundLayer(int layerIndex, String backgroundColor, HashMap<Integer, CharacterTag> characters, List<Tag> tags, List<Tag> timeLineTags, HashMap<String, byte[]> files) {
+    public static String convertSoundLayer(int layerIndex, String backgroundColor, HashMap<Integer, CharacterTag> characters, List<Tag> tags, List<Tag> timeLineTags, Set<String> files) {
         StringBuilder ret = new StringBuilder();
         StartSoundTag lastStartSound = null;
         SoundStreamHeadTypeTag lastSoundStreamHead = null;
@@ -2144,7 +2395,7 @@ public class XFLConverter {
                     if (ta instanceof DefineSoundTag) {
                         DefineSoundTag s = (DefineSoundTag) ta;
                         if (s.soundId == startSound.soundId) {
-                            if (!files.containsKey("sound" + s.soundId + "." + s.getExportFormat())) { //Sound was not exported
+                            if (!files.contains("sound" + s.soundId + "." + s.getExportFormat())) { //Sound was not exported
                                 startSound = null; // ignore
                             }
                             break;
@@ -2155,7 +2406,7 @@ public class XFLConverter {
             }
             if (t instanceof SoundStreamHeadTypeTag) {
                 soundStreamHead = (SoundStreamHeadTypeTag) t;
-                if (!files.containsKey("sound" + soundStreamHead.getCharacterId() + "." + soundStreamHead.getExportFormat())) { //Sound was not exported
+                if (!files.contains("sound" + soundStreamHead.getCharacterId() + "." + soundStreamHead.getExportFormat())) { //Sound was not exported
                     soundStreamHead = null; // ignore
                 }
             }
@@ -2193,6 +2444,7 @@ public class XFLConverter {
 
     private static String randomOutlineColor() {
         RGB outlineColor = new RGB();
+        Random random = XFLConverter.random.get();
         do {
             outlineColor.red = random.nextInt(256);
             outlineColor.green = random.nextInt(256);
@@ -2201,7 +2453,7 @@ public class XFLConverter {
         return outlineColor.toHexRGB();
     }
 
-    public static String convertTimeline(int spriteId, List<Integer> nonLibraryShapes, String backgroundColor, List<Tag> tags, List<Tag> timelineTags, HashMap<Integer, CharacterTag> characters, String name, FLAVersion flaVersion, HashMap<String, byte[]> files) {
+    public static String convertTimeline(int spriteId, List<Integer> nonLibraryShapes, String backgroundColor, List<Tag> tags, List<Tag> timelineTags, HashMap<Integer, CharacterTag> characters, String name, FLAVersion flaVersion, Set<String> files) {
         StringBuilder ret = new StringBuilder();
         ret.append("<DOMTimeline name=\"").append(name).append("\">");
         ret.append("<layers>");
@@ -2680,9 +2932,8 @@ public class XFLConverter {
         if (baseName.contains(".")) {
             baseName = baseName.substring(0, baseName.lastIndexOf('.'));
         }
-        final HashMap<String, byte[]> files = new HashMap<>();
-        final HashMap<String, byte[]> datfiles = new HashMap<>();
         HashMap<Integer, CharacterTag> characters = getCharacters(swf.tags);
+        Set<String> files = getLibraryFiles(characters);
         List<Integer> nonLibraryShapes = getNonLibraryShapes(swf.tags, characters);
         Map<Integer, String> characterClasses = getCharacterClasses(swf.tags);
         Map<Integer, String> characterVariables = getCharacterVariables(swf.tags);
@@ -2708,12 +2959,31 @@ public class XFLConverter {
         }
         domDocument.append(">");
         domDocument.append(convertFonts(swf.tags));
-        domDocument.append(convertLibrary(swf, characterVariables, characterClasses, nonLibraryShapes, backgroundColor, swf.tags, characters, files, datfiles, flaVersion));
-        domDocument.append("<timelines>");
-        domDocument.append(convertTimeline(0, nonLibraryShapes, backgroundColor, swf.tags, swf.tags, characters, "Scene 1", flaVersion, files));
-        domDocument.append("</timelines>");
-        domDocument.append("</DOMDocument>");
-        String domDocumentStr = prettyFormatXML(domDocument.toString());
+
+        XFLOutput output;
+        if (compressed) {
+            output = new ZipXFLOutput(outfile);
+        } else {
+            output = new DirectoryXFLOutput(outDir, handler);
+        }
+        try (XFLOutput out = output) {
+            try {
+                domDocument.append(convertLibrary(swf, characterVariables, characterClasses, nonLibraryShapes, backgroundColor, swf.tags, characters, files, out, parallel, flaVersion));
+            } catch (InterruptedException ex) {
+                throw new InterruptedIOException();
+            }
+            domDocument.append("<timelines>");
+            random.set(new Random(123));
+            domDocument.append(convertTimeline(0, nonLibraryShapes, backgroundColor, swf.tags, swf.tags, characters, "Scene 1", flaVersion, files));
+            domDocument.append("</timelines>");
+            domDocument.append("</DOMDocument>");
+            out.writeXml("DOMDocument.xml", domDocument.toString());
+            domDocument = null;
+            out.writeFile("PublishSettings.xml", Utf8Helper.getBytes(getPublishSettings(swf, flaVersion, baseName, width, height, useAS3, useNetwork, characterClasses)));
+        }
+        if (!compressed) {
+            writeFile(handler, Utf8Helper.getBytes("PROXY-CS5"), outfile);
+        }
 
         for (Tag t : swf.tags) {
             if (t instanceof DoInitActionTag) {
@@ -2746,6 +3016,17 @@ public class XFLConverter {
             }
         }
 
+        if (useAS3) {
+            try {
+                ScriptExportSettings scriptExportSettings = new ScriptExportSettings(ScriptExportMode.AS, false);
+                swf.exportActionScript(handler, Path.combine(outDir.getAbsolutePath(), "scripts"), scriptExportSettings, parallel, null);
+            } catch (Exception ex) {
+                Logger.getLogger(XFLConverter.class.getName()).log(Level.SEVERE, "Error during ActionScript3 export", ex);
+            }
+        }
+    }
+
+    private static String getPublishSettings(SWF swf, FLAVersion flaVersion, String baseName, double width, double height, boolean useAS3, boolean useNetwork, Map<Integer, String> characterClasses) {
         int flaSwfVersion = swf.version > flaVersion.maxSwfVersion() ? flaVersion.maxSwfVersion() : swf.version;
         boolean greaterThanCC = flaVersion.ordinal() >= FLAVersion.CC.ordinal();
         StringBuilder publishSettings = new StringBuilder();
@@ -2978,53 +3259,7 @@ public class XFLConverter {
         }
         publishSettings.append("</flash_profile>\n");
         publishSettings.append("</flash_profiles>");
-        String publishSettingsStr = publishSettings.toString();
-
-        if (compressed) {
-            final String domDocumentF = domDocumentStr;
-            final String publishSettingsF = publishSettingsStr;
-            final String outfileF = outfile;
-            new RetryTask(() -> {
-                try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(outfileF))) {
-                    out.putNextEntry(new ZipEntry("DOMDocument.xml"));
-                    out.write(Utf8Helper.getBytes(domDocumentF));
-                    out.putNextEntry(new ZipEntry("PublishSettings.xml"));
-                    out.write(Utf8Helper.getBytes(publishSettingsF));
-                    for (String fileName : files.keySet()) {
-                        out.putNextEntry(new ZipEntry("LIBRARY/" + fileName));
-                        out.write(files.get(fileName));
-                    }
-                    for (String fileName : datfiles.keySet()) {
-                        out.putNextEntry(new ZipEntry("bin/" + fileName));
-                        out.write(datfiles.get(fileName));
-                    }
-                }
-            }, handler).run();
-
-        } else {
-            Path.createDirectorySafe(outDir);
-            writeFile(handler, Utf8Helper.getBytes(domDocumentStr), outDir.getAbsolutePath() + File.separator + "DOMDocument.xml");
-            writeFile(handler, Utf8Helper.getBytes(publishSettingsStr), outDir.getAbsolutePath() + File.separator + "PublishSettings.xml");
-            File libraryDir = new File(outDir.getAbsolutePath() + File.separator + "LIBRARY");
-            libraryDir.mkdir();
-            File binDir = new File(outDir.getAbsolutePath() + File.separator + "bin");
-            binDir.mkdir();
-            for (String fileName : files.keySet()) {
-                writeFile(handler, files.get(fileName), libraryDir.getAbsolutePath() + File.separator + fileName);
-            }
-            for (String fileName : datfiles.keySet()) {
-                writeFile(handler, datfiles.get(fileName), binDir.getAbsolutePath() + File.separator + fileName);
-            }
-            writeFile(handler, Utf8Helper.getBytes("PROXY-CS5"), outfile);
-        }
-        if (useAS3) {
-            try {
-                ScriptExportSettings scriptExportSettings = new ScriptExportSettings(ScriptExportMode.AS, false);
-                swf.exportActionScript(handler, Path.combine(outDir.getAbsolutePath(), "scripts"), scriptExportSettings, parallel, null);
-            } catch (Exception ex) {
-                Logger.getLogger(XFLConverter.class.getName()).log(Level.SEVERE, "Error during ActionScript3 export", ex);
-            }
-        }
+        return publishSettings.toString();
     }
 
     private static int normHue(double h) {
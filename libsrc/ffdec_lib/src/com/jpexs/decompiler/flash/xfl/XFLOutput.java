@@ -0,0 +1,49 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.xfl;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Target of the XFL conversion. The files are written as soon as they are
+ * converted, so the converter does not keep the whole document in memory.
+ *
+ * @author JPEXS
+ */
+public interface XFLOutput extends Closeable {
+
+    /**
+     * Writes the file
+     *
+     * @param name Path of the file relative to the document root, separated by
+     * slashes
+     * @param data File content
+     * @throws IOException On write error
+     */
+    public void writeFile(String name, byte[] data) throws IOException;
+
+    /**
+     * Writes the XML file with indentation
+     *
+     * @param name Path of the file relative to the document root, separated by
+     * slashes
+     * @param xml XML content
+     * @throws IOException On write error
+     */
+    public void writeXml(String name, String xml) throws IOException;
+}
@@ -0,0 +1,56 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.xfl;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes the XFL files to a compressed FLA file
+ *
+ * @author JPEXS
+ */
+public class ZipXFLOutput implements XFLOutput {
+
+    private final ZipOutputStream out;
+
+    public ZipXFLOutput(String file) throws IOException {
+        out = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+
+    @Override
+    public synchronized void writeFile(String name, byte[] data) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(data);
+        out.closeEntry();
+    }
+
+    @Override
+    public synchronized void writeXml(String name, String xml) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        XFLConverter.writeXml(xml, out);
+        out.closeEntry();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -19,6 +19,7 @@ package com.jpexs.decompiler.graph;
 import com.jpexs.decompiler.flash.BaseLocalData;
 import com.jpexs.decompiler.flash.FinalProcessLocalData;
 import com.jpexs.decompiler.flash.action.Action;
+import com.jpexs.decompiler.flash.configuration.Configuration;
 import com.jpexs.decompiler.flash.ecma.EcmaScript;
 import com.jpexs.decompiler.flash.helpers.GraphTextWriter;
 import com.jpexs.decompiler.graph.model.AndItem;
@@ -60,6 +61,14 @@ public class Graph {
 
     private final List<Integer> alternateEntries;
 
+    private GraphAnalysis analysis;
+
+    /**
+     * Results of getCommonPart, the key contains the parts, the state of the
+     * loops and the state of checkPart
+     */
+    private final Map<List<Object>, CommonPart> commonPartCache = new HashMap<>();
+
     public static final int SOP_USE_STATIC = 0;
 
     public static final int SOP_SKIP_STATIC = 1;
@@ -77,21 +86,38 @@ public class Graph {
             return;
         }
         heads = makeGraph(code, new ArrayList<GraphPart>(), alternateEntries);
+        if (Configuration.graphAnalysisCache.get()) {
+            analysis = new GraphAnalysis(heads);
+        }
         int time = 1;
         List<GraphPart> ordered = new ArrayList<>();
-        List<GraphPart> visited = new ArrayList<>();
+        GraphPartSet visited = new GraphPartSet();
         for (GraphPart head : heads) {
             time = head.setTime(time, ordered, visited);
         }
     }
 
+    /**
+     * Gets the static analysis of the graph
+     *
+     * @return Analysis or null when the graph was not initialized or the
+     * graphAnalysisCache setting is off
+     */
+    public GraphAnalysis getAnalysis() {
+        return analysis;
+    }
+
     protected static void populateParts(GraphPart part, List<GraphPart> allParts) {
-        if (allParts.contains(part)) {
+        populateParts(part, allParts, new GraphPartSet(allParts));
+    }
+
+    private static void populateParts(GraphPart part, List<GraphPart> allParts, GraphPartSet allPartsSet) {
+        if (!allPartsSet.add(part)) {
             return;
         }
         allParts.add(part);
         for (GraphPart p : part.nextParts) {
-            populateParts(p, allParts);
+            populateParts(p, allParts, allPartsSet);
         }
     }
 
@@ -134,11 +160,11 @@ public class Graph {
         }
     }
 
-    private void getReachableParts(GraphPart part, List<GraphPart> ret, List<Loop> loops) {
-        getReachableParts(part, ret, loops, true);
+    private void getReachableParts(GraphPart part, List<GraphPart> ret, GraphPartSet retSet, List<Loop> loops) {
+        getReachableParts(part, ret, retSet, loops, true);
     }
 
-    private void getReachableParts(GraphPart part, List<GraphPart> ret, List<Loop> loops, boolean first) {
+    private void getReachableParts(GraphPart part, List<GraphPart> ret, GraphPartSet retSet, List<Loop> loops, boolean first) {
 
         if (first) {
             for (Loop l : loops) {
@@ -184,22 +210,23 @@ public class Graph {
                 }
 
             }
-            if (!ret.contains(next)) {
+            if (!retSet.contains(next)) {
                 newparts.add(next);
             }
         }
 
         ret.addAll(newparts);
+        retSet.addAll(newparts);
         for (GraphPart next : newparts) {
-            getReachableParts(next, ret, loops);
+            getReachableParts(next, ret, retSet, loops);
         }
 
         if (currentLoop != null) {
             if (currentLoop.loopBreak != null) {
-                if (!ret.contains(currentLoop.loopBreak)) {
+                if (retSet.add(currentLoop.loopBreak)) {
                     ret.add(currentLoop.loopBreak);
                     currentLoop.reachableMark = 2;
-                    getReachableParts(currentLoop.loopBreak, ret, loops);
+                    getReachableParts(currentLoop.loopBreak, ret, retSet, loops);
                 }
             }
         }
@@ -212,11 +239,87 @@ public class Graph {
         return getCommonPart(localData, part.nextParts, loops);
     }
 
+    /**
+     * Gets the state of the graph used and modified by checkPart. The results
+     * of getCommonPart are reused only while the state is equal, and the state
+     * after the first computation is restored by setCheckPartState. The
+     * static reachability shortcut of leadsTo is not used when there is a
+     * state.
+     *
+     * @param localData Local data
+     * @return Copy of the state which implements equals, null when checkPart
+     * is stateless
+     */
+    protected Object getCheckPartState(BaseLocalData localData) {
+        return null;
+    }
+
+    /**
+     * Restores the state of checkPart returned by getCheckPartState
+     *
+     * @param localData Local data
+     * @param state State
+     */
+    protected void setCheckPartState(BaseLocalData localData, Object state) {
+    }
+
+    private List<Object> getCommonPartKey(BaseLocalData localData, List<GraphPart> parts, List<Loop> loops) {
+        if (analysis == null) {
+            return null;
+        }
+
+        List<Object> key = new ArrayList<>();
+        for (GraphPart p : parts) {
+            if (!analysis.isNumbered(p)) {
+                return null;
+            }
+            key.add(p.id);
+        }
+
+        for (Loop l : loops) {
+            key.add(l.phase);
+            for (GraphPart p : new GraphPart[]{l.loopContinue, l.loopBreak, l.loopPreContinue}) {
+                if (p == null) {
+                    key.add(-1);
+                } else if (analysis.isNumbered(p)) {
+                    key.add(p.id);
+                } else {
+                    return null;
+                }
+            }
+        }
+
+        key.add(getCheckPartState(localData));
+        return key;
+    }
+
     public GraphPart getCommonPart(BaseLocalData localData, List<GraphPart> parts, List<Loop> loops) throws InterruptedException {
         if (parts.isEmpty()) {
             return null;
         }
 
+        List<Object> key = getCommonPartKey(localData, parts, loops);
+        if (key != null) {
+            CommonPart cached = commonPartCache.get(key);
+            if (cached != null) {
+                // replay the changes made by checkPart during the computation
+                if (cached.checkPartState != null) {
+                    setCheckPartState(localData, cached.checkPartState);
+                }
+                return cached.part;
+            }
+        }
+
+        GraphPart result = getCommonPartNoCache(localData, parts, loops);
+        if (key != null) {
+            commonPartCache.put(key, new CommonPart(result, getCheckPartState(localData)));
+        }
+
+        return result;
+    }
+
+    private GraphPart getCommonPartNoCache(BaseLocalData localData, List<GraphPart> parts, List<Loop> loops) throws InterruptedException {
+
         List<GraphPart> loopContinues = new ArrayList<>();//getLoopsContinues(loops);
         for (Loop l : loops) {
             if (l.phase == 1) {
@@ -242,14 +345,19 @@ public class Graph {
                 return p;
             }
         }
-        List<List<GraphPart>> reachable = new ArrayList<>();
+        List<GraphPartSet> reachable = new ArrayList<>();
+        List<GraphPart> first = null;
         for (GraphPart p : parts) {
             List<GraphPart> r1 = new ArrayList<>();
-            getReachableParts(p, r1, loops);
+            GraphPartSet r1Set = new GraphPartSet();
+            getReachableParts(p, r1, r1Set, loops);
             r1.add(p);
-            reachable.add(r1);
+            r1Set.add(p);
+            reachable.add(r1Set);
+            if (first == null) {
+                first = r1;
+            }
         }
-        List<GraphPart> first = reachable.get(0);
         for (GraphPart p : first) {
             /*if (ignored.contains(p)) {
              continue;
@@ -259,7 +367,7 @@ public class Graph {
                 continue;
             }
             boolean common = true;
-            for (List<GraphPart> r : reachable) {
+            for (GraphPartSet r : reachable) {
                 if (!r.contains(p)) {
                     common = false;
                     break;
@@ -321,16 +429,21 @@ public class Graph {
             }
         }
         List<List<GraphPart>> reachable = new ArrayList<>();
+        List<GraphPartSet> reachableSets = new ArrayList<>();
         for (GraphPart p : parts) {
             List<GraphPart> r1 = new ArrayList<>();
-            getReachableParts(p, r1, loops);
+            GraphPartSet r1Set = new GraphPartSet();
+            getReachableParts(p, r1, r1Set, loops);
             r1.add(0, p);
+            r1Set.add(p);
             reachable.add(r1);
+            reachableSets.add(r1Set);
         }
         ///List<GraphPart> first = reachable.get(0);
         int commonLevel;
         Map<GraphPart, Integer> levelMap = new HashMap<>();
-        for (List<GraphPart> first : reachable) {
+        for (int f = 0; f < reachable.size(); f++) {
+            List<GraphPart> first = reachable.get(f);
             int maxclevel = 0;
             Set<GraphPart> visited = new HashSet<>();
             for (GraphPart p : first) {
@@ -343,11 +456,11 @@ public class Graph {
                 visited.add(p);
                 boolean common = true;
                 commonLevel = 1;
-                for (List<GraphPart> r : reachable) {
-                    if (r == first) {
+                for (int r = 0; r < reachableSets.size(); r++) {
+                    if (r == f) {
                         continue;
                     }
-                    if (r.contains(p)) {
+                    if (reachableSets.get(r).contains(p)) {
                         commonLevel++;
                     }
                 }
@@ -438,11 +551,21 @@ public class Graph {
          System.err.println("</loopspre>");//*/
 
         List<GraphTargetItem> ret = printGraph(localData, stack, allParts, null, heads.get(0), null, loops, staticOperation, path);
+        finalProcessGraph(stack, ret);
+        return ret;
+
+    }
+
+    /**
+     * Final processing of the translated graph
+     *
+     * @param stack Stack
+     * @param ret Translated graph
+     */
+    protected void finalProcessGraph(TranslateStack stack, List<GraphTargetItem> ret) {
         processIfs(ret);
         finalProcessStack(stack, ret);
         finalProcessAll(ret, 0, new FinalProcessLocalData());
-        return ret;
-
     }
 
     public void finalProcessStack(TranslateStack stack, List<GraphTargetItem> output) {
@@ -2154,4 +2277,16 @@ public class Graph {
         } while (part != null);
         return ret;
     }
+
+    private static final class CommonPart {
+
+        private final GraphPart part;
+
+        private final Object checkPartState;
+
+        public CommonPart(GraphPart part, Object checkPartState) {
+            this.part = part;
+            this.checkPartState = checkPartState;
+        }
+    }
 }
@@ -0,0 +1,278 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.graph;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Static analysis of the graph parts. The parts reachable from the heads
+ * through nextParts and throwParts get dense numbers (GraphPart.id), the sets
+ * of parts are then BitSets indexed by these numbers.
+ *
+ * The analysis ignores loops and checkPart, so it describes all the paths
+ * the structuring code can possibly follow.
+ *
+ * @author JPEXS
+ */
+public class GraphAnalysis {
+
+    private final List<GraphPart> parts = new ArrayList<>();
+
+    private final int[][] successors;
+
+    private final int[][] predecessors;
+
+    private final BitSet heads = new BitSet();
+
+    private final BitSet[] reachable;
+
+    private BitSet[] dominators;
+
+    private BitSet[] postDominators;
+
+    public GraphAnalysis(List<GraphPart> heads) {
+        Deque<GraphPart> stack = new ArrayDeque<>();
+        for (int i = heads.size() - 1; i >= 0; i--) {
+            stack.push(heads.get(i));
+        }
+
+        for (GraphPart head : heads) {
+            head.id = -1;
+        }
+        while (!stack.isEmpty()) {
+            GraphPart part = stack.pop();
+            if (part.id >= 0 && part.id < parts.size() && parts.get(part.id) == part) {
+                continue;
+            }
+
+            part.id = parts.size();
+            parts.add(part);
+            for (int i = part.throwParts.size() - 1; i >= 0; i--) {
+                pushUnnumbered(stack, part.throwParts.get(i));
+            }
+            for (int i = part.nextParts.size() - 1; i >= 0; i--) {
+                pushUnnumbered(stack, part.nextParts.get(i));
+            }
+        }
+
+        for (GraphPart head : heads) {
+            this.heads.set(head.id);
+        }
+
+        int count = parts.size();
+        successors = new int[count][];
+        int[] predecessorCounts = new int[count];
+        for (int i = 0; i < count; i++) {
+            GraphPart part = parts.get(i);
+            BitSet next = new BitSet(count);
+            for (GraphPart p : part.nextParts) {
+                next.set(p.id);
+            }
+            for (GraphPart p : part.throwParts) {
+                next.set(p.id);
+            }
+            successors[i] = next.stream().toArray();
+            for (int s : successors[i]) {
+                predecessorCounts[s]++;
+            }
+        }
+
+        predecessors = new int[count][];
+        for (int i = 0; i < count; i++) {
+            predecessors[i] = new int[predecessorCounts[i]];
+            predecessorCounts[i] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            for (int s : successors[i]) {
+                predecessors[s][predecessorCounts[s]++] = i;
+            }
+        }
+
+        reachable = new BitSet[count];
+    }
+
+    /**
+     * Pushes the part when it does not have a number in this analysis yet. A
+     * number from an older analysis is cleared.
+     */
+    private void pushUnnumbered(Deque<GraphPart> stack, GraphPart part) {
+        if (part.id >= 0 && part.id < parts.size() && parts.get(part.id) == part) {
+            return;
+        }
+
+        part.id = -1;
+        stack.push(part);
+    }
+
+    public int getPartCount() {
+        return parts.size();
+    }
+
+    public GraphPart getPart(int id) {
+        return parts.get(id);
+    }
+
+    /**
+     * Checks whether the part was numbered by this analysis
+     *
+     * @param part Part
+     * @return True when the part belongs to the analysed graph
+     */
+    public boolean isNumbered(GraphPart part) {
+        return part.id >= 0 && part.id < parts.size() && parts.get(part.id) == part;
+    }
+
+    /**
+     * Gets parts reachable from the part through at least one edge. The
+     * result is computed on the first call and must not be modified.
+     *
+     * @param part Numbered part
+     * @return Set of part ids
+     */
+    public BitSet getReachable(GraphPart part) {
+        BitSet result = reachable[part.id];
+        if (result != null) {
+            return result;
+        }
+
+        result = new BitSet(parts.size());
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(part.id);
+        while (!stack.isEmpty()) {
+            int id = stack.pop();
+            for (int s : successors[id]) {
+                if (!result.get(s)) {
+                    result.set(s);
+                    if (reachable[s] != null) {
+                        result.or(reachable[s]);
+                    } else {
+                        stack.push(s);
+                    }
+                }
+            }
+        }
+
+        reachable[part.id] = result;
+        return result;
+    }
+
+    /**
+     * Checks whether there is a path of at least one edge between the parts
+     *
+     * @param from Numbered part
+     * @param to Numbered part
+     * @return True when the path exists
+     */
+    public boolean reaches(GraphPart from, GraphPart to) {
+        return getReachable(from).get(to.id);
+    }
+
+    /**
+     * Gets the parts which are on every path from the heads to the part,
+     * including the part itself
+     *
+     * @param part Numbered part
+     * @return Set of part ids
+     */
+    public BitSet getDominators(GraphPart part) {
+        if (dominators == null) {
+            dominators = computeDominators(predecessors, heads);
+        }
+
+        return dominators[part.id];
+    }
+
+    /**
+     * Gets the parts which are on every path from the part to an exit part
+     * (a part without successors), including the part itself. Parts from
+     * which no exit can be reached are post-dominated by all parts.
+     *
+     * @param part Numbered part
+     * @return Set of part ids
+     */
+    public BitSet getPostDominators(GraphPart part) {
+        if (postDominators == null) {
+            BitSet exits = new BitSet(parts.size());
+            for (int i = 0; i < parts.size(); i++) {
+                if (successors[i].length == 0) {
+                    exits.set(i);
+                }
+            }
+
+            postDominators = computeDominators(successors, exits);
+        }
+
+        return postDominators[part.id];
+    }
+
+    public boolean dominates(GraphPart dominator, GraphPart part) {
+        return getDominators(part).get(dominator.id);
+    }
+
+    public boolean postDominates(GraphPart postDominator, GraphPart part) {
+        return getPostDominators(part).get(postDominator.id);
+    }
+
+    /**
+     * Iterative dataflow dominator computation
+     *
+     * @param incoming Incoming edges of each part in the direction of the
+     * analysis
+     * @param roots Start parts
+     * @return Dominator set of each part
+     */
+    private BitSet[] computeDominators(int[][] incoming, BitSet roots) {
+        int count = parts.size();
+        BitSet[] result = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = new BitSet(count);
+            if (roots.get(i)) {
+                result[i].set(i);
+            } else {
+                result[i].set(0, count);
+            }
+        }
+
+        boolean changed = true;
+        BitSet temp = new BitSet(count);
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < count; i++) {
+                if (roots.get(i) || incoming[i].length == 0) {
+                    continue;
+                }
+
+                temp.set(0, count);
+                for (int p : incoming[i]) {
+                    temp.and(result[p]);
+                }
+                temp.set(i);
+                if (!temp.equals(result[i])) {
+                    result[i].clear();
+                    result[i].or(temp);
+                    changed = true;
+                }
+            }
+        }
+
+        return result;
+    }
+}
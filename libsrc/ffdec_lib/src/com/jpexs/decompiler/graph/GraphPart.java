@@ -55,6 +55,12 @@ public class GraphPart implements Serializable {
 
     public int order;
 
+    /**
+     * Number of the part in the GraphAnalysis of its graph, -1 when not
+     * numbered
+     */
+    public int id = -1;
+
     public List<GraphPart> throwParts = new ArrayList<>();
 
     public enum StopPartType {
@@ -90,12 +96,11 @@ public class GraphPart implements Serializable {
         }
     }
 
-    public int setTime(int time, List<GraphPart> ordered, List<GraphPart> visited) {
-        if (visited.contains(this)) {
+    public int setTime(int time, List<GraphPart> ordered, GraphPartSet visited) {
+        if (!visited.add(this)) {
             return time;
         }
         discoveredTime = time;
-        visited.add(this);
         for (GraphPart next : nextParts) {
             if (!visited.contains(next)) {
                 time = next.setTime(time + 1, ordered, visited);
@@ -108,7 +113,7 @@ public class GraphPart implements Serializable {
         return time;
     }
 
-    private boolean leadsTo(BaseLocalData localData, Graph gr, GraphSource code, GraphPart part, List<GraphPart> visited, List<Loop> loops) throws InterruptedException {
+    private boolean leadsTo(BaseLocalData localData, Graph gr, GraphSource code, GraphPart part, GraphPartSet visited, List<Loop> loops) throws InterruptedException {
         if (Thread.currentThread().isInterrupted()) {
             throw new InterruptedException();
         }
@@ -142,13 +147,12 @@ public class GraphPart implements Serializable {
                 }
             }
         }
-        if (visited.contains(this)) {
+        if (!visited.add(this)) {
             return false;
         }
         /*if (loops.contains(this)) {
          return false;
          }*/
-        visited.add(this);
         if (end < code.size() && code.get(end).isBranch() && (code.get(end).ignoredLoops())) {
             return false;
         }
@@ -177,7 +181,14 @@ public class GraphPart implements Serializable {
         for (Loop l : loops) {
             l.leadsToMark = 0;
         }
-        return leadsTo(localData, gr, code, part, new ArrayList<GraphPart>(), loops);
+        // the loops and checkPart can only cut the paths of the static graph,
+        // but a stateful checkPart must still see the visited parts
+        GraphAnalysis analysis = gr.getAnalysis();
+        if (analysis != null && analysis.isNumbered(this) && analysis.isNumbered(part) && !analysis.reaches(this, part)
+                && gr.getCheckPartState(localData) == null) {
+            return false;
+        }
+        return leadsTo(localData, gr, code, part, new GraphPartSet(), loops);
     }
 
     public GraphPart(int start, int end) {
@@ -185,14 +196,10 @@ public class GraphPart implements Serializable {
         this.end = end;
     }
 
-    private GraphPart getNextPartPath(GraphPart original, GraphPath path, List<GraphPart> visited) {
-        if (visited.contains(this) && (this == original)) {
+    private GraphPart getNextPartPath(GraphPart original, GraphPath path, GraphPartSet visited) {
+        if (!visited.add(this)) {
             return null;
         }
-        if (visited.contains(this) && (this != original)) {
-            return null;
-        }
-        visited.add(this);
         for (GraphPart p : nextParts) {
             if (p == original) {
                 continue;
@@ -210,25 +217,20 @@ public class GraphPart implements Serializable {
     }
 
     public GraphPart getNextPartPath(List<GraphPart> ignored) {
-        List<GraphPart> visited = new ArrayList<>();
-        visited.addAll(ignored);
-        if (visited.contains(this)) {
-            visited.remove(this);
-        }
+        GraphPartSet visited = new GraphPartSet(ignored);
+        visited.remove(this);
         return getNextPartPath(this, path, visited);
     }
 
     public GraphPart getNextSuperPartPath(List<GraphPart> ignored) {
-        List<GraphPart> visited = new ArrayList<>();
-        visited.addAll(ignored);
+        GraphPartSet visited = new GraphPartSet(ignored);
         return getNextSuperPartPath(this, path, visited);
     }
 
-    private GraphPart getNextSuperPartPath(GraphPart original, GraphPath path, List<GraphPart> visited) {
-        if (visited.contains(this)) {
+    private GraphPart getNextSuperPartPath(GraphPart original, GraphPath path, GraphPartSet visited) {
+        if (!visited.add(this)) {
             return null;
         }
-        visited.add(this);
         for (GraphPart p : nextParts) {
             if (p == original) {
                 continue;
@@ -257,11 +259,10 @@ public class GraphPart implements Serializable {
         return (ip >= start) && (ip <= end);
     }
 
-    private boolean containsPart(GraphPart part, GraphPart what, List<GraphPart> used) {
-        if (used.contains(part)) {
+    private boolean containsPart(GraphPart part, GraphPart what, GraphPartSet used) {
+        if (!used.add(part)) {
             return false;
         }
-        used.add(part);
         for (GraphPart subpart : part.nextParts) {
             if (subpart == what) {
                 return true;
@@ -282,7 +283,7 @@ public class GraphPart implements Serializable {
     }
 
     public boolean containsPart(GraphPart what) {
-        return containsPart(this, what, new ArrayList<GraphPart>());
+        return containsPart(this, what, new GraphPartSet());
     }
 
     public List<GraphPart> getSubParts() {
@@ -0,0 +1,67 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.graph;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Set of graph parts. The parts are compared like in GraphPart.equals, by
+ * their start and end, so it can replace the lists of visited parts.
+ *
+ * @author JPEXS
+ */
+public class GraphPartSet {
+
+    private final Set<Long> keys = new HashSet<>();
+
+    public GraphPartSet() {
+    }
+
+    public GraphPartSet(Collection<GraphPart> parts) {
+        addAll(parts);
+    }
+
+    private static Long key(GraphPart part) {
+        return ((long) part.start << 32) | (part.end & 0xffffffffL);
+    }
+
+    public boolean contains(GraphPart part) {
+        return keys.contains(key(part));
+    }
+
+    /**
+     * Adds the part to the set
+     *
+     * @param part Part
+     * @return True when the part was not in the set
+     */
+    public boolean add(GraphPart part) {
+        return keys.add(key(part));
+    }
+
+    public final void addAll(Collection<GraphPart> parts) {
+        for (GraphPart part : parts) {
+            add(part);
+        }
+    }
+
+    public void remove(GraphPart part) {
+        keys.remove(key(part));
+    }
+}
@@ -16,7 +16,16 @@
  */
 package com.jpexs.helpers;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
 /**
+ * Range of a byte array. The range can point into a memory mapped buffer
+ * instead of an array, then the data are read from the buffer and getArray is
+ * not supported.
  *
  * @author JPEXS
  */
@@ -24,20 +33,40 @@ public class ByteArrayRange {
 
     public static final ByteArrayRange EMPTY = new ByteArrayRange(new byte[0]);
 
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
     private final byte[] array;
 
+    private final ByteBuffer buffer;
+
     private final int pos;
 
     private final int length;
 
     public ByteArrayRange(byte[] array) {
         this.array = array;
+        this.buffer = null;
         this.pos = 0;
         this.length = array.length;
     }
 
     public ByteArrayRange(byte[] array, int pos, int length) {
         this.array = array;
+        this.buffer = null;
+        this.pos = pos;
+        this.length = length;
+    }
+
+    /**
+     * Creates a range of a buffer, the data are not copied
+     *
+     * @param buffer Buffer, usually memory mapped
+     * @param pos Position in the buffer
+     * @param length Length
+     */
+    public ByteArrayRange(ByteBuffer buffer, int pos, int length) {
+        this.array = null;
+        this.buffer = buffer;
         this.pos = pos;
         this.length = length;
     }
@@ -48,14 +77,35 @@ public class ByteArrayRange {
             array[i] = (byte) Integer.parseInt(hexString.substring(i * 2, i * 2 + 2), 16);
         }
         this.array = array;
+        this.buffer = null;
         this.pos = 0;
         this.length = array.length;
     }
 
+    /**
+     * Gets the array of the range
+     *
+     * @return Array
+     * @throws UnsupportedOperationException When the range points into a
+     * buffer
+     */
     public byte[] getArray() {
+        if (array == null) {
+            throw new UnsupportedOperationException("The range is not backed by an array");
+        }
+
         return array;
     }
 
+    /**
+     * Checks whether the range points into a buffer instead of an array
+     *
+     * @return True when getArray is not supported
+     */
+    public boolean isBuffered() {
+        return buffer != null;
+    }
+
     public int getPos() {
         return pos;
     }
@@ -64,19 +114,109 @@ public class ByteArrayRange {
         return length;
     }
 
+    /**
+     * Gets the length of the whole array or buffer
+     *
+     * @return Length
+     */
+    public int getArrayLength() {
+        return array != null ? array.length : buffer.limit();
+    }
+
     public byte get(int index) {
+        if (array == null) {
+            return buffer.get(pos + index);
+        }
+
         return array[pos + index];
     }
 
+    /**
+     * Gets a range of the same array or buffer
+     *
+     * @param pos Position in the whole array, not in this range
+     * @param length Length
+     * @return Range
+     */
+    public ByteArrayRange getArrayRange(int pos, int length) {
+        if (array == null) {
+            return new ByteArrayRange(buffer, pos, length);
+        }
+
+        return new ByteArrayRange(array, pos, length);
+    }
+
     public byte[] getRangeData() {
-        byte[] data = new byte[length];
-        System.arraycopy(array, pos, data, 0, length);
-        return data;
+        return getRangeData(0, length);
     }
 
     public byte[] getRangeData(int pos, int length) {
         byte[] data = new byte[length];
-        System.arraycopy(array, this.pos + pos, data, 0, length);
+        if (array == null) {
+            ByteBuffer b = buffer.duplicate();
+            b.position(this.pos + pos);
+            b.get(data);
+        } else {
+            System.arraycopy(array, this.pos + pos, data, 0, length);
+        }
+
         return data;
     }
+
+    /**
+     * Gets a stream of the whole array or buffer, the positions of the stream
+     * are positions in the whole array
+     *
+     * @param limit Limit of the stream
+     * @return Stream
+     * @throws IOException
+     */
+    public MemoryInputStream getArrayStream(int limit) throws IOException {
+        if (array == null) {
+            return new MemoryInputStream(buffer, 0, limit);
+        }
+
+        return new MemoryInputStream(array, 0, limit);
+    }
+
+    /**
+     * Gets a stream of the range data
+     *
+     * @return Input stream
+     */
+    public InputStream getInputStream() {
+        if (array == null) {
+            try {
+                return new MemoryInputStream(buffer, pos, length);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Invalid range", ex);
+            }
+        }
+
+        return new ByteArrayInputStream(array, pos, length);
+    }
+
+    /**
+     * Writes the range data to the stream
+     *
+     * @param os Output stream
+     * @throws IOException
+     */
+    public void writeTo(OutputStream os) throws IOException {
+        if (array != null) {
+            os.write(array, pos, length);
+            return;
+        }
+
+        ByteBuffer b = buffer.duplicate();
+        b.position(pos);
+        byte[] data = new byte[Math.min(length, COPY_BUFFER_SIZE)];
+        int remaining = length;
+        while (remaining > 0) {
+            int count = Math.min(remaining, data.length);
+            b.get(data, 0, count);
+            os.write(data, 0, count);
+            remaining -= count;
+        }
+    }
 }
@@ -17,16 +17,28 @@
 package com.jpexs.helpers;
 
 import com.jpexs.decompiler.flash.helpers.Freed;
-import java.io.File;
-import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
+ * Thread safe cache. The memory storage is a ConcurrentHashMap, so reads do not
+ * block each other.
+ *
+ * A size limited cache keeps the least recently used order in stripes, each
+ * stripe has its own lock which guards the changes of its entries. The entry
+ * with the oldest access of all the stripes is evicted first.
  *
  * @author JPEXS
  * @param <K>
@@ -34,9 +46,11 @@ import java.util.WeakHashMap;
  */
 public class Cache<K, V> implements Freed {
 
-    private Map<K, V> cache;
+    private static final int STRIPE_COUNT = 16;
+
+    private volatile Map<Object, V> cache;
 
-    private static final List<WeakReference<Cache>> instances = new ArrayList<>();
+    private static final List<WeakReference<Cache<?, ?>>> instances = new ArrayList<>();
 
     public static final int STORAGE_FILES = 1;
 
@@ -46,19 +60,90 @@ public class Cache<K, V> implements Freed {
 
     private final boolean memoryOnly;
 
+    /**
+     * The temporary files cannot be written, the entries are stored in memory
+     */
+    private volatile boolean fileStorageFailed;
+
     private final String name;
 
+    private final long maxWeight;
+
+    /**
+     * Weights of the entries in least recently used order, null when the size
+     * is not limited
+     */
+    private final Stripe[] stripes;
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final ReferenceQueue<Object> staleKeys = new ReferenceQueue<>();
+
+    private final AtomicLong accessCounter = new AtomicLong();
+
+    private final AtomicLong totalWeight = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Key of the weak cache, it is equal to the keys with equal referents
+     */
+    private static class WeakKey extends WeakReference<Object> {
+
+        private final int hash;
+
+        public WeakKey(Object key, ReferenceQueue<Object> queue) {
+            super(key, queue);
+            hash = key.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof WeakKey)) {
+                return false;
+            }
+            Object key = get();
+            return key != null && key.equals(((WeakKey) obj).get());
+        }
+    }
+
+    private static class EntryInfo {
+
+        private final long weight;
+
+        private long lastAccess;
+
+        public EntryInfo(long weight, long lastAccess) {
+            this.weight = weight;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static class Stripe {
+
+        private final LinkedHashMap<Object, EntryInfo> entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
     static {
         Runtime.getRuntime().addShutdownHook(new Thread() {
 
             @Override
             public void run() {
-                for (WeakReference<Cache> cw : instances) {
-                    Cache c = cw.get();
-                    if (c != null) {
-                        c.clear();
-                        c.free();
-                    }
+                for (Cache<?, ?> c : getInstances()) {
+                    c.clear();
+                    c.free();
                 }
             }
 
@@ -66,21 +151,56 @@ public class Cache<K, V> implements Freed {
     }
 
     public static <K, V> Cache<K, V> getInstance(boolean weak, boolean memoryOnly, String name) {
-        Cache<K, V> instance = new Cache<>(weak, memoryOnly, name);
-        instances.add(new WeakReference<Cache>(instance));
+        return getInstance(weak, memoryOnly, name, 0);
+    }
+
+    /**
+     * Creates cache with limited size. When the total weight of the entries
+     * exceeds the limit, the least recently used entries are evicted. The
+     * weight of a value is its Weighted.getWeight or 1.
+     *
+     * The weak keys are kept with the size limit too, an entry is removed when
+     * its key is garbage collected or when it is evicted.
+     *
+     * @param <K>
+     * @param <V>
+     * @param weak Use weak keys
+     * @param memoryOnly Do not store the values to temporary files
+     * @param name Name of the cache
+     * @param maxWeight Maximal total weight of the entries, 0 = unlimited
+     * @return Cache
+     */
+    public static <K, V> Cache<K, V> getInstance(boolean weak, boolean memoryOnly, String name, long maxWeight) {
+        Cache<K, V> instance = new Cache<>(weak, memoryOnly, name, maxWeight);
+        synchronized (instances) {
+            instances.add(new WeakReference<Cache<?, ?>>(instance));
+        }
         return instance;
     }
 
     private static int storageType = STORAGE_FILES;
 
-    public static void clearAll() {
-        for (WeakReference<Cache> cw : instances) {
-            Cache c = cw.get();
-            if (c != null) {
-                c.clear();
-                c.initCache();
+    public static List<Cache<?, ?>> getInstances() {
+        List<Cache<?, ?>> result = new ArrayList<>();
+        synchronized (instances) {
+            Iterator<WeakReference<Cache<?, ?>>> it = instances.iterator();
+            while (it.hasNext()) {
+                Cache<?, ?> c = it.next().get();
+                if (c != null) {
+                    result.add(c);
+                } else {
+                    it.remove();
+                }
             }
         }
+        return result;
+    }
+
+    public static void clearAll() {
+        for (Cache<?, ?> c : getInstances()) {
+            c.clear();
+            c.initCache();
+        }
     }
 
     public static void setStorageType(int storageType) {
@@ -105,58 +225,294 @@ public class Cache<K, V> implements Freed {
     }
 
     private void initCache() {
+        replaceStorage();
+        clearWeights();
+    }
+
+    /**
+     * Creates new storage, the weights are not changed. It must not lock the
+     * stripes, it is called from a stripe lock.
+     */
+    private synchronized void replaceStorage() {
         int thisStorageType = storageType;
-        if (memoryOnly) {
+        if (memoryOnly || fileStorageFailed) {
             thisStorageType = STORAGE_MEMORY;
         }
-        Map<K, V> newCache = null;
+        Map<Object, V> newCache;
         if (thisStorageType == STORAGE_FILES) {
-            try {
-                newCache = new FileHashMap<>(File.createTempFile("ffdec_cache_" + name + "_", ".tmp"));
-            } catch (IOException ex) {
-                thisStorageType = STORAGE_MEMORY;
-            }
-        }
-        if (thisStorageType == STORAGE_MEMORY) {
-            if (weak) {
-                newCache = new WeakHashMap<>();
-            } else {
-                newCache = new HashMap<>();
-            }
-        }
-        if (this.cache instanceof Freed) {
-            ((Freed) this.cache).free();
+            // the segment files are created on the first put, when it fails
+            // the cache falls back to the memory
+            newCache = new SegmentFileMap<>("ffdec_cache_" + name + "_");
+        } else {
+            newCache = new ConcurrentHashMap<>();
         }
+        Map<Object, V> oldCache = this.cache;
         this.cache = newCache;
+        if (oldCache != null) {
+            // not freed, other threads can still use it, clear deletes the
+            // segment files and keeps the map usable
+            oldCache.clear();
+        }
     }
 
-    private Cache(boolean weak, boolean memoryOnly, String name) {
+    private Cache(boolean weak, boolean memoryOnly, String name, long maxWeight) {
         this.weak = weak;
         this.name = name;
         this.memoryOnly = memoryOnly;
+        this.maxWeight = maxWeight;
+        if (maxWeight > 0) {
+            stripes = new Stripe[STRIPE_COUNT];
+            for (int i = 0; i < STRIPE_COUNT; i++) {
+                stripes[i] = new Stripe();
+            }
+        } else {
+            stripes = null;
+        }
         initCache();
     }
 
-    public synchronized boolean contains(K key) {
-        return cache.containsKey(key);
+    /**
+     * Gets the key of the map. A new weak key is registered to the queue, the
+     * lookup key is not.
+     */
+    private Object toMapKey(K key, boolean lookup) {
+        if (!weak) {
+            return key;
+        }
+        return new WeakKey(key, lookup ? null : staleKeys);
+    }
+
+    private Stripe getStripe(Object mapKey) {
+        int h = mapKey.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPE_COUNT - 1)];
+    }
+
+    /**
+     * Removes the entries whose keys were garbage collected
+     */
+    private void expungeStaleKeys() {
+        Reference<?> ref;
+        while ((ref = staleKeys.poll()) != null) {
+            // the cleared key is equal only to itself
+            removeEntry(ref);
+        }
+    }
+
+    private void removeEntry(Object mapKey) {
+        if (stripes == null) {
+            cache.remove(mapKey);
+            return;
+        }
+        Stripe stripe = getStripe(mapKey);
+        EntryInfo info;
+        synchronized (stripe) {
+            cache.remove(mapKey);
+            info = stripe.entries.remove(mapKey);
+        }
+        if (info != null) {
+            totalWeight.addAndGet(-info.weight);
+        }
     }
 
-    public synchronized void clear() {
+    private void clearWeights() {
+        if (stripes == null) {
+            return;
+        }
+        for (Stripe stripe : stripes) {
+            long weight = 0;
+            synchronized (stripe) {
+                for (EntryInfo info : stripe.entries.values()) {
+                    weight += info.weight;
+                }
+                stripe.entries.clear();
+            }
+            totalWeight.addAndGet(-weight);
+        }
+    }
+
+    public boolean contains(K key) {
+        expungeStaleKeys();
+        return cache.containsKey(toMapKey(key, true));
+    }
+
+    public void clear() {
         cache.clear();
+        clearWeights();
+    }
+
+    public void remove(K key) {
+        removeEntry(toMapKey(key, true));
+    }
+
+    public V get(K key) {
+        expungeStaleKeys();
+        Object mapKey = toMapKey(key, true);
+        V value = cache.get(mapKey);
+        if (value == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+            if (stripes != null) {
+                Stripe stripe = getStripe(mapKey);
+                synchronized (stripe) {
+                    // marks as recently used
+                    EntryInfo info = stripe.entries.get(mapKey);
+                    if (info != null) {
+                        info.lastAccess = accessCounter.incrementAndGet();
+                    }
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Puts the value to the cache. The weight of the value is its
+     * Weighted.getWeight or 1.
+     *
+     * @param key Key
+     * @param value Value
+     */
+    public void put(K key, V value) {
+        put(key, value, value instanceof Weighted ? ((Weighted) value).getWeight() : 1);
+    }
+
+    /**
+     * Puts the value with the given weight to the cache
+     *
+     * @param key Key
+     * @param value Value
+     * @param weight Weight of the value
+     */
+    public void put(K key, V value, long weight) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+
+        expungeStaleKeys();
+        Object mapKey = toMapKey(key, false);
+        if (stripes == null) {
+            if (!store(mapKey, value)) {
+                cache.remove(mapKey);
+            }
+            return;
+        }
+
+        Stripe stripe = getStripe(mapKey);
+        EntryInfo oldInfo;
+        EntryInfo info = null;
+        synchronized (stripe) {
+            // the value and its weight are changed together, so the eviction
+            // cannot remove a value whose weight was not counted
+            if (store(mapKey, value)) {
+                info = new EntryInfo(weight, accessCounter.incrementAndGet());
+                oldInfo = stripe.entries.put(mapKey, info);
+            } else {
+                cache.remove(mapKey);
+                oldInfo = stripe.entries.remove(mapKey);
+            }
+        }
+        totalWeight.addAndGet((info == null ? 0 : info.weight) - (oldInfo == null ? 0 : oldInfo.weight));
+        evict();
     }
 
-    public synchronized void remove(K key) {
-        if (cache.containsKey(key)) {
-            cache.remove(key);
+    /**
+     * Stores the value to the storage
+     *
+     * @return False when the value cannot be stored
+     */
+    private boolean store(Object mapKey, V value) {
+        try {
+            cache.put(mapKey, value);
+        } catch (UncheckedIOException ex) {
+            Logger.getLogger(Cache.class.getName()).log(Level.WARNING, "Cannot write the cache file, the cache " + name + " is stored in memory", ex);
+            fileStorageFailed = true;
+            // the weights of the lost entries are evicted as the oldest ones
+            replaceStorage();
+            cache.put(mapKey, value);
+        } catch (IllegalArgumentException ex) {
+            // the value cannot be stored in the file, it is not cached
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Evicts the least recently used entries until the total weight is in the
+     * limit. Only one thread evicts at a time, the others do not wait for it.
+     */
+    private void evict() {
+        while (totalWeight.get() > maxWeight && evictionLock.tryLock()) {
+            try {
+                while (totalWeight.get() > maxWeight) {
+                    Stripe oldestStripe = null;
+                    long oldestAccess = Long.MAX_VALUE;
+                    for (Stripe stripe : stripes) {
+                        synchronized (stripe) {
+                            if (!stripe.entries.isEmpty()) {
+                                EntryInfo info = stripe.entries.values().iterator().next();
+                                if (info.lastAccess < oldestAccess) {
+                                    oldestAccess = info.lastAccess;
+                                    oldestStripe = stripe;
+                                }
+                            }
+                        }
+                    }
+
+                    if (oldestStripe == null) {
+                        return;
+                    }
+
+                    EntryInfo eldest = null;
+                    synchronized (oldestStripe) {
+                        Iterator<Map.Entry<Object, EntryInfo>> it = oldestStripe.entries.entrySet().iterator();
+                        if (it.hasNext()) {
+                            Map.Entry<Object, EntryInfo> entry = it.next();
+                            cache.remove(entry.getKey());
+                            eldest = entry.getValue();
+                            it.remove();
+                        }
+                    }
+
+                    if (eldest != null) {
+                        totalWeight.addAndGet(-eldest.weight);
+                        evictionCount.incrementAndGet();
+                    }
+                }
+            } finally {
+                evictionLock.unlock();
+            }
         }
     }
 
-    public synchronized V get(K key) {
-        return cache.get(key);
+    public String getName() {
+        return name;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public long getTotalWeight() {
+        return totalWeight.get();
     }
 
-    public synchronized void put(K key, V value) {
-        cache.put(key, value);
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return name + ": hits=" + hitCount + " misses=" + missCount + " evictions=" + evictionCount + " weight=" + totalWeight + "/" + maxWeight;
     }
 
     @Override
@@ -166,8 +522,9 @@ public class Cache<K, V> implements Freed {
 
     @Override
     public void free() {
-        if (cache instanceof Freed) {
-            ((Freed) cache).free();
+        Map<Object, V> c = cache;
+        if (c instanceof Freed) {
+            ((Freed) c).free();
         }
     }
 }
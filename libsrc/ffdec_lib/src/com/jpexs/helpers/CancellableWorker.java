@@ -29,6 +29,9 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 /**
+ * Background worker. Workers started by execute run on their own threads, not
+ * in the WorkerPool, so they cannot starve the pool or wait for it from a
+ * pool thread.
  *
  * @author JPEXS
  * @param <T>
@@ -62,15 +65,17 @@ public abstract class CancellableWorker<T> implements RunnableFuture<T> {
 
     @Override
     public final void run() {
-        workers.add(this);
-        future.run();
+        if (!future.isDone()) {
+            workers.add(this);
+            future.run();
+        }
     }
 
     protected void done() {
     }
 
     public final void execute() {
-        THREAD_POOL.execute(this);
+        THREAD_POOL.execute(WorkerPool.withThreadLocals(this));
     }
 
     @Override
@@ -90,6 +95,10 @@ public abstract class CancellableWorker<T> implements RunnableFuture<T> {
 
     @Override
     public final T get() throws InterruptedException, ExecutionException {
+        if (!future.isDone() && WorkerPool.isPoolThread()) {
+            WorkerPool.awaitDone(future);
+        }
+
         return future.get();
     }
 
@@ -112,12 +121,7 @@ public abstract class CancellableWorker<T> implements RunnableFuture<T> {
                 return c.call();
             }
         };
-        try {
-            worker.execute();
-            return worker.get(timeout, timeUnit);
-        } finally {
-            worker.cancel(true);
-        }
+        return WorkerPool.run(worker, timeout, timeUnit);
     }
 
     public static void cancelBackgroundThreads() {
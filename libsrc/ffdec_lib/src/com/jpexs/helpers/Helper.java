@@ -47,9 +47,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Scanner;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -68,7 +66,7 @@ public class Helper {
 
     public static String decompilationErrorAdd = null;
 
-    private static final Map<String, Area> shapeCache = new HashMap<>();
+    private static final Cache<String, Area> shapeCache = Cache.getInstance(false, true, "imageShape", Configuration.shapeCacheMaxSize.get() * 1024L * 1024L);
 
     private static final String[] hexStringCache;
 
@@ -519,7 +517,7 @@ public class Helper {
     }
 
     public static byte[] readStream(InputStream is) {
-        if (is instanceof MemoryInputStream) {
+        if (is instanceof MemoryInputStream && !((MemoryInputStream) is).isBuffered()) {
             return ((MemoryInputStream) is).getAllRead();
         }
 
@@ -873,6 +871,7 @@ public class Helper {
     }
 
     public static void appendTimeoutComment(GraphTextWriter writer, int timeout) {
+        writer.markDecompilationError();
         writer.appendNoHilight("/*").newLine();
         writer.appendNoHilight(" * ").appendNoHilight(AppResources.translate("decompilationError")).newLine();
         writer.appendNoHilight(" * ").appendNoHilight(MessageFormat.format(AppResources.translate("decompilationError.timeout"), Helper.formatTimeToText(timeout))).newLine();
@@ -883,6 +882,7 @@ public class Helper {
     }
 
     public static void appendErrorComment(GraphTextWriter writer, Throwable ex) {
+        writer.markDecompilationError();
         writer.appendNoHilight("/*").newLine();
         writer.appendNoHilight(" * ").appendNoHilight(AppResources.translate("decompilationError")).newLine();
         writer.appendNoHilight(" * ").appendNoHilight(AppResources.translate("decompilationError.obfuscated")).newLine();
@@ -945,8 +945,9 @@ public class Helper {
         }
 
         String key = byteArrayToBase64String(bs.toByteArray());
-        if (shapeCache.containsKey(key)) {
-            return shapeCache.get(key);
+        Area cachedArea = shapeCache.get(key);
+        if (cachedArea != null) {
+            return cachedArea;
         }
 
         for (int x = 0; x < width; x++) {
@@ -974,7 +975,8 @@ public class Helper {
             }
         }
 
-        shapeCache.put(key, area);
+        // the key holds the whole mask of the image
+        shapeCache.put(key, area, key.length() * 2L);
         return area;
     }
 
@@ -1003,8 +1005,9 @@ public class Helper {
         }
 
         String key = byteArrayToBase64String(bs.toByteArray());
-        if (shapeCache.containsKey(key)) {
-            return shapeCache.get(key);
+        Area cachedArea = shapeCache.get(key);
+        if (cachedArea != null) {
+            return cachedArea;
         }
 
         BitSet bsArea = new BitSet(width * height);
@@ -1085,7 +1088,8 @@ public class Helper {
             }
         }
 
-        shapeCache.put(key, area);
+        // the key holds the whole mask of the image
+        shapeCache.put(key, area, key.length() * 2L);
         return area;
     }
 
@@ -1138,6 +1142,10 @@ public class Helper {
         return DatatypeConverter.printBase64Binary(data);
     }
 
+    public static byte[] base64StringToByteArray(String base64) {
+        return DatatypeConverter.parseBase64Binary(base64);
+    }
+
     /**
      * Formats double value (removes .0 from end)
      *
@@ -0,0 +1,286 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * XMLStreamWriter which indents the nested elements. Whitespace only text
+ * between the elements is replaced by the indentation, elements with a text
+ * content are not indented inside.
+ *
+ * @author JPEXS
+ */
+public class IndentingXMLStreamWriter implements XMLStreamWriter {
+
+    private final XMLStreamWriter writer;
+
+    private final String indentString;
+
+    private final String newLine;
+
+    /**
+     * For each open element: whether it has child elements or text
+     */
+    private final Deque<int[]> openElements = new ArrayDeque<>();
+
+    private static final int HAS_ELEMENTS = 1;
+
+    private static final int HAS_TEXT = 2;
+
+    private final StringBuilder pendingWhitespace = new StringBuilder();
+
+    public IndentingXMLStreamWriter(XMLStreamWriter writer, int indent, String newLine) {
+        this.writer = writer;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < indent; i++) {
+            sb.append(' ');
+        }
+        this.indentString = sb.toString();
+        this.newLine = newLine;
+    }
+
+    private void beforeElement() throws XMLStreamException {
+        int[] parent = openElements.peek();
+        flushWhitespace(parent != null && (parent[0] & HAS_TEXT) != 0);
+        if (parent != null) {
+            parent[0] |= HAS_ELEMENTS;
+            if ((parent[0] & HAS_TEXT) == 0) {
+                writeIndent(openElements.size());
+            }
+        }
+    }
+
+    private void beforeEndElement() throws XMLStreamException {
+        int[] element = openElements.pop();
+        flushWhitespace(element[0] != HAS_ELEMENTS);
+        if (element[0] == HAS_ELEMENTS) {
+            writeIndent(openElements.size());
+        }
+    }
+
+    private void beforeText() throws XMLStreamException {
+        flushWhitespace(true);
+        int[] element = openElements.peek();
+        if (element != null) {
+            element[0] |= HAS_TEXT;
+        }
+    }
+
+    private void flushWhitespace(boolean write) throws XMLStreamException {
+        if (pendingWhitespace.length() > 0) {
+            if (write) {
+                writer.writeCharacters(pendingWhitespace.toString());
+            }
+            pendingWhitespace.setLength(0);
+        }
+    }
+
+    private void writeIndent(int level) throws XMLStreamException {
+        StringBuilder sb = new StringBuilder(newLine);
+        for (int i = 0; i < level; i++) {
+            sb.append(indentString);
+        }
+        writer.writeCharacters(sb.toString());
+    }
+
+    @Override
+    public void writeStartElement(String localName) throws XMLStreamException {
+        beforeElement();
+        writer.writeStartElement(localName);
+        openElements.push(new int[1]);
+    }
+
+    @Override
+    public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+        beforeElement();
+        writer.writeStartElement(namespaceURI, localName);
+        openElements.push(new int[1]);
+    }
+
+    @Override
+    public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        beforeElement();
+        writer.writeStartElement(prefix, localName, namespaceURI);
+        openElements.push(new int[1]);
+    }
+
+    @Override
+    public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+        beforeElement();
+        writer.writeEmptyElement(namespaceURI, localName);
+    }
+
+    @Override
+    public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        beforeElement();
+        writer.writeEmptyElement(prefix, localName, namespaceURI);
+    }
+
+    @Override
+    public void writeEmptyElement(String localName) throws XMLStreamException {
+        beforeElement();
+        writer.writeEmptyElement(localName);
+    }
+
+    @Override
+    public void writeEndElement() throws XMLStreamException {
+        beforeEndElement();
+        writer.writeEndElement();
+    }
+
+    @Override
+    public void writeEndDocument() throws XMLStreamException {
+        flushWhitespace(false);
+        while (!openElements.isEmpty()) {
+            writeEndElement();
+        }
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        writer.close();
+    }
+
+    @Override
+    public void flush() throws XMLStreamException {
+        writer.flush();
+    }
+
+    @Override
+    public void writeAttribute(String localName, String value) throws XMLStreamException {
+        writer.writeAttribute(localName, value);
+    }
+
+    @Override
+    public void writeAttribute(String prefix, String namespaceURI, String localName, String value) throws XMLStreamException {
+        writer.writeAttribute(prefix, namespaceURI, localName, value);
+    }
+
+    @Override
+    public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+        writer.writeAttribute(namespaceURI, localName, value);
+    }
+
+    @Override
+    public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+        writer.writeNamespace(prefix, namespaceURI);
+    }
+
+    @Override
+    public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+        writer.writeDefaultNamespace(namespaceURI);
+    }
+
+    @Override
+    public void writeComment(String data) throws XMLStreamException {
+        beforeElement();
+        writer.writeComment(data);
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target) throws XMLStreamException {
+        writer.writeProcessingInstruction(target);
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+        writer.writeProcessingInstruction(target, data);
+    }
+
+    @Override
+    public void writeCData(String data) throws XMLStreamException {
+        beforeText();
+        writer.writeCData(data);
+    }
+
+    @Override
+    public void writeDTD(String dtd) throws XMLStreamException {
+        writer.writeDTD(dtd);
+    }
+
+    @Override
+    public void writeEntityRef(String name) throws XMLStreamException {
+        beforeText();
+        writer.writeEntityRef(name);
+    }
+
+    @Override
+    public void writeStartDocument() throws XMLStreamException {
+        writer.writeStartDocument();
+    }
+
+    @Override
+    public void writeStartDocument(String version) throws XMLStreamException {
+        writer.writeStartDocument(version);
+    }
+
+    @Override
+    public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+        writer.writeStartDocument(encoding, version);
+    }
+
+    @Override
+    public void writeCharacters(String text) throws XMLStreamException {
+        if (!openElements.isEmpty() && text.trim().isEmpty()) {
+            pendingWhitespace.append(text);
+            return;
+        }
+        beforeText();
+        writer.writeCharacters(text);
+    }
+
+    @Override
+    public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+        writeCharacters(new String(text, start, len));
+    }
+
+    @Override
+    public String getPrefix(String uri) throws XMLStreamException {
+        return writer.getPrefix(uri);
+    }
+
+    @Override
+    public void setPrefix(String prefix, String uri) throws XMLStreamException {
+        writer.setPrefix(prefix, uri);
+    }
+
+    @Override
+    public void setDefaultNamespace(String uri) throws XMLStreamException {
+        writer.setDefaultNamespace(uri);
+    }
+
+    @Override
+    public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+        writer.setNamespaceContext(context);
+    }
+
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        return writer.getNamespaceContext();
+    }
+
+    @Override
+    public Object getProperty(String name) throws IllegalArgumentException {
+        return writer.getProperty(name);
+    }
+}
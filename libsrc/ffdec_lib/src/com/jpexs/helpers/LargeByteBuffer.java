@@ -0,0 +1,212 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import com.jpexs.helpers.streams.SeekableInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read only byte buffer with long positions. The data is stored in chunks of
+ * 1 GB, so memory mapped files larger than 2 GB can be accessed.
+ *
+ * The buffer is thread safe, the streams created by getInputStream are not.
+ *
+ * @author JPEXS
+ */
+public class LargeByteBuffer {
+
+    private static final int CHUNK_BITS = 30;
+
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final ByteBuffer[] chunks;
+
+    private final long length;
+
+    private LargeByteBuffer(ByteBuffer[] chunks, long length) {
+        this.chunks = chunks;
+        this.length = length;
+    }
+
+    /**
+     * Maps the file to the memory
+     *
+     * @param file File
+     * @return Buffer
+     * @throws IOException
+     */
+    public static LargeByteBuffer map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            long length = channel.size();
+            ByteBuffer[] chunks = new ByteBuffer[getChunkCount(length)];
+            for (int i = 0; i < chunks.length; i++) {
+                long pos = (long) i << CHUNK_BITS;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(CHUNK_SIZE, length - pos));
+            }
+
+            // the mapping stays valid after closing the channel
+            return new LargeByteBuffer(chunks, length);
+        }
+    }
+
+    public static LargeByteBuffer wrap(byte[] data) {
+        ByteBuffer[] chunks = new ByteBuffer[getChunkCount(data.length)];
+        for (int i = 0; i < chunks.length; i++) {
+            int pos = i << CHUNK_BITS;
+            chunks[i] = ByteBuffer.wrap(data, pos, Math.min(CHUNK_SIZE, data.length - pos)).slice();
+        }
+
+        return new LargeByteBuffer(chunks, data.length);
+    }
+
+    private static int getChunkCount(long length) {
+        return (int) ((length + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+    }
+
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Gets the byte at the position
+     *
+     * @param pos Position
+     * @return Byte value (0-255)
+     */
+    public int get(long pos) {
+        if (pos < 0 || pos >= length) {
+            throw new IndexOutOfBoundsException("Position: " + pos + ", length: " + length);
+        }
+
+        return chunks[(int) (pos >>> CHUNK_BITS)].get((int) (pos & CHUNK_MASK)) & 0xff;
+    }
+
+    /**
+     * Reads the bytes from the position
+     *
+     * @param pos Position
+     * @param dst Destination array
+     * @param off Offset in the destination array
+     * @param len Maximal number of bytes
+     * @return Number of read bytes, -1 when the position is at the end
+     */
+    public int get(long pos, byte[] dst, int off, int len) {
+        if (pos >= length) {
+            return -1;
+        }
+
+        len = (int) Math.min(len, length - pos);
+        int read = 0;
+        while (read < len) {
+            // duplicate, so the position of the shared chunk is not changed
+            ByteBuffer chunk = chunks[(int) (pos >>> CHUNK_BITS)].duplicate();
+            int chunkPos = (int) (pos & CHUNK_MASK);
+            int count = Math.min(len - read, chunk.limit() - chunkPos);
+            chunk.position(chunkPos);
+            chunk.get(dst, off + read, count);
+            read += count;
+            pos += count;
+        }
+
+        return read;
+    }
+
+    /**
+     * Creates stream of the part of the buffer
+     *
+     * @param start Start position
+     * @param maxLength Maximal length of the stream
+     * @return Stream
+     */
+    public SeekableInputStream getInputStream(long start, long maxLength) {
+        if (start < 0 || start > length) {
+            throw new IndexOutOfBoundsException("Position: " + start + ", length: " + length);
+        }
+
+        return new BufferInputStream(start, Math.min(maxLength, length - start));
+    }
+
+    private class BufferInputStream extends SeekableInputStream {
+
+        private final long start;
+
+        private final long maxLength;
+
+        private long pos;
+
+        public BufferInputStream(long start, long maxLength) {
+            this.start = start;
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public void seek(long pos) throws IOException {
+            if (pos < 0) {
+                throw new IOException("Seek to negative position");
+            }
+            this.pos = pos;
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            seek(0);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos < maxLength) {
+                return get(start + pos++);
+            }
+
+            return -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            if (pos >= maxLength) {
+                return -1;
+            }
+
+            int count = get(start + pos, bytes, off, (int) Math.min(len, maxLength - pos));
+            pos += count;
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long count = Math.max(0, Math.min(n, maxLength - pos));
+            pos += count;
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.max(0, Math.min(Integer.MAX_VALUE, maxLength - pos));
+        }
+    }
+}
@@ -18,8 +18,14 @@ package com.jpexs.helpers;
 
 import com.jpexs.helpers.streams.SeekableInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
+ * Stream of an array or of a memory mapped buffer.
+ *
+ * A negative start position maps the array to the stream positions starting
+ * at -startPos, so a copy of a part of the data can be read with the same
+ * positions as the whole data.
  *
  * @author JPEXS
  */
@@ -27,6 +33,8 @@ public class MemoryInputStream extends SeekableInputStream {
 
     private final byte[] buffer;
 
+    private final ByteBuffer byteBuffer;
+
     private long pos;
 
     private int startPos;
@@ -43,20 +51,94 @@ public class MemoryInputStream extends SeekableInputStream {
 
     public MemoryInputStream(byte[] buffer, int startPos, int maxLength) throws IOException {
         this.buffer = buffer;
+        this.byteBuffer = null;
+        init(buffer.length, startPos, maxLength);
+    }
+
+    /**
+     * Creates a stream of a buffer, the data are read directly from the
+     * buffer
+     *
+     * @param byteBuffer Buffer, usually memory mapped
+     * @param startPos Start position in the buffer
+     * @param maxLength Maximal length
+     * @throws IOException
+     */
+    public MemoryInputStream(ByteBuffer byteBuffer, int startPos, int maxLength) throws IOException {
+        this.buffer = null;
+        this.byteBuffer = byteBuffer;
+        init(byteBuffer.limit(), startPos, maxLength);
+    }
+
+    private void init(int length, int startPos, int maxLength) throws IOException {
         this.startPos = startPos;
-        if (startPos > buffer.length) {
+        if (startPos > length) {
             throw new IOException("Invalid startPos");
         }
         this.maxLength = maxLength;
-        if (startPos + maxLength >= buffer.length) {
-            this.maxLength = buffer.length - startPos;
+        if (startPos + maxLength >= length) {
+            this.maxLength = length - startPos;
         }
     }
 
+    /**
+     * Gets the array of the stream
+     *
+     * @return Array
+     * @throws UnsupportedOperationException When the stream reads a buffer
+     */
     public byte[] getAllRead() {
+        if (buffer == null) {
+            throw new UnsupportedOperationException("The stream is not backed by an array");
+        }
+
         return buffer;
     }
 
+    /**
+     * Checks whether the stream reads a buffer instead of an array
+     *
+     * @return True when getAllRead is not supported
+     */
+    public boolean isBuffered() {
+        return byteBuffer != null;
+    }
+
+    /**
+     * Gets a stream of the same data
+     *
+     * @param startPos Start position in the data
+     * @param maxLength Maximal length
+     * @return Stream
+     * @throws IOException
+     */
+    public MemoryInputStream createStream(int startPos, int maxLength) throws IOException {
+        if (byteBuffer != null) {
+            return new MemoryInputStream(byteBuffer, startPos, maxLength);
+        }
+
+        return new MemoryInputStream(buffer, startPos, maxLength);
+    }
+
+    /**
+     * Gets a range of the same data
+     *
+     * @param pos Position in the data
+     * @param length Length
+     * @return Range
+     */
+    public ByteArrayRange getRange(int pos, int length) {
+        if (byteBuffer != null) {
+            return new ByteArrayRange(byteBuffer, pos, length);
+        }
+
+        return new ByteArrayRange(buffer, pos, length);
+    }
+
+    public int getStartPos() {
+        return startPos;
+    }
+
     public long getPos() {
         return pos;
     }
@@ -77,7 +159,8 @@ public class MemoryInputStream extends SeekableInputStream {
     @Override
     public int read() throws IOException {
         if (pos < maxLength) {
-            int ret = buffer[(int) pos + startPos] & 0xff;
+            int index = (int) pos + startPos;
+            int ret = (buffer != null ? buffer[index] : byteBuffer.get(index)) & 0xff;
             pos++;
             return ret;
         }
@@ -87,9 +170,25 @@ public class MemoryInputStream extends SeekableInputStream {
 
     @Override
     public int read(byte[] bytes) throws IOException {
+        return read(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
         if (pos < maxLength) {
-            int toRead = Math.min(available(), bytes.length);
-            System.arraycopy(buffer, (int) pos + startPos, bytes, 0, toRead);
+            int toRead = Math.min(available(), len);
+            int index = (int) pos + startPos;
+            if (buffer != null) {
+                System.arraycopy(buffer, index, bytes, off, toRead);
+            } else {
+                ByteBuffer b = byteBuffer.duplicate();
+                b.position(index);
+                b.get(bytes, off, toRead);
+            }
             pos += toRead;
             return toRead;
         }
@@ -0,0 +1,219 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+
+/**
+ * Zlib compressing stream which deflates blocks of the data in parallel (like
+ * pigz). Each block is primed with the last 32 KB of the previous block and
+ * ends with a sync flush, so the result is a single standard zlib stream.
+ *
+ * The compressed blocks are written in order as soon as they are ready.
+ *
+ * @author JPEXS
+ */
+public class ParallelDeflaterOutputStream extends FilterOutputStream {
+
+    private static final int BLOCK_SIZE = 128 * 1024;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private final int level;
+
+    private final int windowSize;
+
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    private final Adler32 adler = new Adler32();
+
+    private byte[] block = new byte[BLOCK_SIZE];
+
+    private int blockLength;
+
+    private byte[] previousBlock;
+
+    private boolean headerWritten;
+
+    private boolean closed;
+
+    public ParallelDeflaterOutputStream(OutputStream out) {
+        this(out, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public ParallelDeflaterOutputStream(OutputStream out, int level) {
+        super(out);
+        this.level = level;
+        windowSize = 2 * WorkerPool.getPool().getParallelism();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+
+        adler.update(b, off, len);
+        while (len > 0) {
+            int count = Math.min(len, BLOCK_SIZE - blockLength);
+            System.arraycopy(b, off, block, blockLength, count);
+            blockLength += count;
+            off += count;
+            len -= count;
+            if (blockLength == BLOCK_SIZE) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    private void submitBlock(final boolean last) throws IOException {
+        final byte[] data = block;
+        final int length = blockLength;
+        final byte[] dictionary = previousBlock;
+        pending.add(WorkerPool.submit(() -> deflate(data, length, dictionary, last)));
+        previousBlock = data;
+        block = new byte[BLOCK_SIZE];
+        blockLength = 0;
+        while (pending.size() > windowSize) {
+            writeCompressed(pending.poll());
+        }
+    }
+
+    private byte[] deflate(byte[] data, int length, byte[] dictionary, boolean last) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary, dictionary.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+            }
+
+            deflater.setInput(data, 0, length);
+            if (last) {
+                deflater.finish();
+            }
+
+            SizedByteArrayOutputStream baos = new SizedByteArrayOutputStream(length / 2 + 64);
+            byte[] buf = new byte[16 * 1024];
+            while (true) {
+                int count = last
+                        ? deflater.deflate(buf)
+                        : deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+                baos.write(buf, 0, count);
+                if (last ? deflater.finished() : count < buf.length) {
+                    break;
+                }
+            }
+
+            return baos.getArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeCompressed(Future<byte[]> future) throws IOException {
+        byte[] data;
+        try {
+            data = WorkerPool.get(future);
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException();
+        } catch (ExecutionException ex) {
+            throw new IOException(ex.getCause());
+        }
+
+        if (!headerWritten) {
+            out.write(getHeader());
+            headerWritten = true;
+        }
+
+        out.write(data);
+    }
+
+    private byte[] getHeader() {
+        int levelFlags;
+        if (level >= 0 && level <= 1) {
+            levelFlags = 0;
+        } else if (level >= 2 && level <= 5) {
+            levelFlags = 1;
+        } else if (level == 6 || level == Deflater.DEFAULT_COMPRESSION) {
+            levelFlags = 2;
+        } else {
+            levelFlags = 3;
+        }
+
+        // deflate with 32 KB window
+        int cmf = 0x78;
+        int flg = levelFlags << 6;
+        flg += 31 - ((cmf << 8) + flg) % 31;
+        return new byte[]{(byte) cmf, (byte) flg};
+    }
+
+    /**
+     * Compresses the remaining data and writes the checksum
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        try {
+            submitBlock(true);
+            while (!pending.isEmpty()) {
+                writeCompressed(pending.poll());
+            }
+        } finally {
+            for (Future<byte[]> future : pending) {
+                future.cancel(true);
+            }
+            pending.clear();
+        }
+
+        long checksum = adler.getValue();
+        out.write(new byte[]{(byte) (checksum >> 24), (byte) (checksum >> 16), (byte) (checksum >> 8), (byte) checksum});
+        block = null;
+        previousBlock = null;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+}
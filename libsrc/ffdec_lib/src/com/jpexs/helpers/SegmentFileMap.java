@@ -0,0 +1,677 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import com.jpexs.decompiler.flash.helpers.Freed;
+import com.jpexs.helpers.utf8.Utf8Helper;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Map which stores its values in memory mapped temporary files.
+ *
+ * The values are appended to the current segment file and never overwritten.
+ * Removed or replaced values leave dead space, segments with too much dead
+ * space are compacted in the background by copying the live values to the
+ * current segment. The keys stay in memory in an open addressing table.
+ *
+ * The first segment is small and each next one is twice as large up to the
+ * segment size, so a map with a few values does not map a large file.
+ *
+ * Strings and images with int pixels are stored in a compact form, other
+ * values are serialized. The put method throws UncheckedIOException when the
+ * segment file cannot be created and IllegalArgumentException when the value
+ * cannot be serialized or does not fit to one segment.
+ *
+ * @author JPEXS
+ * @param <K>
+ * @param <V>
+ */
+public class SegmentFileMap<K, V> extends AbstractMap<K, V> implements Freed {
+
+    private static final Logger logger = Logger.getLogger(SegmentFileMap.class.getName());
+
+    public static final int DEFAULT_SEGMENT_SIZE = 32 * 1024 * 1024;
+
+    private static final int INITIAL_SEGMENT_SIZE = 64 * 1024;
+
+    private static final byte TYPE_OBJECT = 0;
+
+    private static final byte TYPE_STRING = 1;
+
+    private static final byte TYPE_INT_IMAGE = 2;
+
+    private static final Object TOMBSTONE = new Object();
+
+    /**
+     * Segment is compacted when less than this part of it is used
+     */
+    private static final double COMPACT_RATIO = 0.5;
+
+    /**
+     * Maximal length of one stored value
+     */
+    private static final long MAX_RECORD_LENGTH = Integer.MAX_VALUE - 8;
+
+    /**
+     * Unsafe.invokeCleaner of Java 9+, null on older versions
+     */
+    private static final Method invokeCleanerMethod;
+
+    private static final Object unsafe;
+
+    static {
+        Method method = null;
+        Object unsafeInstance = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            method = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafeInstance = theUnsafe.get(null);
+        } catch (Exception ex) {
+            // Java 8, the cleaner of the buffer is used
+            method = null;
+        }
+
+        invokeCleanerMethod = method;
+        unsafe = unsafeInstance;
+    }
+
+    private static class Segment {
+
+        private final File file;
+
+        private MappedByteBuffer buffer;
+
+        private final int capacity;
+
+        private int writePos;
+
+        private long liveBytes;
+
+        public Segment(File file, MappedByteBuffer buffer, int capacity) {
+            this.file = file;
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+    }
+
+    private final File directory;
+
+    private final String filePrefix;
+
+    private final int segmentSize;
+
+    /**
+     * Size of the next created segment, it grows up to segmentSize
+     */
+    private int nextSegmentSize;
+
+    private final List<Segment> segments = new ArrayList<>();
+
+    private Segment activeSegment;
+
+    private int activeSegmentIndex = -1;
+
+    private Object[] keys;
+
+    private long[] locations;
+
+    private int[] lengths;
+
+    private int size;
+
+    private int usedSlots;
+
+    private boolean compactionScheduled;
+
+    private boolean deleted = false;
+
+    public SegmentFileMap(String filePrefix) {
+        this(filePrefix, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public SegmentFileMap(String filePrefix, int segmentSize) {
+        this(null, filePrefix, segmentSize);
+    }
+
+    /**
+     * Creates the map
+     *
+     * @param directory Directory of the segment files, null for the default
+     * temporary directory
+     * @param filePrefix Prefix of the segment file names
+     * @param segmentSize Size of one segment file
+     */
+    public SegmentFileMap(File directory, String filePrefix, int segmentSize) {
+        this.directory = directory;
+        this.filePrefix = filePrefix;
+        this.segmentSize = segmentSize;
+        nextSegmentSize = Math.min(INITIAL_SEGMENT_SIZE, segmentSize);
+        initIndex(16);
+    }
+
+    private void initIndex(int capacity) {
+        keys = new Object[capacity];
+        locations = new long[capacity];
+        lengths = new int[capacity];
+        size = 0;
+        usedSlots = 0;
+    }
+
+    private void checkDeleted() {
+        if (deleted) {
+            throw new IllegalStateException("The map was already deleted.");
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Finds the slot of the key
+     *
+     * @param key Key
+     * @return Slot index or -1 when the key is not present
+     */
+    private int findSlot(Object key) {
+        if (key == null) {
+            return -1;
+        }
+
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            Object k = keys[slot];
+            if (k == null) {
+                return -1;
+            }
+            if (k != TOMBSTONE && k.equals(key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void insertSlot(Object key, long location, int length) {
+        if ((usedSlots + 1) * 4 >= keys.length * 3) {
+            rehash();
+        }
+
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != null && keys[slot] != TOMBSTONE) {
+            slot = (slot + 1) & mask;
+        }
+
+        if (keys[slot] == null) {
+            usedSlots++;
+        }
+
+        keys[slot] = key;
+        locations[slot] = location;
+        lengths[slot] = length;
+        size++;
+    }
+
+    private void removeSlot(int slot) {
+        keys[slot] = TOMBSTONE;
+        size--;
+    }
+
+    private void rehash() {
+        Object[] oldKeys = keys;
+        long[] oldLocations = locations;
+        int[] oldLengths = lengths;
+        int capacity = 16;
+        while (capacity * 3 <= (size + 1) * 8) {
+            capacity <<= 1;
+        }
+
+        initIndex(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            Object k = oldKeys[i];
+            if (k != null && k != TOMBSTONE) {
+                insertSlot(k, oldLocations[i], oldLengths[i]);
+            }
+        }
+    }
+
+    private static int getSegmentIndex(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int getOffset(long location) {
+        return (int) location;
+    }
+
+    private ByteBuffer getBuffer(long location) {
+        ByteBuffer buffer = segments.get(getSegmentIndex(location)).buffer.duplicate();
+        buffer.order(ByteOrder.nativeOrder());
+        buffer.position(getOffset(location));
+        return buffer;
+    }
+
+    private Segment createSegment(int capacity) throws IOException {
+        File file = File.createTempFile(filePrefix, ".tmp", directory);
+        file.deleteOnExit();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            return new Segment(file, buffer, capacity);
+        }
+    }
+
+    /**
+     * Reserves space for the value in the active segment
+     *
+     * @param length Length of the value
+     * @return Location of the value
+     * @throws IOException
+     */
+    private long allocate(int length) throws IOException {
+        if (activeSegment == null || activeSegment.capacity - activeSegment.writePos < length) {
+            Segment segment = createSegment(Math.max(nextSegmentSize, length));
+            nextSegmentSize = (int) Math.min((long) nextSegmentSize * 2, segmentSize);
+            int index = segments.indexOf(null);
+            if (index == -1) {
+                index = segments.size();
+                segments.add(segment);
+            } else {
+                segments.set(index, segment);
+            }
+
+            Segment oldSegment = activeSegment;
+            activeSegment = segment;
+            activeSegmentIndex = index;
+            if (oldSegment != null) {
+                releaseIfSparse(oldSegment);
+            }
+        }
+
+        long location = ((long) activeSegmentIndex << 32) | activeSegment.writePos;
+        activeSegment.writePos += length;
+        activeSegment.liveBytes += length;
+        return location;
+    }
+
+    private void free(long location, int length) {
+        Segment segment = segments.get(getSegmentIndex(location));
+        segment.liveBytes -= length;
+        if (segment != activeSegment) {
+            releaseIfSparse(segment);
+        }
+    }
+
+    /**
+     * Deletes empty segment or schedules the compaction of a sparse segment
+     */
+    private void releaseIfSparse(Segment segment) {
+        if (segment.liveBytes == 0) {
+            deleteSegment(segments.indexOf(segment));
+        } else if (segment.liveBytes < segment.writePos * COMPACT_RATIO && !compactionScheduled) {
+            compactionScheduled = true;
+            WorkerPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    compact();
+                }
+            });
+        }
+    }
+
+    private void deleteSegment(int index) {
+        Segment segment = segments.get(index);
+        segments.set(index, null);
+        boolean unmapped = unmap(segment.buffer);
+        segment.buffer = null;
+        if (unmapped) {
+            segment.file.delete();
+        }
+        // otherwise the mapped file cannot be deleted on some systems, it is deleted on exit
+    }
+
+    /**
+     * Releases the memory mapping. The buffer must not be used after this
+     * call.
+     *
+     * @return False when the mapping is left to the garbage collector
+     */
+    private static boolean unmap(MappedByteBuffer buffer) {
+        try {
+            if (invokeCleanerMethod != null) {
+                invokeCleanerMethod.invoke(unsafe, buffer);
+                return true;
+            }
+
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+                return true;
+            }
+        } catch (Exception ex) {
+            // the mapping is released by the garbage collector
+        }
+
+        return false;
+    }
+
+    /**
+     * Copies the live values of all the sparse segments to the active segment
+     * and deletes the sparse segments
+     */
+    public synchronized void compact() {
+        compactionScheduled = false;
+        if (deleted) {
+            return;
+        }
+
+        for (int s = 0; s < segments.size(); s++) {
+            Segment segment = segments.get(s);
+            if (segment == null || segment == activeSegment || segment.liveBytes >= segment.writePos * COMPACT_RATIO) {
+                continue;
+            }
+
+            try {
+                for (int i = 0; i < keys.length; i++) {
+                    Object k = keys[i];
+                    if (k == null || k == TOMBSTONE || getSegmentIndex(locations[i]) != s) {
+                        continue;
+                    }
+
+                    int length = lengths[i];
+                    ByteBuffer source = getBuffer(locations[i]);
+                    source.limit(source.position() + length);
+                    long newLocation = allocate(length);
+                    getBuffer(newLocation).put(source);
+                    segment.liveBytes -= length;
+                    locations[i] = newLocation;
+                }
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, "Segment compaction failed", ex);
+                return;
+            }
+
+            // the compacted segment could be deleted during allocation
+            if (segments.get(s) == segment) {
+                deleteSegment(s);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of segment files
+     *
+     * @return Number of segment files
+     */
+    public synchronized int getSegmentCount() {
+        int count = 0;
+        for (Segment segment : segments) {
+            if (segment != null) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Gets the total size of the mapped segment files
+     *
+     * @return Size in bytes
+     */
+    public synchronized long getMappedSize() {
+        long result = 0;
+        for (Segment segment : segments) {
+            if (segment != null) {
+                result += segment.capacity;
+            }
+        }
+
+        return result;
+    }
+
+    private static int[] getIntPixels(SerializableImage image) {
+        BufferedImage bimage = image.getBufferedImage();
+        int type = bimage.getType();
+        if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_ARGB_PRE && type != BufferedImage.TYPE_INT_RGB) {
+            return null;
+        }
+
+        // getDataElements copies the pixels, the image stays accelerated
+        return (int[]) bimage.getRaster().getDataElements(0, 0, bimage.getWidth(), bimage.getHeight(), null);
+    }
+
+    @Override
+    public synchronized V put(K key, V value) {
+        checkDeleted();
+        try {
+            byte type;
+            byte[] data = null;
+            int[] pixels = null;
+            long length;
+            if (value instanceof String) {
+                type = TYPE_STRING;
+                data = Utf8Helper.getBytes((String) value);
+                length = 1L + data.length;
+            } else if (value instanceof SerializableImage && (pixels = getIntPixels((SerializableImage) value)) != null) {
+                type = TYPE_INT_IMAGE;
+                length = 1L + 3 * 4 + pixels.length * 4L;
+            } else {
+                type = TYPE_OBJECT;
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+                    oos.writeObject(value);
+                } catch (IOException ex) {
+                    throw new IllegalArgumentException("Value cannot be serialized", ex);
+                }
+                data = baos.toByteArray();
+                length = 1L + data.length;
+            }
+
+            if (length > MAX_RECORD_LENGTH) {
+                throw new IllegalArgumentException("Value of " + length + " bytes is too large");
+            }
+
+            int slot = findSlot(key);
+            if (slot != -1) {
+                free(locations[slot], lengths[slot]);
+                removeSlot(slot);
+            }
+
+            long location = allocate((int) length);
+            ByteBuffer buffer = getBuffer(location);
+            buffer.put(type);
+            if (type == TYPE_INT_IMAGE) {
+                SerializableImage image = (SerializableImage) value;
+                buffer.putInt(image.getWidth());
+                buffer.putInt(image.getHeight());
+                buffer.putInt(image.getType());
+                buffer.asIntBuffer().put(pixels);
+            } else {
+                buffer.put(data);
+            }
+
+            insertSlot(key, location, (int) length);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        return value;
+    }
+
+    @Override
+    public synchronized V get(Object key) {
+        checkDeleted();
+        int slot = findSlot(key);
+        if (slot == -1) {
+            return null;
+        }
+
+        ByteBuffer buffer = getBuffer(locations[slot]);
+        int length = lengths[slot];
+        Object result;
+        byte type = buffer.get();
+        switch (type) {
+            case TYPE_STRING: {
+                byte[] data = new byte[length - 1];
+                buffer.get(data);
+                result = new String(data, Utf8Helper.charset);
+                break;
+            }
+            case TYPE_INT_IMAGE: {
+                int width = buffer.getInt();
+                int height = buffer.getInt();
+                int imageType = buffer.getInt();
+                int[] pixels = new int[width * height];
+                buffer.asIntBuffer().get(pixels);
+                SerializableImage image = new SerializableImage(width, height, imageType);
+                image.getRaster().setDataElements(0, 0, width, height, pixels);
+                result = image;
+                break;
+            }
+            default: {
+                byte[] data = new byte[length - 1];
+                buffer.get(data);
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+                    result = ois.readObject();
+                } catch (IOException | ClassNotFoundException ex) {
+                    logger.log(Level.SEVERE, null, ex);
+                    return null;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V ret = (V) result;
+        return ret;
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        checkDeleted();
+        return findSlot(key) != -1;
+    }
+
+    @Override
+    public synchronized V remove(Object key) {
+        checkDeleted();
+        int slot = findSlot(key);
+        if (slot == -1) {
+            return null;
+        }
+
+        V val = get(key);
+        free(locations[slot], lengths[slot]);
+        removeSlot(slot);
+        return val;
+    }
+
+    @Override
+    public synchronized Set<K> keySet() {
+        checkDeleted();
+        Set<K> ret = new HashSet<>();
+        for (Object k : keys) {
+            if (k != null && k != TOMBSTONE) {
+                @SuppressWarnings("unchecked")
+                K key = (K) k;
+                ret.add(key);
+            }
+        }
+
+        return ret;
+    }
+
+    @Override
+    public synchronized Set<Entry<K, V>> entrySet() {
+        checkDeleted();
+        Set<Entry<K, V>> ret = new HashSet<>();
+        for (K key : keySet()) {
+            ret.add(new SimpleEntry<>(key, get(key)));
+        }
+
+        return ret;
+    }
+
+    @Override
+    public synchronized void clear() {
+        checkDeleted();
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.get(i) != null) {
+                deleteSegment(i);
+            }
+        }
+
+        segments.clear();
+        activeSegment = null;
+        activeSegmentIndex = -1;
+        nextSegmentSize = Math.min(INITIAL_SEGMENT_SIZE, segmentSize);
+        initIndex(16);
+    }
+
+    public synchronized void delete() {
+        checkDeleted();
+        clear();
+        deleted = true;
+    }
+
+    @Override
+    public synchronized boolean isFreeing() {
+        return !deleted;
+    }
+
+    @Override
+    public synchronized void free() {
+        if (!deleted) {
+            delete();
+        }
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+}
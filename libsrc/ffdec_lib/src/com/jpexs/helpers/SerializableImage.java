@@ -36,7 +36,7 @@ import java.util.Hashtable;
  *
  * @author JPEXS
  */
-public class SerializableImage implements Serializable {
+public class SerializableImage implements Serializable, Weighted {
 
     public static int TYPE_INT_ARGB = BufferedImage.TYPE_INT_ARGB;
 
@@ -104,6 +104,11 @@ public class SerializableImage implements Serializable {
         return image.getType();
     }
 
+    @Override
+    public long getWeight() {
+        return 4L * image.getWidth() * image.getHeight();
+    }
+
     public int getWidth() {
         return image.getWidth();
     }
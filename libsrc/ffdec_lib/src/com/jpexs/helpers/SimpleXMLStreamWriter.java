@@ -0,0 +1,322 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * XMLStreamWriter which writes to a Writer. Unlike the default implementation
+ * it escapes the line breaks and tabs in the attributes (and carriage returns
+ * in the text) as character references, so they survive the attribute value
+ * normalization of the parser.
+ *
+ * The namespaces are not tracked, the prefixes are written as given.
+ *
+ * @author JPEXS
+ */
+public class SimpleXMLStreamWriter implements XMLStreamWriter {
+
+    private final Writer writer;
+
+    private final Deque<String> openElements = new ArrayDeque<>();
+
+    private boolean startTagOpen;
+
+    private boolean emptyElement;
+
+    public SimpleXMLStreamWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    private void write(String str) throws XMLStreamException {
+        try {
+            writer.write(str);
+        } catch (IOException ex) {
+            throw new XMLStreamException(ex);
+        }
+    }
+
+    private void writeEscaped(String str, boolean attribute) throws XMLStreamException {
+        StringBuilder sb = new StringBuilder(str.length() + 16);
+        appendEscaped(sb, str, attribute);
+        write(sb.toString());
+    }
+
+    /**
+     * Appends the escaped text or attribute value
+     *
+     * @param sb Target
+     * @param str Text
+     * @param attribute True for attribute value, escapes also quotes, line
+     * breaks and tabs
+     */
+    public static void appendEscaped(StringBuilder sb, String str, boolean attribute) {
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '\r':
+                    sb.append("&#13;");
+                    break;
+                case '"':
+                    sb.append(attribute ? "&quot;" : "\"");
+                    break;
+                case '\n':
+                    sb.append(attribute ? "&#10;" : "\n");
+                    break;
+                case '\t':
+                    sb.append(attribute ? "&#9;" : "\t");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+
+    private void closeStartTag() throws XMLStreamException {
+        if (startTagOpen) {
+            write(emptyElement ? "/>" : ">");
+            startTagOpen = false;
+        }
+    }
+
+    private static String getQName(String prefix, String localName) {
+        if (prefix == null || prefix.isEmpty()) {
+            return localName;
+        }
+
+        return prefix + ":" + localName;
+    }
+
+    private void startElement(String qName, boolean empty) throws XMLStreamException {
+        closeStartTag();
+        write("<" + qName);
+        if (!empty) {
+            openElements.push(qName);
+        }
+
+        startTagOpen = true;
+        emptyElement = empty;
+    }
+
+    @Override
+    public void writeStartElement(String localName) throws XMLStreamException {
+        startElement(localName, false);
+    }
+
+    @Override
+    public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+        startElement(localName, false);
+    }
+
+    @Override
+    public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        startElement(getQName(prefix, localName), false);
+    }
+
+    @Override
+    public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+        startElement(localName, true);
+    }
+
+    @Override
+    public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+        startElement(getQName(prefix, localName), true);
+    }
+
+    @Override
+    public void writeEmptyElement(String localName) throws XMLStreamException {
+        startElement(localName, true);
+    }
+
+    @Override
+    public void writeEndElement() throws XMLStreamException {
+        if (openElements.isEmpty()) {
+            throw new XMLStreamException("No element to end.");
+        }
+
+        String qName = openElements.pop();
+        if (startTagOpen && !emptyElement) {
+            write("/>");
+            startTagOpen = false;
+            return;
+        }
+
+        closeStartTag();
+        write("</" + qName + ">");
+    }
+
+    @Override
+    public void writeEndDocument() throws XMLStreamException {
+        while (!openElements.isEmpty()) {
+            writeEndElement();
+        }
+
+        closeStartTag();
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        flush();
+    }
+
+    @Override
+    public void flush() throws XMLStreamException {
+        try {
+            writer.flush();
+        } catch (IOException ex) {
+            throw new XMLStreamException(ex);
+        }
+    }
+
+    @Override
+    public void writeAttribute(String localName, String value) throws XMLStreamException {
+        if (!startTagOpen) {
+            throw new XMLStreamException("Attribute must be written directly after the start tag.");
+        }
+
+        write(" " + localName + "=\"");
+        writeEscaped(value, true);
+        write("\"");
+    }
+
+    @Override
+    public void writeAttribute(String prefix, String namespaceURI, String localName, String value) throws XMLStreamException {
+        writeAttribute(getQName(prefix, localName), value);
+    }
+
+    @Override
+    public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+        writeAttribute(localName, value);
+    }
+
+    @Override
+    public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+        if (prefix == null || prefix.isEmpty() || prefix.equals("xmlns")) {
+            writeDefaultNamespace(namespaceURI);
+        } else {
+            writeAttribute("xmlns:" + prefix, namespaceURI);
+        }
+    }
+
+    @Override
+    public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+        writeAttribute("xmlns", namespaceURI);
+    }
+
+    @Override
+    public void writeComment(String data) throws XMLStreamException {
+        closeStartTag();
+        write("<!--" + data + "-->");
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target) throws XMLStreamException {
+        closeStartTag();
+        write("<?" + target + "?>");
+    }
+
+    @Override
+    public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+        closeStartTag();
+        write("<?" + target + " " + data + "?>");
+    }
+
+    @Override
+    public void writeCData(String data) throws XMLStreamException {
+        closeStartTag();
+        write("<![CDATA[" + data + "]]>");
+    }
+
+    @Override
+    public void writeDTD(String dtd) throws XMLStreamException {
+        write(dtd);
+    }
+
+    @Override
+    public void writeEntityRef(String name) throws XMLStreamException {
+        closeStartTag();
+        write("&" + name + ";");
+    }
+
+    @Override
+    public void writeStartDocument() throws XMLStreamException {
+        writeStartDocument("UTF-8", "1.0");
+    }
+
+    @Override
+    public void writeStartDocument(String version) throws XMLStreamException {
+        writeStartDocument("UTF-8", version);
+    }
+
+    @Override
+    public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+        write("<?xml version=\"" + version + "\" encoding=\"" + encoding + "\"?>");
+    }
+
+    @Override
+    public void writeCharacters(String text) throws XMLStreamException {
+        closeStartTag();
+        writeEscaped(text, false);
+    }
+
+    @Override
+    public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+        writeCharacters(new String(text, start, len));
+    }
+
+    @Override
+    public String getPrefix(String uri) throws XMLStreamException {
+        return null;
+    }
+
+    @Override
+    public void setPrefix(String prefix, String uri) throws XMLStreamException {
+    }
+
+    @Override
+    public void setDefaultNamespace(String uri) throws XMLStreamException {
+    }
+
+    @Override
+    public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+    }
+
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) throws IllegalArgumentException {
+        throw new IllegalArgumentException("Property " + name + " is not supported.");
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * ByteArrayOutputStream which can be presized to the expected length of the
+ * content. When the expected length is correct, the internal buffer is
+ * returned by getArray without the extra copy made by toByteArray.
+ *
+ * @author JPEXS
+ */
+public class SizedByteArrayOutputStream extends ByteArrayOutputStream {
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    public SizedByteArrayOutputStream() {
+        super();
+    }
+
+    public SizedByteArrayOutputStream(int size) {
+        super(size);
+    }
+
+    /**
+     * Grows the internal buffer to the expected size of the whole content
+     *
+     * @param size Expected size in bytes
+     */
+    public synchronized void expectSize(long size) {
+        if (size > buf.length && size <= MAX_ARRAY_SIZE) {
+            buf = Arrays.copyOf(buf, (int) size);
+        }
+    }
+
+    /**
+     * Gets the written data. The internal buffer is returned when it is
+     * completely filled, otherwise a trimmed copy is created.
+     *
+     * @return Written data
+     */
+    public synchronized byte[] getArray() {
+        if (count == buf.length) {
+            return buf;
+        }
+
+        return Arrays.copyOf(buf, count);
+    }
+
+    /**
+     * Gets stream of the written data without copying it
+     *
+     * @return Input stream
+     */
+    public synchronized ByteArrayInputStream getInputStream() {
+        return new ByteArrayInputStream(buf, 0, count);
+    }
+}
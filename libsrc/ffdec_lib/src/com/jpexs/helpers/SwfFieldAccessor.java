@@ -0,0 +1,199 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed access to a field returned by ReflectionTools.getSwfFields. The
+ * accessors of a class are created once and cached, the values are read and
+ * written through method handles instead of the reflection calls.
+ *
+ * @author JPEXS
+ */
+public class SwfFieldAccessor {
+
+    private static final Map<Class<?>, ClassAccessors> cache = new ConcurrentHashMap<>();
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Field field;
+
+    private final Class<?> type;
+
+    private final Class<?> subType;
+
+    private final MethodHandle getter;
+
+    private final MethodHandle setter;
+
+    private SwfFieldAccessor(Field field) throws IllegalAccessException {
+        this.field = field;
+        type = field.getType();
+        if (type.isArray()) {
+            subType = type.getComponentType();
+        } else if (List.class.isAssignableFrom(type)) {
+            Type genericType = field.getGenericType();
+            Type itemType = genericType instanceof ParameterizedType ? ((ParameterizedType) genericType).getActualTypeArguments()[0] : null;
+            subType = itemType instanceof Class ? (Class<?>) itemType : null;
+        } else {
+            subType = null;
+        }
+
+        field.setAccessible(true);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+        MethodHandle fieldSetter;
+        try {
+            fieldSetter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+        } catch (IllegalAccessException ex) {
+            // final field, it is written by the reflection
+            fieldSetter = null;
+        }
+        setter = fieldSetter;
+    }
+
+    /**
+     * Gets the accessors of the SWF fields of the class in the order of
+     * ReflectionTools.getSwfFields
+     *
+     * @param cls Class
+     * @return Unmodifiable list of accessors
+     */
+    public static List<SwfFieldAccessor> getAccessors(Class<?> cls) {
+        return getClassAccessors(cls).list;
+    }
+
+    /**
+     * Gets the accessor of the SWF field with the given name
+     *
+     * @param cls Class
+     * @param name Field name
+     * @return Accessor or null when the class does not have such field
+     */
+    public static SwfFieldAccessor getAccessor(Class<?> cls, String name) {
+        return getClassAccessors(cls).byName.get(name);
+    }
+
+    private static ClassAccessors getClassAccessors(Class<?> cls) {
+        ClassAccessors result = cache.get(cls);
+        if (result == null) {
+            result = new ClassAccessors(cls);
+            cache.put(cls, result);
+        }
+
+        return result;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public String getName() {
+        return field.getName();
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Gets the declared item type of an array or a List field
+     *
+     * @return Item type or null when the field is not an array or a List, or
+     * the item type is not a class
+     */
+    public Class<?> getSubType() {
+        return subType;
+    }
+
+    public Object get(Object obj) {
+        try {
+            return (Object) getter.invokeExact(obj);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Sets the value of the field
+     *
+     * @param obj Object
+     * @param value Value
+     * @throws IllegalArgumentException When the value is null and the field is
+     * primitive, same as Field.set
+     */
+    public void set(Object obj, Object value) {
+        if (value == null && type.isPrimitive()) {
+            throw new IllegalArgumentException("Can not set " + type.getName() + " field " + field.getDeclaringClass().getName() + "." + field.getName() + " to null value");
+        }
+
+        try {
+            if (setter == null) {
+                field.set(obj, value);
+                return;
+            }
+
+            setter.invokeExact(obj, value);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static class ClassAccessors {
+
+        private final List<SwfFieldAccessor> list;
+
+        private final Map<String, SwfFieldAccessor> byName = new HashMap<>();
+
+        public ClassAccessors(Class<?> cls) {
+            List<SwfFieldAccessor> accessors = new ArrayList<>();
+            for (Field f : ReflectionTools.getSwfFields(cls)) {
+                SwfFieldAccessor accessor;
+                try {
+                    accessor = new SwfFieldAccessor(f);
+                } catch (IllegalAccessException ex) {
+                    throw new RuntimeException(ex);
+                }
+
+                accessors.add(accessor);
+                if (!byName.containsKey(f.getName())) {
+                    byName.put(f.getName(), accessor);
+                }
+            }
+
+            list = Collections.unmodifiableList(accessors);
+        }
+    }
+}
@@ -16,23 +16,49 @@
  */
 package com.jpexs.helpers;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
+ * Searches the FWS, CWS, ZWS, GFX and CFX signatures. Files are memory mapped,
+ * so files larger than 2 GB are supported.
  *
  * @author JPEXS
  */
 public class SwfHeaderStreamSearch implements Searchable {
 
-    private final MemoryInputStream is;
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    private final LargeByteBuffer data;
+
+    /**
+     * Listener of the found signatures
+     */
+    public interface HeaderListener {
+
+        /**
+         * Called for every signature in the order of the addresses
+         *
+         * @param address Address of the signature
+         * @return False to stop the search
+         * @throws InterruptedException
+         */
+        public boolean headerFound(long address) throws InterruptedException;
+    }
 
     public SwfHeaderStreamSearch(InputStream is) throws IOException {
-        this.is = new MemoryInputStream(Helper.readStream(is));
+        this.data = LargeByteBuffer.wrap(Helper.readStream(is));
+    }
+
+    public SwfHeaderStreamSearch(File file) throws IOException {
+        this.data = LargeByteBuffer.map(file);
+    }
+
+    public LargeByteBuffer getData() {
+        return data;
     }
 
     @Override
@@ -44,35 +70,66 @@ public class SwfHeaderStreamSearch implements Searchable {
     public Map<Long, InputStream> search(ProgressListener progListener, byte[]... data) {
         // Ignore data parameter, find only FWS, CWS, ZWS, GFX and CFX
 
-        Map<Long, InputStream> ret = new HashMap<>();
-        byte[] buf = is.getAllRead();
-        byte byte2 = buf[0], byte3 = buf[1];
-        boolean match = false;
-        for (int i = 2; i < buf.length - 2; i++) {
-            byte b = byte2;
-            byte2 = byte3;
-            byte3 = buf[i];
-            if (byte2 == 'W' && byte3 == 'S') {
-                if (b == 'F' || b == 'C' || b == 'Z') {
-                    match = true;
+        final Map<Long, InputStream> ret = new HashMap<>();
+        try {
+            search(progListener, address -> {
+                ret.put(address, this.data.getInputStream(address, Long.MAX_VALUE));
+                return true;
+            });
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        return ret;
+    }
+
+    /**
+     * Searches the signatures and reports them as soon as they are found
+     *
+     * @param progListener Progress listener, can be null
+     * @param listener Listener of the signatures
+     * @throws InterruptedException
+     */
+    public void search(ProgressListener progListener, HeaderListener listener) throws InterruptedException {
+        long length = data.length();
+        byte[] buf = new byte[BLOCK_SIZE];
+        byte byte2 = 0;
+        byte byte3 = 0;
+        int lastPercent = -1;
+        // the header has 8 bytes, so the last signature ends 5 bytes before the end
+        long scanEnd = length - 5;
+        for (long blockPos = 0; blockPos < scanEnd; blockPos += BLOCK_SIZE) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            int count = data.get(blockPos, buf, 0, (int) Math.min(BLOCK_SIZE, scanEnd - blockPos));
+            for (int i = 0; i < count; i++) {
+                byte b = byte2;
+                byte2 = byte3;
+                byte3 = buf[i];
+                boolean match = false;
+                if (byte2 == 'W' && byte3 == 'S') {
+                    match = b == 'F' || b == 'C' || b == 'Z';
+                } else if (byte2 == 'F' && byte3 == 'X') {
+                    match = b == 'G' || b == 'C';
                 }
-            } else if (byte2 == 'F' && byte3 == 'X') {
-                if (b == 'G' || b == 'C') {
-                    match = true;
+
+                if (match) {
+                    long address = blockPos + i - 2;
+                    if (address >= 0 && !listener.headerFound(address)) {
+                        return;
+                    }
                 }
             }
-            if (match) {
-                // todo: support > 2GB files
-                InputStream fis;
-                try {
-                    fis = new MemoryInputStream(buf, i - 2);
-                    ret.put((long) i - 2, fis);
-                    match = false;
-                } catch (IOException ex) {
-                    Logger.getLogger(SwfHeaderStreamSearch.class.getName()).log(Level.SEVERE, null, ex);
+
+            if (progListener != null) {
+                int percent = (int) ((blockPos + count) * 100 / length);
+                if (percent != lastPercent) {
+                    progListener.progress(percent);
+                    lastPercent = percent;
                 }
             }
         }
-        return ret;
     }
 }
@@ -0,0 +1,412 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Process-wide work-stealing pool shared by parsing, decompilation and export.
+ *
+ * Tasks are wrapped to FutureTasks, so cancel(true) interrupts the running
+ * task. When a pool thread waits for a task which was not started yet, it runs
+ * the task itself instead of blocking. So nested parallel tasks never deadlock
+ * and the pool needs compensation threads only while a pool thread waits for a
+ * CancellableWorker, otherwise the number of threads stays at the configured
+ * parallelism.
+ *
+ * Timeouts of the tasks run by call are measured from the start of the task,
+ * not from the submission. A caller which is not a pool thread waits for a
+ * free pool thread at most the timeout, then it runs the task itself, so a
+ * saturated pool cannot block it forever.
+ *
+ * CancellableWorker.execute does not use this pool, the long running GUI
+ * workers have their own threads and cannot starve the pool.
+ *
+ * The values of the registered thread locals are passed from the thread which
+ * starts a task to the pool thread running it.
+ *
+ * @author JPEXS
+ */
+public class WorkerPool {
+
+    private static final Object lockObject = new Object();
+
+    private static volatile ForkJoinPool pool;
+
+    private static int parallelism;
+
+    private static ScheduledThreadPoolExecutor timer;
+
+    private static final List<ThreadLocal<?>> propagatedThreadLocals = new CopyOnWriteArrayList<>();
+
+    /**
+     * Gets the shared pool. It is created on the first access with
+     * parallelism from the configuration.
+     *
+     * @return Pool
+     */
+    public static ForkJoinPool getPool() {
+        ForkJoinPool result = pool;
+        if (result == null) {
+            synchronized (lockObject) {
+                result = pool;
+                if (result == null) {
+                    int count = parallelism > 0 ? parallelism : Configuration.getParallelThreadCount();
+                    result = new ForkJoinPool(count);
+                    pool = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Sets the number of threads which actively run tasks. The already
+     * submitted tasks are finished in the old pool.
+     *
+     * @param count Number of threads, 0 to use the configured value
+     */
+    public static void setParallelism(int count) {
+        synchronized (lockObject) {
+            parallelism = count;
+            ForkJoinPool oldPool = pool;
+            pool = null;
+            if (oldPool != null) {
+                oldPool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Gets the thread which cancels the tasks after their timeout
+     *
+     * @return Timer
+     */
+    private static ScheduledThreadPoolExecutor getTimer() {
+        synchronized (lockObject) {
+            if (timer == null) {
+                timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "WorkerPool timeout");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+                timer.setRemoveOnCancelPolicy(true);
+            }
+
+            return timer;
+        }
+    }
+
+    static boolean isPoolThread() {
+        return Thread.currentThread() instanceof ForkJoinWorkerThread;
+    }
+
+    /**
+     * Registers the thread local whose value is passed to the tasks started
+     * later. The tasks see the value of the thread which started them.
+     *
+     * @param threadLocal Thread local
+     */
+    public static void addPropagatedThreadLocal(ThreadLocal<?> threadLocal) {
+        propagatedThreadLocals.add(threadLocal);
+    }
+
+    public static void removePropagatedThreadLocal(ThreadLocal<?> threadLocal) {
+        propagatedThreadLocals.remove(threadLocal);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object[] setThreadLocals(ThreadLocal<?>[] threadLocals, Object[] values) {
+        Object[] oldValues = new Object[threadLocals.length];
+        for (int i = 0; i < threadLocals.length; i++) {
+            ThreadLocal<Object> threadLocal = (ThreadLocal<Object>) threadLocals[i];
+            oldValues[i] = threadLocal.get();
+            if (values[i] == null) {
+                threadLocal.remove();
+            } else {
+                threadLocal.set(values[i]);
+            }
+        }
+
+        return oldValues;
+    }
+
+    /**
+     * Wraps the runnable to run with the values of the propagated thread
+     * locals of the current thread
+     *
+     * @param runnable Runnable
+     * @return Wrapped runnable
+     */
+    static Runnable withThreadLocals(final Runnable runnable) {
+        final ThreadLocal<?>[] threadLocals = propagatedThreadLocals.toArray(new ThreadLocal<?>[0]);
+        final Object[] values = new Object[threadLocals.length];
+        for (int i = 0; i < threadLocals.length; i++) {
+            values[i] = threadLocals[i].get();
+        }
+
+        return new Runnable() {
+            @Override
+            public void run() {
+                Object[] oldValues = setThreadLocals(threadLocals, values);
+                try {
+                    runnable.run();
+                } finally {
+                    setThreadLocals(threadLocals, oldValues);
+                    // clear the interrupt of a cancelled task, the thread is reused
+                    Thread.interrupted();
+                }
+            }
+        };
+    }
+
+    /**
+     * Waits until the task running outside of the pool is done. A waiting
+     * pool thread is compensated by a new pool thread.
+     *
+     * @param future Task
+     * @throws InterruptedException
+     */
+    static void awaitDone(final Future<?> future) throws InterruptedException {
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                try {
+                    future.get();
+                } catch (ExecutionException | CancellationException ex) {
+                    // reported by the caller
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return future.isDone();
+            }
+        });
+    }
+
+    public static void execute(Runnable runnable) {
+        getPool().execute(withThreadLocals(runnable));
+    }
+
+    public static <T> Future<T> submit(Callable<T> callable) {
+        PoolTask<T> task = new PoolTask<>(callable);
+        execute(task);
+        return task;
+    }
+
+    /**
+     * Waits for the result of the task. A task submitted to this pool which
+     * was not started yet is run on the current thread when it is a pool
+     * thread.
+     *
+     * @param <T>
+     * @param future Task
+     * @return Result
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    public static <T> T get(Future<T> future) throws InterruptedException, ExecutionException {
+        if (!future.isDone() && future instanceof PoolTask && isPoolThread()) {
+            // does nothing when the task is already running on another thread
+            ((PoolTask<T>) future).run();
+        }
+
+        return future.get();
+    }
+
+    /**
+     * Waits for the result of the task. A task submitted to this pool which
+     * was not started yet is run on the current thread when it is a pool
+     * thread, and it is cancelled when the timeout elapses.
+     *
+     * @param <T>
+     * @param future Task
+     * @param timeout Timeout
+     * @param timeUnit Unit of the timeout
+     * @return Result
+     * @throws InterruptedException
+     * @throws ExecutionException
+     * @throws TimeoutException
+     */
+    public static <T> T get(Future<T> future, long timeout, TimeUnit timeUnit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!future.isDone() && future instanceof PoolTask && isPoolThread()) {
+            return runInline((PoolTask<T>) future, timeout, timeUnit);
+        }
+
+        return future.get(timeout, timeUnit);
+    }
+
+    /**
+     * Runs the task on the current thread. The task is cancelled when the
+     * timeout elapses.
+     *
+     * @param <T>
+     * @param task Task
+     * @param timeout Timeout
+     * @param timeUnit Unit of the timeout
+     * @return Result
+     * @throws InterruptedException
+     * @throws ExecutionException
+     * @throws TimeoutException
+     */
+    private static <T> T runInline(final RunnableFuture<T> task, long timeout, TimeUnit timeUnit) throws InterruptedException, ExecutionException, TimeoutException {
+        final boolean[] timedOut = new boolean[1];
+        ScheduledFuture<?> watchdog = getTimer().schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (timedOut) {
+                    timedOut[0] = task.cancel(true);
+                }
+            }
+        }, timeout, timeUnit);
+        try {
+            task.run();
+        } finally {
+            watchdog.cancel(false);
+            synchronized (timedOut) {
+                if (timedOut[0]) {
+                    // the interrupt was meant for the task only
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        if (timedOut[0]) {
+            throw new TimeoutException();
+        }
+
+        if (!task.isDone()) {
+            // the task is running on another thread
+            return task.get(timeout, timeUnit);
+        }
+
+        return task.get();
+    }
+
+    /**
+     * Runs the task in the pool and waits for the result. The timeout is
+     * measured from the start of the task and the task is cancelled when it
+     * elapses. On a pool thread the task is run directly on the current
+     * thread. When no pool thread starts the task within the timeout, it is
+     * run on the current thread too.
+     *
+     * @param <T>
+     * @param task Task
+     * @param timeout Timeout
+     * @param timeUnit Unit of the timeout
+     * @return Result
+     * @throws InterruptedException
+     * @throws ExecutionException
+     * @throws TimeoutException
+     */
+    public static <T> T run(final RunnableFuture<T> task, long timeout, TimeUnit timeUnit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (isPoolThread()) {
+            return runInline(task, timeout, timeUnit);
+        }
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean claimed = new AtomicBoolean();
+        final long[] startTime = new long[1];
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                if (claimed.compareAndSet(false, true)) {
+                    startTime[0] = System.nanoTime();
+                    started.countDown();
+                    task.run();
+                }
+            }
+        });
+
+        try {
+            if (!started.await(timeout, timeUnit) && claimed.compareAndSet(false, true)) {
+                // the pool is saturated, do not wait for a free thread
+                return runInline(task, timeout, timeUnit);
+            }
+
+            started.await();
+            long remaining = startTime[0] + timeUnit.toNanos(timeout) - System.nanoTime();
+            return task.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+        } finally {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Runs the task in the pool and waits for the result. The timeout is
+     * measured from the start of the task and the task is cancelled when it
+     * elapses.
+     *
+     * @param <T>
+     * @param callable Task
+     * @param timeout Timeout
+     * @param timeUnit Unit of the timeout
+     * @return Result
+     * @throws InterruptedException
+     * @throws ExecutionException
+     * @throws TimeoutException
+     */
+    public static <T> T call(Callable<T> callable, long timeout, TimeUnit timeUnit) throws InterruptedException, ExecutionException, TimeoutException {
+        return run(new FutureTask<>(callable), timeout, timeUnit);
+    }
+
+    /**
+     * Cancels all the tasks
+     *
+     * @param futures Tasks
+     */
+    public static void cancelAll(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Task submitted to the pool, it can be run by the waiting thread
+     *
+     * @param <T>
+     */
+    private static class PoolTask<T> extends FutureTask<T> {
+
+        public PoolTask(Callable<T> callable) {
+            super(callable);
+        }
+    }
+}
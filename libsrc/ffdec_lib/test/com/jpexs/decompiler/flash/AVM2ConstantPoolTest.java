@@ -0,0 +1,139 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.abc.avm2.AVM2ConstantPool;
+import com.jpexs.decompiler.flash.abc.types.Multiname;
+import com.jpexs.decompiler.flash.abc.types.Namespace;
+import com.jpexs.decompiler.flash.abc.types.NamespaceSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import static org.testng.Assert.assertEquals;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class AVM2ConstantPoolTest {
+
+    private static int findString(AVM2ConstantPool constants, String value) {
+        for (int i = 1; i < constants.getStringCount(); i++) {
+            if (constants.getString(i).equals(value)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private static int findInt(AVM2ConstantPool constants, long value) {
+        for (int i = 1; i < constants.getIntCount(); i++) {
+            if (constants.getInt(i) == value) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    @Test
+    public void testStringAndIntLookup() {
+        AVM2ConstantPool constants = new AVM2ConstantPool();
+        constants.addInt(0);
+        constants.addString("");
+        Random random = new Random(1);
+        for (int i = 0; i < 2000; i++) {
+            // duplicates are allowed, the lowest index is found
+            constants.addString("s" + random.nextInt(500));
+            constants.addInt(random.nextInt(500) - 250);
+            if (i == 100) {
+                // build the indices in the middle
+                constants.getStringId("s0");
+                constants.getIntId(0);
+            }
+        }
+        for (int i = 0; i < 3000; i++) {
+            int index = 1 + random.nextInt(constants.getStringCount() - 1);
+            constants.setString(index, "s" + random.nextInt(600));
+            constants.setInt(index, random.nextInt(600) - 300);
+        }
+
+        for (int i = 0; i < 600; i++) {
+            assertEquals(constants.getStringId("s" + i), findString(constants, "s" + i));
+            assertEquals(constants.getIntId(i - 300), findInt(constants, i - 300));
+        }
+        assertEquals(constants.getStringId("x"), 0);
+
+        int count = constants.getStringCount();
+        assertEquals(constants.getStringId("x", true), count);
+        assertEquals(constants.getStringId("x", true), count);
+    }
+
+    @Test
+    public void testDoubleLookup() {
+        AVM2ConstantPool constants = new AVM2ConstantPool();
+        constants.addDouble(0);
+        constants.addDouble(1.5);
+        constants.addDouble(Double.NaN);
+        constants.addDouble(-0.0);
+        assertEquals(constants.getDoubleId(1.5), 1);
+        assertEquals(constants.getDoubleId(0.0 / 0.0), 2);
+        assertEquals(constants.getDoubleId(-0.0), 3);
+        assertEquals(constants.getDoubleId(0.0), 0);
+        assertEquals(constants.getDoubleId(2.5, true), 4);
+        assertEquals(constants.getDouble(4), 2.5);
+    }
+
+    @Test
+    public void testObjectLookup() {
+        AVM2ConstantPool constants = new AVM2ConstantPool();
+        constants.addString("");
+        constants.addNamespace(null);
+        constants.addNamespaceSet(null);
+        constants.addMultiname(null);
+        int a = constants.addString("a");
+        int b = constants.addString("b");
+
+        int ns1 = constants.addNamespace(new Namespace(Namespace.KIND_PACKAGE, a));
+        int ns2 = constants.addNamespace(new Namespace(Namespace.KIND_PACKAGE, b));
+        int ns3 = constants.addNamespace(new Namespace(Namespace.KIND_PACKAGE, a));
+        assertEquals(constants.getNamespaceId(new Namespace(Namespace.KIND_PACKAGE, a), 0), ns1);
+        assertEquals(constants.getNamespaceId(new Namespace(Namespace.KIND_PACKAGE, a), 1), ns3);
+        assertEquals(constants.getNamespaceId(new Namespace(Namespace.KIND_PACKAGE, a), 2), 0);
+        assertEquals(constants.getNamespaceId(new Namespace(Namespace.KIND_PRIVATE, a), 0), 0);
+
+        int nss = constants.addNamespaceSet(new NamespaceSet(new int[]{ns1, ns2}));
+        assertEquals(constants.getNamespaceSetId(new NamespaceSet(new int[]{ns2, ns1})), nss);
+        assertEquals(constants.getNamespaceSetId(new NamespaceSet(new int[]{ns2})), 0);
+
+        Multiname typeName = new Multiname(Multiname.TYPENAME, 0, 0, 0, 1, new ArrayList<>(Arrays.asList(1000)));
+        int m1 = constants.addMultiname(new Multiname(Multiname.QNAME, a, ns1, 0, 0, new ArrayList<Integer>()));
+        int m2 = constants.addMultiname(typeName);
+        assertEquals(constants.getMultinameId(new Multiname(Multiname.QNAME, a, ns1, 0, 0, new ArrayList<Integer>())), m1);
+        assertEquals(constants.getMultinameId(new Multiname(Multiname.TYPENAME, 0, 0, 0, 1, new ArrayList<>(Arrays.asList(1000)))), m2);
+
+        // changed in place and set again
+        Multiname m = constants.getMultiname(m1);
+        m.name_index = b;
+        constants.setMultiname(m1, m);
+        assertEquals(constants.getMultinameId(new Multiname(Multiname.QNAME, a, ns1, 0, 0, new ArrayList<Integer>())), 0);
+        assertEquals(constants.getMultinameId(new Multiname(Multiname.QNAME, b, ns1, 0, 0, new ArrayList<Integer>())), m1);
+        assertEquals(constants.getPublicQnameId("b", false), 0);
+        int qname = constants.getPublicQnameId("c", true);
+        assertEquals(constants.getPublicQnameId("c", false), qname);
+    }
+}
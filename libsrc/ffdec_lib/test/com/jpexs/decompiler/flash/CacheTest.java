@@ -0,0 +1,172 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.helpers.Cache;
+import com.jpexs.helpers.Weighted;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class CacheTest {
+
+    private static class Item implements Weighted {
+
+        private final long weight;
+
+        public Item(long weight) {
+            this.weight = weight;
+        }
+
+        @Override
+        public long getWeight() {
+            return weight;
+        }
+    }
+
+    @Test
+    public void testLimitedCache() {
+        Cache<String, Item> cache = Cache.getInstance(true, true, "test", 10);
+        Item a = new Item(4);
+        Item b = new Item(4);
+        cache.put("A", a);
+        cache.put("B", b);
+        assertEquals(cache.getTotalWeight(), 8);
+
+        // A is now the most recently used, so B is evicted
+        assertEquals(cache.get("A"), a);
+        cache.put("C", new Item(4));
+        assertTrue(cache.contains("A"));
+        assertFalse(cache.contains("B"));
+        assertTrue(cache.contains("C"));
+        assertEquals(cache.getEvictionCount(), 1);
+        assertEquals(cache.getTotalWeight(), 8);
+
+        assertNull(cache.get("B"));
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 1);
+
+        cache.remove("A");
+        assertEquals(cache.getTotalWeight(), 4);
+        cache.clear();
+        assertEquals(cache.getTotalWeight(), 0);
+        assertFalse(cache.contains("C"));
+    }
+
+    @Test
+    public void testExplicitWeight() {
+        Cache<String, String> cache = Cache.getInstance(false, true, "test", 10);
+        cache.put("A", "a", 6);
+        cache.put("B", "b", 6);
+        assertFalse(cache.contains("A"));
+        assertTrue(cache.contains("B"));
+        assertEquals(cache.getTotalWeight(), 6);
+    }
+
+    @Test
+    public void testWeakKeysWithLimit() throws InterruptedException {
+        Cache<Object, Item> cache = Cache.getInstance(true, true, "test", 10);
+        Object key = new Object();
+        cache.put(key, new Item(4));
+        assertTrue(cache.contains(key));
+        assertEquals(cache.getTotalWeight(), 4);
+
+        // the size limited cache does not keep the key alive
+        key = null;
+        for (int i = 0; i < 100 && cache.getTotalWeight() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+            cache.get(new Object());
+        }
+        assertEquals(cache.getTotalWeight(), 0);
+    }
+
+    @Test(timeOut = 60000)
+    public void testConcurrentAccess() throws Exception {
+        final Cache<Integer, Item> cache = Cache.getInstance(false, true, "test", 100);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < 10000; i++) {
+                            int key = (i * 31 + thread) % 500;
+                            if (cache.get(key) == null) {
+                                cache.put(key, new Item(1 + key % 5));
+                            }
+                            if (i % 100 == 0) {
+                                cache.remove(key);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(cache.getTotalWeight() <= 100, "weight " + cache.getTotalWeight());
+        long weight = 0;
+        for (int key = 0; key < 500; key++) {
+            if (cache.contains(key)) {
+                weight += 1 + key % 5;
+            }
+        }
+        assertEquals(weight, cache.getTotalWeight());
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+
+    @Test
+    public void testFileCacheWeight() {
+        int storageType = Cache.getStorageType();
+        Cache.setStorageType(Cache.STORAGE_FILES);
+        try {
+            Cache<String, Object> cache = Cache.getInstance(false, false, "test", 10);
+
+            // the item is not serializable, so it cannot be stored in the file and it is not counted
+            cache.put("A", new Item(4));
+            assertFalse(cache.contains("A"));
+            assertEquals(cache.getTotalWeight(), 0);
+
+            cache.put("B", "text");
+            assertEquals(cache.get("B"), "text");
+            assertEquals(cache.getTotalWeight(), 1);
+            cache.free();
+        } finally {
+            Cache.setStorageType(storageType);
+        }
+    }
+}
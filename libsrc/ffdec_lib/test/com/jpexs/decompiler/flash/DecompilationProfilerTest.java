@@ -0,0 +1,123 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.abc.ScriptPack;
+import com.jpexs.decompiler.flash.abc.avm2.DecompilationProfiler;
+import com.jpexs.decompiler.flash.abc.avm2.MethodProfile;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.exporters.modes.ScriptExportMode;
+import com.jpexs.decompiler.flash.helpers.CodeFormatting;
+import com.jpexs.decompiler.flash.helpers.HighlightedTextWriter;
+import com.jpexs.helpers.Helper;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class DecompilationProfilerTest {
+
+    @Test
+    public void testProfile() throws IOException, InterruptedException {
+        Configuration.autoDeobfuscate.set(false);
+        Configuration.decompile.set(true);
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream("testdata/as3/as3.swf")), false);
+        DecompilationProfiler.clear();
+        DecompilationProfiler.setEnabled(true);
+        try {
+            for (ScriptPack pack : swf.getAS3Packs()) {
+                HighlightedTextWriter writer = new HighlightedTextWriter(new CodeFormatting(), false);
+                pack.toSource(writer, pack.abc.script_info.get(pack.scriptIndex).traits.traits, ScriptExportMode.AS, false);
+            }
+        } finally {
+            DecompilationProfiler.setEnabled(false);
+        }
+
+        List<MethodProfile> profiles = DecompilationProfiler.getProfiles();
+        assertFalse(profiles.isEmpty());
+        boolean hasInstructions = false;
+        for (MethodProfile profile : profiles) {
+            assertEquals(profile.getResult(), MethodProfile.RESULT_OK, profile.getPath());
+            assertTrue(profile.getTotalTime() > 0, profile.getPath());
+            if (profile.getInstructionCount() > 0) {
+                hasInstructions = true;
+                assertTrue(profile.getGraphPartCount() > 0, profile.getPath());
+                assertTrue(profile.getTime(DecompilationProfiler.Stage.STRUCTURING) > 0, profile.getPath());
+            }
+        }
+        assertTrue(hasInstructions);
+
+        List<MethodProfile> slowest = DecompilationProfiler.getSlowest(3);
+        assertEquals(slowest.size(), Math.min(3, profiles.size()));
+        for (int i = 1; i < slowest.size(); i++) {
+            assertTrue(slowest.get(i - 1).getTotalTime() >= slowest.get(i).getTotalTime());
+        }
+
+        File csvFile = File.createTempFile("profile", ".csv");
+        File jsonFile = File.createTempFile("profile", ".json");
+        try {
+            DecompilationProfiler.writeCsv(csvFile);
+            String[] lines = new String(Helper.readFile(csvFile.getAbsolutePath()), "UTF-8").split("\r\n");
+            assertEquals(lines.length, profiles.size() + 1);
+            assertTrue(lines[0].startsWith("path,methodInfo,result,instructionCount,graphPartCount"));
+
+            DecompilationProfiler.writeJson(jsonFile);
+            String json = new String(Helper.readFile(jsonFile.getAbsolutePath()), "UTF-8");
+            assertTrue(json.contains("\"methodCount\": " + profiles.size()));
+            assertTrue(json.contains("\"structuringTime\": "));
+        } finally {
+            csvFile.delete();
+            jsonFile.delete();
+            DecompilationProfiler.clear();
+        }
+    }
+
+    @Test
+    public void testProfileLimit() {
+        DecompilationProfiler.clear();
+        DecompilationProfiler.setEnabled(true);
+        DecompilationProfiler.setMaxProfiles(3);
+        try {
+            for (int i = 0; i < 5; i++) {
+                DecompilationProfiler.createProfile("method" + i, i);
+            }
+
+            List<MethodProfile> profiles = DecompilationProfiler.getProfiles();
+            assertEquals(profiles.size(), 3);
+            assertEquals(profiles.get(0).getPath(), "method2");
+            assertEquals(profiles.get(2).getPath(), "method4");
+            assertEquals(DecompilationProfiler.getDroppedCount(), 2);
+
+            DecompilationProfiler.clear();
+            assertTrue(DecompilationProfiler.getProfiles().isEmpty());
+            assertEquals(DecompilationProfiler.getDroppedCount(), 0);
+        } finally {
+            DecompilationProfiler.setEnabled(false);
+            DecompilationProfiler.setMaxProfiles(DecompilationProfiler.DEFAULT_MAX_PROFILES);
+            DecompilationProfiler.clear();
+        }
+    }
+}
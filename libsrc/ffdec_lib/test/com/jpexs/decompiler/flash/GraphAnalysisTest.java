@@ -0,0 +1,124 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.abc.ScriptPack;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.exporters.modes.ScriptExportMode;
+import com.jpexs.decompiler.flash.helpers.CodeFormatting;
+import com.jpexs.decompiler.flash.helpers.HighlightedTextWriter;
+import com.jpexs.decompiler.graph.GraphAnalysis;
+import com.jpexs.decompiler.graph.GraphPart;
+import com.jpexs.decompiler.graph.GraphPartSet;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class GraphAnalysisTest {
+
+    private static void link(GraphPart from, GraphPart to) {
+        from.nextParts.add(to);
+        to.refs.add(from);
+    }
+
+    @Test
+    public void testIfElseLoop() {
+        // a -> b -> (c | d) -> e -> b, e -> f
+        GraphPart a = new GraphPart(0, 0);
+        GraphPart b = new GraphPart(1, 1);
+        GraphPart c = new GraphPart(2, 2);
+        GraphPart d = new GraphPart(3, 3);
+        GraphPart e = new GraphPart(4, 4);
+        GraphPart f = new GraphPart(5, 5);
+        link(a, b);
+        link(b, c);
+        link(b, d);
+        link(c, e);
+        link(d, e);
+        link(e, b);
+        link(e, f);
+
+        GraphAnalysis analysis = new GraphAnalysis(Arrays.asList(a));
+        assertEquals(analysis.getPartCount(), 6);
+        assertTrue(analysis.isNumbered(f));
+        assertFalse(analysis.isNumbered(new GraphPart(6, 6)));
+
+        assertTrue(analysis.reaches(b, b));
+        assertTrue(analysis.reaches(c, d));
+        assertFalse(analysis.reaches(a, a));
+        assertFalse(analysis.reaches(f, b));
+
+        assertTrue(analysis.dominates(b, e));
+        assertFalse(analysis.dominates(c, e));
+        assertTrue(analysis.dominates(a, f));
+
+        assertTrue(analysis.postDominates(e, b));
+        assertFalse(analysis.postDominates(c, b));
+        assertTrue(analysis.postDominates(f, a));
+    }
+
+    @Test
+    public void testPartSetEquality() {
+        GraphPart a = new GraphPart(1, 5);
+        GraphPart b = new GraphPart(1, 5);
+        b.id = 3;
+        GraphPartSet set = new GraphPartSet(Arrays.asList(a));
+        assertTrue(set.contains(b));
+        assertFalse(set.add(b));
+        assertFalse(set.contains(new GraphPart(1, 6)));
+        set.remove(b);
+        assertFalse(set.contains(a));
+    }
+
+    private static List<String> decompileAll(boolean graphAnalysisCache) throws IOException, InterruptedException {
+        boolean oldCache = Configuration.graphAnalysisCache.get();
+        Configuration.graphAnalysisCache.set(graphAnalysisCache);
+        try {
+            SWF swf = new SWF(new BufferedInputStream(new FileInputStream("testdata/as3/as3.swf")), false);
+            List<String> ret = new ArrayList<>();
+            for (ScriptPack pack : swf.getAS3Packs()) {
+                HighlightedTextWriter writer = new HighlightedTextWriter(new CodeFormatting(), false);
+                pack.toSource(writer, pack.abc.script_info.get(pack.scriptIndex).traits.traits, ScriptExportMode.AS, false);
+                ret.add(writer.toString());
+            }
+            return ret;
+        } finally {
+            Configuration.graphAnalysisCache.set(oldCache);
+        }
+    }
+
+    @Test
+    public void testCacheDoesNotChangeOutput() throws IOException, InterruptedException {
+        Configuration.autoDeobfuscate.set(false);
+        Configuration.decompile.set(true);
+        List<String> cached = decompileAll(true);
+        List<String> uncached = decompileAll(false);
+        assertFalse(uncached.isEmpty());
+        assertEquals(cached, uncached);
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.abc.ABC;
+import com.jpexs.decompiler.flash.abc.LazyRecordList;
+import com.jpexs.decompiler.flash.abc.avm2.AVM2ConstantPool;
+import com.jpexs.decompiler.flash.abc.types.MethodBody;
+import com.jpexs.decompiler.flash.abc.types.MethodInfo;
+import com.jpexs.decompiler.flash.abc.types.Multiname;
+import com.jpexs.decompiler.flash.abc.types.Namespace;
+import com.jpexs.decompiler.flash.abc.types.traits.Trait;
+import com.jpexs.decompiler.flash.exporters.swf.SwfXmlExporter;
+import com.jpexs.decompiler.flash.importers.SwfXmlImporter;
+import com.jpexs.decompiler.flash.tags.ABCContainerTag;
+import com.jpexs.decompiler.flash.tags.Tag;
+import com.jpexs.helpers.SimpleXMLStreamWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.stream.XMLStreamWriter;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class LazyConstantPoolTest {
+
+    private static List<ABC> getAbcs(boolean lazy) throws IOException, InterruptedException {
+        return getAbcs(new SWF(new FileInputStream("testdata/as3/as3.swf"), false, lazy));
+    }
+
+    private static List<ABC> getAbcs(SWF swf) {
+        List<ABC> result = new ArrayList<>();
+        for (Tag tag : swf.tags) {
+            if (tag instanceof ABCContainerTag) {
+                result.add(((ABCContainerTag) tag).getABC());
+            }
+        }
+        return result;
+    }
+
+    private static void assertPoolsEqual(AVM2ConstantPool actual, AVM2ConstantPool expected) {
+        assertEquals(actual.getDoubleCount(), expected.getDoubleCount());
+        for (int i = 1; i < expected.getDoubleCount(); i++) {
+            assertEquals(Double.compare(actual.getDouble(i), expected.getDouble(i)), 0);
+        }
+        assertEquals(actual.getStringCount(), expected.getStringCount());
+        for (int i = 0; i < expected.getStringCount(); i++) {
+            assertEquals(actual.getString(i), expected.getString(i));
+        }
+        assertEquals(actual.getNamespaceCount(), expected.getNamespaceCount());
+        for (int i = 1; i < expected.getNamespaceCount(); i++) {
+            assertEquals(actual.namespaceToString(i), expected.namespaceToString(i));
+        }
+        assertEquals(actual.getNamespaceSetCount(), expected.getNamespaceSetCount());
+        for (int i = 1; i < expected.getNamespaceSetCount(); i++) {
+            assertTrue(Arrays.equals(actual.getNamespaceSet(i).namespaces, expected.getNamespaceSet(i).namespaces));
+        }
+        assertEquals(actual.getMultinameCount(), expected.getMultinameCount());
+        for (int i = 1; i < expected.getMultinameCount(); i++) {
+            assertEquals(actual.multinameToString(i), expected.multinameToString(i));
+        }
+    }
+
+    @Test
+    public void testLazyDecoding() throws IOException, InterruptedException {
+        List<ABC> eager = getAbcs(false);
+        List<ABC> lazy = getAbcs(true);
+        assertEquals(lazy.size(), eager.size());
+        for (int i = 0; i < eager.size(); i++) {
+            assertFalse(eager.get(i).constants.isLazy());
+            assertTrue(lazy.get(i).constants.isLazy());
+            assertPoolsEqual(lazy.get(i).constants, eager.get(i).constants);
+
+            ByteArrayOutputStream eagerData = new ByteArrayOutputStream();
+            eager.get(i).saveToStream(eagerData);
+            ByteArrayOutputStream lazyData = new ByteArrayOutputStream();
+            lazy.get(i).saveToStream(lazyData);
+            assertTrue(Arrays.equals(lazyData.toByteArray(), eagerData.toByteArray()));
+        }
+    }
+
+    @Test
+    public void testXmlRoundTrip() throws Exception {
+        SWF swf = new SWF(new FileInputStream("testdata/as3/as3.swf"), false, true);
+        StringWriter sw = new StringWriter();
+        XMLStreamWriter writer = new SimpleXMLStreamWriter(sw);
+        new SwfXmlExporter().exportXml(swf, writer);
+        writer.close();
+
+        SWF imported = new SWF();
+        new SwfXmlImporter().importSwf(imported, sw.toString());
+
+        List<ABC> lazy = getAbcs(swf);
+        List<ABC> eager = getAbcs(false);
+        List<ABC> importedAbcs = getAbcs(imported);
+        assertEquals(importedAbcs.size(), eager.size());
+        for (int i = 0; i < eager.size(); i++) {
+            // the export decodes the entries without materializing the pool
+            assertTrue(lazy.get(i).constants.isLazy());
+            AVM2ConstantPool constants = importedAbcs.get(i).constants;
+            assertPoolsEqual(constants, eager.get(i).constants);
+            assertEquals(constants.getIntCount(), eager.get(i).constants.getIntCount());
+            for (int j = 1; j < constants.getIntCount(); j++) {
+                assertEquals(constants.getInt(j), eager.get(i).constants.getInt(j));
+            }
+            assertEquals(constants.getUIntCount(), eager.get(i).constants.getUIntCount());
+            for (int j = 1; j < constants.getUIntCount(); j++) {
+                assertEquals(constants.getUInt(j), eager.get(i).constants.getUInt(j));
+            }
+        }
+    }
+
+    @Test
+    public void testMaterializeOnChange() throws IOException, InterruptedException {
+        ABC abc = getAbcs(true).get(0);
+        AVM2ConstantPool constants = abc.constants;
+        assertTrue(constants.isLazy());
+
+        // decoded entries are kept, so changes made to them are not lost
+        Multiname multiname = constants.getMultiname(1);
+        assertSame(constants.getMultiname(1), multiname);
+        multiname.deleted = true;
+
+        int stringCount = constants.getStringCount();
+        int id = constants.getStringId("lazyConstantPoolTest", true);
+        assertFalse(constants.isLazy());
+        assertEquals(id, stringCount);
+        assertEquals(constants.getString(id), "lazyConstantPoolTest");
+        assertSame(constants.getMultiname(1), multiname);
+        assertTrue(constants.getMultiname(1).deleted);
+
+        int namespaceId = constants.getNamespaceId(new Namespace(Namespace.KIND_PACKAGE, id), 0, true);
+        assertEquals(constants.getNamespace(namespaceId).name_index, id);
+    }
+
+    @Test
+    public void testLazyRecords() throws IOException, InterruptedException {
+        List<ABC> eager = getAbcs(false);
+        List<ABC> lazy = getAbcs(true);
+        for (int i = 0; i < eager.size(); i++) {
+            ABC eagerAbc = eager.get(i);
+            ABC lazyAbc = lazy.get(i);
+            assertTrue(lazyAbc.method_info instanceof LazyRecordList);
+            assertTrue(lazyAbc.instance_info instanceof LazyRecordList);
+            assertTrue(lazyAbc.class_info instanceof LazyRecordList);
+            assertTrue(lazyAbc.script_info instanceof LazyRecordList);
+            assertTrue(lazyAbc.bodies instanceof LazyRecordList);
+            assertEquals(lazyAbc.method_info.size(), eagerAbc.method_info.size());
+            assertEquals(lazyAbc.instance_info.size(), eagerAbc.instance_info.size());
+            assertEquals(lazyAbc.class_info.size(), eagerAbc.class_info.size());
+            assertEquals(lazyAbc.script_info.size(), eagerAbc.script_info.size());
+            assertEquals(lazyAbc.bodies.size(), eagerAbc.bodies.size());
+
+            for (int m = 0; m < eagerAbc.method_info.size(); m++) {
+                // the body index is known without decoding the bodies
+                assertEquals(lazyAbc.findBodyIndex(m), eagerAbc.findBodyIndex(m));
+                MethodInfo mi = lazyAbc.method_info.get(m);
+                assertSame(lazyAbc.method_info.get(m), mi);
+                int bodyIndex = lazyAbc.findBodyIndex(m);
+                if (bodyIndex == -1) {
+                    assertEquals(mi.getBody(), null);
+                } else {
+                    assertSame(mi.getBody(), lazyAbc.bodies.get(bodyIndex));
+                }
+            }
+
+            for (int s = 0; s < eagerAbc.script_info.size(); s++) {
+                List<Trait> eagerTraits = eagerAbc.script_info.get(s).traits.traits;
+                List<Trait> lazyTraits = lazyAbc.script_info.get(s).traits.traits;
+                assertTrue(lazyTraits instanceof LazyRecordList);
+                assertEquals(lazyTraits.size(), eagerTraits.size());
+                for (int t = 0; t < eagerTraits.size(); t++) {
+                    assertEquals(lazyTraits.get(t).fileOffset, eagerTraits.get(t).fileOffset);
+                    assertTrue(Arrays.equals(lazyTraits.get(t).bytes, eagerTraits.get(t).bytes));
+                }
+            }
+
+            for (int c = 0; c < eagerAbc.instance_info.size(); c++) {
+                assertEquals(lazyAbc.instance_info.get(c).instance_traits.traits.size(), eagerAbc.instance_info.get(c).instance_traits.traits.size());
+                assertEquals(lazyAbc.class_info.get(c).static_traits.traits.size(), eagerAbc.class_info.get(c).static_traits.traits.size());
+            }
+        }
+    }
+
+    @Test
+    public void testRecordListModification() throws IOException, InterruptedException {
+        ABC abc = getAbcs(true).get(0);
+        LazyRecordList<MethodBody> bodies = (LazyRecordList<MethodBody>) abc.bodies;
+        MethodBody body = bodies.get(0);
+        int bodyCount = bodies.size();
+        assertFalse(bodies.isMaterialized());
+
+        MethodBody newBody = new MethodBody();
+        newBody.method_info = abc.addMethodInfo(new MethodInfo());
+        int index = abc.addMethodBody(newBody);
+        assertTrue(bodies.isMaterialized());
+        assertEquals(index, bodyCount);
+        assertEquals(bodies.size(), bodyCount + 1);
+        assertSame(bodies.get(0), body);
+        assertSame(bodies.get(index), newBody);
+        assertEquals(abc.findBodyIndex(newBody.method_info), index);
+        assertEquals(abc.findBodyIndex(body.method_info), 0);
+
+        bodies.remove(index);
+        assertEquals(bodies.size(), bodyCount);
+        assertSame(bodies.getOriginal(0), body);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.tags.DefineBitsLossless2Tag;
+import com.jpexs.decompiler.flash.tags.DefineBitsLosslessTag;
+import com.jpexs.decompiler.flash.types.ALPHABITMAPDATA;
+import com.jpexs.decompiler.flash.types.ALPHACOLORMAPDATA;
+import com.jpexs.decompiler.flash.types.BITMAPDATA;
+import com.jpexs.decompiler.flash.types.COLORMAPDATA;
+import com.jpexs.decompiler.flash.types.RGB;
+import com.jpexs.decompiler.flash.types.RGBA;
+import com.jpexs.helpers.ByteArrayRange;
+import com.jpexs.helpers.SerializableImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+import static org.testng.Assert.assertEquals;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * Compares the images decoded directly from the zlib data with the images
+ * created from the parsed COLORMAPDATA/BITMAPDATA structures.
+ *
+ * @author JPEXS
+ */
+public class LosslessImageTest {
+
+    private final boolean parallelSpeedUp = Configuration.parallelSpeedUp.get();
+
+    @AfterClass
+    public void restore() {
+        Configuration.parallelSpeedUp.set(parallelSpeedUp);
+    }
+
+    private static ByteArrayRange createZlibData(int length, int seed) throws IOException {
+        Random random = new Random(seed);
+        byte[] data = new byte[length];
+        random.nextBytes(data);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DeflaterOutputStream os = new DeflaterOutputStream(baos)) {
+            os.write(data);
+        }
+        return new ByteArrayRange(baos.toByteArray());
+    }
+
+    private static int getDataLength(int format, boolean alpha, int colorTableSize, int width, int height) {
+        if (format == DefineBitsLosslessTag.FORMAT_8BIT_COLORMAPPED) {
+            return (colorTableSize + 1) * (alpha ? 4 : 3) + ((width + 3) & ~3) * height;
+        }
+        if (!alpha && format == DefineBitsLosslessTag.FORMAT_15BIT_RGB) {
+            return ((width * 2 + 3) & ~3) * height;
+        }
+        return width * 4 * height;
+    }
+
+    @Test
+    public void testDefineBitsLossless() throws IOException {
+        SWF swf = new SWF();
+        for (boolean parallel : new boolean[]{false, true}) {
+            Configuration.parallelSpeedUp.set(parallel);
+            for (int format : new int[]{DefineBitsLosslessTag.FORMAT_8BIT_COLORMAPPED, DefineBitsLosslessTag.FORMAT_15BIT_RGB, DefineBitsLosslessTag.FORMAT_24BIT_RGB}) {
+                for (int[] size : new int[][]{{1, 1}, {3, 5}, {301, 300}}) {
+                    DefineBitsLosslessTag tag = new DefineBitsLosslessTag(swf);
+                    tag.bitmapFormat = format;
+                    tag.bitmapWidth = size[0];
+                    tag.bitmapHeight = size[1];
+                    tag.bitmapColorTableSize = 200;
+                    tag.zlibBitmapData = createZlibData(getDataLength(format, false, 200, size[0], size[1]), format * size[0]);
+                    assertImage(tag.getImage(), getReferenceImage(tag), "format " + format + " size " + size[0]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDefineBitsLossless2() throws IOException {
+        SWF swf = new SWF();
+        for (boolean parallel : new boolean[]{false, true}) {
+            Configuration.parallelSpeedUp.set(parallel);
+            for (int format : new int[]{DefineBitsLossless2Tag.FORMAT_8BIT_COLORMAPPED, DefineBitsLossless2Tag.FORMAT_32BIT_ARGB}) {
+                for (int[] size : new int[][]{{1, 1}, {3, 5}, {301, 300}}) {
+                    DefineBitsLossless2Tag tag = new DefineBitsLossless2Tag(swf);
+                    tag.bitmapFormat = format;
+                    tag.bitmapWidth = size[0];
+                    tag.bitmapHeight = size[1];
+                    tag.bitmapColorTableSize = 200;
+                    tag.zlibBitmapData = createZlibData(getDataLength(format, true, 200, size[0], size[1]), format * size[0]);
+                    assertImage(tag.getImage(), getReferenceImage(tag), "format " + format + " size " + size[0]);
+                }
+            }
+        }
+    }
+
+    private static void assertImage(SerializableImage image, SerializableImage expected, String message) {
+        assertEquals(image.getType(), expected.getType(), message);
+        int width = expected.getWidth();
+        int height = expected.getHeight();
+        assertEquals(image.getWidth(), width, message);
+        assertEquals(image.getHeight(), height, message);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals(image.getRGB(x, y), expected.getRGB(x, y), message + " x " + x + " y " + y);
+            }
+        }
+    }
+
+    private static SerializableImage getReferenceImage(DefineBitsLosslessTag tag) {
+        SerializableImage bi = new SerializableImage(tag.bitmapWidth, tag.bitmapHeight, SerializableImage.TYPE_INT_RGB);
+        COLORMAPDATA colorMapData = tag.getColorMapData();
+        BITMAPDATA bitmapData = tag.getBitmapData();
+        int pos32aligned = 0;
+        int pos = 0;
+        for (int y = 0; y < tag.bitmapHeight; y++) {
+            for (int x = 0; x < tag.bitmapWidth; x++) {
+                int c = 0;
+                if (tag.bitmapFormat == DefineBitsLosslessTag.FORMAT_8BIT_COLORMAPPED) {
+                    int colorTableIndex = colorMapData.colorMapPixelData[pos32aligned] & 0xff;
+                    if (colorTableIndex < colorMapData.colorTableRGB.length) {
+                        c = colorMapData.colorTableRGB[colorTableIndex].toInt();
+                    }
+                }
+                if (tag.bitmapFormat == DefineBitsLosslessTag.FORMAT_15BIT_RGB) {
+                    c = new RGB(bitmapData.bitmapPixelDataPix15[pos].red * 8, bitmapData.bitmapPixelDataPix15[pos].green * 8, bitmapData.bitmapPixelDataPix15[pos].blue * 8).toInt();
+                }
+                if (tag.bitmapFormat == DefineBitsLosslessTag.FORMAT_24BIT_RGB) {
+                    c = new RGB(bitmapData.bitmapPixelDataPix24[pos].red, bitmapData.bitmapPixelDataPix24[pos].green, bitmapData.bitmapPixelDataPix24[pos].blue).toInt();
+                }
+                bi.setRGB(x, y, c);
+                pos32aligned++;
+                pos++;
+            }
+            while ((pos32aligned % 4 != 0)) {
+                pos32aligned++;
+            }
+        }
+        return bi;
+    }
+
+    private static SerializableImage getReferenceImage(DefineBitsLossless2Tag tag) {
+        SerializableImage bi = new SerializableImage(tag.bitmapWidth, tag.bitmapHeight, SerializableImage.TYPE_INT_ARGB);
+        ALPHACOLORMAPDATA colorMapData = tag.getColorMapData();
+        ALPHABITMAPDATA bitmapData = tag.getBitmapData();
+        int pos32aligned = 0;
+        int pos = 0;
+        for (int y = 0; y < tag.bitmapHeight; y++) {
+            for (int x = 0; x < tag.bitmapWidth; x++) {
+                int c = 0;
+                if (tag.bitmapFormat == DefineBitsLossless2Tag.FORMAT_8BIT_COLORMAPPED) {
+                    int colorTableIndex = colorMapData.colorMapPixelData[pos32aligned] & 0xff;
+                    if (colorTableIndex < colorMapData.colorTableRGB.length) {
+                        c = multiplyAlpha(colorMapData.colorTableRGB[colorTableIndex].toInt());
+                    }
+                }
+                if (tag.bitmapFormat == DefineBitsLossless2Tag.FORMAT_32BIT_ARGB) {
+                    c = multiplyAlpha(bitmapData.bitmapPixelData[pos].toInt());
+                }
+                bi.setRGB(x, y, c);
+                pos32aligned++;
+                pos++;
+            }
+            while ((pos32aligned % 4 != 0)) {
+                pos32aligned++;
+            }
+        }
+        return bi;
+    }
+
+    private static int multiplyAlpha(int value) {
+        int a = (value >> 24) & 0xFF;
+        int r = (value >> 16) & 0xFF;
+        int g = (value >> 8) & 0xFF;
+        int b = value & 0xFF;
+        float multiplier = a == 0 ? 0 : 255.0f / a;
+        r = max255(r * multiplier);
+        g = max255(g * multiplier);
+        b = max255(b * multiplier);
+        return RGBA.toInt(r, g, b, a);
+    }
+
+    private static int max255(float val) {
+        if (val > 255) {
+            return 255;
+        }
+        return (int) val;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.abc.ABC;
+import com.jpexs.decompiler.flash.abc.avm2.AVM2Code;
+import com.jpexs.decompiler.flash.abc.avm2.instructions.AVM2Instruction;
+import com.jpexs.decompiler.flash.abc.types.ABCException;
+import com.jpexs.decompiler.flash.abc.types.MethodBody;
+import com.jpexs.decompiler.flash.abc.types.MethodInfo;
+import com.jpexs.decompiler.flash.abc.types.Multiname;
+import com.jpexs.decompiler.flash.abc.types.traits.TraitMethodGetterSetter;
+import com.jpexs.decompiler.flash.abc.types.traits.TraitSlotConst;
+import com.jpexs.decompiler.flash.abc.types.traits.Traits;
+import com.jpexs.decompiler.flash.abc.usages.ClassNameMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.ConstVarNameMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.ConstVarTypeMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.ExtendsMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.ImplementsMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.MethodBodyMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.MethodNameMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.MethodParamsMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.MethodReturnTypeMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.MultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.TypeNameMultinameUsage;
+import com.jpexs.decompiler.flash.tags.ABCContainerTag;
+import com.jpexs.decompiler.flash.tags.Tag;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class MultinameUsageTest {
+
+    private static ABC getAbc() throws IOException, InterruptedException {
+        SWF swf = new SWF(new FileInputStream("testdata/as3/as3.swf"), false);
+        for (Tag tag : swf.tags) {
+            if (tag instanceof ABCContainerTag) {
+                return ((ABCContainerTag) tag).getABC();
+            }
+        }
+        return null;
+    }
+
+    private static List<String> toStrings(List<MultinameUsage> usages) {
+        List<String> ret = new ArrayList<>();
+        for (MultinameUsage usage : usages) {
+            ret.add(usage.getClass().getSimpleName() + ": " + usage.toString());
+        }
+        return ret;
+    }
+
+    private static void assertIndexMatchesScan(ABC abc) {
+        for (int m = 0; m < abc.constants.getMultinameCount(); m++) {
+            assertEquals(toStrings(abc.findMultinameUsage(m)), toStrings(scanMultinameUsage(abc, m)), "Usages of multiname " + m);
+        }
+    }
+
+    @Test
+    public void testConstantPoolEdits() throws IOException, InterruptedException {
+        ABC abc = getAbc();
+        assertNotNull(abc);
+        assertIndexMatchesScan(abc);
+
+        int qname = -1;
+        int param = -1;
+        for (int m = 1; m < abc.constants.getMultinameCount(); m++) {
+            if (abc.constants.getMultiname(m).kind == Multiname.QNAME && !abc.findMultinameUsage(m).isEmpty()) {
+                if (qname == -1) {
+                    qname = m;
+                } else {
+                    param = m;
+                    break;
+                }
+            }
+        }
+        assertFalse(param == -1);
+
+        int typeName = abc.constants.addMultiname(new Multiname(Multiname.TYPENAME, 0, 0, 0, qname, Arrays.asList(param)));
+        assertIndexMatchesScan(abc);
+
+        abc.constants.setMultiname(typeName, new Multiname(Multiname.TYPENAME, 0, 0, 0, param, Arrays.asList(qname)));
+        assertIndexMatchesScan(abc);
+
+        abc.constants.setMultiname(typeName, new Multiname(Multiname.QNAME, abc.constants.getMultiname(qname).name_index, abc.constants.getMultiname(qname).namespace_index, 0, 0, new ArrayList<Integer>()));
+        assertIndexMatchesScan(abc);
+    }
+
+    @Test
+    public void testMethodBodyEdits() throws IOException, InterruptedException, CloneNotSupportedException {
+        ABC abc = getAbc();
+        assertNotNull(abc);
+        assertIndexMatchesScan(abc);
+
+        for (MethodBody body : abc.bodies) {
+            AVM2Code code = body.getCode();
+            for (int i = 0; i < code.code.size(); i++) {
+                AVM2Instruction ins = code.code.get(i);
+                for (int o = 0; o < ins.definition.operands.length; o++) {
+                    if (ins.definition.operands[o] == AVM2Code.DAT_MULTINAME_INDEX) {
+                        byte[] codeBytes = body.getCodeBytes();
+                        int original = ins.operands[o];
+                        int replacement = original == 1 ? 2 : 1;
+
+                        AVM2Code newCode = code.clone();
+                        newCode.code.get(i).operands[o] = replacement;
+                        body.setCode(newCode);
+                        assertIndexMatchesScan(abc);
+
+                        body.setCodeBytes(codeBytes);
+                        assertIndexMatchesScan(abc);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Linear scan of the ABC which was used before the usage index
+     */
+    private static List<MultinameUsage> scanMultinameUsage(ABC abc, int multinameIndex) {
+        List<MultinameUsage> ret = new ArrayList<>();
+        if (multinameIndex == 0) {
+            return ret;
+        }
+        for (int c = 0; c < abc.instance_info.size(); c++) {
+            if (abc.instance_info.get(c).name_index == multinameIndex) {
+                ret.add(new ClassNameMultinameUsage(abc, multinameIndex, c));
+            }
+            if (abc.instance_info.get(c).super_index == multinameIndex) {
+                ret.add(new ExtendsMultinameUsage(abc, multinameIndex, c));
+            }
+            for (int i = 0; i < abc.instance_info.get(c).interfaces.length; i++) {
+                if (abc.instance_info.get(c).interfaces[i] == multinameIndex) {
+                    ret.add(new ImplementsMultinameUsage(abc, multinameIndex, c));
+                }
+            }
+            scanMethod(abc, multinameIndex, abc.instance_info.get(c).iinit_index, ret, c, 0, false, true, null, -1);
+            scanMethod(abc, multinameIndex, abc.class_info.get(c).cinit_index, ret, c, 0, true, true, null, -1);
+            scanTraits(abc, abc.instance_info.get(c).instance_traits, multinameIndex, false, c, ret, -1);
+            scanTraits(abc, abc.class_info.get(c).static_traits, multinameIndex, true, c, ret, -1);
+        }
+        loopm:
+        for (int m = 1; m < abc.constants.getMultinameCount(); m++) {
+            Multiname multiname = abc.constants.getMultiname(m);
+            if (multiname.kind == Multiname.TYPENAME) {
+                if (multiname.qname_index == multinameIndex) {
+                    ret.add(new TypeNameMultinameUsage(abc, m));
+                    continue;
+                }
+                for (int mp : multiname.params) {
+                    if (mp == multinameIndex) {
+                        ret.add(new TypeNameMultinameUsage(abc, m));
+                        continue loopm;
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    private static void scanMethod(ABC abc, int multinameIndex, int methodInfo, List<MultinameUsage> ret, int classIndex, int traitIndex, boolean isStatic, boolean isInitializer, Traits traits, int parentTraitIndex) {
+        MethodInfo mi = abc.method_info.get(methodInfo);
+        for (int p = 0; p < mi.param_types.length; p++) {
+            if (mi.param_types[p] == multinameIndex) {
+                ret.add(new MethodParamsMultinameUsage(abc, multinameIndex, classIndex, traitIndex, isStatic, isInitializer, traits, parentTraitIndex));
+                break;
+            }
+        }
+        if (mi.ret_type == multinameIndex) {
+            ret.add(new MethodReturnTypeMultinameUsage(abc, multinameIndex, classIndex, traitIndex, isStatic, isInitializer, traits, parentTraitIndex));
+        }
+        MethodBody body = abc.findBody(methodInfo);
+        if (body != null) {
+            scanTraits(abc, body.traits, multinameIndex, isStatic, classIndex, ret, traitIndex);
+            for (ABCException e : body.exceptions) {
+                if ((e.name_index == multinameIndex) || (e.type_index == multinameIndex)) {
+                    ret.add(new MethodBodyMultinameUsage(abc, multinameIndex, classIndex, traitIndex, isStatic, isInitializer, traits, parentTraitIndex));
+                    return;
+                }
+            }
+            for (AVM2Instruction ins : body.getCode().code) {
+                for (int o = 0; o < ins.definition.operands.length; o++) {
+                    if (ins.definition.operands[o] == AVM2Code.DAT_MULTINAME_INDEX && ins.operands[o] == multinameIndex) {
+                        ret.add(new MethodBodyMultinameUsage(abc, multinameIndex, classIndex, traitIndex, isStatic, isInitializer, traits, parentTraitIndex));
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void scanTraits(ABC abc, Traits traits, int multinameIndex, boolean isStatic, int classIndex, List<MultinameUsage> ret, int parentTraitIndex) {
+        for (int t = 0; t < traits.traits.size(); t++) {
+            if (traits.traits.get(t) instanceof TraitSlotConst) {
+                TraitSlotConst tsc = (TraitSlotConst) traits.traits.get(t);
+                if (tsc.name_index == multinameIndex) {
+                    ret.add(new ConstVarNameMultinameUsage(abc, multinameIndex, classIndex, t, isStatic, traits, parentTraitIndex));
+                }
+                if (tsc.type_index == multinameIndex) {
+                    ret.add(new ConstVarTypeMultinameUsage(abc, multinameIndex, classIndex, t, isStatic, traits, parentTraitIndex));
+                }
+            }
+            if (traits.traits.get(t) instanceof TraitMethodGetterSetter) {
+                TraitMethodGetterSetter tmgs = (TraitMethodGetterSetter) traits.traits.get(t);
+                if (tmgs.name_index == multinameIndex) {
+                    ret.add(new MethodNameMultinameUsage(abc, multinameIndex, classIndex, t, isStatic, false, traits, parentTraitIndex));
+                }
+                scanMethod(abc, multinameIndex, tmgs.method_info, ret, classIndex, t, isStatic, false, traits, parentTraitIndex);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.abc.ScriptPack;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.exporters.modes.ScriptExportMode;
+import com.jpexs.decompiler.flash.helpers.CodeFormatting;
+import com.jpexs.decompiler.flash.helpers.HighlightedTextWriter;
+import com.jpexs.decompiler.flash.helpers.hilight.Highlighting;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class ParallelDecompilationTest {
+
+    private static HighlightedTextWriter decompile(ScriptPack pack, boolean parallel) throws InterruptedException {
+        HighlightedTextWriter writer = new HighlightedTextWriter(new CodeFormatting(), true);
+        pack.toSource(writer, pack.abc.script_info.get(pack.scriptIndex).traits.traits, ScriptExportMode.AS, parallel);
+        return writer;
+    }
+
+    private static void assertHilightsEqual(List<Highlighting> actual, List<Highlighting> expected, String name) {
+        assertEquals(actual.size(), expected.size(), name);
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(actual.get(i).startPos, expected.get(i).startPos, name);
+            assertEquals(actual.get(i).len, expected.get(i).len, name);
+            assertEquals(actual.get(i).type, expected.get(i).type, name);
+        }
+    }
+
+    @Test
+    public void testParallelOutputMatchesSequential() throws IOException, InterruptedException {
+        Configuration.autoDeobfuscate.set(false);
+        Configuration.decompile.set(true);
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream("testdata/as3/as3.swf")), false);
+        List<ScriptPack> packs = swf.getAS3Packs();
+        assertFalse(packs.isEmpty());
+        for (ScriptPack pack : packs) {
+            // the first decompilation of a pack can omit the static initializer, so it is not compared
+            decompile(pack, false);
+            HighlightedTextWriter sequential = decompile(pack, false);
+            HighlightedTextWriter parallel = decompile(pack, true);
+            String name = pack.getClassPath().toString();
+            assertHilightsEqual(parallel.traitHilights, sequential.traitHilights, name);
+            assertHilightsEqual(parallel.classHilights, sequential.classHilights, name);
+            assertHilightsEqual(parallel.methodHilights, sequential.methodHilights, name);
+            assertHilightsEqual(parallel.instructionHilights, sequential.instructionHilights, name);
+            assertHilightsEqual(parallel.specialHilights, sequential.specialHilights, name);
+            assertEquals(parallel.toString(), sequential.toString(), name);
+        }
+    }
+}
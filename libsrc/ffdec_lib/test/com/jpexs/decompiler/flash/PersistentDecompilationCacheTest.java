@@ -0,0 +1,216 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.abc.CachedDecompilation;
+import com.jpexs.decompiler.flash.abc.PersistentDecompilationCache;
+import com.jpexs.decompiler.flash.abc.ScriptPack;
+import com.jpexs.decompiler.flash.abc.avm2.instructions.AVM2Instruction;
+import com.jpexs.decompiler.flash.abc.avm2.instructions.stack.PushStringIns;
+import com.jpexs.decompiler.flash.abc.types.MethodBody;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.helpers.hilight.Highlighting;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class PersistentDecompilationCacheTest {
+
+    private final boolean persistentScriptCache = Configuration.persistentScriptCache.get();
+
+    private final boolean showMethodBodyId = Configuration.showMethodBodyId.get();
+
+    private final int decompilationTimeoutFile = Configuration.decompilationTimeoutFile.get();
+
+    private File directory;
+
+    private SWF swf;
+
+    @BeforeClass
+    public void init() throws IOException, InterruptedException {
+        directory = Files.createTempDirectory("ffdec_test_cache").toFile();
+        PersistentDecompilationCache.setCacheDirectory(directory);
+        Configuration.persistentScriptCache.set(true);
+        swf = new SWF(new FileInputStream("testdata/as3/as3.swf"), false);
+    }
+
+    @AfterClass
+    public void restore() {
+        PersistentDecompilationCache.clear();
+        directory.delete();
+        PersistentDecompilationCache.setCacheDirectory(null);
+        Configuration.persistentScriptCache.set(persistentScriptCache);
+        Configuration.showMethodBodyId.set(showMethodBodyId);
+        Configuration.decompilationTimeoutFile.set(decompilationTimeoutFile);
+    }
+
+    @BeforeMethod
+    public void clear() {
+        PersistentDecompilationCache.clear();
+        swf.clearScriptCache();
+    }
+
+    private static void assertHighlightsEqual(List<Highlighting> actual, List<Highlighting> expected) {
+        assertEquals(actual.size(), expected.size());
+        for (int i = 0; i < actual.size(); i++) {
+            Highlighting a = actual.get(i);
+            Highlighting e = expected.get(i);
+            assertEquals(a.type, e.type);
+            assertEquals(a.startPos, e.startPos);
+            assertEquals(a.len, e.len);
+            assertEquals(a.getProperties().index, e.getProperties().index);
+            assertEquals(a.getProperties().offset, e.getProperties().offset);
+        }
+    }
+
+    @Test
+    public void testHitAndMiss() throws InterruptedException {
+        Set<String> hashes = new HashSet<>();
+        for (ScriptPack pack : swf.getAS3Packs()) {
+            PersistentDecompilationCache.Key key = PersistentDecompilationCache.computeKey(pack);
+            assertTrue(hashes.add(key.hash), "Duplicate key of " + pack.getClassPath());
+            assertNull(PersistentDecompilationCache.get(key));
+
+            CachedDecompilation decompiled = SWF.getCached(pack);
+            CachedDecompilation loaded = PersistentDecompilationCache.get(key);
+            assertNotNull(loaded, pack.getClassPath().toString());
+            assertEquals(loaded.text, decompiled.text);
+            assertHighlightsEqual(loaded.methodHilights, decompiled.methodHilights);
+            assertHighlightsEqual(loaded.classHilights, decompiled.classHilights);
+            assertHighlightsEqual(loaded.traitHilights, decompiled.traitHilights);
+            assertHighlightsEqual(loaded.instructionHilights, decompiled.instructionHilights);
+        }
+
+        // found on the disk after the memory cache is cleared
+        swf.clearScriptCache();
+        ScriptPack pack = swf.getAS3Packs().get(0);
+        PersistentDecompilationCache.Key key = PersistentDecompilationCache.computeKey(pack);
+        assertEquals(SWF.getCached(pack).text, PersistentDecompilationCache.get(key).text);
+    }
+
+    @Test
+    public void testInvalidation() throws InterruptedException {
+        for (ScriptPack pack : swf.getAS3Packs()) {
+            int classIndex = pack.abc.findClassByName(pack.getClassPath().toString());
+            if (classIndex < 0) {
+                continue;
+            }
+
+            MethodBody body = pack.abc.findBody(pack.abc.instance_info.get(classIndex).iinit_index);
+            if (body == null) {
+                continue;
+            }
+
+            for (AVM2Instruction ins : body.getCode().code) {
+                if (ins.definition instanceof PushStringIns) {
+                    PersistentDecompilationCache.Key key = PersistentDecompilationCache.computeKey(pack);
+                    SWF.getCached(pack);
+                    assertNotNull(PersistentDecompilationCache.get(key));
+
+                    // a changed constant gives a different key
+                    String value = pack.abc.constants.getString(ins.operands[0]);
+                    pack.abc.constants.setString(ins.operands[0], value + "_changed");
+                    PersistentDecompilationCache.Key changedKey = PersistentDecompilationCache.computeKey(pack);
+                    assertNotEquals(changedKey.hash, key.hash);
+                    assertNull(PersistentDecompilationCache.get(changedKey));
+
+                    pack.abc.constants.setString(ins.operands[0], value);
+                    assertEquals(PersistentDecompilationCache.computeKey(pack).hash, key.hash);
+
+                    // so do the settings which change the output
+                    Configuration.showMethodBodyId.set(!showMethodBodyId);
+                    assertNotEquals(PersistentDecompilationCache.computeKey(pack).hash, key.hash);
+                    Configuration.showMethodBodyId.set(showMethodBodyId);
+                    return;
+                }
+            }
+        }
+
+        assertTrue(false, "No class with a string constant in the constructor");
+    }
+
+    @Test
+    public void testTimeoutNotStored() throws InterruptedException {
+        int timedOut = 0;
+        Configuration.decompilationTimeoutFile.set(0);
+        try {
+            for (ScriptPack pack : swf.getAS3Packs()) {
+                PersistentDecompilationCache.Key key = PersistentDecompilationCache.computeKey(pack);
+                CachedDecompilation decompiled = SWF.getCached(pack);
+                if (decompiled.text.contains("IllegalOperationError")) {
+                    timedOut++;
+                    assertNull(PersistentDecompilationCache.get(key), pack.getClassPath().toString());
+                }
+            }
+        } finally {
+            Configuration.decompilationTimeoutFile.set(decompilationTimeoutFile);
+        }
+
+        assertTrue(timedOut > 0);
+
+        // the timeout is a part of the key
+        swf.clearScriptCache();
+        ScriptPack pack = swf.getAS3Packs().get(0);
+        PersistentDecompilationCache.Key key = PersistentDecompilationCache.computeKey(pack);
+        Configuration.decompilationTimeoutFile.set(decompilationTimeoutFile + 1);
+        try {
+            assertNotEquals(PersistentDecompilationCache.computeKey(pack).hash, key.hash);
+        } finally {
+            Configuration.decompilationTimeoutFile.set(decompilationTimeoutFile);
+        }
+    }
+
+    @Test
+    public void testSizeLimit() throws InterruptedException {
+        List<ScriptPack> packs = swf.getAS3Packs();
+        for (ScriptPack pack : packs) {
+            SWF.getCached(pack);
+        }
+
+        long size = PersistentDecompilationCache.getSize();
+        assertTrue(size > 0);
+
+        // the most recently used entry is kept, the file times may have one second resolution
+        Thread.sleep(1100);
+        PersistentDecompilationCache.Key lastKey = PersistentDecompilationCache.computeKey(packs.get(0));
+        assertNotNull(PersistentDecompilationCache.get(lastKey));
+        PersistentDecompilationCache.trim(size / 2);
+        assertTrue(PersistentDecompilationCache.getSize() <= size / 2);
+        assertNotNull(PersistentDecompilationCache.get(lastKey));
+
+        PersistentDecompilationCache.trim(0);
+        assertEquals(PersistentDecompilationCache.getSize(), 0);
+        assertNull(PersistentDecompilationCache.get(lastKey));
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.exporters.commonshape.ExportRectangle;
+import com.jpexs.decompiler.flash.exporters.commonshape.Matrix;
+import com.jpexs.decompiler.flash.exporters.commonshape.SVGExporter;
+import com.jpexs.decompiler.flash.types.RECT;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class SVGExporterTest {
+
+    @Test
+    public void testSameDefsAreWrittenOnce() throws Exception {
+        SVGExporter exporter = new SVGExporter(new ExportRectangle(0, 0, 2000, 2000));
+        for (int i = 0; i < 2; i++) {
+            exporter.createDefGroup(null, "shape" + i);
+            Element path = exporter.createElement("path");
+            path.setAttribute("d", "M0 0 L10 10");
+            exporter.addToGroup(path);
+            exporter.endGroup();
+        }
+
+        String gradient1 = exporter.addDef(createGradient(exporter, "#ff0000"), "gradient");
+        String gradient2 = exporter.addDef(createGradient(exporter, "#ff0000"), "gradient");
+        String gradient3 = exporter.addDef(createGradient(exporter, "#00ff00"), "gradient");
+        assertEquals(gradient2, gradient1);
+        assertFalse(gradient3.equals(gradient1));
+
+        exporter.addUse(new Matrix(), new RECT(0, 200, 0, 200), "shape1");
+        Document doc = parse(exporter.getSVG());
+        assertEquals(doc.getElementsByTagName("path").getLength(), 1);
+        assertEquals(doc.getElementsByTagName("linearGradient").getLength(), 2);
+        Element use = (Element) doc.getElementsByTagName("use").item(0);
+        assertEquals(use.getAttribute("xlink:href"), "#shape0");
+    }
+
+    @Test
+    public void testEmptyGroupIsOmitted() throws Exception {
+        SVGExporter exporter = new SVGExporter(new ExportRectangle(0, 0, 2000, 2000));
+        exporter.createSubGroup(new Matrix(), "empty");
+        exporter.endGroup();
+        exporter.createSubGroup(new Matrix(), "full");
+        exporter.addToGroup(exporter.createElement("rect"));
+        exporter.endGroup();
+
+        Document doc = parse(exporter.getSVG());
+        NodeList groups = doc.getElementsByTagName("g");
+        assertEquals(groups.getLength(), 2);
+        assertEquals(((Element) groups.item(1)).getAttribute("id"), "full");
+        assertEquals(doc.getElementsByTagName("rect").getLength(), 1);
+    }
+
+    @Test
+    public void testStreamAndExternalImages() throws Exception {
+        File dir = Files.createTempDirectory("svg").toFile();
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            SVGExporter exporter = new SVGExporter(new ExportRectangle(0, 0, 2000, 2000), baos);
+            exporter.setImageDirectory(dir);
+            byte[] data = new byte[]{1, 2, 3};
+            String href = exporter.getImageHref("png", data);
+            assertEquals(exporter.getImageHref("png", new byte[]{1, 2, 3}), href);
+            Element image = exporter.createElement("image");
+            image.setAttribute("xlink:href", href);
+            exporter.addToGroup(image);
+            exporter.finish();
+
+            File imageFile = new File(dir, href);
+            assertTrue(imageFile.exists());
+            assertEquals(dir.listFiles().length, 1);
+            Document doc = parse(new String(baos.toByteArray(), StandardCharsets.UTF_8));
+            assertEquals(((Element) doc.getElementsByTagName("image").item(0)).getAttribute("xlink:href"), href);
+        } finally {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    f.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    private static Element createGradient(SVGExporter exporter, String color) {
+        Element gradient = exporter.createElement("linearGradient");
+        Element stop = exporter.createElement("stop");
+        stop.setAttribute("offset", "0");
+        stop.setAttribute("stop-color", color);
+        gradient.appendChild(stop);
+        return gradient;
+    }
+
+    private static Document parse(String svg) throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(svg.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import SevenZip.Compression.LZMA.Decoder;
+import SevenZip.Compression.LZMA.Encoder;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.helpers.Helper;
+import com.jpexs.helpers.ParallelDeflaterOutputStream;
+import com.jpexs.helpers.WorkerPool;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.zip.InflaterInputStream;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class SWFCompressionTest {
+
+    private final boolean parallelSpeedUp = Configuration.parallelSpeedUp.get();
+
+    @AfterClass
+    public void restore() {
+        Configuration.parallelSpeedUp.set(parallelSpeedUp);
+    }
+
+    private static byte[] createData(int length) {
+        Random random = new Random(length);
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            // compressible, but not trivial data
+            data[i] = (byte) (random.nextInt(4) == 0 ? random.nextInt() : 'a' + (i / 7) % 13);
+        }
+        return data;
+    }
+
+    @Test
+    public void testParallelDeflate() throws IOException {
+        for (int length : new int[]{0, 1, 1000, 128 * 1024, 128 * 1024 + 1, 1024 * 1024 + 12345}) {
+            byte[] data = createData(length);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (ParallelDeflaterOutputStream os = new ParallelDeflaterOutputStream(baos)) {
+                // odd sized writes crossing the blocks
+                for (int pos = 0; pos < length; pos += 70001) {
+                    os.write(data, pos, Math.min(70001, length - pos));
+                }
+            }
+
+            byte[] inflated = Helper.readStream(new InflaterInputStream(new ByteArrayInputStream(baos.toByteArray())));
+            assertTrue(Arrays.equals(inflated, data), "length " + length);
+        }
+    }
+
+    private static byte[] lzma(byte[] data, int dictionarySize, Executor matchFinderExecutor) throws IOException {
+        Encoder enc = new Encoder();
+        enc.SetDictionarySize(dictionarySize);
+        enc.SetEndMarkerMode(true);
+        enc.SetMultiThread(matchFinderExecutor);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        enc.WriteCoderProperties(baos);
+        // small reads, so the windows are filled in many steps
+        enc.Code(new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1000));
+            }
+        }, baos, -1, -1, null);
+        return baos.toByteArray();
+    }
+
+    @Test
+    public void testLzmaMatchFinderThread() throws IOException {
+        // the input is much larger than the window of the match finder
+        for (int length : new int[]{0, 1, 100, 65536, 3 * 1024 * 1024 + 17}) {
+            byte[] data = createData(length);
+            byte[] lzma = lzma(data, 1 << 16, null);
+            assertTrue(Arrays.equals(lzma(data, 1 << 16, WorkerPool::execute), lzma), "length " + length);
+            // the finder task is never started, the encoder finds the matches itself
+            assertTrue(Arrays.equals(lzma(data, 1 << 16, task -> {
+            }), lzma), "length " + length);
+
+            Decoder dec = new Decoder();
+            assertTrue(dec.SetDecoderProperties(Arrays.copyOf(lzma, 5)));
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            assertTrue(dec.Code(new ByteArrayInputStream(lzma, 5, lzma.length - 5), baos, -1));
+            assertTrue(Arrays.equals(baos.toByteArray(), data), "length " + length);
+        }
+    }
+
+    private byte[] save(SWF swf, SWFCompression compression, boolean parallel) throws IOException {
+        Configuration.parallelSpeedUp.set(parallel);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        swf.saveTo(baos, compression);
+        return baos.toByteArray();
+    }
+
+    @Test
+    public void testParallelSave() throws IOException, InterruptedException {
+        SWF swf = new SWF(new FileInputStream("testdata/as3/as3.swf"), false);
+        byte[] zlib = save(swf, SWFCompression.ZLIB, true);
+        byte[] uncompressed = save(swf, SWFCompression.NONE, false);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        assertTrue(SWF.decompress(new ByteArrayInputStream(zlib), baos));
+        assertTrue(Arrays.equals(baos.toByteArray(), uncompressed));
+
+        // the multithreaded match finder gives the same result
+        byte[] lzma = save(swf, SWFCompression.LZMA, false);
+        assertTrue(Arrays.equals(save(swf, SWFCompression.LZMA, true), lzma));
+        SWF swf2 = new SWF(new ByteArrayInputStream(lzma), false);
+        assertEquals(swf2.tags.size(), swf.tags.size());
+    }
+}
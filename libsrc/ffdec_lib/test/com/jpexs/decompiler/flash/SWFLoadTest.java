@@ -0,0 +1,152 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.abc.ScriptPack;
+import com.jpexs.decompiler.flash.exporters.modes.ScriptExportMode;
+import com.jpexs.decompiler.flash.helpers.CodeFormatting;
+import com.jpexs.decompiler.flash.helpers.HighlightedTextWriter;
+import com.jpexs.decompiler.flash.tags.Tag;
+import com.jpexs.helpers.Helper;
+import com.jpexs.helpers.SizedByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class SWFLoadTest {
+
+    /**
+     * Input stream which does not know its length, like a network stream
+     */
+    private static class UnknownLengthInputStream extends FilterInputStream {
+
+        public UnknownLengthInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return 0;
+        }
+    }
+
+    private static class RecordingOutputStream extends SizedByteArrayOutputStream {
+
+        private long expectedSize;
+
+        @Override
+        public synchronized void expectSize(long size) {
+            expectedSize = Math.max(expectedSize, size);
+            super.expectSize(size);
+        }
+    }
+
+    private static byte[] withFileSize(byte[] data, long fileSize) {
+        byte[] result = Arrays.copyOf(data, data.length);
+        for (int i = 0; i < 4; i++) {
+            result[4 + i] = (byte) (fileSize >> (8 * i));
+        }
+        return result;
+    }
+
+    @Test
+    public void testFalseHeaderSize() throws IOException, InterruptedException {
+        byte[] data = Helper.readFile("testdata/as2/as2.swf");
+        SWF swf = new SWF(new ByteArrayInputStream(data), false);
+        byte[] falseData = withFileSize(data, 0x7fff0000L);
+
+        RecordingOutputStream os = new RecordingOutputStream();
+        assertTrue(SWF.decompress(new UnknownLengthInputStream(new ByteArrayInputStream(falseData)), os));
+        assertTrue(os.expectedSize <= 4 * 1024 * 1024, "presized to " + os.expectedSize);
+        assertEquals(os.size(), swf.uncompressedData.length);
+
+        os = new RecordingOutputStream();
+        assertTrue(SWF.decompress(new ByteArrayInputStream(falseData), os));
+        assertTrue(os.expectedSize <= 4 * 1024 * 1024, "presized to " + os.expectedSize);
+
+        SWF falseSwf = new SWF(new UnknownLengthInputStream(new ByteArrayInputStream(falseData)), false);
+        assertEquals(falseSwf.tags.size(), swf.tags.size());
+        assertTrue(Arrays.equals(Arrays.copyOfRange(falseSwf.uncompressedData, 8, falseSwf.uncompressedData.length), Arrays.copyOfRange(swf.uncompressedData, 8, swf.uncompressedData.length)));
+    }
+
+    private static String decompile(SWF swf) throws InterruptedException {
+        StringBuilder sb = new StringBuilder();
+        for (ScriptPack pack : swf.getAS3Packs()) {
+            HighlightedTextWriter writer = new HighlightedTextWriter(new CodeFormatting(), false);
+            pack.toSource(writer, pack.abc.script_info.get(pack.scriptIndex).traits.traits, ScriptExportMode.AS, false);
+            sb.append(writer.toString());
+        }
+        return sb.toString();
+    }
+
+    private static byte[] save(SWF swf) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        swf.saveTo(baos, SWFCompression.NONE);
+        return baos.toByteArray();
+    }
+
+    @Test
+    public void testMemoryMappedLoading() throws IOException, InterruptedException {
+        for (String path : new String[]{"testdata/as2/as2.swf", "testdata/as3/as3.swf"}) {
+            SWF swf = new SWF(new ByteArrayInputStream(Helper.readFile(path)), false);
+            byte[] saved = save(swf);
+            for (SWFCompression compression : new SWFCompression[]{SWFCompression.NONE, SWFCompression.ZLIB, SWFCompression.LZMA}) {
+                File file = File.createTempFile("ffdec_test_", ".swf");
+                try {
+                    try (OutputStream os = new FileOutputStream(file)) {
+                        swf.saveTo(os, compression);
+                    }
+
+                    SWF mappedSwf = new SWF(file, file.getName(), null, false, true);
+                    String message = path + " " + compression;
+                    assertEquals(mappedSwf.compression, compression, message);
+                    assertEquals(mappedSwf.version, swf.version, message);
+                    assertEquals(mappedSwf.frameCount, swf.frameCount, message);
+                    List<Tag> tags = swf.tags;
+                    List<Tag> mappedTags = mappedSwf.tags;
+                    assertEquals(mappedTags.size(), tags.size(), message);
+                    for (int i = 0; i < tags.size(); i++) {
+                        assertEquals(mappedTags.get(i).getClass(), tags.get(i).getClass(), message);
+                        assertTrue(Arrays.equals(mappedTags.get(i).getOriginalData(), tags.get(i).getOriginalData()), message + " tag " + i);
+                    }
+
+                    assertTrue(Arrays.equals(save(mappedSwf), saved), message);
+                    assertTrue(Arrays.equals(mappedSwf.getOriginalUncompressedData(), saved), message);
+                    if (swf.isAS3() && compression == SWFCompression.NONE) {
+                        assertEquals(decompile(mappedSwf), decompile(swf), message);
+                    }
+                } finally {
+                    file.delete();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.tags.DefineSpriteTag;
+import com.jpexs.decompiler.flash.tags.ShowFrameTag;
+import com.jpexs.decompiler.flash.tags.Tag;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class SWFSaveTest {
+
+    private static int countTags(Iterable<Tag> tags) {
+        int count = 0;
+        for (Tag tag : tags) {
+            count++;
+            if (tag instanceof DefineSpriteTag) {
+                count += countTags(((DefineSpriteTag) tag).subTags);
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testIncrementalSave() throws IOException, InterruptedException {
+        SWF swf = new SWF(new FileInputStream("testdata/as2/as2.swf"), false);
+        ByteArrayOutputStream original = new ByteArrayOutputStream();
+        SWF.decompress(new FileInputStream("testdata/as2/as2.swf"), original);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        SaveStatistics statistics = swf.saveTo(baos, SWFCompression.NONE);
+        assertTrue(Arrays.equals(baos.toByteArray(), original.toByteArray()));
+        assertEquals(statistics.getRewrittenTags(), 0);
+        assertEquals(statistics.getReusedTags(), swf.tags.size());
+
+        // modified subtag, only the subtag and its sprite are serialized
+        DefineSpriteTag sprite = null;
+        for (Tag tag : swf.tags) {
+            if (tag instanceof DefineSpriteTag && !((DefineSpriteTag) tag).subTags.isEmpty()) {
+                sprite = (DefineSpriteTag) tag;
+                break;
+            }
+        }
+        assertNotNull(sprite);
+        Tag subTag = null;
+        for (Tag tag : sprite.subTags) {
+            if (tag instanceof ShowFrameTag) {
+                subTag = tag;
+                break;
+            }
+        }
+        assertNotNull(subTag);
+        subTag.setModified(true);
+
+        baos = new ByteArrayOutputStream();
+        statistics = swf.saveTo(baos, SWFCompression.NONE);
+        assertTrue(Arrays.equals(baos.toByteArray(), original.toByteArray()));
+        assertEquals(statistics.getRewrittenTags(), 2);
+        assertEquals(statistics.getReusedTags(), swf.tags.size() - 1 + sprite.subTags.size() - 1);
+        long tagsLength = 0;
+        for (Tag tag : swf.tags) {
+            tagsLength += tag.getOriginalRange().getLength();
+        }
+        assertEquals(statistics.getReusedBytes() + statistics.getRewrittenBytes(), tagsLength);
+
+        // new tag without original data
+        sprite.subTags.add(sprite.subTags.indexOf(subTag), new ShowFrameTag(swf));
+        sprite.frameCount++;
+        baos = new ByteArrayOutputStream();
+        swf.saveTo(baos, SWFCompression.ZLIB);
+        SWF swf2 = new SWF(new ByteArrayInputStream(baos.toByteArray()), false);
+        assertEquals(countTags(swf2.tags), countTags(swf.tags));
+    }
+
+    @Test
+    public void testLzmaSave() throws IOException, InterruptedException {
+        SWF swf = new SWF(new FileInputStream("testdata/as2/as2.swf"), false);
+        ByteArrayOutputStream original = new ByteArrayOutputStream();
+        swf.saveTo(original, SWFCompression.NONE);
+
+        long memoryLimit = SWF.lzmaMemoryLimit;
+        try {
+            for (long limit : new long[]{memoryLimit, 0}) {
+                // limit 0 compresses to a temporary file
+                SWF.lzmaMemoryLimit = limit;
+                for (SWFCompression compression : new SWFCompression[]{SWFCompression.LZMA, SWFCompression.LZMA_ABC}) {
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                    swf.saveTo(baos, compression);
+                    byte[] data = baos.toByteArray();
+                    if (compression == SWFCompression.LZMA) {
+                        int compressedLength = (data[8] & 0xff) | ((data[9] & 0xff) << 8) | ((data[10] & 0xff) << 16) | ((data[11] & 0xff) << 24);
+                        // header, compressed length and LZMA properties
+                        assertEquals(compressedLength, data.length - 17);
+                    }
+
+                    ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+                    assertTrue(SWF.decompress(new ByteArrayInputStream(data), decompressed));
+                    assertTrue(Arrays.equals(decompressed.toByteArray(), original.toByteArray()));
+                }
+            }
+        } finally {
+            SWF.lzmaMemoryLimit = memoryLimit;
+        }
+    }
+}
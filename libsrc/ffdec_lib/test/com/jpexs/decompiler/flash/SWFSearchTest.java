@@ -0,0 +1,141 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.helpers.Helper;
+import com.jpexs.helpers.LargeByteBuffer;
+import com.jpexs.helpers.SwfHeaderStreamSearch;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class SWFSearchTest {
+
+    private byte[] data;
+
+    private long as2Address;
+
+    private long as3Address;
+
+    @BeforeClass
+    public void init() throws IOException {
+        byte[] as2 = Files.readAllBytes(new File("testdata/as2/as2.swf").toPath());
+        byte[] as3 = Files.readAllBytes(new File("testdata/as3/as3.swf").toPath());
+        Random random = new Random(1);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] garbage = new byte[100000];
+        random.nextBytes(garbage);
+        baos.write(garbage);
+        // signatures with invalid headers
+        baos.write(new byte[]{'F', 'W', 'S', 10, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff});
+        baos.write(new byte[]{'C', 'W', 'S', 10, 100, 0, 0, 0, 1, 2});
+        baos.write(new byte[]{'Z', 'W', 'S', 0, 100, 0, 0, 0});
+        as2Address = baos.size();
+        baos.write(as2);
+        random.nextBytes(garbage);
+        baos.write(garbage);
+        as3Address = baos.size();
+        baos.write(as3);
+        // truncated header at the end
+        baos.write(new byte[]{'F', 'W', 'S', 10});
+        data = baos.toByteArray();
+    }
+
+    private List<Long> search(SearchMode searchMode) throws IOException {
+        BinarySWFBundle bundle = new BinarySWFBundle(new ByteArrayInputStream(data), false, searchMode);
+        List<Long> result = new ArrayList<>();
+        for (String key : bundle.getKeys()) {
+            result.add(Long.parseLong(key.substring(1, key.length() - 1)));
+        }
+        result.sort(null);
+        return result;
+    }
+
+    @Test
+    public void testSearchModes() throws IOException {
+        assertEquals(search(SearchMode.ALL), Arrays.asList(as2Address, as3Address));
+        assertEquals(search(SearchMode.FIRST), Arrays.asList(as2Address));
+        assertEquals(search(SearchMode.LAST), Arrays.asList(as3Address));
+        assertEquals(search(SearchMode.BIGGEST), Arrays.asList(as3Address));
+        assertEquals(search(SearchMode.SMALLEST), Arrays.asList(as2Address));
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        File file = File.createTempFile("ffdec_search", ".bin");
+        try {
+            Files.write(file.toPath(), data);
+            BinarySWFBundle bundle = new BinarySWFBundle(file, false, SearchMode.ALL);
+            assertEquals(bundle.length(), 2);
+            byte[] as3 = Files.readAllBytes(new File("testdata/as3/as3.swf").toPath());
+            try (InputStream is = bundle.getSWF("[" + as3Address + "]")) {
+                // the end is not exact, the decompression reads ahead
+                byte[] found = Helper.readStream(is);
+                assertTrue(found.length >= as3.length);
+                assertTrue(Arrays.equals(Arrays.copyOf(found, as3.length), as3));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testStreamedResults() throws IOException {
+        SWFSearch search = new SWFSearch(new SwfHeaderStreamSearch(new ByteArrayInputStream(data)), false, SearchMode.LAST);
+        final List<Long> found = new ArrayList<>();
+        search.addSearchListener((address, stream) -> found.add(address));
+        search.process();
+        assertEquals(found, Arrays.asList(as2Address, as3Address));
+        assertEquals(search.length(), 1);
+    }
+
+    @Test
+    public void testPlausibleHeader() throws IOException {
+        LargeByteBuffer buffer = LargeByteBuffer.wrap(data);
+        assertTrue(SWFSearch.isPlausibleHeader(buffer, as2Address, false));
+        assertTrue(SWFSearch.isPlausibleHeader(buffer, as3Address, false));
+        assertFalse(SWFSearch.isPlausibleHeader(buffer, 100000, false));
+        assertFalse(SWFSearch.isPlausibleHeader(buffer, 100008, false));
+        assertFalse(SWFSearch.isPlausibleHeader(buffer, 100018, false));
+        assertFalse(SWFSearch.isPlausibleHeader(buffer, data.length - 4, true));
+
+        byte[] swf = Files.readAllBytes(new File("testdata/as3/as3.swf").toPath());
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        SWF.decompress(new ByteArrayInputStream(swf), baos);
+        byte[] uncompressed = baos.toByteArray();
+        assertTrue(SWFSearch.isPlausibleHeader(LargeByteBuffer.wrap(uncompressed), 0, false));
+        // truncated file, e.g. in a memory dump
+        assertTrue(SWFSearch.isPlausibleHeader(LargeByteBuffer.wrap(Arrays.copyOf(uncompressed, 1000)), 0, false));
+        assertTrue(SWFSearch.isPlausibleHeader(LargeByteBuffer.wrap(Arrays.copyOf(uncompressed, 1000)), 0, true));
+    }
+}
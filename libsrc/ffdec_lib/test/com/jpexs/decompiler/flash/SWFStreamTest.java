@@ -16,8 +16,14 @@
 package com.jpexs.decompiler.flash;
 
 //import com.jpexs.decompiler.flash.gui.Main;
+import com.jpexs.decompiler.flash.dumpview.DumpInfo;
+import com.jpexs.decompiler.flash.tags.DefineSpriteTag;
+import com.jpexs.decompiler.flash.tags.Tag;
+import com.jpexs.decompiler.flash.tags.TagStub;
 import com.jpexs.decompiler.flash.types.RECT;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
@@ -79,6 +85,28 @@ public class SWFStreamTest {
         }
     }
 
+    @Test
+    public void testUBMixedWidths() throws IOException {
+        int[] widths = new int[]{1, 3, 12, 31, 2, 17, 8, 7, 24, 1};
+        long[] values = new long[]{1, 5, 0xABC, 0x7FFFFFFF, 2, 0x1FFFF, 0x80, 0x55, 0xFFFFFF, 0};
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (SWFOutputStream sos = new SWFOutputStream(baos, SWF.DEFAULT_VERSION)) {
+            for (int i = 0; i < widths.length; i++) {
+                sos.writeUB(widths[i], values[i]);
+            }
+        }
+        for (boolean dump : new boolean[]{false, true}) {
+            try (SWFInputStream sis = new SWFInputStream(null, baos.toByteArray())) {
+                if (dump) {
+                    sis.dumpInfo = new DumpInfo("root", "test", null, 0, 0, 0, 0);
+                }
+                for (int i = 0; i < widths.length; i++) {
+                    assertEquals(sis.readUB(widths[i], "test"), values[i]);
+                }
+            }
+        }
+    }
+
     @Test
     public void testSB() throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -171,4 +199,38 @@ public class SWFStreamTest {
             assertEquals(readRECT.Ymax, 0x3FFFFFFF);
         }
     }
+
+    @Test
+    public void testTagStream() throws IOException, InterruptedException {
+        String file = "testdata/as2/as2.swf";
+        SWF swf;
+        try (FileInputStream fis = new FileInputStream(file)) {
+            swf = new SWF(new BufferedInputStream(fis), false);
+        }
+        try (SWFTagStream stream = SWFTagStream.open(new BufferedInputStream(new FileInputStream(file)))) {
+            assertEquals(stream.getSwf().version, swf.version);
+            assertEquals(stream.getFrameCount(), swf.frameCount);
+            int i = 0;
+            TagStub stub;
+            while ((stub = stream.next()) != null) {
+                Tag tag = swf.tags.get(i++);
+                assertEquals(stub.getId(), tag.getId());
+                assertEquals(stub.getOriginalDataLength(), tag.getOriginalDataLength());
+                if (tag instanceof DefineSpriteTag) {
+                    DefineSpriteTag sprite = (DefineSpriteTag) tag;
+                    SWFTagStream spriteStream = stream.openSprite(stub);
+                    assertEquals(spriteStream.getSpriteId(), sprite.spriteId);
+                    int j = 0;
+                    TagStub subStub;
+                    while ((subStub = spriteStream.next()) != null) {
+                        assertEquals(subStub.getId(), sprite.getSubTags().get(j++).getId());
+                    }
+                    assertEquals(j, sprite.getSubTags().size());
+                } else {
+                    assertEquals(stream.resolve(stub).getClass(), tag.getClass());
+                }
+            }
+            assertEquals(i, swf.tags.size());
+        }
+    }
 }
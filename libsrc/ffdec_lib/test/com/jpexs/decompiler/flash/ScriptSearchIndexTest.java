@@ -0,0 +1,144 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.abc.ScriptPack;
+import com.jpexs.decompiler.flash.abc.ScriptSearchIndex;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class ScriptSearchIndexTest {
+
+    private SWF swf;
+
+    private ScriptSearchIndex index;
+
+    @BeforeClass
+    public void init() throws IOException, InterruptedException {
+        Configuration.autoDeobfuscate.set(false);
+        Configuration.decompile.set(true);
+        Configuration.persistentScriptCache.set(false);
+        swf = new SWF(new BufferedInputStream(new FileInputStream("testdata/as3/as3.swf")), false);
+        index = new ScriptSearchIndex(swf.getAS3Packs(), true);
+        index.waitForBuild(null);
+        assertTrue(index.isBuilt());
+    }
+
+    private List<ScriptPack> searchAll(Pattern pattern) throws InterruptedException {
+        List<ScriptPack> result = new ArrayList<>();
+        for (ScriptPack pack : index.getPacks()) {
+            if (pattern.matcher(SWF.getCached(pack).text).find()) {
+                result.add(pack);
+            }
+        }
+
+        return result;
+    }
+
+    private void check(String text, boolean ignoreCase, boolean regexp) throws InterruptedException {
+        int flags = ignoreCase ? (Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE) : 0;
+        Pattern pattern = Pattern.compile(regexp ? text : Pattern.quote(text), flags);
+        assertEquals(index.search(text, ignoreCase, regexp, false), searchAll(pattern), text);
+    }
+
+    @Test
+    public void testSearch() throws InterruptedException {
+        assertFalse(index.search("testHello", false, false, false).isEmpty());
+        check("testHello", false, false);
+        check("TESTHELLO", true, false);
+        check("TESTHELLO", false, false);
+        check("trace(", false, false);
+        check("ab", false, false);
+        check("var\\s+\\w+:int", false, true);
+        check("test(If|For)", true, true);
+        check("new\\s+Array\\(", false, true);
+        check("nonexistent_identifier", false, false);
+    }
+
+    @Test
+    public void testPCodeSearch() throws InterruptedException {
+        assertFalse(index.search("returnvoid", false, false, true).isEmpty());
+        assertTrue(index.search("nonexistent_identifier", false, false, true).isEmpty());
+    }
+
+    @Test
+    public void testPCodeIndexOfSwf() throws InterruptedException {
+        ScriptSearchIndex plainIndex = swf.getAS3SearchIndex();
+        assertFalse(plainIndex.isIndexPCode());
+
+        // replaced by an index with the P-code, which serves both searches
+        ScriptSearchIndex pcodeIndex = swf.getAS3SearchIndex(true);
+        assertTrue(pcodeIndex.isIndexPCode());
+        assertSame(swf.getAS3SearchIndex(), pcodeIndex);
+        assertEquals(pcodeIndex.search("returnvoid", false, false, true), index.search("returnvoid", false, false, true));
+        swf.resetAS3SearchIndex();
+    }
+
+    @Test
+    public void testLimitedPCodeCache() throws InterruptedException {
+        int scriptCacheMaxSize = Configuration.scriptCacheMaxSize.get();
+        Configuration.scriptCacheMaxSize.set(1);
+        ScriptSearchIndex limitedIndex;
+        try {
+            limitedIndex = new ScriptSearchIndex(swf.getAS3Packs(), true);
+        } finally {
+            Configuration.scriptCacheMaxSize.set(scriptCacheMaxSize);
+        }
+
+        // evicted P-code texts are created again
+        for (String text : new String[]{"returnvoid", "getlocal0", "pushscope"}) {
+            assertEquals(limitedIndex.search(text, false, false, true), index.search(text, false, false, true), text);
+        }
+    }
+
+    @Test
+    public void testInvalidate() throws InterruptedException {
+        List<ScriptPack> found = index.search("testHello", false, false, false);
+        index.invalidate(found.get(0));
+        assertEquals(index.search("testHello", false, false, false), found);
+    }
+
+    @Test
+    public void testRequiredLiterals() {
+        assertEquals(ScriptSearchIndex.getRequiredLiterals("hello"), Arrays.asList("hello"));
+        assertEquals(ScriptSearchIndex.getRequiredLiterals("var\\s+value:int"), Arrays.asList("var", "value:int"));
+        assertEquals(ScriptSearchIndex.getRequiredLiterals("abcd?efg"), Arrays.asList("abc", "efg"));
+        assertEquals(ScriptSearchIndex.getRequiredLiterals("abc|def"), Arrays.asList());
+        assertEquals(ScriptSearchIndex.getRequiredLiterals("(?x)abc def"), Arrays.asList());
+        assertEquals(ScriptSearchIndex.getRequiredLiterals("foo(bar|baz)qux"), Arrays.asList("foo", "qux"));
+        assertEquals(ScriptSearchIndex.getRequiredLiterals("[abc]def\\.ghi"), Arrays.asList("def.ghi"));
+        assertEquals(ScriptSearchIndex.getRequiredLiterals("\\Qa|b*c\\E"), Arrays.asList("a|b*c"));
+        assertEquals(ScriptSearchIndex.getRequiredLiterals("\\x41bcd\\u0041xyz"), Arrays.asList("bcd", "xyz"));
+        assertEquals(ScriptSearchIndex.getRequiredLiterals("ab{2}cdef"), Arrays.asList("cdef"));
+    }
+}
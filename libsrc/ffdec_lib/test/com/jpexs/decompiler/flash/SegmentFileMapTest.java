@@ -0,0 +1,164 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.helpers.SegmentFileMap;
+import com.jpexs.helpers.SerializableImage;
+import java.awt.Point;
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class SegmentFileMapTest {
+
+    @Test
+    public void testSegmentFileMap() throws Exception {
+        SegmentFileMap<String, Object> map = new SegmentFileMap<>("ffdec_test_");
+        assertTrue(map.isEmpty());
+        assertEquals(map.size(), 0);
+        map.put("A", "cat");
+        assertEquals(map.get("A"), "cat");
+        assertNull(map.get("B"));
+        map.put("B", "dog");
+        map.put("C", new Point(3, 4));
+        assertEquals(map.get("B"), "dog");
+        assertEquals(map.get("A"), "cat");
+        assertEquals(map.get("C"), new Point(3, 4));
+        assertEquals(map.size(), 3);
+        map.put("A", "lion");
+        assertEquals(map.get("A"), "lion");
+        assertEquals(map.size(), 3);
+        map.remove("A");
+        assertFalse(map.containsKey("A"));
+        assertTrue(map.containsKey("B"));
+
+        SerializableImage image = new SerializableImage(3, 2, SerializableImage.TYPE_INT_ARGB_PRE);
+        image.setRGB(1, 1, 0xff102030);
+        map.put("image", image);
+        SerializableImage image2 = (SerializableImage) map.get("image");
+        assertEquals(image2.getType(), SerializableImage.TYPE_INT_ARGB_PRE);
+        assertEquals(image2.getWidth(), 3);
+        assertEquals(image2.getHeight(), 2);
+        assertEquals(image2.getRGB(1, 1), 0xff102030);
+        assertEquals(image2.getRGB(0, 0), 0);
+
+        map.delete();
+        try {
+            map.get("B");
+            fail();
+        } catch (IllegalStateException ex) {
+            //okay
+        }
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        SegmentFileMap<Integer, String> map = new SegmentFileMap<>("ffdec_test_", 1024);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append('x');
+        }
+
+        String value = sb.toString();
+        for (int i = 0; i < 100; i++) {
+            map.put(i, value + i);
+        }
+
+        assertTrue(map.getSegmentCount() > 5);
+        for (int i = 0; i < 100; i++) {
+            if (i % 10 != 0) {
+                map.remove(i);
+            }
+        }
+
+        map.compact();
+        assertEquals(map.size(), 10);
+        assertTrue(map.getSegmentCount() <= 2);
+        for (int i = 0; i < 100; i += 10) {
+            assertEquals(map.get(i), value + i);
+        }
+
+        map.delete();
+    }
+
+    @Test
+    public void testSegmentGrowth() throws Exception {
+        SegmentFileMap<Integer, String> map = new SegmentFileMap<>("ffdec_test_");
+        assertEquals(map.getMappedSize(), 0);
+        map.put(1, "value");
+
+        // a small map does not map the whole segment size
+        long initialSize = map.getMappedSize();
+        assertTrue(initialSize > 0 && initialSize < SegmentFileMap.DEFAULT_SEGMENT_SIZE, "mapped " + initialSize);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1024; i++) {
+            sb.append('x');
+        }
+        for (int i = 0; i < 1024; i++) {
+            map.put(i, sb.toString());
+        }
+        assertTrue(map.getMappedSize() > initialSize * 2);
+        assertEquals(map.get(1), sb.toString());
+        map.delete();
+    }
+
+    @Test
+    public void testDeleteSegmentFiles() throws Exception {
+        File dir = Files.createTempDirectory("ffdec_test_segments").toFile();
+        SegmentFileMap<Integer, String> map = new SegmentFileMap<>(dir, "ffdec_test_", 1024);
+        for (int i = 0; i < 100; i++) {
+            map.put(i, "value of " + i + " which fills the segments of the map");
+        }
+
+        assertTrue(dir.list().length > 1);
+        map.delete();
+
+        // the segments are unmapped, so the files can be deleted
+        assertEquals(dir.list().length, 0);
+        assertTrue(dir.delete());
+    }
+
+    @Test(expectedExceptions = UncheckedIOException.class)
+    public void testMissingDirectory() throws Exception {
+        File dir = new File(Files.createTempDirectory("ffdec_test_segments").toFile(), "missing");
+        dir.getParentFile().deleteOnExit();
+        SegmentFileMap<Integer, String> map = new SegmentFileMap<>(dir, "ffdec_test_", 1024);
+        map.put(1, "value");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNotSerializable() throws Exception {
+        SegmentFileMap<Integer, Object> map = new SegmentFileMap<>("ffdec_test_", 1024);
+        try {
+            map.put(1, new Object());
+        } finally {
+            assertFalse(map.containsKey(1));
+            map.delete();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.exporters.SoundExporter;
+import com.jpexs.decompiler.flash.exporters.modes.SoundExportMode;
+import com.jpexs.decompiler.flash.exporters.settings.SoundExportSettings;
+import com.jpexs.decompiler.flash.tags.DefineSoundTag;
+import com.jpexs.decompiler.flash.tags.Tag;
+import com.jpexs.decompiler.flash.types.sound.SoundFormat;
+import com.jpexs.helpers.ByteArrayRange;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class SoundExportTest {
+
+    private final boolean parallelSpeedUp = Configuration.parallelSpeedUp.get();
+
+    @AfterClass
+    public void restore() {
+        Configuration.parallelSpeedUp.set(parallelSpeedUp);
+    }
+
+    private static List<Tag> createSounds(SWF swf) {
+        List<Tag> tags = new ArrayList<>();
+        Random random = new Random(1);
+        for (int format : new int[]{SoundFormat.FORMAT_UNCOMPRESSED_LITTLE_ENDIAN, SoundFormat.FORMAT_ADPCM, SoundFormat.FORMAT_MP3}) {
+            for (boolean stereo : new boolean[]{false, true}) {
+                DefineSoundTag tag = new DefineSoundTag(swf);
+                tag.soundFormat = format;
+                tag.soundRate = 3;
+                tag.soundSize = true;
+                tag.soundType = stereo;
+                byte[] data;
+                if (format == SoundFormat.FORMAT_MP3) {
+                    // 2 bytes of seek samples and silent MPEG-1 Layer III frames, 128 kbps, 44100 Hz
+                    int frameLength = 417;
+                    data = new byte[2 + frameLength * 5];
+                    for (int pos = 2; pos < data.length; pos += frameLength) {
+                        data[pos] = (byte) 0xff;
+                        data[pos + 1] = (byte) 0xfb;
+                        data[pos + 2] = (byte) 0x90;
+                        data[pos + 3] = (byte) (stereo ? 0x00 : 0xc0);
+                    }
+                } else {
+                    data = new byte[10000];
+                    random.nextBytes(data);
+                }
+                tag.soundData = new ByteArrayRange(data);
+                tags.add(tag);
+            }
+        }
+        return tags;
+    }
+
+    private static int readLE(byte[] data, int pos, int size) {
+        int result = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            result = (result << 8) | (data[pos + i] & 0xff);
+        }
+        return result;
+    }
+
+    @Test
+    public void testWavFile() throws IOException {
+        SWF swf = new SWF();
+        SoundExporter exporter = new SoundExporter();
+        File file = File.createTempFile("sound", ".wav");
+        try {
+            for (Tag tag : createSounds(swf)) {
+                DefineSoundTag st = (DefineSoundTag) tag;
+                byte[] expected = exporter.exportSound(st, SoundExportMode.WAV);
+                exporter.exportSound(file, st, SoundExportMode.WAV);
+                byte[] data = Files.readAllBytes(file.toPath());
+                assertTrue(Arrays.equals(data, expected), "format " + st.soundFormat);
+
+                assertEquals(readLE(data, 4, 4), data.length - 8);
+                assertEquals(readLE(data, 40, 4), data.length - 44);
+                // the MP3 frames define the channel count
+                assertEquals(readLE(data, 22, 2), st.soundType ? 2 : 1);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testFailedExport() throws IOException {
+        SWF swf = new SWF();
+        DefineSoundTag st = new DefineSoundTag(swf) {
+            @Override
+            public List<byte[]> getRawSoundData() {
+                // the first block is written before the error
+                return new AbstractList<byte[]>() {
+                    @Override
+                    public byte[] get(int index) {
+                        if (index > 0) {
+                            throw new IllegalStateException("Invalid sound data");
+                        }
+                        return new byte[100];
+                    }
+
+                    @Override
+                    public int size() {
+                        return 2;
+                    }
+                };
+            }
+        };
+        st.soundFormat = SoundFormat.FORMAT_MP3;
+        File dir = Files.createTempDirectory("sound").toFile();
+        try {
+            File file = new File(dir, "sound.mp3");
+            try {
+                new SoundExporter().exportSound(file, st, SoundExportMode.MP3_WAV);
+                fail();
+            } catch (IllegalStateException ex) {
+                // expected
+            }
+
+            assertFalse(file.exists());
+            assertEquals(dir.list().length, 0);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    @Test
+    public void testParallelExport() throws IOException {
+        SWF swf = new SWF();
+        List<Tag> tags = createSounds(swf);
+        File sequentialDir = Files.createTempDirectory("sound").toFile();
+        File parallelDir = Files.createTempDirectory("sound").toFile();
+        try {
+            for (SoundExportMode mode : new SoundExportMode[]{SoundExportMode.WAV, SoundExportMode.MP3_WAV_FLV}) {
+                Configuration.parallelSpeedUp.set(false);
+                List<File> sequentialFiles = export(tags, new File(sequentialDir, mode.name()), mode);
+                Configuration.parallelSpeedUp.set(true);
+                List<File> parallelFiles = export(tags, new File(parallelDir, mode.name()), mode);
+
+                assertEquals(parallelFiles.size(), tags.size());
+                assertEquals(parallelFiles.size(), sequentialFiles.size());
+                for (int i = 0; i < sequentialFiles.size(); i++) {
+                    assertEquals(parallelFiles.get(i).getName(), sequentialFiles.get(i).getName());
+                    assertTrue(Arrays.equals(Files.readAllBytes(parallelFiles.get(i).toPath()), Files.readAllBytes(sequentialFiles.get(i).toPath())), parallelFiles.get(i).getName());
+                }
+            }
+        } finally {
+            delete(sequentialDir);
+            delete(parallelDir);
+        }
+    }
+
+    private static List<File> export(List<Tag> tags, File dir, SoundExportMode mode) throws IOException {
+        AbortRetryIgnoreHandler handler = new AbortRetryIgnoreHandler() {
+            @Override
+            public int handle(Throwable thrown) {
+                return AbortRetryIgnoreHandler.ABORT;
+            }
+
+            @Override
+            public AbortRetryIgnoreHandler getNewInstance() {
+                return this;
+            }
+        };
+        return new SoundExporter().exportSounds(handler, dir.getAbsolutePath(), tags, new SoundExportSettings(mode), null);
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+}
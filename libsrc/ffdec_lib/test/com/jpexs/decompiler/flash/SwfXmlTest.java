@@ -0,0 +1,140 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.exporters.swf.SwfXmlExporter;
+import com.jpexs.decompiler.flash.importers.SwfXmlImporter;
+import com.jpexs.decompiler.flash.tags.DefineFontNameTag;
+import com.jpexs.decompiler.flash.tags.DefineSpriteTag;
+import com.jpexs.decompiler.flash.tags.Tag;
+import com.jpexs.decompiler.flash.types.RGB;
+import com.jpexs.helpers.SimpleXMLStreamWriter;
+import com.jpexs.helpers.SwfFieldAccessor;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLStreamWriter;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class SwfXmlTest {
+
+    @BeforeClass
+    public void init() {
+        Configuration.autoDeobfuscate.set(false);
+    }
+
+    @DataProvider(name = "provideFiles")
+    public Object[][] provideFiles() {
+        return new Object[][]{{"testdata/as2/as2.swf"}, {"testdata/as3/as3.swf"}};
+    }
+
+    @Test
+    public void testAttributeEscaping() throws Exception {
+        StringWriter sw = new StringWriter();
+        XMLStreamWriter writer = new SimpleXMLStreamWriter(sw);
+        writer.writeStartElement("a");
+        writer.writeAttribute("x", "<\"&\r\n\t>");
+        writer.writeCharacters("<&\r\n\t>");
+        writer.writeEmptyElement("b");
+        writer.writeStartElement("c");
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.close();
+        assertEquals(sw.toString(), "<a x=\"&lt;&quot;&amp;&#13;&#10;&#9;&gt;\">&lt;&amp;&#13;\n\t&gt;<b/><c/></a>");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testSetNullToPrimitiveField() {
+        SwfFieldAccessor.getAccessor(RGB.class, "red").set(new RGB(), null);
+    }
+
+    @Test(dataProvider = "provideFiles")
+    public void testRoundTrip(String filePath) throws Exception {
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream(filePath)), false);
+        File inlineFile = File.createTempFile("swf", ".xml");
+        File binaryXmlFile = File.createTempFile("swf", ".xml");
+        List<File> files = new ArrayList<>();
+        try {
+            files.addAll(new SwfXmlExporter().exportXml(swf, inlineFile));
+            files.addAll(new SwfXmlExporter().exportXml(swf, binaryXmlFile, true));
+            File binaryFile = new File(binaryXmlFile.getPath() + SwfXmlExporter.BINARY_FILE_EXTENSION);
+            assertTrue(files.contains(binaryFile));
+            assertTrue(binaryFile.length() > 0);
+            assertTrue(binaryXmlFile.length() < inlineFile.length());
+
+            SWF inlineSwf = new SWF();
+            new SwfXmlImporter().importSwf(inlineSwf, inlineFile);
+            SWF binarySwf = new SWF();
+            new SwfXmlImporter().importSwf(binarySwf, binaryXmlFile);
+
+            assertEquals(inlineSwf.tags.size(), swf.tags.size());
+            for (int i = 0; i < swf.tags.size(); i++) {
+                Tag tag = swf.tags.get(i);
+                assertEquals(inlineSwf.tags.get(i).getClass(), tag.getClass());
+                assertEquals(inlineSwf.tags.get(i).forceWriteAsLong, tag.forceWriteAsLong);
+                if (tag instanceof DefineFontNameTag) {
+                    // the copyright contains line breaks
+                    assertEquals(((DefineFontNameTag) inlineSwf.tags.get(i)).fontCopyright, ((DefineFontNameTag) tag).fontCopyright);
+                }
+            }
+
+            byte[] inlineData = save(inlineSwf);
+            assertFalse(inlineData.length == 0);
+            assertEquals(save(binarySwf), inlineData);
+
+            // the imported SWF is the same as the original file with all the
+            // tags written again, the tag writers do not always reproduce the
+            // original bytes (e.g. the bit counts of shapes and texts)
+            for (Tag tag : swf.tags) {
+                tag.setModified(true);
+                if (tag instanceof DefineSpriteTag) {
+                    for (Tag subTag : ((DefineSpriteTag) tag).subTags) {
+                        subTag.setModified(true);
+                    }
+                }
+            }
+
+            assertEquals(inlineData, save(swf));
+        } finally {
+            for (File f : files) {
+                f.delete();
+            }
+            inlineFile.delete();
+            binaryXmlFile.delete();
+        }
+    }
+
+    private static byte[] save(SWF swf) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        swf.saveTo(baos, SWFCompression.NONE);
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.helpers.CancellableWorker;
+import com.jpexs.helpers.WorkerPool;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class WorkerPoolTest {
+
+    @AfterMethod
+    public void restore() {
+        WorkerPool.setParallelism(0);
+    }
+
+    private static Callable<Integer> createSumTask(final int depth, final Set<Thread> threads) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                threads.add(Thread.currentThread());
+                if (depth == 0) {
+                    return 1;
+                }
+
+                List<Future<Integer>> futures = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    futures.add(WorkerPool.submit(createSumTask(depth - 1, threads)));
+                }
+
+                int sum = 0;
+                for (Future<Integer> future : futures) {
+                    sum += WorkerPool.get(future);
+                }
+
+                return sum;
+            }
+        };
+    }
+
+    @Test(timeOut = 60000)
+    public void testNestedSubmit() throws Exception {
+        for (int parallelism : new int[]{1, 2}) {
+            WorkerPool.setParallelism(parallelism);
+            Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+            Future<Integer> future = WorkerPool.submit(createSumTask(4, threads));
+            assertEquals((int) WorkerPool.get(future), 4 * 4 * 4 * 4);
+            assertTrue(threads.size() <= parallelism, threads.size() + " threads used for parallelism " + parallelism);
+        }
+    }
+
+    @Test(timeOut = 60000)
+    public void testCancellation() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        Future<Void> future = WorkerPool.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                started.countDown();
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException ex) {
+                    interrupted.countDown();
+                }
+                return null;
+            }
+        });
+
+        started.await();
+        future.cancel(true);
+        assertTrue(future.isCancelled());
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+
+        // the pool thread is reused without the interrupt flag
+        assertEquals(WorkerPool.get(WorkerPool.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return Thread.currentThread().isInterrupted();
+            }
+        })), Boolean.FALSE);
+    }
+
+    private static Callable<Void> createSleepTask(final long millis, final CountDownLatch interrupted) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException ex) {
+                    interrupted.countDown();
+                    throw ex;
+                }
+                return null;
+            }
+        };
+    }
+
+    @Test(timeOut = 60000)
+    public void testTimeout() throws Exception {
+        // from a normal thread and from a pool thread
+        for (boolean inPool : new boolean[]{false, true}) {
+            final CountDownLatch interrupted = new CountDownLatch(1);
+            Callable<Boolean> callTask = new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    try {
+                        CancellableWorker.call(createSleepTask(60000, interrupted), 100, TimeUnit.MILLISECONDS);
+                        return false;
+                    } catch (TimeoutException ex) {
+                        return !Thread.currentThread().isInterrupted();
+                    }
+                }
+            };
+
+            boolean timedOut = inPool ? WorkerPool.get(WorkerPool.submit(callTask)) : callTask.call();
+            assertTrue(timedOut, inPool ? "pool thread" : "normal thread");
+            assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test(timeOut = 60000)
+    public void testTimeoutStartsWithTask() throws Exception {
+        WorkerPool.setParallelism(1);
+        final CountDownLatch blocking = new CountDownLatch(1);
+        Future<Void> blocker = WorkerPool.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                blocking.countDown();
+                Thread.sleep(1000);
+                return null;
+            }
+        });
+        blocking.await();
+
+        // waits in the queue up to the timeout, but runs shorter
+        try {
+            WorkerPool.call(createSleepTask(10, new CountDownLatch(1)), 500, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            fail("Time spent in the queue counted to the timeout");
+        }
+
+        WorkerPool.get(blocker);
+    }
+
+    @Test(timeOut = 60000)
+    public void testSaturatedPool() throws Exception {
+        WorkerPool.setParallelism(1);
+        final CountDownLatch blocking = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Future<Void> blocker = WorkerPool.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                blocking.countDown();
+                release.await();
+                return null;
+            }
+        });
+        blocking.await();
+
+        try {
+            // the pool thread does not get free, the task runs on this thread
+            Thread thread = WorkerPool.call(new Callable<Thread>() {
+                @Override
+                public Thread call() throws Exception {
+                    return Thread.currentThread();
+                }
+            }, 200, TimeUnit.MILLISECONDS);
+            assertEquals(thread, Thread.currentThread());
+
+            // workers have their own threads
+            CancellableWorker<Boolean> worker = new CancellableWorker<Boolean>() {
+                @Override
+                protected Boolean doInBackground() throws Exception {
+                    return true;
+                }
+            };
+            worker.execute();
+            assertEquals(worker.get(10, TimeUnit.SECONDS), Boolean.TRUE);
+        } finally {
+            release.countDown();
+        }
+
+        WorkerPool.get(blocker);
+    }
+
+    @Test(timeOut = 60000, expectedExceptions = ExecutionException.class)
+    public void testException() throws Exception {
+        WorkerPool.get(WorkerPool.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                throw new IllegalStateException();
+            }
+        }));
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.xfl.FLAVersion;
+import com.jpexs.decompiler.flash.xfl.XFLConverter;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class XFLConverterTest {
+
+    @BeforeClass
+    public void init() {
+        Configuration.autoDeobfuscate.set(false);
+    }
+
+    @Test
+    public void testWriteXml() throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        XFLConverter.writeXml("<a x=\"1\"><b/><c>text</c><script><![CDATA[if (a < b) {}]]></script></a>", baos);
+        String xml = new String(baos.toByteArray(), StandardCharsets.UTF_8);
+        assertEquals(xml, "<a x=\"1\">\n"
+                + "     <b/>\n"
+                + "     <c>text</c>\n"
+                + "     <script><![CDATA[if (a < b) {}]]></script>\n"
+                + "</a>");
+    }
+
+    @DataProvider(name = "swfFiles")
+    public static Object[][] provideSwfFiles() {
+        // as3.swf has a DefineBitsJPEG3 and a DefineBitsLossless2 bitmap
+        return new Object[][]{{"testdata/as2/as2.swf"}, {"testdata/as3/as3.swf"}};
+    }
+
+    @Test(dataProvider = "swfFiles")
+    public void testParallelConversion(String fileName) throws Exception {
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream(fileName)), false);
+        File sequentialDir = Files.createTempDirectory("xfl").toFile();
+        File parallelDir = Files.createTempDirectory("xfl").toFile();
+        try {
+            convert(swf, sequentialDir, false);
+            convert(swf, parallelDir, true);
+
+            List<String> sequentialFiles = listFiles(sequentialDir, "");
+            List<String> parallelFiles = listFiles(parallelDir, "");
+            assertTrue(sequentialFiles.contains("DOMDocument.xml"));
+            assertEquals(normalize(parallelFiles.toString()), normalize(sequentialFiles.toString()));
+            int bitmapCount = 0;
+            for (String file : sequentialFiles) {
+                if (file.endsWith(".xml")) {
+                    assertEquals(normalize(readText(new File(parallelDir, file))), normalize(readText(new File(sequentialDir, file))), file);
+                } else if (file.startsWith("LIBRARY/")) {
+                    if (file.endsWith(".png") || file.endsWith(".jpg")) {
+                        bitmapCount++;
+                    }
+                    byte[] sequentialData = Files.readAllBytes(new File(sequentialDir, file).toPath());
+                    byte[] parallelData = Files.readAllBytes(new File(parallelDir, file).toPath());
+                    assertTrue(Arrays.equals(parallelData, sequentialData), file);
+                }
+            }
+            if (fileName.endsWith("as3.swf")) {
+                assertEquals(bitmapCount, 2);
+            }
+        } finally {
+            delete(sequentialDir);
+            delete(parallelDir);
+        }
+    }
+
+    private static void convert(SWF swf, File dir, boolean parallel) throws IOException {
+        AbortRetryIgnoreHandler handler = new AbortRetryIgnoreHandler() {
+            @Override
+            public int handle(Throwable thrown) {
+                return AbortRetryIgnoreHandler.ABORT;
+            }
+
+            @Override
+            public AbortRetryIgnoreHandler getNewInstance() {
+                return this;
+            }
+        };
+        XFLConverter.convertSWF(handler, swf, "as2.swf", new File(dir, "as2.fla").getAbsolutePath(), false, "test", "test", "1", parallel, FLAVersion.CS6);
+    }
+
+    private static List<String> listFiles(File dir, String prefix) {
+        List<String> result = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.isDirectory()) {
+                    result.addAll(listFiles(f, prefix + f.getName() + "/"));
+                } else {
+                    result.add(prefix + f.getName());
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    private static String readText(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Removes the timestamps, they differ between the conversions
+     */
+    private static String normalize(String text) {
+        return text.replaceAll("(lastModified|sourceLastImported)=\"[0-9]+\"", "$1=\"\"")
+                .replaceAll(" [0-9]+\\.dat", " .dat");
+    }
+}
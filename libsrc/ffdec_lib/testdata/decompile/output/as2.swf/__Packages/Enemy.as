@@ -0,0 +1,33 @@
+class Enemy implements Moving
+{
+   var tst = 5;
+   static var stat_tst = 6;
+   function Enemy(px)
+   {
+      var _loc2_ = 57;
+      _loc2_ = _loc2_ * 27;
+      var _loc3_ = _loc2_;
+      this.x = px + _loc3_;
+   }
+   function moveLeft(lx)
+   {
+      this.x = this.x - lx;
+      this.tst = 7;
+      trace("moveLeft = " + this.x);
+   }
+   function moveRight(rx)
+   {
+      this.x = this.x + rx;
+      trace("moveRight = " + this.x);
+   }
+   function moveUp(uy)
+   {
+   }
+   function moveDown(dy)
+   {
+   }
+   static function sfunc()
+   {
+      trace("hu");
+   }
+}
@@ -0,0 +1,3 @@
+interface Moving2
+{
+}
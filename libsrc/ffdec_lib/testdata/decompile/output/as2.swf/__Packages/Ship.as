@@ -0,0 +1,27 @@
+class Ship implements Moving
+{
+   var d = 5;
+   function Ship(py)
+   {
+      this.y = py;
+   }
+   function moveUp(uy)
+   {
+      this.y = this.y * uy;
+      trace("moveUp = " + this.y);
+   }
+   function moveDown(dy)
+   {
+      this.y = this.y * dy;
+      trace("moveDown = " + this.y);
+   }
+   function moveLeft(lx)
+   {
+      this.b = 6;
+   }
+   function moveRight(rx)
+   {
+      trace(this.a);
+      trace(this.d);
+   }
+}
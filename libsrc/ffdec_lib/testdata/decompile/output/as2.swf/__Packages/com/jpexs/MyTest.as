@@ -0,0 +1,18 @@
+class com.jpexs.MyTest
+{
+   var i = 5;
+   static var k = 27;
+   function MyTest()
+   {
+   }
+   function test()
+   {
+      trace("hello");
+      return 5;
+   }
+   static function testS()
+   {
+      trace("hi");
+      return 88;
+   }
+}
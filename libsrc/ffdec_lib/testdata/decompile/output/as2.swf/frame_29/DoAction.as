@@ -0,0 +1,10 @@
+trace("doWhileTest");
+var i = 0;
+do
+{
+   trace("i=" + i);
+   i++;
+}
+while(i < 10);
+
+trace("end");
@@ -0,0 +1,20 @@
+trace("switchTest");
+var i = 5;
+switch(i)
+{
+   case 0:
+   case 1:
+      trace("one");
+      break;
+   case 2:
+      trace("two");
+   case 3:
+      trace("three");
+      break;
+   case 4:
+      trace("four");
+      break;
+   default:
+      trace("default clause");
+}
+trace("scriptend");
@@ -0,0 +1,11 @@
+trace("multipleConditions2Test");
+var k = 5;
+if(k == 7 && k == 8)
+{
+   trace("first");
+}
+if(k == 9 || k == 6)
+{
+   trace("second");
+}
+trace("finish");
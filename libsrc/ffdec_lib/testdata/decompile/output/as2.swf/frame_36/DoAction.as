@@ -0,0 +1,6 @@
+trace("chainedAssignmentsTest");
+var a = 7;
+var b = 8;
+var c = 9;
+var d = c = b = a = 10;
+trace(d);
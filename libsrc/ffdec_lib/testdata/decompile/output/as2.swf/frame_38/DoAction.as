@@ -0,0 +1,16 @@
+trace("doWhile2Test");
+var k = 5;
+do
+{
+   k++;
+   if(k == 7)
+   {
+      k = 5 * k;
+   }
+   else
+   {
+      k = 5 + k;
+   }
+}
+while(k < 9);
+
@@ -0,0 +1,10 @@
+trace("whileAndTest");
+var a = 5;
+var b = 10;
+while(a < 10 && b > 1)
+{
+   a++;
+   b--;
+}
+a = 7;
+b = 9;
@@ -0,0 +1,4 @@
+trace("indicesTest");
+var k = [1,2,3];
+var b = k[1];
+trace(b);
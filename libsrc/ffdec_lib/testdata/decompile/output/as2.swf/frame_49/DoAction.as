@@ -0,0 +1,8 @@
+function tst(px)
+{
+   var _loc1_ = 57;
+   _loc1_ = _loc1_ * 27;
+}
+trace("registersFuncTest");
+tst(5);
+var s = String(5);
@@ -0,0 +1,17 @@
+trace("commaOperatorTest");
+var a = 0;
+var b = 0;
+var c = 0;
+while(true)
+{
+   a++;
+   b = b + 2;
+   if(c < 10)
+   {
+      trace(c);
+      c++;
+      continue;
+   }
+   break;
+}
+trace("konec");
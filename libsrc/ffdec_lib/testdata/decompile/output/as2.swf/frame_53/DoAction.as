@@ -0,0 +1,19 @@
+trace("commaOperator2Test");
+var k = 8;
+do
+{
+   if(k == 9)
+   {
+      trace("h");
+      if(k == 9)
+      {
+         trace("f");
+         continue;
+      }
+      trace("b");
+   }
+   trace("gg");
+}
+while(k++, k < 10);
+
+trace("ss");
@@ -0,0 +1 @@
+trace("pushTest");
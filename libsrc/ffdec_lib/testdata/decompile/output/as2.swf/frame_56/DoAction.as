@@ -0,0 +1,14 @@
+trace("commaOperator3Test");
+var k = 1;
+while(true)
+{
+   k++;
+   if(k < 10)
+   {
+      k = k * 5;
+      trace(k);
+      continue;
+   }
+   break;
+}
+trace("end");
@@ -0,0 +1,20 @@
+trace("commaOperator4Test");
+var k = 0;
+do
+{
+   trace(k);
+   if(k == 8)
+   {
+      trace("a");
+      if(k == 9)
+      {
+         continue;
+      }
+      trace("d");
+      trace("b");
+   }
+   k++;
+}
+while(k = k + 5, k < 20);
+
+trace("end");
@@ -0,0 +1,1023 @@
+package classes
+{
+   import flash.utils.Dictionary;
+   import flash.errors.EOFError;
+   import flash.events.Event;
+   
+   public class Test extends Object
+   {
+      
+      private namespace n = "nazdar";
+      
+      public static const p:int = 8;
+      
+      private static var counter:int;
+      
+      private var testPriv:int = 5;
+      
+      protected var testProt:int = 9;
+      
+      public var t3:TestClass3;
+      
+      public function Test()
+      {
+         super();
+      }
+      
+      public function testHello() : *
+      {
+         trace("hello");
+      }
+      
+      public function testIncDec() : *
+      {
+         var a:* = 5;
+         var b:* = 0;
+         trace("++var");
+         b = ++a;
+         trace("var++");
+         b = a++;
+         trace("--var");
+         b = --a;
+         trace("var--");
+         b = a--;
+         var c:* = [1,2,3,4,5];
+         trace("++arr");
+         b = ++c[2];
+         trace("arr++");
+         b = c[2]++;
+         trace("--arr");
+         b = --c[2];
+         trace("arr--");
+         b = c[2]--;
+         var d:* = new TestClass1();
+         trace("++property");
+         trace(++d.attrib);
+         trace("property++");
+         trace(d.attrib++);
+         trace("--property");
+         trace(--d.attrib);
+         trace("property--");
+         trace(d.attrib--);
+         trace("arr[e++]");
+         var chars:Array = new Array(36);
+         var index:uint = 0;
+         chars[index++] = 5;
+         trace("arr[++e]");
+         chars[++index] = 5;
+      }
+      
+      public function testDoWhile() : *
+      {
+         var a:* = 8;
+         do
+         {
+            trace("a=" + a);
+            a++;
+         }
+         while(a < 20);
+         
+      }
+      
+      public function testInnerTry() : *
+      {
+         try
+         {
+            try
+            {
+               trace("try body 1");
+            }
+            catch(e:DefinitionError)
+            {
+               trace("catched DefinitionError");
+            }
+            trace("after try 1");
+         }
+         catch(e:Error)
+         {
+            trace("catched Error");
+         }
+         finally
+         {
+            trace("finally block");
+         }
+      }
+      
+      public function testWhileContinue() : *
+      {
+         var a:* = 5;
+         while(true)
+         {
+            if(a == 9)
+            {
+               if(a == 8)
+               {
+                  continue;
+               }
+               if(a == 9)
+               {
+                  break;
+               }
+               trace("hello 1");
+            }
+            trace("hello2");
+         }
+      }
+      
+      public function testPrecedence() : *
+      {
+         var a:* = 0;
+         a = (5 + 6) * 7;
+         a = 5 * (2 + 3);
+         a = 5 + 6 * 7;
+         a = 5 * 2 + 2;
+         a = 5 * (25 % 3);
+         a = 5 % (24 * 307);
+         a = 1 / (2 / 3);
+         a = 1 / (2 * 3);
+         a = 1 * 2 * 3;
+         a = 1 * 2 / 3;
+         trace("a=" + a);
+      }
+      
+      public function testStrings() : *
+      {
+         trace("hello");
+         trace("quotes:\"hello!\"");
+         trace("backslash: \\ ");
+         trace("single quotes: \'hello!\'");
+         trace("new line \r\n hello!");
+      }
+      
+      public function testContinueLevels() : *
+      {
+         var b:* = undefined;
+         var c:* = undefined;
+         var d:* = undefined;
+         var e:* = undefined;
+         var a:* = 5;
+         loop3:
+         switch(a)
+         {
+            case 57 * a:
+               trace("fiftyseven multiply a");
+               b = 0;
+               while(b < 50)
+               {
+                  if(b == 10)
+                  {
+                     break;
+                  }
+                  if(b == 15)
+                  {
+                     break loop3;
+                  }
+                  b = b + 1;
+               }
+               break;
+            case 13:
+               trace("thirteen");
+            case 14:
+               trace("fourteen");
+               break;
+            case 89:
+               trace("eightynine");
+               break;
+            default:
+               trace("default clause");
+         }
+         loop1:
+         for(c = 0; c < 8; c = c + 1)
+         {
+            for(d = 0; d < 25; d++)
+            {
+               e = 0;
+               if(e < 50)
+               {
+                  if(e == 9)
+                  {
+                     break;
+                  }
+                  if(e == 20)
+                  {
+                     continue loop1;
+                  }
+                  if(e != 8)
+                  {
+                     break loop1;
+                  }
+               }
+            }
+            trace("hello");
+         }
+      }
+      
+      public function testSwitchDefault() : *
+      {
+         var a:* = 5;
+         switch(a)
+         {
+            case 57 * a:
+               trace("fiftyseven multiply a");
+               break;
+            case 13:
+               trace("thirteen");
+            case 14:
+               trace("fourteen");
+               break;
+            case 89:
+               trace("eightynine");
+               break;
+            default:
+               trace("default clause");
+         }
+      }
+      
+      public function testMultipleCondition() : *
+      {
+         var a:* = 5;
+         var b:* = 8;
+         var c:* = 9;
+         if((a <= 4 || b <= 8) && c == 7)
+         {
+            trace("onTrue");
+         }
+         else
+         {
+            trace("onFalse");
+         }
+      }
+      
+      public function testForBreak() : *
+      {
+         for(var a:* = 0; a < 10; a++)
+         {
+            if(a == 5)
+            {
+               break;
+            }
+            trace("hello:" + a);
+         }
+      }
+      
+      public function testIf() : *
+      {
+         var a:* = 5;
+         if(a == 7)
+         {
+            trace("onTrue");
+         }
+      }
+      
+      public function testIfElse() : *
+      {
+         var a:* = 5;
+         if(a == 7)
+         {
+            trace("onTrue");
+         }
+         else
+         {
+            trace("onFalse");
+         }
+      }
+      
+      public function testFor() : *
+      {
+         for(var a:* = 0; a < 10; a++)
+         {
+            trace("a=" + a);
+         }
+      }
+      
+      public function testForContinue() : *
+      {
+         for(var a:* = 0; a < 10; a = a + 1)
+         {
+            if(a == 9)
+            {
+               if(a == 5)
+               {
+                  trace("part1");
+                  continue;
+               }
+               trace("a=" + a);
+               if(a == 7)
+               {
+                  trace("part2");
+                  continue;
+               }
+               trace("part3");
+            }
+            else
+            {
+               trace("part4");
+            }
+            trace("part5");
+         }
+      }
+      
+      public function testTry() : *
+      {
+         var i:int = 0;
+         i = 7;
+         try
+         {
+            trace("try body");
+         }
+         catch(e:DefinitionError)
+         {
+            trace("catched DefinitionError");
+         }
+         catch(e:Error)
+         {
+            trace("Error message:" + e.message);
+            trace("Stacktrace:" + e.getStackTrace());
+         }
+         finally
+         {
+            trace("Finally part");
+         }
+         trace("end");
+      }
+      
+      public function testSwitch() : *
+      {
+         var a:* = 5;
+         switch(a)
+         {
+            case 57 * a:
+               trace("fiftyseven multiply a");
+               break;
+            case 13:
+               trace("thirteen");
+            case 14:
+               trace("fourteen");
+               break;
+            case 89:
+               trace("eightynine");
+               break;
+         }
+      }
+      
+      public function testTernarOperator() : *
+      {
+         var a:* = 5;
+         var b:* = 4;
+         var c:* = 4;
+         var d:* = 78;
+         var e:* = a == b?c == d?1:7:3;
+         trace("e=" + e);
+      }
+      
+      public function testInnerIf() : *
+      {
+         var a:* = 5;
+         var b:* = 4;
+         if(a == 5)
+         {
+            if(b == 6)
+            {
+               trace("b==6");
+            }
+            else
+            {
+               trace("b!=6");
+            }
+         }
+         else if(b == 7)
+         {
+            trace("b==7");
+         }
+         else
+         {
+            trace("b!=7");
+         }
+         
+         trace("end");
+      }
+      
+      public function testVector() : *
+      {
+         var v:Vector.<String> = new Vector.<String>();
+         v.push("hello");
+         v[0] = "hi";
+         v[5 * 8 - 39] = "hi2";
+         trace(v[0]);
+      }
+      
+      public function testProperty() : *
+      {
+         var d:* = new TestClass1();
+         var k:* = 7 + 8;
+         if(k == 15)
+         {
+            d.method(d.attrib * 5);
+         }
+      }
+      
+      public function testRest(firstp:int, ... restval) : int
+      {
+         trace("firstRest:" + restval[0]);
+         return firstp;
+      }
+      
+      public function testParamNames(firstp:int, secondp:int, thirdp:int) : int
+      {
+         return firstp + secondp + thirdp;
+      }
+      
+      public function testForEach() : *
+      {
+         var list:Array = null;
+         var item:* = undefined;
+         list = new Array();
+         list[0] = "first";
+         list[1] = "second";
+         list[2] = "third";
+         for each(item in list)
+         {
+            trace("item #" + item);
+         }
+      }
+      
+      public function testForEachObjectArray() : *
+      {
+         var list:Array = null;
+         var test:Array = null;
+         list = new Array();
+         list[0] = "first";
+         list[1] = "second";
+         list[2] = "third";
+         test = new Array();
+         test[0] = 0;
+         for each(test[0] in list)
+         {
+            trace("item #" + test[0]);
+         }
+      }
+      
+      public function testForEachObjectAttribute() : *
+      {
+         var list:Array = null;
+         list = new Array();
+         list[0] = "first";
+         list[1] = "second";
+         list[2] = "third";
+         for each(this.testPriv in list)
+         {
+            trace("item #" + this.testPriv);
+         }
+      }
+      
+      public function testParamsCount(firstp:int, secondp:int, thirdp:int) : int
+      {
+         return firstp;
+      }
+      
+      public function testInlineFunctions() : *
+      {
+         var first:String = null;
+         first = "value1";
+         var traceParameter:Function = function(aParam:String):String
+         {
+            var second:String = null;
+            second = "value2";
+            second = second + "cc";
+            var traceParam2:Function = function(bParam:String):String
+            {
+               trace(bParam + "," + aParam);
+               return first + second + aParam + bParam;
+            };
+            trace(second);
+            traceParam2(aParam);
+            return first;
+         };
+         traceParameter("hello");
+      }
+      
+      public function testMissingDefault() : *
+      {
+         var jj:* = 1;
+         switch(jj)
+         {
+            case 1:
+               jj = 1;
+               break;
+            case 2:
+               jj = 2;
+               break;
+            default:
+               jj = 3;
+         }
+      }
+      
+      private function traceIt(s:String) : *
+      {
+         trace(s);
+      }
+      
+      private function getCounter() : int
+      {
+         counter++;
+         return counter;
+      }
+      
+      public function testChainedAssignments() : *
+      {
+         var a:* = 0;
+         var b:* = 0;
+         var c:* = 0;
+         var d:* = 0;
+         d = c = b = a = 5;
+         var e:TestClass2 = TestClass2.createMe("test");
+         e.attrib1 = e.attrib2 = e.attrib3 = this.getCounter();
+         this.traceIt(e.toString());
+      }
+      
+      private function testFinallyZeroJump(param1:String) : String
+      {
+         var str:String = param1;
+         try
+         {
+         }
+         catch(e:Error)
+         {
+            trace("error is :" + e.message);
+         }
+         finally
+         {
+            trace("hi ");
+            if(5 == 4)
+            {
+               return str;
+            }
+            return "hu" + str;
+         }
+      }
+      
+      public function testInnerFunctions(a:String) : *
+      {
+         var s:int = 0;
+         var innerFunc:Function = function(b:String):*
+         {
+            trace(b);
+         };
+         var k:int = 5;
+         if(k == 6)
+         {
+            s = 8;
+         }
+         innerFunc(a);
+      }
+      
+      public function testDeclarations() : *
+      {
+         var vall:* = undefined;
+         var vstr:String = null;
+         var vint:* = 0;
+         var vuint:uint = 0;
+         var vclass:TestClass1 = null;
+         var vnumber:* = NaN;
+         var vobject:Object = null;
+         vall = 6;
+         vstr = "hello";
+         vuint = 7;
+         vint = -4;
+         vclass = new TestClass1();
+         vnumber = 0.5;
+         vnumber = 6;
+         vobject = vclass;
+      }
+      
+      public function testForIn() : *
+      {
+         var dic:Dictionary = null;
+         var item:Object = null;
+         for(item in dic)
+         {
+            trace(item);
+         }
+         for each(item in dic)
+         {
+            trace(item);
+         }
+      }
+      
+      myInternal function namespacedFunc() : *
+      {
+         trace("hello");
+      }
+      
+      function unnamespacedFunc() : *
+      {
+         trace("hello2");
+      }
+      
+      function getNamespace() : Namespace
+      {
+         return myInternal;
+      }
+      
+      function getName() : String
+      {
+         return "unnamespacedFunc";
+      }
+      
+      function testNames() : *
+      {
+         var ns:* = this.getNamespace();
+         var name:* = this.getName();
+         var a:* = ns::unnamespacedFunc();
+         var b:* = ns::[name];
+         trace(b.c);
+         var c:* = myInternal::neco;
+      }
+      
+      function testComplexExpressions() : *
+      {
+         var i:* = 0;
+         var j:* = 0;
+         j = i = i + (i = i + i++);
+      }
+      
+      function testExpressions() : *
+      {
+         var arr:Array = null;
+         var i:* = 5;
+         var j:* = 5;
+         if((i = i = i / 2) == 1 || i == 2)
+         {
+            arguments.concat(i);
+         }
+         else if(i == 0)
+         {
+            i = j++;
+         }
+         else
+         {
+            arr[0]();
+         }
+         
+         return i == 0;
+      }
+      
+      public function testArguments(a:int) : String
+      {
+         return arguments[0];
+      }
+      
+      public function println(str:String) : void
+      {
+         trace(arguments.callee == this.println);
+         trace(arguments.length);
+         trace(arguments[0]);
+         trace(str);
+      }
+      
+      public function testLogicalComputing() : *
+      {
+         var b:* = false;
+         var i:* = 5;
+         var j:* = 7;
+         if(i > j)
+         {
+            j = 9;
+            b = true;
+         }
+         b = (i == 0 || i == 1) && j == 0;
+      }
+      
+      private function getInt() : int
+      {
+         return counter++;
+      }
+      
+      public function testInc2() : *
+      {
+         var a:* = [1];
+         a[this.getInt()]++;
+         var d:* = a[this.getInt()]++;
+         var e:* = ++a[this.getInt()];
+         var b:* = 1;
+         b++;
+         var c:* = 1;
+         b = c++;
+      }
+      
+      protected function testDecl2() : *
+      {
+         var k:* = 0;
+         var i:* = 5;
+         i = i + 7;
+         if(i == 5)
+         {
+            if(i < 8)
+            {
+               k = 6;
+            }
+         }
+         k = 7;
+      }
+      
+      public function testChain2() : *
+      {
+         var g:Array = null;
+         var h:* = false;
+         var extraLine:* = false;
+         var r:* = 7;
+         var t:* = 0;
+         t = this.getInt();
+         if(t + 1 < g.length)
+         {
+            t++;
+            h = true;
+         }
+         if(t >= 0)
+         {
+            trace("ch");
+         }
+      }
+      
+      public function textXML() : *
+      {
+         var g:XML = null;
+         var name:* = "ahoj";
+         var myXML:XML = <order id="604">
+					<book isbn="12345">
+						<title>{name}</title>
+					</book>
+				</order>;
+         var k:* = myXML.@id;
+         var all:* = myXML.@*.toXMLString();
+         k = myXML.book;
+         k = myXML.book.(@isbn = "12345");
+         g = <script>
+				<![CDATA[
+					function() {
+			
+						FBAS = {
+			
+							setSWFObjectID: function( swfObjectID ) {																
+								FBAS.swfObjectID = swfObjectID;
+							},
+								
+							init: function( opts ) {
+								FB.init( FB.JSON.parse( opts ) );
+								
+								FB.Event.subscribe( 'auth.sessionChange', function( response ) {
+									FBAS.updateSwfSession( response.session );
+								} );								
+							},
+								
+							setCanvasAutoResize: function( autoSize, interval ) {
+								FB.Canvas.setAutoResize( autoSize, interval );
+							},
+								
+							setCanvasSize: function( width, height ) {
+								FB.Canvas.setSize( { width: width, height: height } );
+							},
+								
+							login: function( opts ) {
+								FB.login( FBAS.handleUserLogin, FB.JSON.parse( opts ) );
+							},
+								
+							addEventListener: function( event ) {
+								FB.Event.subscribe( event, function( response ) {
+									FBAS.getSwf().handleJsEvent( event, FB.JSON.stringify( response ) );
+								} );
+							},
+								
+							handleUserLogin: function( response ) {
+								if( response.session == null ) {
+									FBAS.updateSwfSession( null );
+									return;
+								}
+								
+								if( response.perms != null ) {
+									// user is logged in and granted some permissions.
+									// perms is a comma separated list of granted permissions
+									FBAS.updateSwfSession( response.session, response.perms );
+								} else {
+									FBAS.updateSwfSession( response.session );
+								}
+							},
+								
+							logout: function() {
+								FB.logout( FBAS.handleUserLogout );
+							},
+								
+							handleUserLogout: function( response ) {
+								swf = FBAS.getSwf();
+								swf.logout();
+							},
+								
+							ui: function( params ) {
+								obj = FB.JSON.parse( params );								
+								method = obj.method;
+								cb = function( response ) { FBAS.getSwf().uiResponse( FB.JSON.stringify( response ), method ); }
+								FB.ui( obj, cb );
+							},
+								
+							getSession: function() {
+								session = FB.getSession();
+								return FB.JSON.stringify( session );
+							},
+								
+							getLoginStatus: function() {
+								FB.getLoginStatus( function( response ) {
+									if( response.session ) {
+										FBAS.updateSwfSession( response.session );
+									} else {
+										FBAS.updateSwfSession( null );
+									}
+								} );
+							},
+								
+							getSwf: function getSwf() {								
+								return document.getElementById( FBAS.swfObjectID );								
+							},
+								
+							updateSwfSession: function( session, extendedPermissions ) {								
+								swf = FBAS.getSwf();
+								extendedPermissions = ( extendedPermissions == null ) ? '' : extendedPermissions;
+								
+								if( session == null ) {
+									swf.sessionChange( null );
+								} else {
+									swf.sessionChange( FB.JSON.stringify( session ), FB.JSON.stringify( extendedPermissions.split( ',' ) ) );
+								}
+							}
+						};
+					}
+				]]>
+			</script>;
+      }
+      
+      public function testDoWhile2() : int
+      {
+         var k:* = 5;
+         do
+         {
+            k++;
+            if(k == 7)
+            {
+               k = 5 * k;
+            }
+            else
+            {
+               k = 5 - k;
+            }
+            k--;
+         }
+         while(k < 9);
+         
+         return 2;
+      }
+      
+      public function testWhileAnd() : *
+      {
+         var a:* = 5;
+         var b:* = 10;
+         while(a < 10 && b > 1)
+         {
+            a++;
+            b--;
+         }
+         a = 7;
+         b = 9;
+      }
+      
+      public function testNamedAnonFunctions() : *
+      {
+         var test:* = new function testFunc(param1:*, param2:int, param3:Array):Boolean
+         {
+            return (param1 as TestClass2).attrib1 == 5;
+         };
+      }
+      
+      public function testStringConcat() : *
+      {
+         var k:* = 8;
+         this.traceIt("hello" + 5 * 6);
+         this.traceIt("hello" + (k - 1));
+         this.traceIt("hello" + 5 + 6);
+      }
+      
+      public function testWhileTry() : *
+      {
+         while(true)
+         {
+            try
+            {
+               while(true)
+               {
+                  trace("a");
+               }
+            }
+            catch(e:EOFError)
+            {
+               continue;
+            }
+            catch(e:Error)
+            {
+               continue;
+            }
+         }
+      }
+      
+      public function testWhileTry2() : *
+      {
+         var j:* = undefined;
+         for(var i:* = 0; i < 100; i++)
+         {
+            try
+            {
+               for(j = 0; j < 20; j++)
+               {
+                  trace("a");
+               }
+            }
+            catch(e:EOFError)
+            {
+               continue;
+            }
+            catch(e:Error)
+            {
+               continue;
+            }
+            trace("after_try");
+         }
+         trace("end");
+      }
+      
+      public function testTryReturn() : int
+      {
+         var i:int = 0;
+         var b:Boolean = false;
+         try
+         {
+            i = 0;
+            b = true;
+            if(i > 0)
+            {
+               while(this.testDoWhile2())
+               {
+                  if(b)
+                  {
+                     return 5;
+                  }
+               }
+            }
+            i++;
+            return 2;
+         }
+         catch(e:Error)
+         {
+         }
+         return 4;
+      }
+      
+      public function testOptionalParameters(p1:Event = null, p2:Number = 1, p3:Number = -1, p4:Number = -1.1, p5:Number = -1.1, p6:String = "a") : *
+      {
+      }
+      
+      public function testVector2() : *
+      {
+         var a:Vector.<Vector.<int>> = new Vector.<Vector.<int>>();
+         var b:Vector.<int> = new <int>[10,20,30];
+      }
+      
+      public function testFinallyOnly() : *
+      {
+         var a:* = 5;
+         try
+         {
+            a = 9;
+            trace("intry");
+         }
+         finally
+         {
+            trace("infinally");
+         }
+      }
+      
+      public function testCatchFinally() : *
+      {
+         var a:* = 5;
+         try
+         {
+            a = 9;
+            trace("intry");
+         }
+         catch(e:*)
+         {
+            trace("incatch");
+         }
+         finally
+         {
+            trace("infinally");
+         }
+      }
+   }
+}
@@ -0,0 +1,26 @@
+package classes
+{
+   public dynamic class TestClass1 extends Object
+   {
+      
+      public var attrib:int = 5;
+      
+      public var sons:Array;
+      
+      public function TestClass1()
+      {
+         super();
+      }
+      
+      public function testHello() : *
+      {
+         trace("hello2");
+      }
+      
+      public function method(i:int) : int
+      {
+         trace("method");
+         return 7;
+      }
+   }
+}
@@ -0,0 +1,11 @@
+package classes
+{
+   public class TestClass3 extends Object
+   {
+      
+      public function TestClass3()
+      {
+         super();
+      }
+   }
+}
@@ -0,0 +1,4 @@
+package classes
+{
+   public namespace myInternal = "http://www.adobe.com/2006/actionscript/examples";
+}
@@ -0,0 +1,375 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS, All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.console;
+
+import com.jpexs.decompiler.flash.SWF;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.gui.Main;
+import com.jpexs.helpers.Helper;
+import com.jpexs.helpers.Path;
+import com.jpexs.helpers.WorkerPool;
+import com.jpexs.helpers.utf8.Utf8Helper;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Exports multiple SWF files concurrently.
+ *
+ * Every file runs on its own thread and everything the thread prints to
+ * System.out and System.err (including the console log handler) goes to the
+ * context of the file: to the -stdout/-stderr files when specified, otherwise
+ * it is buffered and printed at once when the file is finished. The parallel
+ * tasks of the files share the common worker pool, the output streams of the
+ * file are passed to its tasks.
+ *
+ * A file is started only when its estimated memory fits into the free memory
+ * budget, so a few big files do not run out of memory together.
+ *
+ * @author JPEXS
+ */
+public class BatchExport {
+
+    /**
+     * Estimated memory used by one byte of the uncompressed SWF during the
+     * export
+     */
+    private static final int MEMORY_PER_BYTE = 12;
+
+    /**
+     * Part of the maximum heap size which can be used by the files
+     */
+    private static final double MEMORY_BUDGET_RATIO = 0.7;
+
+    public interface FileExport {
+
+        public boolean export(File file, PrintStream out) throws Exception;
+    }
+
+    public static class FileResult {
+
+        public File file;
+
+        public long compressedSize;
+
+        public long uncompressedSize;
+
+        public long startTime;
+
+        public long time;
+
+        public boolean ok;
+
+        public String error;
+    }
+
+    private final int threadCount;
+
+    private final long memoryBudget;
+
+    private long memoryAvailable;
+
+    private final String stdOutPattern;
+
+    private final String stdErrPattern;
+
+    private final ThreadLocal<PrintStream> currentOut = new ThreadLocal<>();
+
+    private final ThreadLocal<PrintStream> currentErr = new ThreadLocal<>();
+
+    public BatchExport(int threadCount, String stdOutPattern, String stdErrPattern) {
+        this(threadCount, (long) (Runtime.getRuntime().maxMemory() * MEMORY_BUDGET_RATIO), stdOutPattern, stdErrPattern);
+    }
+
+    public BatchExport(int threadCount, long memoryBudget, String stdOutPattern, String stdErrPattern) {
+        this.threadCount = threadCount;
+        this.memoryBudget = memoryBudget;
+        this.memoryAvailable = memoryBudget;
+        this.stdOutPattern = stdOutPattern;
+        this.stdErrPattern = stdErrPattern;
+    }
+
+    /**
+     * Exports the files. System.out and System.err are replaced by the
+     * routing streams during the export.
+     *
+     * @param files Files to export
+     * @param export Export of one file
+     * @return Results in the order of the files
+     * @throws InterruptedException
+     */
+    public List<FileResult> run(File[] files, final FileExport export) throws InterruptedException {
+        final PrintStream originalOut = System.out;
+        final PrintStream originalErr = System.err;
+        System.setOut(new PrintStream(new RoutingOutputStream(currentOut, originalOut), true));
+        System.setErr(new PrintStream(new RoutingOutputStream(currentErr, originalErr), true));
+        WorkerPool.addPropagatedThreadLocal(currentOut);
+        WorkerPool.addPropagatedThreadLocal(currentErr);
+        // the console log handler writes to System.err from the time of its creation
+        Main.initLogging(Configuration.debugMode.get());
+
+        final List<FileResult> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        final Semaphore slots = new Semaphore(threadCount);
+        try {
+            for (final File file : files) {
+                final FileResult result = new FileResult();
+                result.file = file;
+                result.compressedSize = file.length();
+                result.uncompressedSize = getUncompressedSize(file);
+                results.add(result);
+
+                final long memory = Math.min(memoryBudget, result.compressedSize + result.uncompressedSize * MEMORY_PER_BYTE);
+                slots.acquire();
+                try {
+                    acquireMemory(memory);
+                } catch (InterruptedException ex) {
+                    slots.release();
+                    throw ex;
+                }
+
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            exportFile(file, result, export, originalOut, originalErr);
+                        } finally {
+                            releaseMemory(memory);
+                            slots.release();
+                        }
+                    }
+                }, "Export " + file.getName());
+                threads.add(thread);
+                thread.start();
+            }
+
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException ex) {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            throw ex;
+        } finally {
+            WorkerPool.removePropagatedThreadLocal(currentOut);
+            WorkerPool.removePropagatedThreadLocal(currentErr);
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+            Main.initLogging(Configuration.debugMode.get());
+        }
+
+        return results;
+    }
+
+    private void exportFile(File file, FileResult result, FileExport export, PrintStream originalOut, PrintStream originalErr) {
+        String fileName = Path.getFileNameWithoutExtension(file);
+        ByteArrayOutputStream buffer = null;
+        PrintStream out = null;
+        PrintStream err = null;
+        try {
+            if (stdOutPattern != null) {
+                out = new PrintStream(new FileOutputStream(stdOutPattern.replace("{swfFile}", fileName), true), true);
+            }
+            if (stdErrPattern != null) {
+                err = new PrintStream(new FileOutputStream(stdErrPattern.replace("{swfFile}", fileName), true), true);
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(BatchExport.class.getName()).log(Level.SEVERE, "Cannot open the output file of " + file, ex);
+        }
+
+        if (out == null || err == null) {
+            buffer = new ByteArrayOutputStream();
+            PrintStream bufferStream = new PrintStream(buffer, true);
+            if (out == null) {
+                out = bufferStream;
+            }
+            if (err == null) {
+                err = bufferStream;
+            }
+        }
+
+        currentOut.set(out);
+        currentErr.set(err);
+        result.startTime = System.currentTimeMillis();
+        try {
+            out.println("Start exporting " + file.getName());
+            result.ok = export.export(file, out);
+            if (!result.ok) {
+                result.error = "Export failed";
+            }
+        } catch (Exception | OutOfMemoryError | StackOverflowError ex) {
+            result.ok = false;
+            result.error = ex.toString();
+            err.print("FAIL: Exporting Failed on Exception - ");
+            Logger.getLogger(BatchExport.class.getName()).log(Level.SEVERE, null, ex);
+        } finally {
+            result.time = System.currentTimeMillis() - result.startTime;
+            out.println("Export finished: " + file.getName() + " Export time: " + Helper.formatTimeSec(result.time));
+            currentOut.remove();
+            currentErr.remove();
+            if (out != null && out != err) {
+                out.close();
+            }
+            if (err != null) {
+                err.close();
+            }
+        }
+
+        if (buffer != null) {
+            // print the whole output of the file at once
+            synchronized (originalOut) {
+                originalOut.print(new String(buffer.toByteArray(), Utf8Helper.charset));
+                originalOut.flush();
+            }
+        }
+    }
+
+    private synchronized void acquireMemory(long memory) throws InterruptedException {
+        while (memoryAvailable < memory) {
+            wait();
+        }
+
+        memoryAvailable -= memory;
+    }
+
+    private synchronized void releaseMemory(long memory) {
+        memoryAvailable += memory;
+        notifyAll();
+    }
+
+    /**
+     * Gets the uncompressed size from the SWF header
+     *
+     * @param file SWF file
+     * @return Uncompressed size or the file size when the header is invalid
+     */
+    public static long getUncompressedSize(File file) {
+        byte[] header = new byte[8];
+        try (InputStream is = new FileInputStream(file)) {
+            int pos = 0;
+            int cnt;
+            while (pos < header.length && (cnt = is.read(header, pos, header.length - pos)) > 0) {
+                pos += cnt;
+            }
+
+            if (pos == header.length && SWF.isSwfSignature(header)) {
+                return (header[4] & 0xffL) | (header[5] & 0xffL) << 8 | (header[6] & 0xffL) << 16 | (header[7] & 0xffL) << 24;
+            }
+        } catch (IOException ex) {
+            // use the file size
+        }
+
+        return file.length();
+    }
+
+    /**
+     * Writes the results in JSON format
+     *
+     * @param results Results
+     * @param totalTime Total time in milliseconds
+     * @param file Output file
+     * @throws IOException
+     */
+    public static void writeSummary(List<FileResult> results, long totalTime, File file) throws IOException {
+        int okCount = 0;
+        for (FileResult result : results) {
+            if (result.ok) {
+                okCount++;
+            }
+        }
+
+        StringWriter sw = new StringWriter();
+        try (PrintWriter pw = new PrintWriter(sw)) {
+            pw.println("{");
+            pw.println("  \"totalTime\": " + totalTime + ",");
+            pw.println("  \"fileCount\": " + results.size() + ",");
+            pw.println("  \"okCount\": " + okCount + ",");
+            pw.println("  \"failedCount\": " + (results.size() - okCount) + ",");
+            pw.println("  \"files\": [");
+            for (int i = 0; i < results.size(); i++) {
+                FileResult result = results.get(i);
+                pw.print("    {\"file\": \"" + Helper.escapeJavaString(result.file.getAbsolutePath()) + "\"");
+                pw.print(", \"compressedSize\": " + result.compressedSize);
+                pw.print(", \"uncompressedSize\": " + result.uncompressedSize);
+                pw.print(", \"startTime\": " + result.startTime);
+                pw.print(", \"time\": " + result.time);
+                pw.print(", \"ok\": " + result.ok);
+                if (result.error != null) {
+                    pw.print(", \"error\": \"" + Helper.escapeJavaString(result.error) + "\"");
+                }
+                pw.println(i < results.size() - 1 ? "}," : "}");
+            }
+            pw.println("  ]");
+            pw.println("}");
+        }
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), Utf8Helper.charset)) {
+            writer.write(sw.toString());
+        }
+    }
+
+    /**
+     * Output stream which writes to the stream of the current thread, or to
+     * the default stream for the threads which do not export a file
+     */
+    private static class RoutingOutputStream extends OutputStream {
+
+        private final ThreadLocal<PrintStream> current;
+
+        private final PrintStream defaultStream;
+
+        public RoutingOutputStream(ThreadLocal<PrintStream> current, PrintStream defaultStream) {
+            this.current = current;
+            this.defaultStream = defaultStream;
+        }
+
+        private PrintStream getStream() {
+            PrintStream stream = current.get();
+            return stream == null ? defaultStream : stream;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            getStream().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            getStream().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            getStream().flush();
+        }
+    }
+}
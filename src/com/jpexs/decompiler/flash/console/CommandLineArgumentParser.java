@@ -22,11 +22,13 @@ import com.jpexs.decompiler.flash.EventListener;
 import com.jpexs.decompiler.flash.SWF;
 import com.jpexs.decompiler.flash.SWFBundle;
 import com.jpexs.decompiler.flash.SWFSourceInfo;
+import com.jpexs.decompiler.flash.SaveStatistics;
 import com.jpexs.decompiler.flash.SearchMode;
 import com.jpexs.decompiler.flash.abc.ABC;
 import com.jpexs.decompiler.flash.abc.RenameType;
 import com.jpexs.decompiler.flash.abc.ScriptPack;
 import com.jpexs.decompiler.flash.abc.avm2.AVM2Code;
+import com.jpexs.decompiler.flash.abc.avm2.DecompilationProfiler;
 import com.jpexs.decompiler.flash.abc.avm2.parser.AVM2ParseException;
 import com.jpexs.decompiler.flash.abc.avm2.parser.pcode.ASM3Parser;
 import com.jpexs.decompiler.flash.abc.avm2.parser.pcode.MissingSymbolHandler;
@@ -133,6 +135,14 @@ public class CommandLineArgumentParser {
 
     private static String stdErr = null;
 
+    private static int batchThreads = 0;
+
+    private static String batchSummary = null;
+
+    private static String profileFile = null;
+
+    private static int profileTop = 0;
+
     @SuppressWarnings("unchecked")
     private static final ConfigurationItem<Boolean>[] commandlineConfigBoolean = new ConfigurationItem[]{
         Configuration.decompile,
@@ -248,8 +258,9 @@ public class CommandLineArgumentParser {
         out.println("  ...Compress SWF <infile> and save it to <outfile>");
         out.println(" " + (cnt++) + ") -decompress <infile> <outfile>");
         out.println("  ...Decompress <infile> and save it to <outfile>");
-        out.println(" " + (cnt++) + ") -swf2xml <infile> <outfile>");
+        out.println(" " + (cnt++) + ") -swf2xml <infile> <outfile> [binaryfile]");
         out.println("  ...Converts the <infile> SWF to <outfile> XML file");
+        out.println("  ...binaryfile parameter stores the large binary data to <outfile>.bin file instead of the XML");
         out.println(" " + (cnt++) + ") -xml2swf <infile> <outfile>");
         out.println("  ...Converts the <infile> XML to <outfile> SWF file");
         out.println(" " + (cnt++) + ") -extract <infile> [-o <outpath>|<outfile>] [nocheck] [(all|biggest|smallest|first|last)]");
@@ -278,6 +289,15 @@ public class CommandLineArgumentParser {
         out.println("  ...total export timeout in seconds");
         out.println(" " + (cnt++) + ") -exportFileTimeout <N>");
         out.println("  ...export timeout for a single AS3 class in seconds");
+        out.println(" " + (cnt++) + ") -batch <N>");
+        out.println("  ...exports N SWF files of the input folder concurrently, the output of each file is printed when the file is finished");
+        out.println(" " + (cnt++) + ") -batchSummary <outfile>");
+        out.println("  ...writes the export times and the failures of the files to <outfile> in JSON format");
+        out.println(" " + (cnt++) + ") -profile <outfile>");
+        out.println("  ...profiles the decompilation of the AS3 methods and writes the time and allocation of the decompilation stages to <outfile>");
+        out.println("  ...the output is in CSV format when <outfile> has .csv extension, otherwise in JSON format");
+        out.println(" " + (cnt++) + ") -profileTop <N>");
+        out.println("  ...profiles the decompilation of the AS3 methods and prints N slowest methods after the export");
         out.println(" " + (cnt++) + ") -flashpaper2pdf <infile> <outfile>");
         out.println("  ...converts FlashPaper SWF file <infile> to PDF <outfile>. Use -zoom parameter to specify image quality.");
         out.println(" " + (cnt++) + ") -zoom <N>");
@@ -305,6 +325,7 @@ public class CommandLineArgumentParser {
         out.println("java -jar ffdec.jar -onerror ignore -export script \"C:\\decompiled\" myfile.swf");
         out.println("java -jar ffdec.jar -onerror retry 5 -export script \"C:\\decompiled\" myfile.swf");
         out.println("java -jar ffdec.jar -config autoDeobfuscate=1,parallelSpeedUp=0 -export script \"C:\\decompiled\" myfile.swf");
+        out.println("java -jar ffdec.jar -batch 4 -batchSummary summary.json -export script,image \"C:\\decompiled\" \"C:\\swfs\"");
         out.println("");
         out.println("Instead of \"java -jar ffdec.jar\" you can use ffdec.bat on Windows, ffdec.sh on Linux/MacOs");
     }
@@ -381,6 +402,18 @@ public class CommandLineArgumentParser {
                 case "-stderr":
                     parseStdErr(args);
                     break;
+                case "-batch":
+                    parseBatch(args);
+                    break;
+                case "-batchsummary":
+                    parseBatchSummary(args);
+                    break;
+                case "-profile":
+                    parseProfile(args);
+                    break;
+                case "-profiletop":
+                    parseProfileTop(args);
+                    break;
                 case "-affinity":
                     parseAffinity(args);
                     break;
@@ -748,6 +781,79 @@ public class CommandLineArgumentParser {
         stdErr = args.pop();
     }
 
+    private static void parseBatch(Stack<String> args) {
+        if (args.isEmpty()) {
+            System.err.println("batch parameter expected");
+            badArguments();
+        }
+        try {
+            batchThreads = Integer.parseInt(args.pop());
+            if (batchThreads < 1) {
+                System.err.println("Bad batch value");
+                badArguments();
+            }
+        } catch (NumberFormatException nex) {
+            System.err.println("Bad batch value");
+            badArguments();
+        }
+    }
+
+    private static void parseBatchSummary(Stack<String> args) {
+        if (args.isEmpty()) {
+            System.err.println("batchSummary parameter expected");
+            badArguments();
+        }
+
+        batchSummary = args.pop();
+    }
+
+    private static void parseProfile(Stack<String> args) {
+        if (args.isEmpty()) {
+            System.err.println("profile parameter expected");
+            badArguments();
+        }
+
+        profileFile = args.pop();
+        DecompilationProfiler.setEnabled(true);
+    }
+
+    private static void parseProfileTop(Stack<String> args) {
+        if (args.isEmpty()) {
+            System.err.println("profileTop parameter expected");
+            badArguments();
+        }
+        try {
+            profileTop = Integer.parseInt(args.pop());
+            if (profileTop <= 0) {
+                System.err.println("Bad profileTop value");
+                badArguments();
+            }
+        } catch (NumberFormatException nex) {
+            System.err.println("Bad profileTop value");
+            badArguments();
+        }
+
+        DecompilationProfiler.setEnabled(true);
+    }
+
+    private static void writeProfile() {
+        if (profileTop > 0) {
+            DecompilationProfiler.printSummary(System.out, profileTop);
+        }
+
+        if (profileFile != null) {
+            try {
+                if (profileFile.toLowerCase().endsWith(".csv")) {
+                    DecompilationProfiler.writeCsv(new File(profileFile));
+                } else {
+                    DecompilationProfiler.writeJson(new File(profileFile));
+                }
+            } catch (IOException ex) {
+                Logger.getLogger(CommandLineArgumentParser.class.getName()).log(Level.SEVERE, "Cannot write the profile", ex);
+            }
+        }
+    }
+
     private static void parseAffinity(Stack<String> args) {
         if (Platform.isWindows()) {
             if (args.isEmpty()) {
@@ -880,7 +986,8 @@ public class CommandLineArgumentParser {
         };
 
         if (handler == null) {
-            handler = new ConsoleAbortRetryIgnoreHandler(AbortRetryIgnoreHandler.UNDEFINED, 0);
+            // the files of the batch cannot ask the user concurrently
+            handler = new ConsoleAbortRetryIgnoreHandler(batchThreads > 0 ? AbortRetryIgnoreHandler.ABORT : AbortRetryIgnoreHandler.UNDEFINED, 0);
         }
         String exportFormatString = args.pop().toLowerCase();
         List<String> exportFormats = Arrays.asList(exportFormatString.split(","));
@@ -916,220 +1023,273 @@ public class CommandLineArgumentParser {
                 inFiles = new File[]{inFileOrFolder};
             }
 
-            for (File inFile : inFiles) {
-                String inFileName = Path.getFileNameWithoutExtension(inFile);
-                if (stdOut != null) {
-                    System.setOut(new PrintStream(new FileOutputStream(stdOut.replace("{swfFile}", inFileName), true)));
-                }
-
-                if (stdErr != null) {
-                    System.setErr(new PrintStream(new FileOutputStream(stdErr.replace("{swfFile}", inFileName), true)));
-                    Main.initLogging(Configuration.debugMode.get());
-                }
-
-                long startTimeSwf = 0;
-                if (!singleFile) {
-                    startTimeSwf = System.currentTimeMillis();
-                    System.out.println("Start exporting " + inFile.getName());
+            // First check all the specified export formats
+            for (String exportFormat : exportFormats) {
+                if (Arrays.asList(removedExportFormats).contains(exportFormat)) {
+                    System.err.println("Error: Export format : " + exportFormat + " was REMOVED. Run application with --help parameter to see available formats.");
+                    System.exit(1);
+                } else if (!Arrays.asList(validExportItems).contains(exportFormat)) {
+                    System.err.println("Invalid export item:" + exportFormat);
+                    badArguments();
                 }
+            }
 
-                SWFSourceInfo sourceInfo = new SWFSourceInfo(null, inFile.getAbsolutePath(), inFile.getName());
-                SWF swf = new SWF(new FileInputStream(inFile), sourceInfo.getFile(), sourceInfo.getFileTitle(), Configuration.parallelSpeedUp.get());
-                swf.swfList = new SWFList();
-                swf.swfList.sourceInfo = sourceInfo;
-                String outDir = outDirBase.getAbsolutePath();
-                if (!singleFile) {
-                    outDir = Path.combine(outDir, inFile.getName());
-                }
+            // Here the exportFormats array should contain only validitems
+            commandLineMode = true;
+            if ((exportFormats.contains("all") || exportFormats.contains("script")) && as3classes.isEmpty()) {
+                as3classes = parseSelectClassOld(args);
+            }
 
-                List<Tag> extags = new ArrayList<>();
-                for (Tag t : swf.tags) {
-                    if (t instanceof CharacterIdTag) {
-                        CharacterIdTag c = (CharacterIdTag) t;
-                        if (selectionIds.contains(c.getCharacterId())) {
-                            extags.add(t);
-                        }
-                    } else {
-                        if (selectionIds.contains(0)) {
-                            extags.add(t);
-                        }
+            if (batchThreads > 0 && !singleFile) {
+                exportOK = exportBatch(inFiles, outDirBase, as3classes, selection, selectionIds, handler, traceLevel, formats, zoom, exportFormats);
+            } else {
+                for (File inFile : inFiles) {
+                    String inFileName = Path.getFileNameWithoutExtension(inFile);
+                    if (stdOut != null) {
+                        System.setOut(new PrintStream(new FileOutputStream(stdOut.replace("{swfFile}", inFileName), true)));
                     }
-                }
 
-                final Level level = traceLevel;
-                swf.addEventListener(new EventListener() {
-                    @Override
-                    public void handleExportingEvent(String type, int index, int count, Object data) {
-                        if (level.intValue() <= Level.FINE.intValue()) {
-                            String text = "Exporting ";
-                            if (type != null && type.length() > 0) {
-                                text += type + " ";
-                            }
-                            System.out.println(text + index + "/" + count + " " + data);
-                        }
+                    if (stdErr != null) {
+                        System.setErr(new PrintStream(new FileOutputStream(stdErr.replace("{swfFile}", inFileName), true)));
+                        Main.initLogging(Configuration.debugMode.get());
                     }
 
-                    @Override
-                    public void handleExportedEvent(String type, int index, int count, Object data) {
-                        String text = "Exported ";
-                        if (type != null && type.length() > 0) {
-                            text += type + " ";
-                        }
-                        System.out.println(text + index + "/" + count + " " + data);
+                    long startTimeSwf = 0;
+                    if (!singleFile) {
+                        startTimeSwf = System.currentTimeMillis();
+                        System.out.println("Start exporting " + inFile.getName());
                     }
 
-                    @Override
-                    public void handleEvent(String event, Object data) {
+                    String outDir = outDirBase.getAbsolutePath();
+                    if (!singleFile) {
+                        outDir = Path.combine(outDir, inFile.getName());
                     }
-                });
 
-                // First check all the specified export formats
-                for (String exportFormat : exportFormats) {
-                    if (Arrays.asList(removedExportFormats).contains(exportFormat)) {
-                        System.err.println("Error: Export format : " + exportFormat + " was REMOVED. Run application with --help parameter to see available formats.");
-                        System.exit(1);
-                    } else if (!Arrays.asList(validExportItems).contains(exportFormat)) {
-                        System.err.println("Invalid export item:" + exportFormat);
-                        badArguments();
+                    exportOK = exportSwf(inFile, outDir, as3classes, selection, selectionIds, handler, traceLevel, formats, zoom, exportFormats, System.out, false) && exportOK;
+
+                    if (!singleFile) {
+                        long stopTimeSwf = System.currentTimeMillis();
+                        long time = stopTimeSwf - startTimeSwf;
+                        System.out.println("Export finished: " + inFile.getName() + " Export time: " + Helper.formatTimeSec(time));
                     }
                 }
+            }
+        } catch (OutOfMemoryError | Exception ex) {
+            System.err.print("FAIL: Exporting Failed on Exception - ");
+            Logger.getLogger(CommandLineArgumentParser.class.getName()).log(Level.SEVERE, null, ex);
+            System.exit(1);
+        }
 
-                // Here the exportFormats array should contain only validitems
-                commandLineMode = true;
-                boolean exportAll = exportFormats.contains("all");
-                boolean multipleExportTypes = exportAll || exportFormats.size() > 1;
-                EventListener evl = swf.getExportEventListener();
-
-                if (exportAll || exportFormats.contains("image")) {
-                    System.out.println("Exporting images...");
-                    new ImageExporter().exportImages(handler, outDir + (multipleExportTypes ? File.separator + "images" : ""), extags, new ImageExportSettings(enumFromStr(formats.get("image"), ImageExportMode.class)), evl);
-                }
+        long stopTime = System.currentTimeMillis();
+        long time = stopTime - startTime;
+        System.out.println("Export finished. Total export time: " + Helper.formatTimeSec(time));
+        writeProfile();
+        if (exportOK) {
+            System.out.println("OK");
+            System.exit(0);
+        } else {
+            System.err.println("FAIL");
+            System.exit(1);
+        }
+    }
 
-                if (exportAll || exportFormats.contains("shape")) {
-                    System.out.println("Exporting shapes...");
-                    new ShapeExporter().exportShapes(handler, outDir + (multipleExportTypes ? File.separator + "shapes" : ""), extags, new ShapeExportSettings(enumFromStr(formats.get("shape"), ShapeExportMode.class), zoom), evl);
-                }
+    private static boolean exportBatch(File[] inFiles, final File outDirBase, final List<String> as3classes, final Selection selection, final Selection selectionIds, AbortRetryIgnoreHandler handler, final Level traceLevel, final Map<String, String> formats, final double zoom, final List<String> exportFormats) throws InterruptedException, IOException {
+        final AbortRetryIgnoreHandler batchHandler = handler;
+        long startTime = System.currentTimeMillis();
+        BatchExport batchExport = new BatchExport(batchThreads, stdOut, stdErr);
+        List<BatchExport.FileResult> results = batchExport.run(inFiles, new BatchExport.FileExport() {
+            @Override
+            public boolean export(File inFile, PrintStream out) throws Exception {
+                String outDir = Path.combine(outDirBase.getAbsolutePath(), inFile.getName());
+                return exportSwf(inFile, outDir, as3classes, selection, selectionIds, batchHandler.getNewInstance(), traceLevel, formats, zoom, exportFormats, out, true);
+            }
+        });
 
-                if (exportAll || exportFormats.contains("morphshape")) {
-                    System.out.println("Exporting morphshapes...");
-                    new MorphShapeExporter().exportMorphShapes(handler, outDir + (multipleExportTypes ? File.separator + "morphshapes" : ""), extags, new MorphShapeExportSettings(enumFromStr(formats.get("morphshape"), MorphShapeExportMode.class), zoom), evl);
-                }
+        long time = System.currentTimeMillis() - startTime;
+        if (batchSummary != null) {
+            BatchExport.writeSummary(results, time, new File(batchSummary));
+        }
 
-                if (exportAll || exportFormats.contains("movie")) {
-                    System.out.println("Exporting movies...");
-                    new MovieExporter().exportMovies(handler, outDir + (multipleExportTypes ? File.separator + "movies" : ""), extags, new MovieExportSettings(enumFromStr(formats.get("movie"), MovieExportMode.class)), evl);
-                }
+        boolean exportOK = true;
+        for (BatchExport.FileResult result : results) {
+            if (!result.ok) {
+                System.err.println("FAIL: " + result.file.getName() + ": " + result.error);
+                exportOK = false;
+            }
+        }
 
-                if (exportAll || exportFormats.contains("font")) {
-                    System.out.println("Exporting fonts...");
-                    new FontExporter().exportFonts(handler, outDir + (multipleExportTypes ? File.separator + "fonts" : ""), extags, new FontExportSettings(enumFromStr(formats.get("font"), FontExportMode.class)), evl);
-                }
+        return exportOK;
+    }
 
-                if (exportAll || exportFormats.contains("sound")) {
-                    System.out.println("Exporting sounds...");
-                    new SoundExporter().exportSounds(handler, outDir + (multipleExportTypes ? File.separator + "sounds" : ""), extags, new SoundExportSettings(enumFromStr(formats.get("sound"), SoundExportMode.class)), evl);
+    private static boolean exportSwf(File inFile, String outDir, List<String> as3classes, Selection selection, Selection selectionIds, AbortRetryIgnoreHandler handler, Level traceLevel, Map<String, String> formats, double zoom, List<String> exportFormats, final PrintStream out, boolean batch) throws Exception {
+        boolean exportOK = true;
+        SWFSourceInfo sourceInfo = new SWFSourceInfo(null, inFile.getAbsolutePath(), inFile.getName());
+        SWF swf;
+        if (Configuration.memoryMappedLoading.get()) {
+            swf = new SWF(inFile, sourceInfo.getFileTitle(), null, Configuration.parallelSpeedUp.get(), true);
+        } else {
+            try (InputStream is = new FileInputStream(inFile)) {
+                swf = new SWF(is, sourceInfo.getFile(), sourceInfo.getFileTitle(), Configuration.parallelSpeedUp.get());
+            }
+        }
+        swf.swfList = new SWFList();
+        swf.swfList.sourceInfo = sourceInfo;
+        List<Tag> extags = new ArrayList<>();
+        for (Tag t : swf.tags) {
+            if (t instanceof CharacterIdTag) {
+                CharacterIdTag c = (CharacterIdTag) t;
+                if (selectionIds.contains(c.getCharacterId())) {
+                    extags.add(t);
                 }
-
-                if (exportAll || exportFormats.contains("binarydata")) {
-                    System.out.println("Exporting binaryData...");
-                    new BinaryDataExporter().exportBinaryData(handler, outDir + (multipleExportTypes ? File.separator + "binaryData" : ""), extags, new BinaryDataExportSettings(enumFromStr(formats.get("binarydata"), BinaryDataExportMode.class)), evl);
+            } else {
+                if (selectionIds.contains(0)) {
+                    extags.add(t);
                 }
+            }
+        }
 
-                if (exportAll || exportFormats.contains("text")) {
-                    System.out.println("Exporting texts...");
-                    Boolean singleTextFile = parseBooleanConfigValue(formats.get("singletext"));
-                    if (singleTextFile == null) {
-                        singleTextFile = Configuration.textExportSingleFile.get();
+        // the events of the parallel export come from the worker threads, print them to the output of the file
+        final Level level = traceLevel;
+        swf.addEventListener(new EventListener() {
+            @Override
+            public void handleExportingEvent(String type, int index, int count, Object data) {
+                if (level.intValue() <= Level.FINE.intValue()) {
+                    String text = "Exporting ";
+                    if (type != null && type.length() > 0) {
+                        text += type + " ";
                     }
-                    new TextExporter().exportTexts(handler, outDir + (multipleExportTypes ? File.separator + TextExportSettings.EXPORT_FOLDER_NAME : ""), extags, new TextExportSettings(enumFromStr(formats.get("text"), TextExportMode.class), singleTextFile, zoom), evl);
+                    out.println(text + index + "/" + count + " " + data);
                 }
+            }
 
-                if (exportAll || exportFormats.contains("frame")) {
-                    System.out.println("Exporting frames...");
-                    List<Integer> frames = new ArrayList<>();
-                    for (int i = 0; i < swf.frameCount; i++) {
-                        if (selection.contains(i + 1)) {
-                            frames.add(i);
-                        }
-                    }
-                    new FrameExporter().exportFrames(handler, outDir + (multipleExportTypes ? File.separator + "frames" : ""), swf, 0, frames, new FramesExportSettings(enumFromStr(formats.get("frame"), FramesExportMode.class), zoom), evl);
+            @Override
+            public void handleExportedEvent(String type, int index, int count, Object data) {
+                String text = "Exported ";
+                if (type != null && type.length() > 0) {
+                    text += type + " ";
                 }
+                out.println(text + index + "/" + count + " " + data);
+            }
 
-                boolean parallel = Configuration.parallelSpeedUp.get();
-                String scriptsFolder = Path.combine(outDir, ScriptExportSettings.EXPORT_FOLDER_NAME);
-                Path.createDirectorySafe(new File(scriptsFolder));
-                Boolean singleScriptFile = parseBooleanConfigValue(formats.get("singlescript"));
-                if (singleScriptFile == null) {
-                    singleScriptFile = Configuration.scriptExportSingleFile.get();
-                }
+            @Override
+            public void handleEvent(String event, Object data) {
+            }
+        });
 
-                if (parallel && singleScriptFile) {
-                    System.out.println("Single file script export is not supported with enabled parallel speedup");
-                    singleScriptFile = false;
-                }
+        boolean exportAll = exportFormats.contains("all");
+        boolean multipleExportTypes = exportAll || exportFormats.size() > 1;
+        EventListener evl = swf.getExportEventListener();
 
-                ScriptExportSettings scriptExportSettings = new ScriptExportSettings(enumFromStr(formats.get("script"), ScriptExportMode.class), singleScriptFile);
-                if (exportAll || exportFormats.contains("script")) {
-                    System.out.println("Exporting scripts...");
-                    if (as3classes.isEmpty()) {
-                        as3classes = parseSelectClassOld(args);
-                    }
+        if (exportAll || exportFormats.contains("image")) {
+            System.out.println("Exporting images...");
+            new ImageExporter().exportImages(handler, outDir + (multipleExportTypes ? File.separator + "images" : ""), extags, new ImageExportSettings(enumFromStr(formats.get("image"), ImageExportMode.class)), evl);
+        }
 
-                    String singleFileName = Path.combine(scriptsFolder, swf.getShortFileName() + scriptExportSettings.getFileExtension());
-                    try (FileTextWriter writer = scriptExportSettings.singleFile ? new FileTextWriter(Configuration.getCodeFormatting(), new FileOutputStream(singleFileName)) : null) {
-                        scriptExportSettings.singleFileWriter = writer;
-                        if (!as3classes.isEmpty()) {
-                            for (String as3class : as3classes) {
-                                exportOK = exportOK && swf.exportAS3Class(as3class, scriptsFolder, scriptExportSettings, parallel, evl);
-                            }
-                        } else {
-                            exportOK = exportOK && swf.exportActionScript(handler, scriptsFolder, scriptExportSettings, parallel, evl) != null;
-                        }
-                    }
-                }
+        if (exportAll || exportFormats.contains("shape")) {
+            System.out.println("Exporting shapes...");
+            new ShapeExporter().exportShapes(handler, outDir + (multipleExportTypes ? File.separator + "shapes" : ""), extags, new ShapeExportSettings(enumFromStr(formats.get("shape"), ShapeExportMode.class), zoom), evl);
+        }
 
-                if (exportFormats.contains("fla")) {
-                    System.out.println("Exporting FLA...");
-                    FLAVersion flaVersion = FLAVersion.fromString(formats.get("fla"));
-                    if (flaVersion == null) {
-                        flaVersion = FLAVersion.CS6; //Defaults to CS6
-                    }
-                    swf.exportFla(handler, outDir + (multipleExportTypes ? File.separator + "fla" : ""), inFile.getName(), ApplicationInfo.APPLICATION_NAME, ApplicationInfo.applicationVerName, ApplicationInfo.version, Configuration.parallelSpeedUp.get(), flaVersion);
+        if (exportAll || exportFormats.contains("morphshape")) {
+            System.out.println("Exporting morphshapes...");
+            new MorphShapeExporter().exportMorphShapes(handler, outDir + (multipleExportTypes ? File.separator + "morphshapes" : ""), extags, new MorphShapeExportSettings(enumFromStr(formats.get("morphshape"), MorphShapeExportMode.class), zoom), evl);
+        }
+
+        if (exportAll || exportFormats.contains("movie")) {
+            System.out.println("Exporting movies...");
+            new MovieExporter().exportMovies(handler, outDir + (multipleExportTypes ? File.separator + "movies" : ""), extags, new MovieExportSettings(enumFromStr(formats.get("movie"), MovieExportMode.class)), evl);
+        }
+
+        if (exportAll || exportFormats.contains("font")) {
+            System.out.println("Exporting fonts...");
+            new FontExporter().exportFonts(handler, outDir + (multipleExportTypes ? File.separator + "fonts" : ""), extags, new FontExportSettings(enumFromStr(formats.get("font"), FontExportMode.class)), evl);
+        }
+
+        if (exportAll || exportFormats.contains("sound")) {
+            System.out.println("Exporting sounds...");
+            new SoundExporter().exportSounds(handler, outDir + (multipleExportTypes ? File.separator + "sounds" : ""), extags, new SoundExportSettings(enumFromStr(formats.get("sound"), SoundExportMode.class)), evl);
+        }
+
+        if (exportAll || exportFormats.contains("binarydata")) {
+            System.out.println("Exporting binaryData...");
+            new BinaryDataExporter().exportBinaryData(handler, outDir + (multipleExportTypes ? File.separator + "binaryData" : ""), extags, new BinaryDataExportSettings(enumFromStr(formats.get("binarydata"), BinaryDataExportMode.class)), evl);
+        }
+
+        if (exportAll || exportFormats.contains("text")) {
+            System.out.println("Exporting texts...");
+            Boolean singleTextFile = parseBooleanConfigValue(formats.get("singletext"));
+            if (singleTextFile == null) {
+                singleTextFile = Configuration.textExportSingleFile.get();
+            }
+            new TextExporter().exportTexts(handler, outDir + (multipleExportTypes ? File.separator + TextExportSettings.EXPORT_FOLDER_NAME : ""), extags, new TextExportSettings(enumFromStr(formats.get("text"), TextExportMode.class), singleTextFile, zoom), evl);
+        }
+
+        if (exportAll || exportFormats.contains("frame")) {
+            System.out.println("Exporting frames...");
+            List<Integer> frames = new ArrayList<>();
+            for (int i = 0; i < swf.frameCount; i++) {
+                if (selection.contains(i + 1)) {
+                    frames.add(i);
                 }
+            }
+            new FrameExporter().exportFrames(handler, outDir + (multipleExportTypes ? File.separator + "frames" : ""), swf, 0, frames, new FramesExportSettings(enumFromStr(formats.get("frame"), FramesExportMode.class), zoom), evl);
+        }
 
-                if (exportFormats.contains("xfl")) {
-                    System.out.println("Exporting XFL...");
-                    FLAVersion xflVersion = FLAVersion.fromString(formats.get("xfl"));
-                    if (xflVersion == null) {
-                        xflVersion = FLAVersion.CS6; //Defaults to CS6
+        boolean parallel = Configuration.parallelSpeedUp.get();
+        String scriptsFolder = Path.combine(outDir, ScriptExportSettings.EXPORT_FOLDER_NAME);
+        Path.createDirectorySafe(new File(scriptsFolder));
+        Boolean singleScriptFile = parseBooleanConfigValue(formats.get("singlescript"));
+        if (singleScriptFile == null) {
+            singleScriptFile = Configuration.scriptExportSingleFile.get();
+        }
+
+        if (parallel && singleScriptFile) {
+            System.out.println("Single file script export is not supported with enabled parallel speedup");
+            singleScriptFile = false;
+        }
+
+        ScriptExportSettings scriptExportSettings = new ScriptExportSettings(enumFromStr(formats.get("script"), ScriptExportMode.class), singleScriptFile);
+        if (exportAll || exportFormats.contains("script")) {
+            System.out.println("Exporting scripts...");
+            String singleFileName = Path.combine(scriptsFolder, swf.getShortFileName() + scriptExportSettings.getFileExtension());
+            try (FileTextWriter writer = scriptExportSettings.singleFile ? new FileTextWriter(Configuration.getCodeFormatting(), new FileOutputStream(singleFileName)) : null) {
+                scriptExportSettings.singleFileWriter = writer;
+                if (!as3classes.isEmpty()) {
+                    for (String as3class : as3classes) {
+                        exportOK = swf.exportAS3Class(as3class, scriptsFolder, scriptExportSettings, parallel, evl) && exportOK;
                     }
-                    swf.exportXfl(handler, outDir + (multipleExportTypes ? File.separator + "xfl" : ""), inFile.getName(), ApplicationInfo.APPLICATION_NAME, ApplicationInfo.applicationVerName, ApplicationInfo.version, Configuration.parallelSpeedUp.get(), xflVersion);
+                } else {
+                    exportOK = swf.exportActionScript(handler, scriptsFolder, scriptExportSettings, parallel, evl) != null && exportOK;
                 }
+            }
+        }
 
-                if (!singleFile) {
-                    long stopTimeSwf = System.currentTimeMillis();
-                    long time = stopTimeSwf - startTimeSwf;
-                    System.out.println("Export finished: " + inFile.getName() + " Export time: " + Helper.formatTimeSec(time));
-                }
+        if (exportFormats.contains("fla")) {
+            System.out.println("Exporting FLA...");
+            FLAVersion flaVersion = FLAVersion.fromString(formats.get("fla"));
+            if (flaVersion == null) {
+                flaVersion = FLAVersion.CS6; //Defaults to CS6
+            }
+            swf.exportFla(handler, outDir + (multipleExportTypes ? File.separator + "fla" : ""), inFile.getName(), ApplicationInfo.APPLICATION_NAME, ApplicationInfo.applicationVerName, ApplicationInfo.version, Configuration.parallelSpeedUp.get(), flaVersion);
+        }
 
-                swf.clearAllCache();
+        if (exportFormats.contains("xfl")) {
+            System.out.println("Exporting XFL...");
+            FLAVersion xflVersion = FLAVersion.fromString(formats.get("xfl"));
+            if (xflVersion == null) {
+                xflVersion = FLAVersion.CS6; //Defaults to CS6
             }
-        } catch (OutOfMemoryError | Exception ex) {
-            System.err.print("FAIL: Exporting Failed on Exception - ");
-            Logger.getLogger(CommandLineArgumentParser.class.getName()).log(Level.SEVERE, null, ex);
-            System.exit(1);
+            swf.exportXfl(handler, outDir + (multipleExportTypes ? File.separator + "xfl" : ""), inFile.getName(), ApplicationInfo.APPLICATION_NAME, ApplicationInfo.applicationVerName, ApplicationInfo.version, Configuration.parallelSpeedUp.get(), xflVersion);
         }
 
-        long stopTime = System.currentTimeMillis();
-        long time = stopTime - startTime;
-        System.out.println("Export finished. Total export time: " + Helper.formatTimeSec(time));
-        if (exportOK) {
-            System.out.println("OK");
-            System.exit(0);
+        if (batch) {
+            // the shared caches are used by the other files
+            swf.clearScriptCache();
         } else {
-            System.err.println("FAIL");
-            System.exit(1);
+            swf.clearAllCache();
         }
+
+        return exportOK;
     }
 
     private static void parseCompress(Stack<String> args) {
@@ -1186,9 +1346,17 @@ public class CommandLineArgumentParser {
         }
 
         try {
-            try (FileInputStream is = new FileInputStream(args.pop())) {
+            String inFile = args.pop();
+            File outFile = new File(args.pop());
+            boolean useBinaryFile = false;
+            if (args.size() > 0 && args.peek().toLowerCase().equals("binaryfile")) {
+                args.pop();
+                useBinaryFile = true;
+            }
+
+            try (FileInputStream is = new FileInputStream(inFile)) {
                 SWF swf = new SWF(is, Configuration.parallelSpeedUp.get());
-                new SwfXmlExporter().exportXml(swf, new File(args.pop()));
+                new SwfXmlExporter().exportXml(swf, outFile, useBinaryFile);
             } catch (FileNotFoundException ex) {
                 System.err.println("File not found.");
             } catch (InterruptedException ex) {
@@ -1207,9 +1375,9 @@ public class CommandLineArgumentParser {
         }
 
         try {
-            String xml = Helper.readTextFile(args.pop());
+            File xmlFile = new File(args.pop());
             SWF swf = new SWF();
-            new SwfXmlImporter().importSwf(swf, xml);
+            new SwfXmlImporter().importSwf(swf, xmlFile);
             try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(new File(args.pop())))) {
                 swf.saveTo(new BufferedOutputStream(fos));
             }
@@ -1551,7 +1719,8 @@ public class CommandLineArgumentParser {
 
                 try {
                     try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(outFile))) {
-                        swf.saveTo(fos);
+                        SaveStatistics statistics = swf.saveTo(fos);
+                        Logger.getLogger(CommandLineArgumentParser.class.getName()).log(Level.INFO, "Saved {0}: {1}", new Object[]{outFile, statistics});
                     }
                 } catch (IOException e) {
                     System.err.println("I/O error during writing");
@@ -21,6 +21,7 @@ import com.jpexs.decompiler.flash.EventListener;
 import com.jpexs.decompiler.flash.SWF;
 import com.jpexs.decompiler.flash.SWFBundle;
 import com.jpexs.decompiler.flash.SWFSourceInfo;
+import com.jpexs.decompiler.flash.SaveStatistics;
 import com.jpexs.decompiler.flash.SearchMode;
 import com.jpexs.decompiler.flash.Version;
 import com.jpexs.decompiler.flash.abc.avm2.AVM2Code;
@@ -293,15 +294,20 @@ public class Main {
             }
         } else {
             InputStream fInputStream = inputStream;
+            boolean mapped = fis != null && Configuration.memoryMappedLoading.get();
             CancellableWorker<SWF> worker = new CancellableWorker<SWF>() {
                 @Override
                 public SWF doInBackground() throws Exception {
-                    SWF swf = new SWF(fInputStream, sourceInfo.getFile(), sourceInfo.getFileTitle(), new ProgressListener() {
+                    ProgressListener listener = new ProgressListener() {
                         @Override
                         public void progress(int p) {
                             startWork(AppStrings.translate("work.reading.swf"), p);
                         }
-                    }, Configuration.parallelSpeedUp.get());
+                    };
+                    if (mapped) {
+                        return new SWF(new File(sourceInfo.getFile()), sourceInfo.getFileTitle(), listener, Configuration.parallelSpeedUp.get(), true);
+                    }
+                    SWF swf = new SWF(fInputStream, sourceInfo.getFile(), sourceInfo.getFileTitle(), listener, Configuration.parallelSpeedUp.get());
                     return swf;
                 }
             };
@@ -407,7 +413,8 @@ public class Main {
                 fos.write((height >> 24) & 0xff);
                 fos.write(Configuration.saveAsExeScaleMode.get());
             }
-            swf.saveTo(fos);
+            SaveStatistics statistics = swf.saveTo(fos);
+            logger.log(Level.INFO, "Saved {0}: {1}", new Object[]{outfile, statistics});
         }
         if (tmpFile.exists()) {
             if (tmpFile.length() > 0) {
@@ -651,6 +651,14 @@ public final class MainPanel extends JPanel implements TreeSelectionListener, Se
         if (swf != null) {
             updateUi(swf);
         }
+
+        if (Configuration.backgroundScriptIndexing.get()) {
+            for (SWF s : newSwfs) {
+                if (s.isAS3()) {
+                    s.getAS3SearchIndex().startBuild(null);
+                }
+            }
+        }
     }
 
     private ABCPanel getABCPanel() {
@@ -1305,14 +1313,15 @@ public final class MainPanel extends JPanel implements TreeSelectionListener, Se
                     @Override
                     protected Void doInBackground() throws Exception {
                         boolean found = false;
-                        if (searchDialog.searchInASRadioButton.isSelected()) {
+                        boolean pcode = searchDialog.searchInPCodeRadioButton.isSelected();
+                        if (searchDialog.searchInASRadioButton.isSelected() || pcode) {
                             if (swf.isAS3()) {
                                 // todo: honfika: do not call this from background thread
                                 View.execInEventDispatch(() -> {
                                     getActionPanel();
                                 });
 
-                                if (getABCPanel().search(txt, searchDialog.ignoreCaseCheckBox.isSelected(), searchDialog.regexpCheckBox.isSelected())) {
+                                if (getABCPanel().search(txt, searchDialog.ignoreCaseCheckBox.isSelected(), searchDialog.regexpCheckBox.isSelected(), pcode)) {
                                     found = true;
                                 }
                             } else {
@@ -1321,7 +1330,7 @@ public final class MainPanel extends JPanel implements TreeSelectionListener, Se
                                     getActionPanel();
                                 });
 
-                                if (getActionPanel().search(txt, searchDialog.ignoreCaseCheckBox.isSelected(), searchDialog.regexpCheckBox.isSelected())) {
+                                if (getActionPanel().search(txt, searchDialog.ignoreCaseCheckBox.isSelected(), searchDialog.regexpCheckBox.isSelected(), pcode)) {
                                     found = true;
                                 }
                             }
@@ -1840,9 +1849,8 @@ public final class MainPanel extends JPanel implements TreeSelectionListener, Se
             File selectedFile = showImportFileChooser("filter.xml|*.xml");
             if (selectedFile != null) {
                 File selfile = Helper.fixDialogFile(selectedFile);
-                String xml = Helper.readTextFile(selfile.getPath());
                 try {
-                    new SwfXmlImporter().importSwf(swf, xml);
+                    new SwfXmlImporter().importSwf(swf, selfile);
                     swf.clearAllCache();
                     swf.assignExportNamesToSymbols();
                     swf.assignClassesToSymbols();
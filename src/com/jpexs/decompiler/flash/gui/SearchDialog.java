@@ -57,6 +57,8 @@ public class SearchDialog extends AppDialog {
 
     public JRadioButton searchInTextsRadioButton = new JRadioButton(translate("checkbox.searchText"));
 
+    public JRadioButton searchInPCodeRadioButton = new JRadioButton(translate("checkbox.searchPCode"));
+
     private int result = ERROR_OPTION;
 
     public SearchDialog(Window owner, boolean replace) {
@@ -100,11 +102,13 @@ public class SearchDialog extends AppDialog {
             ButtonGroup group = new ButtonGroup();
             group.add(searchInASRadioButton);
             group.add(searchInTextsRadioButton);
+            group.add(searchInPCodeRadioButton);
 
             JPanel rbPanel = new JPanel(new FlowLayout());
             searchInASRadioButton.setSelected(true);
             searchInTextsRadioButton.setSelected(false);
             rbPanel.add(searchInASRadioButton);
+            rbPanel.add(searchInPCodeRadioButton);
             rbPanel.add(searchInTextsRadioButton);
             cnt.add(rbPanel);
         }
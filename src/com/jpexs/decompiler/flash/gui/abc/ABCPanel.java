@@ -20,6 +20,7 @@ import com.jpexs.decompiler.flash.SWF;
 import com.jpexs.decompiler.flash.abc.ABC;
 import com.jpexs.decompiler.flash.abc.ClassPath;
 import com.jpexs.decompiler.flash.abc.ScriptPack;
+import com.jpexs.decompiler.flash.abc.ScriptSearchIndex;
 import com.jpexs.decompiler.flash.abc.avm2.AVM2Code;
 import com.jpexs.decompiler.flash.abc.avm2.instructions.AVM2Instruction;
 import com.jpexs.decompiler.flash.abc.avm2.instructions.localregs.GetLocal0Ins;
@@ -65,6 +66,7 @@ import com.jpexs.decompiler.flash.treeitems.TreeItem;
 import com.jpexs.decompiler.graph.CompilationException;
 import com.jpexs.helpers.CancellableWorker;
 import com.jpexs.helpers.Helper;
+import com.jpexs.helpers.ProgressListener;
 import java.awt.BorderLayout;
 import java.awt.Cursor;
 import java.awt.FlowLayout;
@@ -84,10 +86,10 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 import javax.swing.AbstractAction;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
@@ -160,7 +162,7 @@ public class ABCPanel extends JPanel implements ItemListener, SearchListener<ABC
         return mainPanel;
     }
 
-    public boolean search(final String txt, boolean ignoreCase, boolean regexp) {
+    public boolean search(final String txt, boolean ignoreCase, boolean regexp, boolean pcode) {
         if ((txt != null) && (!txt.isEmpty())) {
             searchPanel.setOptions(ignoreCase, regexp);
             TagTreeModel ttm = (TagTreeModel) mainPanel.tagTree.getModel();
@@ -168,40 +170,49 @@ public class ABCPanel extends JPanel implements ItemListener, SearchListener<ABC
             final List<ABCPanelSearchResult> found = new ArrayList<>();
             if (scriptsNode instanceof ClassesListTreeModel) {
                 ClassesListTreeModel clModel = (ClassesListTreeModel) scriptsNode;
-                List<ScriptPack> allpacks = clModel.getList();
-                final Pattern pat = regexp
-                        ? Pattern.compile(txt, ignoreCase ? (Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE) : 0)
-                        : Pattern.compile(Pattern.quote(txt), ignoreCase ? (Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE) : 0);
-                int pos = 0;
-                for (final ScriptPack pack : allpacks) {
-                    pos++;
-                    String workText = AppStrings.translate("work.searching");
-                    String decAdd = "";
-                    if (!SWF.isCached(pack)) {
-                        decAdd = ", " + AppStrings.translate("work.decompiling");
-                    }
+                SWF swf = clModel.getSwf();
+                ScriptSearchIndex index = swf.getAS3SearchIndex(pcode);
+                if (!index.getPacks().equals(clModel.getList())) {
+                    // the classes were changed since the index was created
+                    swf.resetAS3SearchIndex();
+                    index = swf.getAS3SearchIndex(pcode);
+                }
 
-                    try {
-                        CancellableWorker worker = new CancellableWorker() {
-
-                            @Override
-                            public Void doInBackground() throws Exception {
-                                if (pat.matcher(SWF.getCached(pack).text).find()) {
-                                    ABCPanelSearchResult searchResult = new ABCPanelSearchResult();
-                                    searchResult.scriptPack = pack;
-                                    found.add(searchResult);
-                                }
-                                return null;
+                final ScriptSearchIndex fIndex = index;
+                final String workText = AppStrings.translate("work.searching") + " \"" + txt + "\"";
+                final String decompilingText = workText + ", " + AppStrings.translate("work.decompiling") + "... ";
+                try {
+                    CancellableWorker worker = new CancellableWorker() {
+
+                        @Override
+                        public Void doInBackground() throws Exception {
+                            if (!fIndex.isBuilt()) {
+                                final CancellableWorker worker = this;
+                                fIndex.waitForBuild(new ProgressListener() {
+
+                                    @Override
+                                    public void progress(int p) {
+                                        Main.startWork(decompilingText, p, worker);
+                                    }
+                                });
                             }
-                        };
-                        worker.execute();
-                        Main.startWork(workText + " \"" + txt + "\"" + decAdd + " - (" + pos + "/" + allpacks.size() + ") " + pack.getClassPath().toString() + "... ", worker);
-                        worker.get();
-                    } catch (InterruptedException ex) {
-                        break;
-                    } catch (ExecutionException ex) {
-                        Logger.getLogger(ABCPanel.class.getName()).log(Level.SEVERE, null, ex);
-                    }
+
+                            Main.startWork(workText + "... ", this);
+                            for (ScriptPack pack : fIndex.search(txt, ignoreCase, regexp, pcode)) {
+                                ABCPanelSearchResult searchResult = new ABCPanelSearchResult();
+                                searchResult.scriptPack = pack;
+                                found.add(searchResult);
+                            }
+                            return null;
+                        }
+                    };
+                    worker.execute();
+                    Main.startWork(workText + "... ", worker);
+                    worker.get();
+                } catch (InterruptedException | CancellationException ex) {
+                    // cancelled by the user
+                } catch (ExecutionException ex) {
+                    Logger.getLogger(ABCPanel.class.getName()).log(Level.SEVERE, null, ex);
                 }
             }
 
@@ -477,9 +488,9 @@ public class ABCPanel extends JPanel implements ItemListener, SearchListener<ABC
             }
             List<MultinameUsage> usages = abc.findMultinameDefinition(multinameIndex);
 
-            Multiname m = abc.constants.constant_multiname.get(multinameIndex);
+            Multiname m = abc.constants.getMultiname(multinameIndex);
             //search other ABC tags if this is not private multiname
-            if (m.namespace_index > 0 && abc.constants.constant_namespace.get(m.namespace_index).kind != Namespace.KIND_PRIVATE) {
+            if (m.namespace_index > 0 && abc.constants.getNamespace(m.namespace_index).kind != Namespace.KIND_PRIVATE) {
                 for (ABCContainerTag at : getAbcList()) {
                     ABC a = at.getABC();
                     if (a == abc) {
@@ -517,9 +528,9 @@ public class ABCPanel extends JPanel implements ItemListener, SearchListener<ABC
         if (multinameIndex > -1) {
             List<MultinameUsage> usages = abc.findMultinameDefinition(multinameIndex);
 
-            Multiname m = abc.constants.constant_multiname.get(multinameIndex);
+            Multiname m = abc.constants.getMultiname(multinameIndex);
             //search other ABC tags if this is not private multiname
-            if (m.namespace_index > 0 && abc.constants.constant_namespace.get(m.namespace_index).kind != Namespace.KIND_PRIVATE) {
+            if (m.namespace_index > 0 && abc.constants.getNamespace(m.namespace_index).kind != Namespace.KIND_PRIVATE) {
                 for (ABCContainerTag at : getAbcList()) {
                     ABC a = at.getABC();
                     if (a == abc) {
@@ -871,6 +882,7 @@ public class ABCPanel extends JPanel implements ItemListener, SearchListener<ABC
             } else {
                 traitId = abc.class_info.get(class_index).static_traits.traits.size() + abc.instance_info.get(class_index).instance_traits.addTrait(t);
             }
+            abc.clearMultinameUsages();
             reload();
             decompiledTextArea.gotoTrait(traitId);
         }
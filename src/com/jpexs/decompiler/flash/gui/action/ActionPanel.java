@@ -44,6 +44,7 @@ import com.jpexs.decompiler.flash.gui.View;
 import com.jpexs.decompiler.flash.gui.abc.LineMarkedEditorPane;
 import com.jpexs.decompiler.flash.gui.controls.JPersistentSplitPane;
 import com.jpexs.decompiler.flash.gui.tagtree.TagTreeModel;
+import com.jpexs.decompiler.flash.helpers.CodeFormatting;
 import com.jpexs.decompiler.flash.helpers.HighlightedText;
 import com.jpexs.decompiler.flash.helpers.HighlightedTextWriter;
 import com.jpexs.decompiler.flash.helpers.hilight.Highlighting;
@@ -228,7 +229,7 @@ public class ActionPanel extends JPanel implements SearchListener<ActionSearchRe
         return null;
     }
 
-    public boolean search(final String txt, boolean ignoreCase, boolean regexp) {
+    public boolean search(final String txt, boolean ignoreCase, boolean regexp, boolean pcode) {
         if ((txt != null) && (!txt.isEmpty())) {
             searchPanel.setOptions(ignoreCase, regexp);
             SWF swf = mainPanel.getCurrentSwf();
@@ -246,12 +247,18 @@ public class ActionPanel extends JPanel implements SearchListener<ActionSearchRe
                 String workText = AppStrings.translate("work.searching");
                 String decAdd = "";
                 ASMSource asm = item.getValue();
-                if (!SWF.isCached(asm)) {
+                if (!pcode && !SWF.isCached(asm)) {
                     decAdd = ", " + AppStrings.translate("work.decompiling");
                 }
                 Main.startWork(workText + " \"" + txt + "\"" + decAdd + " - (" + pos + "/" + asms.size() + ") " + item.getKey() + "... ");
                 try {
-                    if (pat.matcher(SWF.getCached(asm, null).text).find()) {
+                    String text;
+                    if (pcode) {
+                        text = asm.getASMSource(ScriptExportMode.PCODE, new HighlightedTextWriter(new CodeFormatting(), false), null).toString();
+                    } else {
+                        text = SWF.getCached(asm, null).text;
+                    }
+                    if (pat.matcher(text).find()) {
                         found.add(new ActionSearchResult(asm, item.getKey()));
                     }
                 } catch (InterruptedException ex) {
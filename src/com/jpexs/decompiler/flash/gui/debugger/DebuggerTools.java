@@ -85,11 +85,12 @@ public class DebuggerTools {
             //change trace to fname
             for (ABCContainerTag ct : swf.getAbcList()) {
                 ABC a = ct.getABC();
-                for (int i = 1; i < a.constants.constant_multiname.size(); i++) {
-                    Multiname m = a.constants.constant_multiname.get(i);
+                for (int i = 1; i < a.constants.getMultinameCount(); i++) {
+                    Multiname m = a.constants.getMultiname(i);
                     if ("trace".equals(m.getNameWithNamespace(a.constants, true))) {
                         m.namespace_index = a.constants.getNamespaceId(new Namespace(Namespace.KIND_PACKAGE, a.constants.getStringId(debuggerPkg, true)), 0, true);
                         m.name_index = a.constants.getStringId(fname, true);
+                        a.constants.setMultiname(i, m);
                         ((Tag) ct).setModified(true);
                     }
                 }
@@ -108,8 +109,8 @@ public class DebuggerTools {
             //Change all debugger calls to normal trace
             for (ABCContainerTag ct : swf.getAbcList()) {
                 ABC a = ct.getABC();
-                for (int i = 1; i < a.constants.constant_multiname.size(); i++) {
-                    Multiname m = a.constants.constant_multiname.get(i);
+                for (int i = 1; i < a.constants.getMultinameCount(); i++) {
+                    Multiname m = a.constants.getMultiname(i);
                     String packageStr = m.getNameWithNamespace(a.constants, true);
                     if (isDebuggerClass(packageStr, "debugTrace")
                             || isDebuggerClass(packageStr, "debugAlert")
@@ -117,6 +118,7 @@ public class DebuggerTools {
                             || isDebuggerClass(packageStr, "debugConsole")) {
                         m.name_index = a.constants.getStringId("trace", true);
                         m.namespace_index = a.constants.getNamespaceId(new Namespace(Namespace.KIND_PACKAGE, a.constants.getStringId("", true)), 0, true);
+                        a.constants.setMultiname(i, m);
                         ((Tag) ct).setModified(true);
                     }
                 }
@@ -141,15 +143,17 @@ public class DebuggerTools {
                 for (ABCContainerTag ds : debugSWF.getAbcList()) {
                     ABC a = ds.getABC();
                     //Append random hex to Debugger package name
-                    for (int i = 1; i < a.constants.constant_namespace.size(); i++) {
-                        if (a.constants.constant_namespace.get(i).hasName(DEBUGGER_PACKAGE, a.constants)) {
-                            a.constants.constant_namespace.get(i).name_index = a.constants.getStringId(newdebuggerpkg, true);
+                    for (int i = 1; i < a.constants.getNamespaceCount(); i++) {
+                        if (a.constants.getNamespace(i).hasName(DEBUGGER_PACKAGE, a.constants)) {
+                            Namespace ns = a.constants.getNamespace(i);
+                            ns.name_index = a.constants.getStringId(newdebuggerpkg, true);
+                            a.constants.setNamespace(i, ns);
                         }
                     }
                     //Set debugger port to actually set port
-                    for (int i = 0; i < a.constants.constant_int.size(); i++) {
-                        if (a.constants.constant_int.get(i) == 123456L) {
-                            a.constants.constant_int.set(i, (long) port);
+                    for (int i = 0; i < a.constants.getIntCount(); i++) {
+                        if (a.constants.getInt(i) == 123456L) {
+                            a.constants.setInt(i, (long) port);
                         }
                     }
                     //Add to target SWF
@@ -190,7 +190,7 @@ public class DumpTree extends JTree {
         if (fc.showSaveDialog(f) == JFileChooser.APPROVE_OPTION) {
             File sf = Helper.fixDialogFile(fc.getSelectedFile());
             try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(sf))) {
-                byte[] data = DumpInfoSwfNode.getSwfNode(dumpInfo).getSwf().originalUncompressedData;
+                byte[] data = DumpInfoSwfNode.getSwfNode(dumpInfo).getSwf().getOriginalUncompressedData();
                 fos.write(data, (int) dumpInfo.startByte, (int) (dumpInfo.getEndByte() - dumpInfo.startByte + 1));
             } catch (IOException ex) {
                 Logger.getLogger(DumpTree.class.getName()).log(Level.SEVERE, null, ex);
@@ -202,7 +202,7 @@ public class DumpTree extends JTree {
         TreePath[] paths = getSelectionPaths();
         DumpInfo dumpInfo = (DumpInfo) paths[0].getLastPathComponent();
         SWF swf = DumpInfoSwfNode.getSwfNode(dumpInfo).getSwf();
-        byte[] data = swf.originalUncompressedData;
+        byte[] data = swf.getOriginalUncompressedData();
         int prevLength = (int) dumpInfo.startByte;
         try {
             SWFInputStream rri = new SWFInputStream(swf, data);
@@ -228,7 +228,7 @@ public class DumpTree extends JTree {
         TreePath[] paths = getSelectionPaths();
         DumpInfo dumpInfo = (DumpInfo) paths[0].getLastPathComponent();
         SWF swf = DumpInfoSwfNode.getSwfNode(dumpInfo).getSwf();
-        byte[] data = swf.originalUncompressedData;
+        byte[] data = swf.getOriginalUncompressedData();
         int prevLength = (int) dumpInfo.startByte;
         try {
             ABCInputStream ais = new ABCInputStream(new MemoryInputStream(data, 0, prevLength + (int) dumpInfo.lengthBytes));
@@ -245,7 +245,7 @@ public class DumpTree extends JTree {
         TreePath[] paths = getSelectionPaths();
         DumpInfo dumpInfo = (DumpInfo) paths[0].getLastPathComponent();
         SWF swf = DumpInfoSwfNode.getSwfNode(dumpInfo).getSwf();
-        byte[] data = swf.originalUncompressedData;
+        byte[] data = swf.getOriginalUncompressedData();
         int prevLength = (int) dumpInfo.startByte;
         try {
             ABCInputStream ais = new ABCInputStream(new MemoryInputStream(data, 0, prevLength + (int) dumpInfo.lengthBytes));
@@ -149,7 +149,7 @@ public class DumpViewPanel extends JPanel {
         }
 
         this.selectedDumpInfo = dumpInfo;
-        byte[] data = DumpInfoSwfNode.getSwfNode(dumpInfo).getSwf().originalUncompressedData;
+        byte[] data = DumpInfoSwfNode.getSwfNode(dumpInfo).getSwf().getOriginalUncompressedData();
         List<DumpInfo> dumpInfos = new ArrayList<>();
         DumpInfo di = dumpInfo;
         while (di.parent != null) {
@@ -0,0 +1,214 @@
+/*
+ *  Copyright (C) 2010-2015 JPEXS
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.jpexs.decompiler.flash.console;
+
+import com.jpexs.helpers.Helper;
+import com.jpexs.helpers.WorkerPool;
+import com.jpexs.helpers.utf8.Utf8Helper;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class BatchExportTest {
+
+    private static final String TESTDATA_DIR = "libsrc/ffdec_lib/testdata";
+
+    private File tempDir;
+
+    @BeforeMethod
+    public void createTempDir() throws IOException {
+        tempDir = Files.createTempDirectory("batchtest").toFile();
+    }
+
+    @AfterMethod
+    public void deleteTempDir() {
+        deleteRecursive(tempDir);
+    }
+
+    private static void deleteRecursive(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursive(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static String readString(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), Utf8Helper.charset);
+    }
+
+    private File createInputFolder() throws IOException {
+        File inDir = new File(tempDir, "in");
+        inDir.mkdir();
+        Files.copy(new File(TESTDATA_DIR + "/as2/as2.swf").toPath(), new File(inDir, "as2.swf").toPath());
+        Files.copy(new File(TESTDATA_DIR + "/as3/as3.swf").toPath(), new File(inDir, "as3.swf").toPath());
+        try (FileOutputStream fos = new FileOutputStream(new File(inDir, "broken.swf"))) {
+            fos.write(new byte[]{'F', 'W', 'S', 10, 100, 0, 0, 0, 1, 2, 3});
+        }
+        return inDir;
+    }
+
+    @Test
+    public void testBatchCommandLine() throws IOException, InterruptedException {
+        File inDir = createInputFolder();
+        File outDir = new File(tempDir, "out");
+        File summaryFile = new File(tempDir, "summary.json");
+        String stdOutPattern = new File(tempDir, "{swfFile}.out").getAbsolutePath();
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder pb = new ProcessBuilder(java, "-Djava.awt.headless=true", "-cp", System.getProperty("java.class.path"),
+                "com.jpexs.decompiler.flash.gui.Main",
+                "-batch", "2", "-batchSummary", summaryFile.getAbsolutePath(), "-stdout", stdOutPattern,
+                "-export", "script", outDir.getAbsolutePath(), inDir.getAbsolutePath());
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(new File(tempDir, "console.txt"));
+        Process process = pb.start();
+        assertTrue(process.waitFor(5, TimeUnit.MINUTES));
+
+        // the broken file fails, the others are exported
+        assertEquals(process.exitValue(), 1);
+        assertTrue(new File(outDir, "as2.swf/scripts").isDirectory());
+        assertTrue(new File(outDir, "as3.swf/scripts").isDirectory());
+
+        String summary = readString(summaryFile);
+        assertTrue(summary.contains("\"fileCount\": 3,"), summary);
+        assertTrue(summary.contains("\"okCount\": 2,"), summary);
+        assertTrue(summary.contains("\"failedCount\": 1,"), summary);
+        assertTrue(summary.contains("broken.swf\", \"compressedSize\": 11, \"uncompressedSize\": 100,"), summary);
+
+        for (String name : new String[]{"as2", "as3"}) {
+            String other = name.equals("as2") ? "as3" : "as2";
+            String out = readString(new File(tempDir, name + ".out"));
+            assertTrue(out.contains("Start exporting " + name + ".swf"), out);
+            assertTrue(out.contains("Export finished: " + name + ".swf"), out);
+            assertTrue(out.contains("Exported script "), out);
+            assertFalse(out.contains(other + ".swf"), out);
+        }
+    }
+
+    @Test
+    public void testPoolTasksWriteToFileOutput() throws IOException, InterruptedException {
+        File inDir = createInputFolder();
+        String stdOutPattern = new File(tempDir, "{swfFile}.out").getAbsolutePath();
+        String stdErrPattern = new File(tempDir, "{swfFile}.err").getAbsolutePath();
+        BatchExport batchExport = new BatchExport(3, stdOutPattern, stdErrPattern);
+        File[] files = inDir.listFiles();
+        List<BatchExport.FileResult> results = batchExport.run(files, new BatchExport.FileExport() {
+            @Override
+            public boolean export(final File file, PrintStream out) throws Exception {
+                List<Future<Void>> futures = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                    final int index = i;
+                    futures.add(WorkerPool.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            System.out.println("Task " + index + " of " + file.getName());
+                            System.err.println("Error " + index + " of " + file.getName());
+                            return null;
+                        }
+                    }));
+                }
+                for (Future<Void> future : futures) {
+                    WorkerPool.get(future);
+                }
+                return true;
+            }
+        });
+
+        assertEquals(results.size(), files.length);
+        for (File file : files) {
+            String name = file.getName();
+            String fileName = name.substring(0, name.length() - 4);
+            String out = readString(new File(tempDir, fileName + ".out"));
+            String err = readString(new File(tempDir, fileName + ".err"));
+            for (int i = 0; i < 4; i++) {
+                assertTrue(out.contains("Task " + i + " of " + name), out);
+                assertTrue(err.contains("Error " + i + " of " + name), err);
+            }
+            for (File otherFile : files) {
+                if (otherFile != file) {
+                    assertFalse(out.contains(" of " + otherFile.getName()), out);
+                    assertFalse(err.contains(" of " + otherFile.getName()), err);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUncompressedSize() throws IOException {
+        String[] signatures = new String[]{"FWS", "CWS", "ZWS", "GFX", "CFX"};
+        for (String signature : signatures) {
+            File file = new File(tempDir, signature + ".swf");
+            try (FileOutputStream fos = new FileOutputStream(file)) {
+                fos.write(Utf8Helper.getBytes(signature));
+                fos.write(new byte[]{10, 0x40, (byte) 0xe2, 0x01, 0x00, 0, 0});
+            }
+            assertEquals(BatchExport.getUncompressedSize(file), 123456, signature);
+        }
+
+        File file = new File(tempDir, "invalid.swf");
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            fos.write(Utf8Helper.getBytes("XWS"));
+            fos.write(new byte[]{10, 0x40, (byte) 0xe2, 0x01, 0x00, 0, 0});
+        }
+        assertEquals(BatchExport.getUncompressedSize(file), file.length());
+    }
+
+    @Test
+    public void testSummary() throws IOException {
+        BatchExport.FileResult ok = new BatchExport.FileResult();
+        ok.file = new File("a.swf");
+        ok.compressedSize = 10;
+        ok.uncompressedSize = 20;
+        ok.time = 5;
+        ok.ok = true;
+        BatchExport.FileResult failed = new BatchExport.FileResult();
+        failed.file = new File("b.swf");
+        failed.ok = false;
+        failed.error = "java.io.IOException: \"bad\"";
+        List<BatchExport.FileResult> results = new ArrayList<>();
+        results.add(ok);
+        results.add(failed);
+
+        File summaryFile = new File(tempDir, "summary.json");
+        BatchExport.writeSummary(results, 100, summaryFile);
+        String summary = readString(summaryFile);
+        assertTrue(summary.contains("\"totalTime\": 100,"), summary);
+        assertTrue(summary.contains("\"okCount\": 1,"), summary);
+        assertTrue(summary.contains("\"failedCount\": 1,"), summary);
+        assertTrue(summary.contains("\"compressedSize\": 10, \"uncompressedSize\": 20,"), summary);
+        assertTrue(summary.contains("\"error\": \"" + Helper.escapeJavaString(failed.error) + "\""), summary);
+    }
+}